@@ -0,0 +1,35 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.benchmarks;
+
+import java.util.UUID;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalContext;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalSnapshot;
+
+/**
+ * @author Daniel R. Pedersen
+ */
+public class BenchSnapshot extends TemporalSnapshot<UUID, BenchStruct.BenchState, BenchStruct.BenchEvent, BenchStruct> {
+
+	public BenchSnapshot(final BenchStruct struct) {
+		super(struct);
+	}
+
+	public BenchSnapshot(final TemporalContext context, final BenchStruct struct) {
+		super(context, struct);
+	}
+}
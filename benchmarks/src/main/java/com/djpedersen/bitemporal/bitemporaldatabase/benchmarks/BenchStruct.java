@@ -0,0 +1,113 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalStructureInterface;
+
+/**
+ * A representative struct for the benchmarks: a handful of scalars, a list and a nested object.
+ * 
+ * @author Daniel R. Pedersen
+ */
+public class BenchStruct implements TemporalStructureInterface<UUID, BenchStruct.BenchState, BenchStruct.BenchEvent> {
+
+	public static enum BenchState {
+		Working, Closed
+	}
+
+	public static enum BenchEvent {
+		Create, Update, Close
+	}
+
+	public static class BenchSubStruct {
+		private int subIntValue;
+
+		public BenchSubStruct(final int subIntValue) {
+			this.subIntValue = subIntValue;
+		}
+
+		public BenchSubStruct(final BenchSubStruct src) {
+			this.subIntValue = src.subIntValue;
+		}
+
+		public int getSubIntValue() {
+			return this.subIntValue;
+		}
+	}
+
+	private UUID id;
+	private int intValue;
+	private String name;
+	private List<String> tags;
+	private List<BenchSubStruct> subStructList;
+	private BenchSubStruct subStruct;
+	private BenchState state;
+	private BenchEvent event;
+
+	public BenchStruct(final UUID id, final int intValue) {
+		this.id = id;
+		this.intValue = intValue;
+		this.name = "struct " + intValue;
+		this.tags = new ArrayList<>(List.of("a", "b", "c"));
+		this.subStructList = new ArrayList<>(List.of(new BenchSubStruct(1), new BenchSubStruct(2), new BenchSubStruct(3)));
+		this.subStruct = new BenchSubStruct(intValue);
+		this.state = BenchState.Working;
+		this.event = BenchEvent.Create;
+	}
+
+	public BenchStruct(final BenchStruct src) {
+		this.id = src.id;
+		this.intValue = src.intValue;
+		this.name = src.name;
+		this.tags = src.tags != null ? new ArrayList<>(src.tags) : null;
+		this.subStructList = src.subStructList != null ? new ArrayList<>(src.subStructList) : null;
+		this.subStruct = src.subStruct != null ? new BenchSubStruct(src.subStruct) : null;
+		this.state = src.state;
+		this.event = src.event;
+	}
+
+	public int getIntValue() {
+		return this.intValue;
+	}
+
+	public BenchSubStruct getSubStruct() {
+		return this.subStruct;
+	}
+
+	@Override
+	public UUID getIdentifier() {
+		return this.id;
+	}
+
+	@Override
+	public BenchState getState() {
+		return this.state;
+	}
+
+	@Override
+	public BenchEvent getEvent() {
+		return this.event;
+	}
+
+	@Override
+	public int getEdition() {
+		return 1;
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.benchmarks;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.ContextHandle;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.CorrectedPair;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceException;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceInterface;
+
+/**
+ * The TemporalPersistenceInterface surface against the implementation supplied by the {@code factoryClass} parameter. Every
+ * identifier is preloaded with {@code versions} versions, one effective per day, before measurement starts.
+ * 
+ * Writes grow the histories they touch, so results from long runs of the write benchmarks reflect ever longer revision chains.
+ * 
+ * @author Daniel R. Pedersen
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersistenceBenchmark {
+
+	private static final Instant START = Instant.parse("2000-01-01T00:00:00Z");
+
+	@Param({ "com.djpedersen.bitemporal.bitemporaldatabase.benchmarks.InMemoryPersistenceFactory" })
+	public String factoryClass;
+
+	@Param({ "1000" })
+	public int identifiers;
+
+	@Param({ "1", "100" })
+	public int versions;
+
+	private PersistenceFactory factory;
+	private TemporalPersistenceInterface<UUID, BenchStruct.BenchState, BenchStruct.BenchEvent, BenchStruct, BenchSnapshot> persistence;
+	private UUID[] ids;
+	private Instant lastEffective;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		this.factory = PersistenceFactory.forName(this.factoryClass);
+		this.persistence = this.factory.create();
+		this.ids = new UUID[this.identifiers];
+		this.lastEffective = START.plus(this.versions - 1, ChronoUnit.DAYS);
+
+		for (int i = 0; i < this.identifiers; i++) {
+			this.ids[i] = UUID.randomUUID();
+			this.persistence.createNew(new BenchStruct(this.ids[i], 0), START);
+
+			for (int v = 1; v < this.versions; v++) {
+				this.persistence.appendVersion(new BenchStruct(this.ids[i], v), START.plus(v, ChronoUnit.DAYS));
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		this.factory.dispose(this.persistence);
+	}
+
+	private UUID randomId() {
+		return this.ids[ThreadLocalRandom.current().nextInt(this.ids.length)];
+	}
+
+	private int randomVersion() {
+		return 1 + ThreadLocalRandom.current().nextInt(this.versions);
+	}
+
+	private Instant randomEffective() {
+		return START.plus(ThreadLocalRandom.current().nextLong(this.versions * 24L * 60L), ChronoUnit.MINUTES);
+	}
+
+	//
+	// Writes
+	//
+
+	@Benchmark
+	public BenchSnapshot createNew() throws TemporalPersistenceException {
+		return this.persistence.createNew(new BenchStruct(UUID.randomUUID(), 0), START);
+	}
+
+	@Benchmark
+	public BenchSnapshot appendVersion() throws TemporalPersistenceException {
+		return this.persistence.appendVersion(new BenchStruct(randomId(), 1), this.lastEffective);
+	}
+
+	@Benchmark
+	public CorrectedPair<BenchSnapshot> correctStructByVersion() throws TemporalPersistenceException {
+		return this.persistence.correctStructByVersion(randomId(), randomVersion(), "$.subStruct.subIntValue", 42, "benchmark");
+	}
+
+	@Benchmark
+	public CorrectedPair<BenchSnapshot> correctStructByVersionMultiplePaths() throws TemporalPersistenceException {
+		return this.persistence.correctStructByVersion(randomId(), randomVersion(), Map.of("$.intValue", 42, "$.subStruct.subIntValue", 42), "benchmark");
+	}
+
+	@Benchmark
+	public List<CorrectedPair<BenchSnapshot>> correctStructAllVersions() throws TemporalPersistenceException {
+		return this.persistence.correctStructAllVersions(randomId(), "$.subStruct.subIntValue", 42, "benchmark");
+	}
+
+	@Benchmark
+	public List<CorrectedPair<BenchSnapshot>> correctContextEffectiveOn() throws TemporalPersistenceException {
+		final int version = randomVersion();
+		return this.persistence.correctContextEffectiveOn(randomId(), version, START.plus(version - 1, ChronoUnit.DAYS), "benchmark");
+	}
+
+	//
+	// Reads
+	//
+
+	@Benchmark
+	public Optional<BenchSnapshot> getByIdCurrent() throws TemporalPersistenceException {
+		return this.persistence.getByIdCurrent(randomId());
+	}
+
+	@Benchmark
+	public Optional<BenchSnapshot> getByIdEffective() throws TemporalPersistenceException {
+		return this.persistence.getByIdEffective(randomId(), randomEffective());
+	}
+
+	@Benchmark
+	public Optional<BenchSnapshot> getByIdEffectiveAsOf() throws TemporalPersistenceException {
+		return this.persistence.getByIdEffectiveAsOf(randomId(), randomEffective(), Instant.now());
+	}
+
+	@Benchmark
+	public Optional<BenchSnapshot> getByIdAndVersion() throws TemporalPersistenceException {
+		return this.persistence.getByIdAndVersion(randomId(), randomVersion());
+	}
+
+	@Benchmark
+	public Optional<BenchSnapshot> getByIdVersionAndRevision() throws TemporalPersistenceException {
+		return this.persistence.getByIdVersionAndRevision(randomId(), randomVersion(), 0);
+	}
+
+	@Benchmark
+	public Optional<BenchSnapshot> getByContextHandle() throws TemporalPersistenceException {
+		return this.persistence.getByContextHandle(new ContextHandle<>(randomId(), randomVersion(), 0));
+	}
+
+	@Benchmark
+	public List<BenchSnapshot> getAllVersions() throws TemporalPersistenceException {
+		return this.persistence.getAllVersions(randomId());
+	}
+
+	@Benchmark
+	public List<BenchSnapshot> getAllVersionsAndRevisions() throws TemporalPersistenceException {
+		return this.persistence.getAllVersionsAndRevisions(randomId());
+	}
+
+	@Benchmark
+	public List<BenchSnapshot> getAllVersionsAsOf() throws TemporalPersistenceException {
+		return this.persistence.getAllVersionsAsOf(randomId(), Instant.now());
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.benchmarks;
+
+import java.util.UUID;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceInterface;
+
+/**
+ * Supplies the persistence implementation under benchmark. Implementations need a public no-argument constructor and are selected
+ * by class name with the {@code factoryClass} benchmark parameter, e.g. {@code -p factoryClass=com.example.MyPersistenceFactory}.
+ * 
+ * @author Daniel R. Pedersen
+ */
+public interface PersistenceFactory {
+
+	/**
+	 * @return a new, empty persistence
+	 * @throws Exception if the persistence cannot be created
+	 */
+	TemporalPersistenceInterface<UUID, BenchStruct.BenchState, BenchStruct.BenchEvent, BenchStruct, BenchSnapshot> create() throws Exception;
+
+	/**
+	 * Release anything the persistence holds, called once the benchmark is complete
+	 * 
+	 * @param persistence the persistence created by this factory
+	 * @throws Exception if the persistence cannot be released
+	 */
+	default void dispose(final TemporalPersistenceInterface<UUID, BenchStruct.BenchState, BenchStruct.BenchEvent, BenchStruct, BenchSnapshot> persistence)
+			throws Exception {
+	}
+
+	/**
+	 * @param className the fully qualified class name of the factory
+	 * @return a new instance of the named factory
+	 * @throws ReflectiveOperationException if the factory cannot be created
+	 */
+	static PersistenceFactory forName(final String className) throws ReflectiveOperationException {
+		return (PersistenceFactory) Class.forName(className).getConstructor().newInstance();
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.benchmarks;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.propsetter.AccessorStrategy;
+import com.djpedersen.bitemporal.bitemporaldatabase.propsetter.CompiledPropertyPath;
+import com.djpedersen.bitemporal.bitemporaldatabase.propsetter.PropertySetter;
+
+/**
+ * Applying a correction path to a struct, through PropertySetter and through a held compiled path.
+ * 
+ * @author Daniel R. Pedersen
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PropertySetterBenchmark {
+
+	@Param({ "$.intValue", "$.subStruct.subIntValue", "$.subStructList[1].subIntValue" })
+	public String attributePath;
+
+	@Param({ "REFLECTION", "VAR_HANDLE" })
+	public AccessorStrategy strategy;
+
+	private BenchStruct struct;
+	private CompiledPropertyPath compiledPath;
+	private int value;
+
+	@Setup
+	public void setUp() {
+		this.struct = new BenchStruct(UUID.randomUUID(), 1);
+		this.compiledPath = CompiledPropertyPath.of(BenchStruct.class, this.attributePath, this.strategy);
+	}
+
+	@Benchmark
+	public boolean propertySetterSet() throws ReflectiveOperationException {
+		return PropertySetter.set(this.struct, this.attributePath, ++this.value);
+	}
+
+	@Benchmark
+	public boolean compiledPathSet() throws IllegalAccessException {
+		return this.compiledPath.set(this.struct, ++this.value);
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.benchmarks;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalContext;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalSnapshot;
+
+/**
+ * Creating contexts and snapshots, the per-write overhead shared by every implementation.
+ * 
+ * @author Daniel R. Pedersen
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TemporalContextBenchmark {
+
+	private TemporalContext context;
+	private BenchStruct struct;
+	private Instant effectiveFrom;
+
+	@Setup
+	public void setUp() {
+		this.context = new TemporalContext();
+		this.struct = new BenchStruct(UUID.randomUUID(), 1);
+		this.effectiveFrom = Instant.now();
+	}
+
+	@Benchmark
+	public TemporalContext createNextVersion() {
+		return this.context.createNextVersion(this.effectiveFrom, "next version");
+	}
+
+	@Benchmark
+	public TemporalContext createNextRevision() {
+		return this.context.createNextRevision("next revision");
+	}
+
+	@Benchmark
+	public TemporalSnapshot<?, ?, ?, ?> snapshotConstruction() {
+		return new BenchSnapshot(this.context, this.struct);
+	}
+}
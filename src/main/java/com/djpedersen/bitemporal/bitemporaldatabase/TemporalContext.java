@@ -189,4 +189,15 @@ public class TemporalContext {
 		return new TemporalContext(this.effectiveFrom, this.version, this.revision + 1, comment, Instant.now());
 	}
 
+	/**
+	 * Create the next revision of the version of this TemporalContext with a new effective date and a comment.
+	 * 
+	 * @param effectiveFrom when the revision is effective
+	 * @param comment       optional comment about the context
+	 * @return the next revision of this TemporalContext
+	 */
+	public TemporalContext createNextRevision(@NonNull final Instant effectiveFrom, final String comment) {
+		return new TemporalContext(effectiveFrom, this.version, this.revision + 1, comment, Instant.now());
+	}
+
 }
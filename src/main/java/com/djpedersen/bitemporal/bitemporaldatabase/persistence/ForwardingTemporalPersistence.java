@@ -0,0 +1,294 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.ContextHandle;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalSnapshot;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalStructureInterface;
+
+import lombok.NonNull;
+
+/**
+ * A temporal persistence which forwards every operation to another, the base of decorators adding behaviour in front of any
+ * implementation. Every snapshot returned by the delegate is passed through {@link #transform(TemporalSnapshot)} on its way back
+ * to the caller; subclasses override that, or any operation, to change what is returned.
+ * 
+ * @author Daniel R. Pedersen
+ *
+ * @param <IDTYPE>     the type of the structure's identifier
+ * @param <STATE_ENUM> the type of the structure's state enum
+ * @param <EVENT_ENUM> the type of the structure's event enum
+ * @param <STRUCT>     the type of the structure
+ * @param <SNAPSHOT>   the type of the structure's snapshot
+ */
+public abstract class ForwardingTemporalPersistence<IDTYPE, STATE_ENUM extends Enum<?>, EVENT_ENUM extends Enum<?>, STRUCT extends TemporalStructureInterface<IDTYPE, STATE_ENUM, EVENT_ENUM>, SNAPSHOT extends TemporalSnapshot<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT>>
+		implements TemporalPersistenceInterface<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT, SNAPSHOT> {
+
+	/**
+	 * The persistence every operation is forwarded to
+	 */
+	protected final TemporalPersistenceInterface<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT, SNAPSHOT> delegate;
+
+	/**
+	 * @param delegate the persistence every operation is forwarded to
+	 */
+	protected ForwardingTemporalPersistence(@NonNull final TemporalPersistenceInterface<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT, SNAPSHOT> delegate) {
+		this.delegate = delegate;
+	}
+
+	/**
+	 * Called with every snapshot returned by the delegate before it is returned to the caller. The default returns the snapshot.
+	 * 
+	 * @param snapshot the snapshot returned by the delegate
+	 * @return the snapshot to return to the caller
+	 * @throws TemporalPersistenceException to fail the operation
+	 */
+	protected SNAPSHOT transform(@NonNull final SNAPSHOT snapshot) throws TemporalPersistenceException {
+		return snapshot;
+	}
+
+	@Override
+	public Instant getLastInstant() {
+		return this.delegate.getLastInstant();
+	}
+
+	//
+	// Create New
+	//
+
+	@Override
+	public SNAPSHOT createNew(@NonNull final STRUCT struct, @NonNull final Instant effectiveOn, final String comment) throws TemporalPersistenceException {
+		return transform(this.delegate.createNew(struct, effectiveOn, comment));
+	}
+
+	//
+	// Append Version
+	//
+
+	@Override
+	public SNAPSHOT appendVersion(@NonNull final STRUCT struct, @NonNull final Instant effectiveOn, final String comment)
+			throws TemporalPersistenceException {
+		return transform(this.delegate.appendVersion(struct, effectiveOn, comment));
+	}
+
+	//
+	// Corrections
+	//
+
+	@Override
+	public CorrectedPair<SNAPSHOT> correctStructByVersion(@NonNull final IDTYPE id, final int version, @NonNull final String structCorrectionPath,
+			final Object newValue, @NonNull final String reason) throws TemporalPersistenceException {
+		return transformPair(this.delegate.correctStructByVersion(id, version, structCorrectionPath, newValue, reason));
+	}
+
+	@Override
+	public List<CorrectedPair<SNAPSHOT>> correctStructAllVersions(@NonNull final IDTYPE id, @NonNull final String structCorrectionPath,
+			final Object newValue, @NonNull final String reason) throws TemporalPersistenceException {
+		return transformPairs(this.delegate.correctStructAllVersions(id, structCorrectionPath, newValue, reason));
+	}
+
+	@Override
+	public CorrectedPair<SNAPSHOT> correctStructByVersion(@NonNull final IDTYPE id, final int version, @NonNull final Map<String, Object> corrections,
+			@NonNull final String reason) throws TemporalPersistenceException {
+		return transformPair(this.delegate.correctStructByVersion(id, version, corrections, reason));
+	}
+
+	@Override
+	public List<CorrectedPair<SNAPSHOT>> correctStructAllVersions(@NonNull final IDTYPE id, @NonNull final Map<String, Object> corrections,
+			@NonNull final String reason) throws TemporalPersistenceException {
+		return transformPairs(this.delegate.correctStructAllVersions(id, corrections, reason));
+	}
+
+	@Override
+	public List<CorrectedPair<SNAPSHOT>> correctContextEffectiveOn(@NonNull final IDTYPE id, final int version, @NonNull final Instant newEffectiveOn,
+			@NonNull final String reason) throws TemporalPersistenceException {
+		return transformPairs(this.delegate.correctContextEffectiveOn(id, version, newEffectiveOn, reason));
+	}
+
+	//
+	// Queries
+	//
+
+	@Override
+	public Optional<SNAPSHOT> getByIdCurrent(@NonNull final IDTYPE id) throws TemporalPersistenceException {
+		return transform(this.delegate.getByIdCurrent(id));
+	}
+
+	@Override
+	public Optional<SNAPSHOT> getByIdLast(@NonNull final IDTYPE id) throws TemporalPersistenceException {
+		return transform(this.delegate.getByIdLast(id));
+	}
+
+	@Override
+	public Optional<SNAPSHOT> getByIdEffective(@NonNull final IDTYPE id, @NonNull final Instant effectiveOn) throws TemporalPersistenceException {
+		return transform(this.delegate.getByIdEffective(id, effectiveOn));
+	}
+
+	@Override
+	public Optional<SNAPSHOT> getByIdAndVersion(@NonNull final IDTYPE id, final int version) throws TemporalPersistenceException {
+		return transform(this.delegate.getByIdAndVersion(id, version));
+	}
+
+	@Override
+	public Optional<SNAPSHOT> getByIdVersionAndRevision(@NonNull final IDTYPE id, final int version, final int revision)
+			throws TemporalPersistenceException {
+		return transform(this.delegate.getByIdVersionAndRevision(id, version, revision));
+	}
+
+	@Override
+	public Optional<SNAPSHOT> getByContextHandle(@NonNull final ContextHandle<IDTYPE> contextHandle) throws TemporalPersistenceException {
+		return transform(this.delegate.getByContextHandle(contextHandle));
+	}
+
+	//
+	// Batch Queries
+	//
+
+	@Override
+	public Map<ContextHandle<IDTYPE>, SNAPSHOT> getByContextHandles(@NonNull final Collection<ContextHandle<IDTYPE>> contextHandles)
+			throws TemporalPersistenceException {
+		return transformValues(this.delegate.getByContextHandles(contextHandles));
+	}
+
+	@Override
+	public Map<IDTYPE, SNAPSHOT> getByIdsEffective(@NonNull final Collection<IDTYPE> ids, @NonNull final Instant effectiveOn)
+			throws TemporalPersistenceException {
+		return transformValues(this.delegate.getByIdsEffective(ids, effectiveOn));
+	}
+
+	//
+	// Bitemporal Queries
+	//
+
+	@Override
+	public Optional<SNAPSHOT> getByIdEffectiveAsOf(@NonNull final IDTYPE id, @NonNull final Instant effectiveOn, @NonNull final Instant recordedAsOf)
+			throws TemporalPersistenceException {
+		return transform(this.delegate.getByIdEffectiveAsOf(id, effectiveOn, recordedAsOf));
+	}
+
+	@Override
+	public List<SNAPSHOT> getAllVersionsAsOf(@NonNull final IDTYPE id, @NonNull final Instant recordedAsOf) throws TemporalPersistenceException {
+		return transform(this.delegate.getAllVersionsAsOf(id, recordedAsOf));
+	}
+
+	//
+	// Version History
+	//
+
+	@Override
+	public List<SNAPSHOT> getAllVersionsAndRevisions(@NonNull final IDTYPE id) throws TemporalPersistenceException {
+		return transform(this.delegate.getAllVersionsAndRevisions(id));
+	}
+
+	@Override
+	public List<SNAPSHOT> getAllVersionsAndRevisions(@NonNull final IDTYPE id, final Instant effectiveFrom, final Instant effectiveUntil)
+			throws TemporalPersistenceException {
+		return transform(this.delegate.getAllVersionsAndRevisions(id, effectiveFrom, effectiveUntil));
+	}
+
+	@Override
+	public List<SNAPSHOT> getAllVersionsAndRevisions(@NonNull final IDTYPE id, final int startingVersion, final int endingVersion)
+			throws TemporalPersistenceException {
+		return transform(this.delegate.getAllVersionsAndRevisions(id, startingVersion, endingVersion));
+	}
+
+	@Override
+	public List<SNAPSHOT> getAllVersions(@NonNull final IDTYPE id) throws TemporalPersistenceException {
+		return transform(this.delegate.getAllVersions(id));
+	}
+
+	@Override
+	public List<SNAPSHOT> getAllVersions(@NonNull final IDTYPE id, final Instant effectiveFrom, final Instant effectiveUntil)
+			throws TemporalPersistenceException {
+		return transform(this.delegate.getAllVersions(id, effectiveFrom, effectiveUntil));
+	}
+
+	@Override
+	public List<SNAPSHOT> getAllVersions(@NonNull final IDTYPE id, final int startingVersion, final int endingVersion) throws TemporalPersistenceException {
+		return transform(this.delegate.getAllVersions(id, startingVersion, endingVersion));
+	}
+
+	@Override
+	public Stream<SNAPSHOT> streamAllVersionsAndRevisions(@NonNull final IDTYPE id) throws TemporalPersistenceException {
+		return transform(this.delegate.streamAllVersionsAndRevisions(id));
+	}
+
+	@Override
+	public Stream<SNAPSHOT> streamAllVersions(@NonNull final IDTYPE id) throws TemporalPersistenceException {
+		return transform(this.delegate.streamAllVersions(id));
+	}
+
+	//
+	// Internals
+	//
+
+	private Optional<SNAPSHOT> transform(final Optional<SNAPSHOT> snapshot) throws TemporalPersistenceException {
+		return snapshot.isEmpty() ? snapshot : Optional.of(transform(snapshot.get()));
+	}
+
+	private List<SNAPSHOT> transform(final List<SNAPSHOT> snapshots) throws TemporalPersistenceException {
+		final var transformed = new ArrayList<SNAPSHOT>(snapshots.size());
+
+		for (final var snapshot : snapshots) {
+			transformed.add(transform(snapshot));
+		}
+
+		return transformed;
+	}
+
+	private Stream<SNAPSHOT> transform(final Stream<SNAPSHOT> snapshots) {
+		return snapshots.map(snapshot -> {
+			try {
+				return transform(snapshot);
+			} catch (final TemporalPersistenceException e) {
+				throw new UncheckedTemporalPersistenceException(e);
+			}
+		});
+	}
+
+	private <KEY> Map<KEY, SNAPSHOT> transformValues(final Map<KEY, SNAPSHOT> snapshots) throws TemporalPersistenceException {
+		final var transformed = new LinkedHashMap<KEY, SNAPSHOT>();
+
+		for (final var entry : snapshots.entrySet()) {
+			transformed.put(entry.getKey(), transform(entry.getValue()));
+		}
+
+		return transformed;
+	}
+
+	private CorrectedPair<SNAPSHOT> transformPair(final CorrectedPair<SNAPSHOT> pair) throws TemporalPersistenceException {
+		return pair == null ? null : CorrectedPair.of(transform(pair.originalSnapshot), transform(pair.correctedSnapshot));
+	}
+
+	private List<CorrectedPair<SNAPSHOT>> transformPairs(final List<CorrectedPair<SNAPSHOT>> pairs) throws TemporalPersistenceException {
+		final var transformed = new ArrayList<CorrectedPair<SNAPSHOT>>(pairs.size());
+
+		for (final var pair : pairs) {
+			transformed.add(transformPair(pair));
+		}
+
+		return transformed;
+	}
+}
@@ -0,0 +1,1105 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.ContextHandle;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalContext;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalSnapshot;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalStructureInterface;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.index.EventIndex;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.index.IdentifierHistory;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.index.StateIndex;
+import com.djpedersen.bitemporal.bitemporaldatabase.propsetter.AccessorStrategy;
+import com.djpedersen.bitemporal.bitemporaldatabase.propsetter.CompiledPropertyPath;
+import com.djpedersen.bitemporal.bitemporaldatabase.propsetter.CopyOnWrite;
+
+import lombok.NonNull;
+
+/**
+ * The base of temporal persistences which index each identifier's snapshots in an {@link IdentifierHistory}, leaving only how a
+ * snapshot is stored to subclasses. Each identifier owns its own history guarded by its own read/write lock, so readers never block
+ * one another and writers only contend on the same identifier. The histories hold a stored value per snapshot, which subclasses
+ * produce from the snapshots of each write with {@link #store(Object, List, List)} and turn back into snapshots with
+ * {@link #load(Object)}.
+ * 
+ * Versions are always kept in effective order, appending a version effective before the last version is rejected; use
+ * {@link #correctContextEffectiveOn(Object, int, Instant, String)} to re-order versions. Each history remembers its current version
+ * until the next version becomes effective or the identifier is written to, so {@link #getByIdCurrent(Object)} rarely takes a lock.
+ * 
+ * When a struct copier is provided every struct created or appended is copied before it is stored, so the caller's struct stays
+ * its own; without one the struct is kept as handed over. Snapshots returned are shared between readers, see
+ * {@link TemporalPersistenceInterface}.
+ * 
+ * Corrections are applied to a copy of the loaded struct made by the provided struct copier, or when no copier is provided to a
+ * {@link CopyOnWrite} copy holding new objects only along the corrected paths; the original snapshot is never altered. Correction
+ * paths are compiled once and reused for every version corrected, and every path of a multi-path correction is applied to the same
+ * copy so each version gains a single revision. Correcting every version of an identifier with at least
+ * {@link #DEFAULT_PARALLEL_THRESHOLD} versions corrects the versions in parallel on a {@link ForkJoinPool}, then stores every revision
+ * together, see {@link #setParallelCorrections(ForkJoinPool, int)}.
+ * 
+ * Once {@link #indexStates(Class)} is called a {@link StateIndex} answers which identifiers are in a state without scanning them, and
+ * once {@link #indexEvents(Class)} is called an {@link EventIndex} finds the versions with an event effective within a range.
+ * 
+ * @author Daniel R. Pedersen
+ *
+ * @param <IDTYPE>     the type of the structure's identifier
+ * @param <STATE_ENUM> the type of the structure's state enum
+ * @param <EVENT_ENUM> the type of the structure's event enum
+ * @param <STRUCT>     the type of the structure
+ * @param <SNAPSHOT>   the type of the structure's snapshot
+ * @param <STORED>     the type of the values held by the histories
+ */
+public abstract class HistoryBackedTemporalPersistence<IDTYPE, STATE_ENUM extends Enum<?>, EVENT_ENUM extends Enum<?>, STRUCT extends TemporalStructureInterface<IDTYPE, STATE_ENUM, EVENT_ENUM>, SNAPSHOT extends TemporalSnapshot<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT>, STORED>
+		implements ScannableTemporalPersistence<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT, SNAPSHOT> {
+
+	/**
+	 * The fewest versions corrected in parallel when not otherwise set
+	 */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 256;
+
+	/**
+	 * The name used when reporting problems
+	 */
+	protected final String collectionName;
+
+	/**
+	 * Creates a snapshot from a context and struct, typically the snapshot's constructor
+	 */
+	protected final BiFunction<TemporalContext, STRUCT, SNAPSHOT> snapshotFactory;
+
+	/**
+	 * Creates an independent copy of a struct, typically the struct's copy constructor, null to correct copy-on-write
+	 */
+	private final UnaryOperator<STRUCT> structCopier;
+
+	/**
+	 * How correction paths access the fields of a struct
+	 */
+	private final AccessorStrategy accessorStrategy;
+
+	/**
+	 * Extracts the context of a stored value
+	 */
+	private final Function<? super STORED, TemporalContext> contextOf;
+
+	private final ConcurrentMap<IDTYPE, IdentifierHistory<STORED>> histories = new ConcurrentHashMap<>();
+
+	/**
+	 * Where the versions of a large correction are corrected in parallel, and the fewest versions to correct in parallel
+	 */
+	private volatile ForkJoinPool correctionPool = ForkJoinPool.commonPool();
+	private volatile int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+	/**
+	 * The identifiers in each state, null until {@link #indexStates(Class)} is called
+	 */
+	private volatile StateIndex<IDTYPE, STORED, STATE_ENUM> stateIndex;
+
+	/**
+	 * The versions with each event by when they became effective, null until {@link #indexEvents(Class)} is called
+	 */
+	private volatile EventIndex<IDTYPE, STORED, EVENT_ENUM> eventIndex;
+
+	/**
+	 * A compiled correction path and the value to set
+	 */
+	private static record Correction(CompiledPropertyPath path, Object newValue) {
+	}
+
+	/**
+	 * @param collectionName   the name used when reporting problems
+	 * @param snapshotFactory  creates a snapshot from a context and struct, e.g. {@code ExampleSnapshot::new}
+	 * @param structCopier     creates an independent copy of a struct, e.g. {@code ExampleStruct::new}, null to correct copy-on-write
+	 * @param accessorStrategy how correction paths access the fields of a struct
+	 * @param contextOf        extracts the context of a stored value
+	 */
+	protected HistoryBackedTemporalPersistence(@NonNull final String collectionName,
+			@NonNull final BiFunction<TemporalContext, STRUCT, SNAPSHOT> snapshotFactory, final UnaryOperator<STRUCT> structCopier,
+			@NonNull final AccessorStrategy accessorStrategy, @NonNull final Function<? super STORED, TemporalContext> contextOf) {
+		this.collectionName = collectionName;
+		this.snapshotFactory = snapshotFactory;
+		this.structCopier = structCopier;
+		this.accessorStrategy = accessorStrategy;
+		this.contextOf = contextOf;
+	}
+
+	/**
+	 * @return the struct copier provided, null when corrections are made copy-on-write
+	 */
+	protected UnaryOperator<STRUCT> structCopier() {
+		return this.structCopier;
+	}
+
+	/**
+	 * @return how correction paths access the fields of a struct
+	 */
+	protected AccessorStrategy accessorStrategy() {
+		return this.accessorStrategy;
+	}
+
+	//
+	// Storage
+	//
+
+	/**
+	 * Store the snapshots produced by a single create, append or correction, in the order they will be published, while the
+	 * identifier's write lock is held. Nothing is published if this throws.
+	 *
+	 * @param id        the identifier the snapshots belong to
+	 * @param snapshots the snapshots to store
+	 * @param bases     the stored value each snapshot was derived from, null for the first version of an identifier
+	 * @return the value to hold for each snapshot, in the order provided
+	 * @throws TemporalPersistenceException to abandon the operation
+	 */
+	protected abstract List<STORED> store(@NonNull IDTYPE id, @NonNull List<SNAPSHOT> snapshots, @NonNull List<STORED> bases)
+			throws TemporalPersistenceException;
+
+	/**
+	 * @param stored a value held by a history
+	 * @return the snapshot the value was stored from
+	 * @throws TemporalPersistenceException if the snapshot cannot be loaded
+	 */
+	protected abstract SNAPSHOT load(@NonNull STORED stored) throws TemporalPersistenceException;
+
+	/**
+	 * Load the snapshots of a batch query. The default loads each distinct value once, in the order of the keys.
+	 *
+	 * @param stored the value found for each key
+	 * @return the snapshot of each key, in the order of the keys
+	 * @throws TemporalPersistenceException if a snapshot cannot be loaded
+	 */
+	protected <KEY> Map<KEY, SNAPSHOT> loadAll(@NonNull final Map<KEY, STORED> stored) throws TemporalPersistenceException {
+		final var loaded = new IdentityHashMap<STORED, SNAPSHOT>();
+		final var found = new LinkedHashMap<KEY, SNAPSHOT>();
+
+		for (final var entry : stored.entrySet()) {
+			var snapshot = loaded.get(entry.getValue());
+
+			if (snapshot == null) {
+				snapshot = load(entry.getValue());
+				loaded.put(entry.getValue(), snapshot);
+			}
+
+			found.put(entry.getKey(), snapshot);
+		}
+
+		return found;
+	}
+
+	/**
+	 * Hold a previously stored value without validation and without storing it again. Values must be restored in the order they
+	 * were originally published, and not concurrently with any other operation.
+	 *
+	 * @param id     the identifier the value belongs to
+	 * @param stored the value to restore
+	 */
+	protected void restore(@NonNull final IDTYPE id, @NonNull final STORED stored) {
+		final var history = this.histories.computeIfAbsent(id, key -> newHistory());
+
+		history.put(stored);
+		index(id, history, List.of(stored));
+	}
+
+	/**
+	 * @param id           the identifier to find
+	 * @param allRevisions true for every revision, false for the latest revision of each version
+	 * @return a copy of the values held for the identifier in version order, empty if the identifier is unknown
+	 */
+	protected List<STORED> storedVersions(@NonNull final IDTYPE id, final boolean allRevisions) {
+		final var history = this.histories.get(id);
+
+		if (history == null) {
+			return List.of();
+		}
+
+		history.lock.readLock().lock();
+		try {
+			return history.byVersion(0, Integer.MAX_VALUE, allRevisions);
+		} finally {
+			history.lock.readLock().unlock();
+		}
+	}
+
+	//
+	// Create New
+	//
+
+	@Override
+	public SNAPSHOT createNew(@NonNull final STRUCT struct, @NonNull final Instant effectiveOn, final String comment) throws TemporalPersistenceException {
+		final var id = requireIdentifier(struct);
+		final var snapshot = this.snapshotFactory.apply(new TemporalContext(effectiveOn, comment), own(struct));
+
+		// the history is claimed while locked so that nothing can observe it before the snapshot is published
+		final var history = newHistory();
+		history.lock.writeLock().lock();
+		try {
+			if (this.histories.putIfAbsent(id, history) != null) {
+				throw new SnapshotAlreadyExistsException(this.collectionName, id.toString());
+			}
+
+			try {
+				publish(id, history, List.of(snapshot), Collections.singletonList(null));
+			} catch (final TemporalPersistenceException | RuntimeException e) {
+				this.histories.remove(id, history);
+				throw e;
+			}
+
+			return snapshot;
+		} finally {
+			history.lock.writeLock().unlock();
+		}
+	}
+
+	//
+	// Append Version
+	//
+
+	@Override
+	public SNAPSHOT appendVersion(@NonNull final STRUCT struct, @NonNull final Instant effectiveOn, final String comment)
+			throws TemporalPersistenceException {
+		final var id = requireIdentifier(struct);
+		final var history = requireHistory(id);
+
+		history.lock.writeLock().lock();
+		try {
+			final var last = history.lastVersion();
+
+			if (last == null) {
+				throw new SnapshotNotFoundException(this.collectionName, id.toString());
+			}
+
+			final var lastContext = this.contextOf.apply(last);
+
+			if (effectiveOn.isBefore(lastContext.effectiveFrom)) {
+				throw new TemporalPersistenceException("Cannot append a version of " + this.collectionName + " " + id + " effective " + effectiveOn
+						+ " before v" + lastContext.version + " effective " + lastContext.effectiveFrom);
+			}
+
+			final var snapshot = this.snapshotFactory.apply(lastContext.createNextVersion(effectiveOn, comment), own(struct));
+			publish(id, history, List.of(snapshot), List.of(last));
+			return snapshot;
+		} finally {
+			history.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return a copy of the caller's struct when a struct copier is provided, otherwise the struct itself
+	 */
+	private STRUCT own(final STRUCT struct) {
+		return this.structCopier == null ? struct : this.structCopier.apply(struct);
+	}
+
+	//
+	// Corrections
+	//
+
+	@Override
+	public CorrectedPair<SNAPSHOT> correctStructByVersion(@NonNull final IDTYPE id, final int version, @NonNull final String structCorrectionPath,
+			final Object newValue, @NonNull final String reason) throws TemporalPersistenceException {
+		return correctStructByVersion(id, version, Collections.singletonMap(structCorrectionPath, newValue), reason);
+	}
+
+	@Override
+	public List<CorrectedPair<SNAPSHOT>> correctStructAllVersions(@NonNull final IDTYPE id, @NonNull final String structCorrectionPath,
+			final Object newValue, @NonNull final String reason) throws TemporalPersistenceException {
+		return correctStructAllVersions(id, Collections.singletonMap(structCorrectionPath, newValue), reason);
+	}
+
+	@Override
+	public CorrectedPair<SNAPSHOT> correctStructByVersion(@NonNull final IDTYPE id, final int version, @NonNull final Map<String, Object> corrections,
+			@NonNull final String reason) throws TemporalPersistenceException {
+		final var history = requireHistory(id);
+
+		history.lock.writeLock().lock();
+		try {
+			final var stored = history.latestRevision(version);
+
+			if (stored == null) {
+				throw new SnapshotNotFoundException(this.collectionName, id.toString(), version);
+			}
+
+			final var original = load(stored);
+			final var corrected = correctStruct(original, compileCorrections(original, corrections), reason);
+
+			if (corrected == null) {
+				return null;
+			}
+
+			publish(id, history, List.of(corrected), List.of(stored));
+			return CorrectedPair.of(original, corrected);
+		} finally {
+			history.lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public List<CorrectedPair<SNAPSHOT>> correctStructAllVersions(@NonNull final IDTYPE id, @NonNull final Map<String, Object> corrections,
+			@NonNull final String reason) throws TemporalPersistenceException {
+		final var history = requireHistory(id);
+
+		history.lock.writeLock().lock();
+		try {
+			final var stored = history.latestRevisions();
+
+			if (stored.isEmpty()) {
+				throw new SnapshotNotFoundException(this.collectionName, id.toString());
+			}
+
+			final var originals = loadAll(stored);
+			final var compiled = compileCorrections(originals.get(0), corrections);
+			final var corrected = correctStructs(originals, compiled, reason);
+
+			final var pairs = new ArrayList<CorrectedPair<SNAPSHOT>>();
+			final var bases = new ArrayList<STORED>();
+
+			for (int i = 0; i < corrected.size(); i++) {
+				if (corrected.get(i) != null) {
+					pairs.add(CorrectedPair.of(originals.get(i), corrected.get(i)));
+					bases.add(stored.get(i));
+				}
+			}
+
+			// only publish once every version corrected cleanly
+			publishCorrections(id, history, pairs, bases);
+			return pairs;
+		} finally {
+			history.lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public List<CorrectedPair<SNAPSHOT>> correctContextEffectiveOn(@NonNull final IDTYPE id, final int version, @NonNull final Instant newEffectiveOn,
+			@NonNull final String reason) throws TemporalPersistenceException {
+		final var history = requireHistory(id);
+
+		history.lock.writeLock().lock();
+		try {
+			final var target = history.latestRevision(version);
+
+			if (target == null) {
+				throw new SnapshotNotFoundException(this.collectionName, id.toString(), version);
+			}
+
+			// the stable sort keeps versions sharing an effective instant in their existing order
+			final var reordered = history.latestRevisions();
+			reordered.sort(Comparator.comparing(stored -> stored == target ? newEffectiveOn : this.contextOf.apply(stored).effectiveFrom));
+
+			final var pairs = new ArrayList<CorrectedPair<SNAPSHOT>>();
+			final var bases = new ArrayList<STORED>();
+
+			for (int i = 0; i < reordered.size(); i++) {
+				final var moved = reordered.get(i);
+				final var destination = history.latestRevision(i + 1);
+
+				if (moved == destination && moved != target) {
+					continue;
+				}
+
+				final var effectiveFrom = moved == target ? newEffectiveOn : this.contextOf.apply(moved).effectiveFrom;
+				final var corrected = this.snapshotFactory.apply(this.contextOf.apply(destination).createNextRevision(effectiveFrom, reason),
+						load(moved).struct);
+				pairs.add(CorrectedPair.of(load(destination), corrected));
+				bases.add(moved);
+			}
+
+			publishCorrections(id, history, pairs, bases);
+			return pairs;
+		} finally {
+			history.lock.writeLock().unlock();
+		}
+	}
+
+	//
+	// Query by Id
+	//
+
+	/**
+	 * The version effective now is remembered by the identifier's history until a later version becomes effective or the history
+	 * is written to, so repeated reads need only find the history.
+	 */
+	@Override
+	public Optional<SNAPSHOT> getByIdCurrent(@NonNull final IDTYPE id) throws TemporalPersistenceException {
+		final var history = this.histories.get(id);
+
+		if (history == null) {
+			return Optional.empty();
+		}
+
+		final var now = Instant.now();
+		final var remembered = history.rememberedEffectiveOn(now);
+
+		if (remembered != null) {
+			return loadIfPresent(remembered.orElse(null));
+		}
+
+		history.lock.readLock().lock();
+		try {
+			return loadIfPresent(history.currentOn(now).orElse(null));
+		} finally {
+			history.lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Optional<SNAPSHOT> getByIdEffective(@NonNull final IDTYPE id, @NonNull final Instant effectiveOn) throws TemporalPersistenceException {
+		final var history = this.histories.get(id);
+
+		if (history == null) {
+			return Optional.empty();
+		}
+
+		history.lock.readLock().lock();
+		try {
+			return loadIfPresent(history.effectiveOn(effectiveOn));
+		} finally {
+			history.lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Optional<SNAPSHOT> getByIdAndVersion(@NonNull final IDTYPE id, final int version) throws TemporalPersistenceException {
+		final var history = this.histories.get(id);
+
+		if (history == null) {
+			return Optional.empty();
+		}
+
+		history.lock.readLock().lock();
+		try {
+			return loadIfPresent(history.latestRevision(version));
+		} finally {
+			history.lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Optional<SNAPSHOT> getByIdVersionAndRevision(@NonNull final IDTYPE id, final int version, final int revision)
+			throws TemporalPersistenceException {
+		final var history = this.histories.get(id);
+
+		if (history == null) {
+			return Optional.empty();
+		}
+
+		history.lock.readLock().lock();
+		try {
+			return loadIfPresent(history.revision(version, revision));
+		} finally {
+			history.lock.readLock().unlock();
+		}
+	}
+
+	//
+	// Scans
+	//
+
+	@Override
+	public Stream<IDTYPE> streamIdentifiers() {
+		return this.histories.keySet().stream();
+	}
+
+	/**
+	 * Walks the histories directly, read locking each in turn
+	 */
+	@Override
+	public Stream<SNAPSHOT> scanEffective(@NonNull final Instant effectiveOn, @NonNull final Predicate<? super IDTYPE> filter) {
+		return this.histories.entrySet().stream().filter(entry -> filter.test(entry.getKey())).map(entry -> {
+			final var history = entry.getValue();
+
+			history.lock.readLock().lock();
+			try {
+				return history.effectiveOn(effectiveOn);
+			} finally {
+				history.lock.readLock().unlock();
+			}
+		}).filter(Objects::nonNull).map(this::loadUnchecked);
+	}
+
+	//
+	// Batch Queries
+	//
+
+	/**
+	 * Each identifier's history is looked up and read locked once, however many of the handles refer to it, then the snapshots found
+	 * are loaded together by {@link #loadAll(Map)}
+	 */
+	@Override
+	public Map<ContextHandle<IDTYPE>, SNAPSHOT> getByContextHandles(@NonNull final Collection<ContextHandle<IDTYPE>> contextHandles)
+			throws TemporalPersistenceException {
+		final var now = Instant.now();
+		final var byIdentifier = new HashMap<IDTYPE, List<ContextHandle<IDTYPE>>>();
+		contextHandles.forEach(contextHandle -> byIdentifier.computeIfAbsent(contextHandle.identifier, id -> new ArrayList<>()).add(contextHandle));
+
+		final var resolved = new HashMap<ContextHandle<IDTYPE>, STORED>();
+
+		for (final var handles : byIdentifier.entrySet()) {
+			final var history = this.histories.get(handles.getKey());
+
+			if (history == null) {
+				continue;
+			}
+
+			history.lock.readLock().lock();
+			try {
+				for (final var contextHandle : handles.getValue()) {
+					final var stored = history.byContextHandle(contextHandle, now);
+
+					if (stored != null) {
+						resolved.put(contextHandle, stored);
+					}
+				}
+			} finally {
+				history.lock.readLock().unlock();
+			}
+		}
+
+		final var found = new LinkedHashMap<ContextHandle<IDTYPE>, STORED>();
+		contextHandles.stream().filter(resolved::containsKey).forEach(contextHandle -> found.put(contextHandle, resolved.get(contextHandle)));
+		return loadAll(found);
+	}
+
+	/**
+	 * The ids are resolved first, then the snapshots found are loaded together by {@link #loadAll(Map)}
+	 */
+	@Override
+	public Map<IDTYPE, SNAPSHOT> getByIdsEffective(@NonNull final Collection<IDTYPE> ids, @NonNull final Instant effectiveOn)
+			throws TemporalPersistenceException {
+		final var found = new LinkedHashMap<IDTYPE, STORED>();
+
+		for (final var id : ids) {
+			final var history = this.histories.get(id);
+
+			if (history == null || found.containsKey(id)) {
+				continue;
+			}
+
+			history.lock.readLock().lock();
+			try {
+				final var stored = history.effectiveOn(effectiveOn);
+
+				if (stored != null) {
+					found.put(id, stored);
+				}
+			} finally {
+				history.lock.readLock().unlock();
+			}
+		}
+
+		return loadAll(found);
+	}
+
+	//
+	// Bitemporal Queries
+	//
+
+	@Override
+	public Optional<SNAPSHOT> getByIdEffectiveAsOf(@NonNull final IDTYPE id, @NonNull final Instant effectiveOn, @NonNull final Instant recordedAsOf)
+			throws TemporalPersistenceException {
+		final var history = this.histories.get(id);
+
+		if (history == null) {
+			return Optional.empty();
+		}
+
+		history.lock.readLock().lock();
+		try {
+			return loadIfPresent(history.effectiveOnAsOf(effectiveOn, recordedAsOf));
+		} finally {
+			history.lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public List<SNAPSHOT> getAllVersionsAsOf(@NonNull final IDTYPE id, @NonNull final Instant recordedAsOf) throws TemporalPersistenceException {
+		final var history = this.histories.get(id);
+
+		if (history == null) {
+			return List.of();
+		}
+
+		history.lock.readLock().lock();
+		try {
+			return loadAll(history.versionsAsOf(recordedAsOf));
+		} finally {
+			history.lock.readLock().unlock();
+		}
+	}
+
+	//
+	// Version History
+	//
+
+	@Override
+	public List<SNAPSHOT> getAllVersionsAndRevisions(@NonNull final IDTYPE id, final Instant effectiveFrom, final Instant effectiveUntil)
+			throws TemporalPersistenceException {
+		final var history = this.histories.get(id);
+
+		if (history == null) {
+			return List.of();
+		}
+
+		history.lock.readLock().lock();
+		try {
+			return loadAll(history.byEffective(effectiveFrom, effectiveUntil, true));
+		} finally {
+			history.lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public List<SNAPSHOT> getAllVersionsAndRevisions(@NonNull final IDTYPE id, final int startingVersion, final int endingVersion)
+			throws TemporalPersistenceException {
+		final var history = this.histories.get(id);
+
+		if (history == null) {
+			return List.of();
+		}
+
+		history.lock.readLock().lock();
+		try {
+			return loadAll(history.byVersion(startingVersion, endingVersion, true));
+		} finally {
+			history.lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public List<SNAPSHOT> getAllVersions(@NonNull final IDTYPE id, final Instant effectiveFrom, final Instant effectiveUntil)
+			throws TemporalPersistenceException {
+		final var history = this.histories.get(id);
+
+		if (history == null) {
+			return List.of();
+		}
+
+		history.lock.readLock().lock();
+		try {
+			return loadAll(history.byEffective(effectiveFrom, effectiveUntil, false));
+		} finally {
+			history.lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public List<SNAPSHOT> getAllVersions(@NonNull final IDTYPE id, final int startingVersion, final int endingVersion) throws TemporalPersistenceException {
+		final var history = this.histories.get(id);
+
+		if (history == null) {
+			return List.of();
+		}
+
+		history.lock.readLock().lock();
+		try {
+			return loadAll(history.byVersion(startingVersion, endingVersion, false));
+		} finally {
+			history.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Only the stored values are copied when called, each snapshot is loaded as the stream reaches it
+	 */
+	@Override
+	public Stream<SNAPSHOT> streamAllVersionsAndRevisions(@NonNull final IDTYPE id) throws TemporalPersistenceException {
+		return storedVersions(id, true).stream().map(this::loadUnchecked);
+	}
+
+	/**
+	 * Only the stored values are copied when called, each snapshot is loaded as the stream reaches it
+	 */
+	@Override
+	public Stream<SNAPSHOT> streamAllVersions(@NonNull final IDTYPE id) throws TemporalPersistenceException {
+		return storedVersions(id, false).stream().map(this::loadUnchecked);
+	}
+
+	//
+	// Configuration
+	//
+
+	/**
+	 * Set how corrections of every version of an identifier are parallelised. The versions are split in half until a part has fewer
+	 * than the threshold, and the parts corrected as tasks of the pool.
+	 *
+	 * @param pool      where the versions are corrected, the common pool unless set
+	 * @param threshold the fewest versions corrected in parallel, {@link Integer#MAX_VALUE} to always correct sequentially
+	 */
+	public void setParallelCorrections(@NonNull final ForkJoinPool pool, final int threshold) {
+		if (threshold < 2) {
+			throw new IllegalArgumentException("threshold must be at least 2");
+		}
+
+		this.correctionPool = pool;
+		this.parallelThreshold = threshold;
+	}
+
+	//
+	// State Index
+	//
+
+	/**
+	 * Start indexing the state of every identifier, see {@link StateIndex}. The index is built from the snapshots already held, and
+	 * maintained by every later create, append and correction. Calling this again has no effect.
+	 *
+	 * @param stateType the state enum
+	 */
+	public synchronized void indexStates(@NonNull final Class<STATE_ENUM> stateType) {
+		if (this.stateIndex != null) {
+			return;
+		}
+
+		final var index = new StateIndex<IDTYPE, STORED, STATE_ENUM>(stateType, stored -> loadUnchecked(stored).struct.getState(), this.histories::get);
+		// published first so nothing written while the existing histories are indexed is missed
+		this.stateIndex = index;
+
+		this.histories.forEach((id, history) -> {
+			history.lock.readLock().lock();
+			try {
+				index.rebuild(id, history);
+			} finally {
+				history.lock.readLock().unlock();
+			}
+		});
+	}
+
+	/**
+	 * @param state the state to count
+	 * @return the number of identifiers whose snapshot effective now is in the state
+	 * @throws IllegalStateException if the states are not indexed
+	 */
+	public int countInState(@NonNull final STATE_ENUM state) {
+		return requireStateIndex().count(state);
+	}
+
+	/**
+	 * @param state the state to find
+	 * @return the identifiers whose snapshot effective now is in the state
+	 * @throws IllegalStateException if the states are not indexed
+	 */
+	public Set<IDTYPE> getIdsInState(@NonNull final STATE_ENUM state) {
+		return requireStateIndex().identifiers(state);
+	}
+
+	/**
+	 * @param state       the state to find
+	 * @param effectiveOn when the identifiers were in the state
+	 * @return the identifiers whose snapshot effective on the instant is in the state
+	 * @throws IllegalStateException if the states are not indexed
+	 */
+	public Set<IDTYPE> getIdsInState(@NonNull final STATE_ENUM state, @NonNull final Instant effectiveOn) {
+		return requireStateIndex().identifiers(state, effectiveOn);
+	}
+
+	//
+	// Event Index
+	//
+
+	/**
+	 * Start indexing the event of every version, see {@link EventIndex}. The index is built from the snapshots already held, and
+	 * maintained by every later create, append and correction. Calling this again has no effect.
+	 *
+	 * @param eventType the event enum
+	 */
+	public synchronized void indexEvents(@NonNull final Class<EVENT_ENUM> eventType) {
+		if (this.eventIndex != null) {
+			return;
+		}
+
+		final var index = new EventIndex<IDTYPE, STORED, EVENT_ENUM>(eventType, this.contextOf, stored -> loadUnchecked(stored).struct.getEvent());
+		// published first so nothing written while the existing histories are indexed is missed
+		this.eventIndex = index;
+
+		this.histories.forEach((id, history) -> {
+			history.lock.readLock().lock();
+			try {
+				index.published(id, history.latestRevisions());
+			} finally {
+				history.lock.readLock().unlock();
+			}
+		});
+	}
+
+	/**
+	 * Find the latest revision of every version of any identifier with the event, effective within the range
+	 *
+	 * @param event          the event to find
+	 * @param effectiveFrom  optional inclusive starting timestamp, null implies the beginning of time
+	 * @param effectiveUntil optional exclusive ending timestamp, null implies the end of time
+	 * @return the matching snapshots, earliest effective first
+	 * @throws IllegalStateException if the events are not indexed
+	 */
+	public List<SNAPSHOT> getByEvent(@NonNull final EVENT_ENUM event, final Instant effectiveFrom, final Instant effectiveUntil) {
+		final var index = this.eventIndex;
+
+		if (index == null) {
+			throw new IllegalStateException("The events of " + this.collectionName + " are not indexed");
+		}
+
+		return index.between(event, effectiveFrom, effectiveUntil).stream().map(this::loadUnchecked).collect(Collectors.toList());
+	}
+
+	//
+	// Internals
+	//
+
+	private void publishCorrections(final IDTYPE id, final IdentifierHistory<STORED> history, final List<CorrectedPair<SNAPSHOT>> pairs,
+			final List<STORED> bases) throws TemporalPersistenceException {
+		if (pairs.isEmpty()) {
+			return;
+		}
+
+		final var corrected = new ArrayList<SNAPSHOT>(pairs.size());
+		pairs.forEach(pair -> corrected.add(pair.correctedSnapshot));
+
+		publish(id, history, corrected, bases);
+	}
+
+	private void publish(final IDTYPE id, final IdentifierHistory<STORED> history, final List<SNAPSHOT> snapshots, final List<STORED> bases)
+			throws TemporalPersistenceException {
+		final var stored = store(id, snapshots, bases);
+
+		stored.forEach(history::put);
+		index(id, history, stored);
+	}
+
+	private void index(final IDTYPE id, final IdentifierHistory<STORED> history, final List<STORED> stored) {
+		final var states = this.stateIndex;
+		if (states != null) {
+			states.published(id, history, stored);
+		}
+
+		final var events = this.eventIndex;
+		if (events != null) {
+			events.published(id, stored);
+		}
+	}
+
+	private StateIndex<IDTYPE, STORED, STATE_ENUM> requireStateIndex() {
+		final var index = this.stateIndex;
+
+		if (index == null) {
+			throw new IllegalStateException("The states of " + this.collectionName + " are not indexed");
+		}
+
+		return index;
+	}
+
+	private Optional<SNAPSHOT> loadIfPresent(final STORED stored) throws TemporalPersistenceException {
+		return stored == null ? Optional.empty() : Optional.of(load(stored));
+	}
+
+	private List<SNAPSHOT> loadAll(final List<STORED> stored) throws TemporalPersistenceException {
+		final var snapshots = new ArrayList<SNAPSHOT>(stored.size());
+
+		for (final var each : stored) {
+			snapshots.add(load(each));
+		}
+
+		return snapshots;
+	}
+
+	private SNAPSHOT loadUnchecked(final STORED stored) {
+		try {
+			return load(stored);
+		} catch (final TemporalPersistenceException e) {
+			throw new UncheckedTemporalPersistenceException(e);
+		}
+	}
+
+	private IDTYPE requireIdentifier(final STRUCT struct) throws TemporalPersistenceException {
+		final var id = struct.getIdentifier();
+
+		if (id == null) {
+			throw new TemporalPersistenceException("Cannot persist a " + this.collectionName + " without an identifier");
+		}
+
+		return id;
+	}
+
+	private IdentifierHistory<STORED> newHistory() {
+		return new IdentifierHistory<>(this.contextOf);
+	}
+
+	private IdentifierHistory<STORED> requireHistory(final IDTYPE id) throws SnapshotNotFoundException {
+		final var history = this.histories.get(id);
+
+		if (history == null) {
+			throw new SnapshotNotFoundException(this.collectionName, id.toString());
+		}
+
+		return history;
+	}
+
+	private List<Correction> compileCorrections(final SNAPSHOT snapshot, final Map<String, Object> corrections) throws TemporalPersistenceException {
+		final var compiled = new ArrayList<Correction>(corrections.size());
+
+		for (final var correction : corrections.entrySet()) {
+			try {
+				compiled.add(new Correction(CompiledPropertyPath.of(snapshot.struct.getClass(), correction.getKey(), this.accessorStrategy),
+						correction.getValue()));
+			} catch (final IllegalArgumentException e) {
+				throw new TemporalPersistenceException("Invalid correction path " + correction.getKey() + " for " + this.collectionName, e);
+			}
+		}
+
+		return compiled;
+	}
+
+	/**
+	 * Correct each of the originals, in parallel if there are enough of them
+	 *
+	 * @return the corrected snapshot of each original in the same order, null where none of the paths existed
+	 */
+	private List<SNAPSHOT> correctStructs(final List<SNAPSHOT> originals, final List<Correction> corrections, final String reason)
+			throws TemporalPersistenceException {
+		@SuppressWarnings("unchecked")
+		final var corrected = (SNAPSHOT[]) new TemporalSnapshot<?, ?, ?, ?>[originals.size()];
+		final var threshold = this.parallelThreshold;
+
+		if (originals.size() < threshold) {
+			for (int i = 0; i < corrected.length; i++) {
+				corrected[i] = correctStruct(originals.get(i), corrections, reason);
+			}
+		} else {
+			try {
+				this.correctionPool.invoke(new CorrectStructs(originals, corrections, reason, corrected, 0, corrected.length, threshold / 2));
+			} catch (final CorrectionFailure e) {
+				throw e.getCause();
+			}
+		}
+
+		return Arrays.asList(corrected);
+	}
+
+	/**
+	 * Corrects a range of originals, splitting it in half until it is no larger than the leaf size
+	 */
+	private final class CorrectStructs extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<SNAPSHOT> originals;
+		private final List<Correction> corrections;
+		private final String reason;
+		private final SNAPSHOT[] corrected;
+		private final int from;
+		private final int to;
+		private final int leafSize;
+
+		CorrectStructs(final List<SNAPSHOT> originals, final List<Correction> corrections, final String reason, final SNAPSHOT[] corrected,
+				final int from, final int to, final int leafSize) {
+			this.originals = originals;
+			this.corrections = corrections;
+			this.reason = reason;
+			this.corrected = corrected;
+			this.from = from;
+			this.to = to;
+			this.leafSize = leafSize;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from <= this.leafSize) {
+				try {
+					for (int i = this.from; i < this.to; i++) {
+						this.corrected[i] = correctStruct(this.originals.get(i), this.corrections, this.reason);
+					}
+				} catch (final TemporalPersistenceException e) {
+					throw new CorrectionFailure(e);
+				}
+				return;
+			}
+
+			final int middle = (this.from + this.to) >>> 1;
+			invokeAll(new CorrectStructs(this.originals, this.corrections, this.reason, this.corrected, this.from, middle, this.leafSize),
+					new CorrectStructs(this.originals, this.corrections, this.reason, this.corrected, middle, this.to, this.leafSize));
+		}
+	}
+
+	/**
+	 * Carries a checked failure out of a {@link CorrectStructs} task
+	 */
+	private static final class CorrectionFailure extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		CorrectionFailure(final TemporalPersistenceException cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized TemporalPersistenceException getCause() {
+			return (TemporalPersistenceException) super.getCause();
+		}
+	}
+
+	/**
+	 * Create the next revision of the original snapshot with a corrected copy of its struct
+	 *
+	 * @return the corrected snapshot, null if none of the paths existed in the original struct
+	 */
+	@SuppressWarnings("unchecked")
+	private SNAPSHOT correctStruct(final SNAPSHOT original, final List<Correction> corrections, final String reason) throws TemporalPersistenceException {
+		final var copy = this.structCopier == null ? new CopyOnWrite(original.struct, this.accessorStrategy) : null;
+		final var copied = this.structCopier == null ? null : this.structCopier.apply(original.struct);
+		boolean anySet = false;
+
+		for (final var correction : corrections) {
+			try {
+				anySet |= copy != null ? correction.path.set(copy, correction.newValue) : correction.path.set(copied, correction.newValue);
+			} catch (IllegalAccessException | IllegalArgumentException | SecurityException e) {
+				throw new TemporalPersistenceException("Unable to correct " + correction.path + " of " + this.collectionName + " "
+						+ original.contextHandle.identifier + " v" + original.context.version, e);
+			}
+		}
+
+		if (!anySet) {
+			return null;
+		}
+
+		final var struct = copy != null ? (STRUCT) copy.result() : copied;
+
+		if (!Objects.equals(original.struct.getIdentifier(), struct.getIdentifier())) {
+			throw new TemporalPersistenceException("Correction would change the identifier of " + this.collectionName + " "
+					+ original.contextHandle.identifier);
+		}
+
+		return this.snapshotFactory.apply(original.context.createNextRevision(reason), struct);
+	}
+}
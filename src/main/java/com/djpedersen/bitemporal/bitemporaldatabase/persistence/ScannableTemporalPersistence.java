@@ -0,0 +1,95 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence;
+
+import java.time.Instant;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalSnapshot;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalStructureInterface;
+
+import lombok.NonNull;
+
+/**
+ * Defines the operations of temporal persistence which can enumerate every identifier it holds, so the state of the world at an
+ * instant can be read without the caller knowing the identifiers.
+ * 
+ * The streams reflect the identifiers known when they reach them, they are unordered and split well, so they may be made parallel
+ * or divided into partitions processed independently. A failure to read a snapshot is thrown as an
+ * {@link UncheckedTemporalPersistenceException}.
+ * 
+ * @author Daniel R. Pedersen
+ * 
+ * @param <IDTYPE>     the type of the structure's identifier
+ * @param <STATE_ENUM> the type of the structure's state enum
+ * @param <EVENT_ENUM> the type of the structure's event enum
+ * @param <STRUCT>     the type of the structure
+ * @param <SNAPSHOT>   the type of the structure's snapshot
+ */
+public interface ScannableTemporalPersistence<IDTYPE, STATE_ENUM extends Enum<?>, EVENT_ENUM extends Enum<?>, STRUCT extends TemporalStructureInterface<IDTYPE, STATE_ENUM, EVENT_ENUM>, SNAPSHOT extends TemporalSnapshot<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT>>
+		extends TemporalPersistenceInterface<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT, SNAPSHOT> {
+
+	/**
+	 * @return every identifier with at least one snapshot, in no particular order
+	 */
+	Stream<IDTYPE> streamIdentifiers();
+
+	/**
+	 * Stream the snapshot of every identifier effective on the provided instant, identifiers not yet effective are skipped
+	 * 
+	 * @param effectiveOn when the snapshots were effective
+	 * @return the stream of effective snapshots, in no particular order
+	 */
+	default Stream<SNAPSHOT> scanEffective(@NonNull final Instant effectiveOn) {
+		return scanEffective(effectiveOn, id -> true);
+	}
+
+	/**
+	 * Stream the snapshot effective on the provided instant of every identifier in one partition of the identifiers. The identifiers
+	 * are partitioned by hash code, so scanning every partition from 0 until the partition count visits each identifier once.
+	 * 
+	 * @param effectiveOn    when the snapshots were effective
+	 * @param partition      the partition to scan, from 0 until the partition count
+	 * @param partitionCount the number of partitions the identifiers are divided into
+	 * @return the stream of effective snapshots, in no particular order
+	 */
+	default Stream<SNAPSHOT> scanEffective(@NonNull final Instant effectiveOn, final int partition, final int partitionCount) {
+		if (partitionCount < 1 || partition < 0 || partition >= partitionCount) {
+			throw new IllegalArgumentException("Partition " + partition + " of " + partitionCount + " does not exist");
+		}
+
+		return scanEffective(effectiveOn, id -> Math.floorMod(id.hashCode(), partitionCount) == partition);
+	}
+
+	/**
+	 * Stream the snapshot effective on the provided instant of every identifier accepted by the filter, e.g. a range of identifiers
+	 * 
+	 * @param effectiveOn when the snapshots were effective
+	 * @param filter      accepts the identifiers to scan
+	 * @return the stream of effective snapshots, in no particular order
+	 */
+	default Stream<SNAPSHOT> scanEffective(@NonNull final Instant effectiveOn, @NonNull final Predicate<? super IDTYPE> filter) {
+		return streamIdentifiers().filter(filter).flatMap(id -> {
+			try {
+				return getByIdEffective(id, effectiveOn).stream();
+			} catch (final TemporalPersistenceException e) {
+				throw new UncheckedTemporalPersistenceException(e);
+			}
+		});
+	}
+
+}
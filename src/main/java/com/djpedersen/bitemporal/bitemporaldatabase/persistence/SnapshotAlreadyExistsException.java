@@ -0,0 +1,36 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence;
+
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+
+/**
+ * Defines an exception for when a snapshot is created for an identifier which the persistence module already holds
+ * 
+ * @author Daniel R. Pedersen
+ */
+@NoArgsConstructor
+public class SnapshotAlreadyExistsException extends TemporalPersistenceException {
+
+	private static final long serialVersionUID = -3021527784437108125L;
+
+	public SnapshotAlreadyExistsException(@NonNull final String collectionName, @NonNull final String identifier) {
+
+		super("Snapshot already exists for " + collectionName + " " + identifier);
+	}
+
+}
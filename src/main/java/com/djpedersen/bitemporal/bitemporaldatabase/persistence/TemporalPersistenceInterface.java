@@ -16,8 +16,13 @@
 package com.djpedersen.bitemporal.bitemporaldatabase.persistence;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import com.djpedersen.bitemporal.bitemporaldatabase.ContextHandle;
 import com.djpedersen.bitemporal.bitemporaldatabase.TemporalSnapshot;
@@ -28,6 +33,10 @@ import lombok.NonNull;
 /**
  * Defines the persistence operations required of any implementation of temporal persistence.
  * 
+ * Implementations may keep the struct handed to a write and may share the structs of the snapshots they return between callers,
+ * so neither may be modified once handed over. Modifying one would alter stored history without a revision being recorded; make
+ * the change through a correction instead.
+ * 
  * @author Daniel R. Pedersen
  * 
  * @param <IDTYPE>     the type of the structure's identifier
@@ -190,6 +199,69 @@ public interface TemporalPersistenceInterface<IDTYPE, STATE_ENUM extends Enum<?>
 	List<CorrectedPair<SNAPSHOT>> correctStructAllVersions(@NonNull final IDTYPE id, @NonNull final String structCorrectionPath, final Object newValue,
 			@NonNull final String reason) throws TemporalPersistenceException;
 
+	/**
+	 * Correct the latest revision of the identified snapshot version with all of the provided path to value corrections, creating a
+	 * single new revision. Corrections are applied in the iteration order of the map.
+	 * 
+	 * N.B. A path which does not exist in the version being altered is skipped, as for the single path correction. A CorrectionPair
+	 * will not be returned if none of the paths exist.
+	 * 
+	 * The default supports a single correction only, delegating it to
+	 * {@link #correctStructByVersion(Object, int, String, Object, String)}.
+	 *
+	 * @see PropertySetter for details about the correctionPath format
+	 * 
+	 * @param id          the identifier of the snapshot
+	 * @param version     the version of to correct
+	 * @param corrections the paths to the fields to correct and their new values (values can be null)
+	 * @param reason      required, the reason for the change
+	 * @return a pair of the original and corrected snapshots if any path is found, null otherwise
+	 * @throws TemporalPersistenceException  if there is a problem
+	 * @throws UnsupportedOperationException if the implementation cannot apply other than a single correction
+	 */
+	default CorrectedPair<SNAPSHOT> correctStructByVersion(@NonNull final IDTYPE id, final int version, @NonNull final Map<String, Object> corrections,
+			@NonNull final String reason) throws TemporalPersistenceException {
+		final var correction = singleCorrection(corrections);
+		return correctStructByVersion(id, version, correction.getKey(), correction.getValue(), reason);
+	}
+
+	/**
+	 * Correct the latest revision of all versions of the identified snapshot with all of the provided path to value corrections,
+	 * creating a single new revision per version. Corrections are applied in the iteration order of the map.
+	 *
+	 * N.B. A path which does not exist in the version being altered is skipped, as for the single path correction. A CorrectionPair
+	 * will not be included in the returned list for a version in which none of the paths exist.
+	 * 
+	 * The default supports a single correction only, delegating it to
+	 * {@link #correctStructAllVersions(Object, String, Object, String)}.
+	 * 
+	 * @see PropertySetter for details about the correctionPath format
+	 * 
+	 * @param id          the identifier of the snapshot
+	 * @param corrections the paths to the fields to correct and their new values (values can be null)
+	 * @param reason      required, the reason for the change
+	 * @return a list of all pairs of the original and corrected snapshots of all versions corrected
+	 * @throws TemporalPersistenceException  if there is a problem
+	 * @throws UnsupportedOperationException if the implementation cannot apply other than a single correction
+	 */
+	default List<CorrectedPair<SNAPSHOT>> correctStructAllVersions(@NonNull final IDTYPE id, @NonNull final Map<String, Object> corrections,
+			@NonNull final String reason) throws TemporalPersistenceException {
+		final var correction = singleCorrection(corrections);
+		return correctStructAllVersions(id, correction.getKey(), correction.getValue(), reason);
+	}
+
+	/**
+	 * @return the only correction of the map
+	 * @throws UnsupportedOperationException if the map does not hold exactly one correction
+	 */
+	private static Map.Entry<String, Object> singleCorrection(final Map<String, Object> corrections) {
+		if (corrections.size() != 1) {
+			throw new UnsupportedOperationException("Only a single correction is supported, not " + corrections.size());
+		}
+
+		return corrections.entrySet().iterator().next();
+	}
+
 	/**
 	 * Correct the latest revision of the specified version such that it has the specified effectiveOn.
 	 * 
@@ -286,6 +358,118 @@ public interface TemporalPersistenceInterface<IDTYPE, STATE_ENUM extends Enum<?>
 		return this.getByIdVersionAndRevision(contextHandle.identifier, contextHandle.version, contextHandle.revision);
 	}
 
+	//
+	// Batch Queries
+	//
+
+	/**
+	 * Get the snapshot of each of the provided context handles, as {@link #getByContextHandle(ContextHandle)} would, except that
+	 * identity only handles are all resolved as effective on the same instant. Duplicate handles are looked up once.
+	 * 
+	 * N.B. the default implementation looks up each handle in turn, implementations are expected to do better.
+	 * 
+	 * @param contextHandles the context handles to query for
+	 * @return the snapshot found for each handle, in the order provided, handles without a snapshot are absent
+	 * @throws TemporalPersistenceException if there is a problem
+	 */
+	default Map<ContextHandle<IDTYPE>, SNAPSHOT> getByContextHandles(@NonNull final Collection<ContextHandle<IDTYPE>> contextHandles)
+			throws TemporalPersistenceException {
+		final var now = Instant.now();
+		final var found = new LinkedHashMap<ContextHandle<IDTYPE>, SNAPSHOT>();
+
+		for (final var contextHandle : contextHandles) {
+			if (found.containsKey(contextHandle)) {
+				continue;
+			}
+
+			final var snapshot = contextHandle.version == null ? this.getByIdEffective(contextHandle.identifier, now)
+					: this.getByContextHandle(contextHandle);
+			snapshot.ifPresent(s -> found.put(contextHandle, s));
+		}
+
+		return found;
+	}
+
+	/**
+	 * Get the snapshot of each of the provided ids effective on the provided instant, as {@link #getByIdEffective(Object, Instant)}
+	 * would. Duplicate ids are looked up once.
+	 * 
+	 * N.B. the default implementation looks up each id in turn, implementations are expected to do better.
+	 * 
+	 * @param ids         the ids to search for
+	 * @param effectiveOn when the snapshots were effective
+	 * @return the snapshot found for each id, in the order provided, ids without an effective snapshot are absent
+	 * @throws TemporalPersistenceException if there is a problem
+	 */
+	default Map<IDTYPE, SNAPSHOT> getByIdsEffective(@NonNull final Collection<IDTYPE> ids, @NonNull final Instant effectiveOn)
+			throws TemporalPersistenceException {
+		final var found = new LinkedHashMap<IDTYPE, SNAPSHOT>();
+
+		for (final var id : ids) {
+			if (!found.containsKey(id)) {
+				this.getByIdEffective(id, effectiveOn).ifPresent(s -> found.put(id, s));
+			}
+		}
+
+		return found;
+	}
+
+	//
+	// Bitemporal Queries
+	//
+
+	/**
+	 * Get the snapshot which, as of the provided recorded instant, was believed to be effective on the provided effective instant.
+	 * That is, revisions recorded after recordedAsOf are ignored.
+	 * 
+	 * N.B. the default implementation materializes the entire history of the id, implementations are expected to do better.
+	 * 
+	 * @param id           the id to search for
+	 * @param effectiveOn  when the snapshot was effective
+	 * @param recordedAsOf the point in recorded time to answer as of
+	 * @return the snapshot if found
+	 * @throws TemporalPersistenceException if there is a problem
+	 */
+	default Optional<SNAPSHOT> getByIdEffectiveAsOf(@NonNull final IDTYPE id, @NonNull final Instant effectiveOn, @NonNull final Instant recordedAsOf)
+			throws TemporalPersistenceException {
+		SNAPSHOT found = null;
+
+		for (final var snapshot : this.getAllVersionsAsOf(id, recordedAsOf)) {
+			if (!snapshot.context.effectiveFrom.isAfter(effectiveOn)
+					&& (found == null || snapshot.context.effectiveFrom.isAfter(found.context.effectiveFrom))) {
+				found = snapshot;
+			}
+		}
+
+		return Optional.ofNullable(found);
+	}
+
+	/**
+	 * Return the list of the revision of each version which was the most recent as of the provided recorded instant. List is
+	 * returned in reverse version order.
+	 * 
+	 * N.B. the default implementation materializes the entire history of the id, implementations are expected to do better.
+	 * 
+	 * @param id           the id to search for
+	 * @param recordedAsOf the point in recorded time to answer as of
+	 * @return the list of matching snapshots, may be empty
+	 * @throws TemporalPersistenceException if there is a problem
+	 */
+	default List<SNAPSHOT> getAllVersionsAsOf(@NonNull final IDTYPE id, @NonNull final Instant recordedAsOf) throws TemporalPersistenceException {
+		final var found = new ArrayList<SNAPSHOT>();
+		int lastVersion = Integer.MIN_VALUE;
+
+		// reverse version and revision order, so the first revision recorded in time is the most recent for its version
+		for (final var snapshot : this.getAllVersionsAndRevisions(id)) {
+			if (snapshot.context.version != lastVersion && !snapshot.context.recordedOn.isAfter(recordedAsOf)) {
+				found.add(snapshot);
+				lastVersion = snapshot.context.version;
+			}
+		}
+
+		return found;
+	}
+
 	//
 	// Version History
 	//
@@ -298,7 +482,7 @@ public interface TemporalPersistenceInterface<IDTYPE, STATE_ENUM extends Enum<?>
 	 * @throws TemporalPersistenceException if there is a problem
 	 */
 	default List<SNAPSHOT> getAllVersionsAndRevisions(@NonNull final IDTYPE id) throws TemporalPersistenceException {
-		return this.getAllVersions(id, 0, Integer.MAX_VALUE);
+		return this.getAllVersionsAndRevisions(id, 0, Integer.MAX_VALUE);
 	}
 
 	/**
@@ -360,4 +544,34 @@ public interface TemporalPersistenceInterface<IDTYPE, STATE_ENUM extends Enum<?>
 	 */
 	List<SNAPSHOT> getAllVersions(@NonNull final IDTYPE id, final int startingVersion, final int endingVersion) throws TemporalPersistenceException;
 
+	/**
+	 * Stream all versions and revisions for the specified id, in the same order as {@link #getAllVersionsAndRevisions(Object)}. The
+	 * stream reflects the history at the time of the call and implementations may read and decode each snapshot only as it is
+	 * consumed, so it should be closed once done with, a failure to read a snapshot is thrown as an
+	 * {@link UncheckedTemporalPersistenceException}.
+	 * 
+	 * N.B. the default implementation materializes the list of snapshots.
+	 * 
+	 * @param id the id to search for
+	 * @return the stream of matching snapshots, may be empty
+	 * @throws TemporalPersistenceException if there is a problem
+	 */
+	default Stream<SNAPSHOT> streamAllVersionsAndRevisions(@NonNull final IDTYPE id) throws TemporalPersistenceException {
+		return this.getAllVersionsAndRevisions(id).stream();
+	}
+
+	/**
+	 * Stream the most recent revision of all versions for an id, in the same order as {@link #getAllVersions(Object)}, see
+	 * {@link #streamAllVersionsAndRevisions(Object)}.
+	 * 
+	 * N.B. the default implementation materializes the list of snapshots.
+	 * 
+	 * @param id the id to search for
+	 * @return the stream of matching snapshots, may be empty
+	 * @throws TemporalPersistenceException if there is a problem
+	 */
+	default Stream<SNAPSHOT> streamAllVersions(@NonNull final IDTYPE id) throws TemporalPersistenceException {
+		return this.getAllVersions(id).stream();
+	}
+
 }
\ No newline at end of file
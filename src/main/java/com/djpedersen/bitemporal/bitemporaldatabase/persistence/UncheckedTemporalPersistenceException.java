@@ -0,0 +1,38 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence;
+
+import lombok.NonNull;
+
+/**
+ * Wraps a {@link TemporalPersistenceException} thrown where a checked exception cannot be, such as while a lazily read stream of
+ * snapshots is consumed.
+ * 
+ * @author Daniel R. Pedersen
+ */
+public class UncheckedTemporalPersistenceException extends RuntimeException {
+	private static final long serialVersionUID = 2658131960921245517L;
+
+	public UncheckedTemporalPersistenceException(@NonNull final TemporalPersistenceException cause) {
+		super(cause.getMessage(), cause);
+	}
+
+	@Override
+	public synchronized TemporalPersistenceException getCause() {
+		return (TemporalPersistenceException) super.getCause();
+	}
+
+}
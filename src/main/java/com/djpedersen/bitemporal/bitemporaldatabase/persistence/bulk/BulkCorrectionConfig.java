@@ -0,0 +1,41 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.bulk;
+
+import lombok.Builder;
+import lombok.ToString;
+
+/**
+ * The settings of a {@link BulkCorrectionJob}.
+ * 
+ * @author Daniel R. Pedersen
+ */
+@ToString
+@Builder
+public class BulkCorrectionConfig {
+
+	/**
+	 * How many identifiers a worker corrects before progress is reported
+	 */
+	@Builder.Default
+	public final int batchSize = 100;
+
+	/**
+	 * How many batches are corrected at once, and so how many threads the job uses
+	 */
+	@Builder.Default
+	public final int parallelism = Runtime.getRuntime().availableProcessors();
+}
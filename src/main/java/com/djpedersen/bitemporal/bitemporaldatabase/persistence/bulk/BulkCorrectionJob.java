@@ -0,0 +1,264 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.bulk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalSnapshot;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalStructureInterface;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.CorrectedPair;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceException;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceInterface;
+
+import lombok.NonNull;
+
+/**
+ * Applies the same struct correction to every version of many identifiers. Identifiers are drawn from a stream in batches, and up
+ * to {@link BulkCorrectionConfig#parallelism} batches are corrected at once, each identifier through
+ * {@link TemporalPersistenceInterface#correctStructAllVersions(Object, Map, String)}. The stream is only read as fast as batches
+ * are finished, so it may be far larger than memory.
+ * 
+ * Each identifier is corrected atomically on its own, there is no atomicity across identifiers. A failed identifier is recorded and
+ * reported and the job carries on. A job may be run more than once, but not concurrently.
+ * 
+ * A filter is tested on the current snapshot before the identifier is corrected, and the identifier is not locked in between, so a
+ * concurrent write may change the snapshot after it matched. The filter is tested again on the original of the corrected version,
+ * and an identifier which no longer matches is reported as failed; its revisions have already been written by then.
+ * 
+ * @author Daniel R. Pedersen
+ *
+ * @param <IDTYPE>     the type of the structure's identifier
+ * @param <STATE_ENUM> the type of the structure's state enum
+ * @param <EVENT_ENUM> the type of the structure's event enum
+ * @param <STRUCT>     the type of the structure
+ * @param <SNAPSHOT>   the type of the structure's snapshot
+ */
+public class BulkCorrectionJob<IDTYPE, STATE_ENUM extends Enum<?>, EVENT_ENUM extends Enum<?>, STRUCT extends TemporalStructureInterface<IDTYPE, STATE_ENUM, EVENT_ENUM>, SNAPSHOT extends TemporalSnapshot<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT>> {
+
+	private final TemporalPersistenceInterface<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT, SNAPSHOT> persistence;
+	private final Map<String, Object> corrections;
+	private final String reason;
+	private final BulkCorrectionConfig config;
+	private final BulkCorrectionListener<IDTYPE> listener;
+
+	private final AtomicLong processed = new AtomicLong();
+	private final AtomicLong corrected = new AtomicLong();
+	private final AtomicLong revisions = new AtomicLong();
+	private final AtomicLong skipped = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final Map<IDTYPE, TemporalPersistenceException> failures = new ConcurrentHashMap<>();
+
+	private volatile boolean cancelled;
+
+	/**
+	 * @param persistence the persistence to correct
+	 * @param corrections the attribute paths to correct and their new values, see
+	 *                    {@link TemporalPersistenceInterface#correctStructAllVersions(Object, Map, String)}
+	 * @param reason      the reason recorded in every revision
+	 * @param config      the batch size and parallelism
+	 * @param listener    told of progress and failures
+	 */
+	public BulkCorrectionJob(@NonNull final TemporalPersistenceInterface<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT, SNAPSHOT> persistence,
+			@NonNull final Map<String, Object> corrections, @NonNull final String reason, @NonNull final BulkCorrectionConfig config,
+			@NonNull final BulkCorrectionListener<IDTYPE> listener) {
+		if (config.batchSize < 1 || config.parallelism < 1) {
+			throw new IllegalArgumentException("batchSize and parallelism must be at least 1: " + config);
+		}
+
+		this.persistence = persistence;
+		this.corrections = Collections.unmodifiableMap(new LinkedHashMap<>(corrections));
+		this.reason = reason;
+		this.config = config;
+		this.listener = listener;
+	}
+
+	/**
+	 * Correct every identifier of the stream
+	 * 
+	 * @param ids the identifiers to correct
+	 * @return the outcome
+	 * @throws InterruptedException if interrupted while waiting for batches, no more are started but those already started carry on
+	 */
+	public BulkCorrectionResult<IDTYPE> run(@NonNull final Stream<IDTYPE> ids) throws InterruptedException {
+		return run(ids, null);
+	}
+
+	/**
+	 * Correct the identifiers of the stream whose current snapshot matches the filter. Identifiers without a current snapshot are
+	 * skipped.
+	 * 
+	 * @param ids    the identifiers to consider
+	 * @param filter which current snapshots to correct, null for all
+	 * @return the outcome
+	 * @throws InterruptedException if interrupted while waiting for batches, no more are started but those already started carry on
+	 */
+	public BulkCorrectionResult<IDTYPE> run(@NonNull final Stream<IDTYPE> ids, final Predicate<? super SNAPSHOT> filter) throws InterruptedException {
+		reset();
+
+		final var permits = new Semaphore(this.config.parallelism);
+		final ExecutorService workers = Executors.newFixedThreadPool(this.config.parallelism, runnable -> {
+			final var thread = new Thread(runnable, "bulk-correction");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		try {
+			final var iterator = ids.iterator();
+
+			while (iterator.hasNext() && !this.cancelled) {
+				final var batch = new ArrayList<IDTYPE>(this.config.batchSize);
+
+				while (batch.size() < this.config.batchSize && iterator.hasNext()) {
+					batch.add(iterator.next());
+				}
+
+				permits.acquire();
+				workers.execute(() -> {
+					try {
+						correctBatch(batch, filter);
+					} finally {
+						permits.release();
+					}
+				});
+			}
+
+			// every batch has finished once every permit is back
+			permits.acquire(this.config.parallelism);
+		} catch (final InterruptedException e) {
+			this.cancelled = true;
+			throw e;
+		} finally {
+			workers.shutdown();
+			ids.close();
+		}
+
+		workers.awaitTermination(1, TimeUnit.MINUTES);
+		return new BulkCorrectionResult<>(progress(), this.failures, this.cancelled);
+	}
+
+	/**
+	 * Stop starting batches, the batches already started are finished
+	 */
+	public void cancel() {
+		this.cancelled = true;
+	}
+
+	/**
+	 * @return the counts so far
+	 */
+	public BulkCorrectionProgress progress() {
+		return new BulkCorrectionProgress(this.processed.get(), this.corrected.get(), this.revisions.get(), this.skipped.get(), this.failed.get());
+	}
+
+	private void reset() {
+		this.cancelled = false;
+		this.processed.set(0);
+		this.corrected.set(0);
+		this.revisions.set(0);
+		this.skipped.set(0);
+		this.failed.set(0);
+		this.failures.clear();
+	}
+
+	private void correctBatch(final List<IDTYPE> batch, final Predicate<? super SNAPSHOT> filter) {
+		for (final var id : batch) {
+			if (this.cancelled) {
+				break;
+			}
+
+			try {
+				correct(id, filter);
+			} catch (final TemporalPersistenceException e) {
+				fail(id, e);
+			} catch (final RuntimeException e) {
+				fail(id, new TemporalPersistenceException("Unable to correct " + id, e));
+			} finally {
+				this.processed.incrementAndGet();
+			}
+		}
+
+		synchronized (this.listener) {
+			this.listener.progress(progress());
+		}
+	}
+
+	private void correct(final IDTYPE id, final Predicate<? super SNAPSHOT> filter) throws TemporalPersistenceException {
+		SNAPSHOT matched = null;
+
+		if (filter != null) {
+			final var current = this.persistence.getByIdCurrent(id);
+
+			if (current.isEmpty() || !filter.test(current.get())) {
+				this.skipped.incrementAndGet();
+				return;
+			}
+
+			matched = current.get();
+		}
+
+		final var pairs = this.persistence.correctStructAllVersions(id, this.corrections, this.reason);
+
+		if (pairs.isEmpty()) {
+			this.skipped.incrementAndGet();
+			return;
+		}
+
+		this.revisions.addAndGet(pairs.size());
+
+		if (matched != null && !stillMatches(pairs, matched, filter)) {
+			throw new TemporalPersistenceException(id + " changed after matching the filter and no longer matches, its " + pairs.size()
+					+ " revisions were written regardless");
+		}
+
+		this.corrected.incrementAndGet();
+	}
+
+	/**
+	 * @return false if the version which matched the filter was written to before it was corrected and no longer matches
+	 */
+	private boolean stillMatches(final List<CorrectedPair<SNAPSHOT>> pairs, final SNAPSHOT matched, final Predicate<? super SNAPSHOT> filter) {
+		for (final var pair : pairs) {
+			final var original = pair.originalSnapshot;
+
+			if (original.context.version == matched.context.version) {
+				return original.context.revision == matched.context.revision || filter.test(original);
+			}
+		}
+
+		return true;
+	}
+
+	private void fail(final IDTYPE id, final TemporalPersistenceException failure) {
+		this.failed.incrementAndGet();
+		this.failures.put(id, failure);
+
+		synchronized (this.listener) {
+			this.listener.failed(id, failure);
+		}
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.bulk;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceException;
+
+/**
+ * Told how a {@link BulkCorrectionJob} is getting on. Calls are made from the job's worker threads, one at a time.
+ * 
+ * @author Daniel R. Pedersen
+ *
+ * @param <IDTYPE> the type of the structure's identifier
+ */
+@FunctionalInterface
+public interface BulkCorrectionListener<IDTYPE> {
+
+	/**
+	 * Called each time a batch is finished
+	 * 
+	 * @param progress the counts so far
+	 */
+	void progress(BulkCorrectionProgress progress);
+
+	/**
+	 * Called when the correction of an identifier fails, the job carries on with the others. The default does nothing.
+	 * 
+	 * @param id      the identifier which failed
+	 * @param failure why it failed
+	 */
+	default void failed(final IDTYPE id, final TemporalPersistenceException failure) {
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.bulk;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * The counts of a {@link BulkCorrectionJob} at a point in time.
+ * 
+ * @author Daniel R. Pedersen
+ */
+@ToString
+@EqualsAndHashCode
+public class BulkCorrectionProgress {
+
+	/**
+	 * The identifiers finished with, whatever the outcome
+	 */
+	public final long processed;
+
+	/**
+	 * The identifiers which gained at least one revision
+	 */
+	public final long corrected;
+
+	/**
+	 * The revisions created across every identifier
+	 */
+	public final long revisions;
+
+	/**
+	 * The identifiers passed over, because the filter rejected them or none of their versions had the corrected paths
+	 */
+	public final long skipped;
+
+	/**
+	 * The identifiers whose correction failed
+	 */
+	public final long failed;
+
+	public BulkCorrectionProgress(final long processed, final long corrected, final long revisions, final long skipped, final long failed) {
+		this.processed = processed;
+		this.corrected = corrected;
+		this.revisions = revisions;
+		this.skipped = skipped;
+		this.failed = failed;
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.bulk;
+
+import java.util.Map;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceException;
+
+import lombok.ToString;
+
+/**
+ * The outcome of a {@link BulkCorrectionJob}.
+ * 
+ * @author Daniel R. Pedersen
+ *
+ * @param <IDTYPE> the type of the structure's identifier
+ */
+@ToString
+public class BulkCorrectionResult<IDTYPE> {
+
+	/**
+	 * The final counts
+	 */
+	public final BulkCorrectionProgress progress;
+
+	/**
+	 * Why each failed identifier failed
+	 */
+	public final Map<IDTYPE, TemporalPersistenceException> failures;
+
+	/**
+	 * True if the job was cancelled before every identifier was processed
+	 */
+	public final boolean cancelled;
+
+	public BulkCorrectionResult(final BulkCorrectionProgress progress, final Map<IDTYPE, TemporalPersistenceException> failures, final boolean cancelled) {
+		this.progress = progress;
+		this.failures = Map.copyOf(failures);
+		this.cancelled = cancelled;
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.ContextHandle;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalSnapshot;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalStructureInterface;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.ForwardingTemporalPersistence;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceException;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceInterface;
+
+import lombok.NonNull;
+
+/**
+ * Caches the snapshots read by version and revision in front of any temporal persistence. A revision never changes once written,
+ * so a snapshot addressed by a complete context handle is cached without ever being invalidated, writes simply pass through.
+ * Lookups which may resolve to a different snapshot over time, such as by effective time or by version alone, are not cached.
+ * 
+ * The cache holds at most the configured number of snapshots, evicting with {@link WindowTinyLfuCache W-TinyLFU} so that the most
+ * frequently read snapshots stay cached while those read only once pass through.
+ * 
+ * @author Daniel R. Pedersen
+ *
+ * @param <IDTYPE>     the type of the structure's identifier
+ * @param <STATE_ENUM> the type of the structure's state enum
+ * @param <EVENT_ENUM> the type of the structure's event enum
+ * @param <STRUCT>     the type of the structure
+ * @param <SNAPSHOT>   the type of the structure's snapshot
+ */
+public class CachingTemporalPersistence<IDTYPE, STATE_ENUM extends Enum<?>, EVENT_ENUM extends Enum<?>, STRUCT extends TemporalStructureInterface<IDTYPE, STATE_ENUM, EVENT_ENUM>, SNAPSHOT extends TemporalSnapshot<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT>>
+		extends ForwardingTemporalPersistence<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT, SNAPSHOT> {
+
+	/**
+	 * The most snapshots cached when not otherwise set
+	 */
+	public static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+
+	private final WindowTinyLfuCache<ContextHandle<IDTYPE>, SNAPSHOT> cache;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * @param delegate the persistence holding the snapshots
+	 */
+	public CachingTemporalPersistence(@NonNull final TemporalPersistenceInterface<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT, SNAPSHOT> delegate) {
+		this(delegate, DEFAULT_MAXIMUM_SIZE);
+	}
+
+	/**
+	 * @param delegate    the persistence holding the snapshots
+	 * @param maximumSize the most snapshots cached, at least 1
+	 */
+	public CachingTemporalPersistence(@NonNull final TemporalPersistenceInterface<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT, SNAPSHOT> delegate,
+			final int maximumSize) {
+		super(delegate);
+		this.cache = new WindowTinyLfuCache<>(maximumSize);
+	}
+
+	/**
+	 * @return the number of snapshots cached
+	 */
+	public int cachedCount() {
+		return this.cache.size();
+	}
+
+	/**
+	 * @return the number of lookups answered from the cache
+	 */
+	public long hitCount() {
+		return this.hits.sum();
+	}
+
+	/**
+	 * @return the number of lookups forwarded to the delegate
+	 */
+	public long missCount() {
+		return this.misses.sum();
+	}
+
+	@Override
+	public Optional<SNAPSHOT> getByIdVersionAndRevision(@NonNull final IDTYPE id, final int version, final int revision)
+			throws TemporalPersistenceException {
+		final var contextHandle = new ContextHandle<>(id, version, revision);
+		final var cached = this.cache.get(contextHandle);
+
+		if (cached != null) {
+			this.hits.increment();
+			return Optional.of(cached);
+		}
+
+		this.misses.increment();
+		final var snapshot = super.getByIdVersionAndRevision(id, version, revision);
+		snapshot.ifPresent(s -> this.cache.put(contextHandle, s));
+		return snapshot;
+	}
+
+	@Override
+	public Optional<SNAPSHOT> getByContextHandle(@NonNull final ContextHandle<IDTYPE> contextHandle) throws TemporalPersistenceException {
+		if (!isComplete(contextHandle)) {
+			return super.getByContextHandle(contextHandle);
+		}
+
+		return getByIdVersionAndRevision(contextHandle.identifier, contextHandle.version, contextHandle.revision);
+	}
+
+	/**
+	 * Complete handles are answered from the cache where possible, the rest forwarded to the delegate as a single batch
+	 */
+	@Override
+	public Map<ContextHandle<IDTYPE>, SNAPSHOT> getByContextHandles(@NonNull final Collection<ContextHandle<IDTYPE>> contextHandles)
+			throws TemporalPersistenceException {
+		final var resolved = new HashMap<ContextHandle<IDTYPE>, SNAPSHOT>();
+		final var forwarded = new ArrayList<ContextHandle<IDTYPE>>();
+
+		for (final var contextHandle : contextHandles) {
+			final var cached = isComplete(contextHandle) ? this.cache.get(contextHandle) : null;
+
+			if (cached != null) {
+				this.hits.increment();
+				resolved.put(contextHandle, cached);
+			} else {
+				this.misses.increment();
+				forwarded.add(contextHandle);
+			}
+		}
+
+		if (!forwarded.isEmpty()) {
+			super.getByContextHandles(forwarded).forEach((contextHandle, snapshot) -> {
+				if (isComplete(contextHandle)) {
+					this.cache.put(contextHandle, snapshot);
+				}
+				resolved.put(contextHandle, snapshot);
+			});
+		}
+
+		final var found = new LinkedHashMap<ContextHandle<IDTYPE>, SNAPSHOT>();
+		contextHandles.stream().filter(resolved::containsKey).forEach(contextHandle -> found.put(contextHandle, resolved.get(contextHandle)));
+		return found;
+	}
+
+	private static boolean isComplete(final ContextHandle<?> contextHandle) {
+		return contextHandle.version != null && contextHandle.revision != null;
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.cache;
+
+/**
+ * A count-min sketch estimating how often each key has been seen recently, the admission filter of a {@link WindowTinyLfuCache}.
+ * Each key has a 4 bit counter in each of four rows, sixteen counters packed into each long, and its frequency is the least of its
+ * counters. Once as many increments as ten times the cache's capacity have been counted every counter is halved, so the sketch
+ * forgets keys which are no longer popular.
+ * 
+ * The sketch is not synchronized, the cache guards it with its policy lock.
+ * 
+ * @author Daniel R. Pedersen
+ */
+final class FrequencySketch {
+
+	private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+	private static final long RESET_MASK = 0x7777777777777777L;
+
+	private static final int MAXIMUM_COUNT = 15;
+
+	private final long[] table;
+	private final int tableMask;
+	private final int sampleSize;
+
+	private int size;
+
+	/**
+	 * @param capacity the number of entries the cache holds
+	 */
+	FrequencySketch(final int capacity) {
+		final int length = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+		this.table = new long[length];
+		this.tableMask = length - 1;
+		this.sampleSize = 10 * Math.max(capacity, 1);
+	}
+
+	/**
+	 * @param hashCode the hash code of the key
+	 * @return the estimated number of times the key has been seen recently, at most 15
+	 */
+	int frequency(final int hashCode) {
+		final int hash = spread(hashCode);
+		int frequency = MAXIMUM_COUNT;
+
+		for (int row = 0; row < SEEDS.length; row++) {
+			final int index = indexOf(hash, row);
+			frequency = Math.min(frequency, (int) ((this.table[index & this.tableMask] >>> offsetOf(index)) & MAXIMUM_COUNT));
+		}
+
+		return frequency;
+	}
+
+	/**
+	 * Count the key as seen once more
+	 * 
+	 * @param hashCode the hash code of the key
+	 */
+	void increment(final int hashCode) {
+		final int hash = spread(hashCode);
+		boolean added = false;
+
+		for (int row = 0; row < SEEDS.length; row++) {
+			final int index = indexOf(hash, row);
+			final int offset = offsetOf(index);
+			final long mask = (long) MAXIMUM_COUNT << offset;
+
+			if ((this.table[index & this.tableMask] & mask) != mask) {
+				this.table[index & this.tableMask] += 1L << offset;
+				added = true;
+			}
+		}
+
+		if (added && ++this.size >= this.sampleSize) {
+			reset();
+		}
+	}
+
+	/**
+	 * Halve every counter
+	 */
+	private void reset() {
+		for (int i = 0; i < this.table.length; i++) {
+			this.table[i] = (this.table[i] >>> 1) & RESET_MASK;
+		}
+
+		this.size /= 2;
+	}
+
+	private static int indexOf(final int hash, final int row) {
+		long index = (hash + SEEDS[row]) * SEEDS[row];
+		index += index >>> 32;
+		return (int) index;
+	}
+
+	/**
+	 * @return the bit offset of the counter within its long, from the top bits of the index
+	 */
+	private static int offsetOf(final int index) {
+		return (index >>> 28) << 2;
+	}
+
+	private static int spread(final int hashCode) {
+		int hash = hashCode * 0x9e3779b9;
+		return hash ^ (hash >>> 16);
+	}
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import lombok.NonNull;
+
+/**
+ * A size bounded cache with W-TinyLFU eviction. New entries enter a small LRU window; an entry leaving the window is admitted to the
+ * main space only if a {@link FrequencySketch} estimates it to be used more often than the entry it would evict, so a burst of
+ * entries read once cannot flush out the popular ones. The main space is a segmented LRU, entries read again while on probation
+ * being promoted to the protected segment.
+ * 
+ * Entries are held in a concurrent map, so a read never blocks. Reads record their access under the policy lock only if it is free,
+ * an access being dropped rather than waited for, so under contention the policy orders the entries approximately.
+ * 
+ * @author Daniel R. Pedersen
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public final class WindowTinyLfuCache<K, V> {
+
+	private static final int WINDOW = 0;
+	private static final int PROBATION = 1;
+	private static final int PROTECTED = 2;
+
+	/**
+	 * An entry, linked into the access ordered queue of its segment
+	 */
+	private static final class Node<K, V> {
+		final K key;
+		volatile V value;
+
+		int segment;
+		Node<K, V> previous;
+		Node<K, V> next;
+
+		Node(final K key, final V value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * A doubly linked queue, least recently used first
+	 */
+	private static final class AccessQueue<K, V> {
+		final Node<K, V> head = new Node<>(null, null);
+		int size;
+
+		AccessQueue() {
+			this.head.previous = this.head;
+			this.head.next = this.head;
+		}
+
+		void addLast(final Node<K, V> node) {
+			node.previous = this.head.previous;
+			node.next = this.head;
+			this.head.previous.next = node;
+			this.head.previous = node;
+			this.size++;
+		}
+
+		void remove(final Node<K, V> node) {
+			node.previous.next = node.next;
+			node.next.previous = node.previous;
+			node.previous = null;
+			node.next = null;
+			this.size--;
+		}
+
+		void moveToLast(final Node<K, V> node) {
+			remove(node);
+			addLast(node);
+		}
+
+		Node<K, V> first() {
+			return this.head.next == this.head ? null : this.head.next;
+		}
+	}
+
+	private final ConcurrentMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+
+	private final ReentrantLock policyLock = new ReentrantLock();
+
+	private final FrequencySketch sketch;
+
+	@SuppressWarnings("unchecked")
+	private final AccessQueue<K, V>[] segments = new AccessQueue[] { new AccessQueue<>(), new AccessQueue<>(), new AccessQueue<>() };
+
+	private final int windowMaximum;
+	private final int mainMaximum;
+	private final int protectedMaximum;
+
+	/**
+	 * @param maximumSize the most entries held, at least 1
+	 */
+	public WindowTinyLfuCache(final int maximumSize) {
+		if (maximumSize < 1) {
+			throw new IllegalArgumentException("maximumSize must be at least 1");
+		}
+
+		this.windowMaximum = Math.max(1, maximumSize / 100);
+		this.mainMaximum = maximumSize - this.windowMaximum;
+		this.protectedMaximum = this.mainMaximum * 4 / 5;
+		this.sketch = new FrequencySketch(maximumSize);
+	}
+
+	/**
+	 * @param key the key to find
+	 * @return the cached value, null if not cached
+	 */
+	public V get(@NonNull final K key) {
+		final var node = this.data.get(key);
+
+		if (this.policyLock.tryLock()) {
+			try {
+				this.sketch.increment(key.hashCode());
+
+				if (node != null && node.previous != null) {
+					onHit(node);
+				}
+			} finally {
+				this.policyLock.unlock();
+			}
+		}
+
+		return node == null ? null : node.value;
+	}
+
+	/**
+	 * Cache the value, evicting entries if the cache is full. The value may itself be evicted at once if it is less popular than
+	 * the entries already cached.
+	 * 
+	 * @param key   the key to cache the value under
+	 * @param value the value to cache
+	 */
+	public void put(@NonNull final K key, @NonNull final V value) {
+		this.policyLock.lock();
+		try {
+			final var existing = this.data.get(key);
+
+			if (existing != null) {
+				existing.value = value;
+				return;
+			}
+
+			final var node = new Node<>(key, value);
+			node.segment = WINDOW;
+			this.segments[WINDOW].addLast(node);
+			this.data.put(key, node);
+
+			evict();
+		} finally {
+			this.policyLock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of entries cached
+	 */
+	public int size() {
+		return this.data.size();
+	}
+
+	/**
+	 * @return true if the key is cached, without recording an access
+	 */
+	public boolean containsKey(@NonNull final K key) {
+		return this.data.containsKey(key);
+	}
+
+	private void onHit(final Node<K, V> node) {
+		if (node.segment != PROBATION) {
+			this.segments[node.segment].moveToLast(node);
+			return;
+		}
+
+		this.segments[PROBATION].remove(node);
+		node.segment = PROTECTED;
+		this.segments[PROTECTED].addLast(node);
+
+		if (this.segments[PROTECTED].size > this.protectedMaximum) {
+			final var demoted = this.segments[PROTECTED].first();
+			this.segments[PROTECTED].remove(demoted);
+			demoted.segment = PROBATION;
+			this.segments[PROBATION].addLast(demoted);
+		}
+	}
+
+	/**
+	 * Move the entries overflowing the window to the main space, admitting each only if it is more popular than the main space's
+	 * next victim
+	 */
+	private void evict() {
+		while (this.segments[WINDOW].size > this.windowMaximum) {
+			final var candidate = this.segments[WINDOW].first();
+			this.segments[WINDOW].remove(candidate);
+
+			if (this.segments[PROBATION].size + this.segments[PROTECTED].size < this.mainMaximum) {
+				candidate.segment = PROBATION;
+				this.segments[PROBATION].addLast(candidate);
+				continue;
+			}
+
+			final var victim = this.segments[PROBATION].size > 0 ? this.segments[PROBATION].first() : this.segments[PROTECTED].first();
+
+			if (victim == null || this.sketch.frequency(candidate.key.hashCode()) <= this.sketch.frequency(victim.key.hashCode())) {
+				this.data.remove(candidate.key, candidate);
+				continue;
+			}
+
+			this.segments[victim.segment].remove(victim);
+			this.data.remove(victim.key, victim);
+			candidate.segment = PROBATION;
+			this.segments[PROBATION].addLast(candidate);
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import lombok.NonNull;
+
+/**
+ * A {@link DataInput} reading directly from a {@link ByteBuffer}, so a struct can be decoded straight out of a direct or memory
+ * mapped buffer without first copying its bytes onto the heap. Reading advances the buffer's position.
+ * 
+ * @author Daniel R. Pedersen
+ */
+public class ByteBufferDataInput implements DataInput {
+
+	private final ByteBuffer buffer;
+
+	/**
+	 * @param buffer the buffer to read from its position to its limit, must be big endian as written by a {@link java.io.DataOutput}
+	 */
+	public ByteBufferDataInput(@NonNull final ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	@Override
+	public void readFully(final byte[] b) throws IOException {
+		readFully(b, 0, b.length);
+	}
+
+	@Override
+	public void readFully(final byte[] b, final int off, final int len) throws IOException {
+		require(len);
+		this.buffer.get(b, off, len);
+	}
+
+	@Override
+	public int skipBytes(final int n) {
+		final var skipped = Math.max(0, Math.min(n, this.buffer.remaining()));
+		this.buffer.position(this.buffer.position() + skipped);
+		return skipped;
+	}
+
+	@Override
+	public boolean readBoolean() throws IOException {
+		return readByte() != 0;
+	}
+
+	@Override
+	public byte readByte() throws IOException {
+		try {
+			return this.buffer.get();
+		} catch (final BufferUnderflowException e) {
+			throw new EOFException();
+		}
+	}
+
+	@Override
+	public int readUnsignedByte() throws IOException {
+		return readByte() & 0xFF;
+	}
+
+	@Override
+	public short readShort() throws IOException {
+		try {
+			return this.buffer.getShort();
+		} catch (final BufferUnderflowException e) {
+			throw new EOFException();
+		}
+	}
+
+	@Override
+	public int readUnsignedShort() throws IOException {
+		return readShort() & 0xFFFF;
+	}
+
+	@Override
+	public char readChar() throws IOException {
+		return (char) readShort();
+	}
+
+	@Override
+	public int readInt() throws IOException {
+		try {
+			return this.buffer.getInt();
+		} catch (final BufferUnderflowException e) {
+			throw new EOFException();
+		}
+	}
+
+	@Override
+	public long readLong() throws IOException {
+		try {
+			return this.buffer.getLong();
+		} catch (final BufferUnderflowException e) {
+			throw new EOFException();
+		}
+	}
+
+	@Override
+	public float readFloat() throws IOException {
+		return Float.intBitsToFloat(readInt());
+	}
+
+	@Override
+	public double readDouble() throws IOException {
+		return Double.longBitsToDouble(readLong());
+	}
+
+	/**
+	 * Not supported, lines are not part of any binary format
+	 */
+	@Override
+	public String readLine() {
+		throw new UnsupportedOperationException("readLine is not supported");
+	}
+
+	@Override
+	public String readUTF() throws IOException {
+		return DataInputStream.readUTF(this);
+	}
+
+	private void require(final int length) throws EOFException {
+		if (this.buffer.remaining() < length) {
+			throw new EOFException();
+		}
+	}
+}
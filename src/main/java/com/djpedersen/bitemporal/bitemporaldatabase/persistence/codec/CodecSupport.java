@@ -0,0 +1,177 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Encodings of common nullable values, used by generated codecs and available to hand written ones.
+ * 
+ * @author Daniel R. Pedersen
+ */
+public final class CodecSupport {
+
+	private CodecSupport() {
+	}
+
+	/**
+	 * Write the length of an array or collection, -1 for null, as a varint
+	 * 
+	 * @param out    where to write
+	 * @param length the length, -1 for null
+	 * @throws IOException if the output cannot be written
+	 */
+	public static void writeLength(final DataOutput out, final int length) throws IOException {
+		Varints.writeVarInt(out, length + 1);
+	}
+
+	/**
+	 * @param in where to read from
+	 * @return the length written by {@link #writeLength(DataOutput, int)}, -1 for null
+	 * @throws IOException if the input cannot be read
+	 */
+	public static int readLength(final DataInput in) throws IOException {
+		final var length = Varints.readVarInt(in) - 1;
+
+		if (length < -1) {
+			throw new IOException("Negative length " + length);
+		}
+
+		return length;
+	}
+
+	/**
+	 * Write a nullable string as its UTF-8 length and bytes, unlike {@link DataOutput#writeUTF(String)} any length is allowed
+	 * 
+	 * @param out   where to write
+	 * @param value the string, may be null
+	 * @throws IOException if the output cannot be written
+	 */
+	public static void writeString(final DataOutput out, final String value) throws IOException {
+		if (value == null) {
+			writeLength(out, -1);
+			return;
+		}
+
+		final var bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeLength(out, bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * @param in where to read from
+	 * @return the string written by {@link #writeString(DataOutput, String)}
+	 * @throws IOException if the input cannot be read
+	 */
+	public static String readString(final DataInput in) throws IOException {
+		final var length = readLength(in);
+
+		if (length < 0) {
+			return null;
+		}
+
+		final var bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Write a nullable UUID
+	 * 
+	 * @param out   where to write
+	 * @param value the UUID, may be null
+	 * @throws IOException if the output cannot be written
+	 */
+	public static void writeUUID(final DataOutput out, final UUID value) throws IOException {
+		out.writeBoolean(value != null);
+
+		if (value != null) {
+			out.writeLong(value.getMostSignificantBits());
+			out.writeLong(value.getLeastSignificantBits());
+		}
+	}
+
+	/**
+	 * @param in where to read from
+	 * @return the UUID written by {@link #writeUUID(DataOutput, UUID)}
+	 * @throws IOException if the input cannot be read
+	 */
+	public static UUID readUUID(final DataInput in) throws IOException {
+		return in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+	}
+
+	/**
+	 * Write a nullable instant
+	 * 
+	 * @param out   where to write
+	 * @param value the instant, may be null
+	 * @throws IOException if the output cannot be written
+	 */
+	public static void writeInstant(final DataOutput out, final Instant value) throws IOException {
+		out.writeBoolean(value != null);
+
+		if (value != null) {
+			Varints.writeSignedVarLong(out, value.getEpochSecond());
+			Varints.writeVarInt(out, value.getNano());
+		}
+	}
+
+	/**
+	 * @param in where to read from
+	 * @return the instant written by {@link #writeInstant(DataOutput, Instant)}
+	 * @throws IOException if the input cannot be read
+	 */
+	public static Instant readInstant(final DataInput in) throws IOException {
+		return in.readBoolean() ? Instant.ofEpochSecond(Varints.readSignedVarLong(in), Varints.readVarInt(in)) : null;
+	}
+
+	/**
+	 * Write a nullable enum constant by name, so constants may be re-ordered or inserted without altering what is read back
+	 * 
+	 * @param out   where to write
+	 * @param value the constant, may be null
+	 * @throws IOException if the output cannot be written
+	 */
+	public static void writeEnum(final DataOutput out, final Enum<?> value) throws IOException {
+		writeString(out, value == null ? null : value.name());
+	}
+
+	/**
+	 * @param <E>  the type of the enum
+	 * @param in   where to read from
+	 * @param type the class of the enum
+	 * @return the constant written by {@link #writeEnum(DataOutput, Enum)}
+	 * @throws IOException if the input cannot be read or the constant no longer exists
+	 */
+	public static <E extends Enum<E>> E readEnum(final DataInput in, final Class<E> type) throws IOException {
+		final var name = readString(in);
+
+		if (name == null) {
+			return null;
+		}
+
+		try {
+			return Enum.valueOf(type, name);
+		} catch (final IllegalArgumentException e) {
+			throw new IOException("Unknown constant " + name + " of " + type.getName(), e);
+		}
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.ContextHandle;
+
+import lombok.NonNull;
+
+/**
+ * A compact binary encoding for {@link ContextHandle}s: a flags byte saying which of the version and revision are present, the
+ * identifier, then the version and revision as varints. Stateless and thread safe.
+ * 
+ * @author Daniel R. Pedersen
+ *
+ * @param <IDTYPE> the type of the identifier
+ */
+public class ContextHandleCodec<IDTYPE> {
+
+	private static final int HAS_VERSION = 1;
+	private static final int HAS_REVISION = 1 << 1;
+
+	private final IdentifierCodec<IDTYPE> identifierCodec;
+
+	/**
+	 * @param identifierCodec converts the handle's identifier, e.g. {@link IdentifierCodec#UUIDS}
+	 */
+	public ContextHandleCodec(@NonNull final IdentifierCodec<IDTYPE> identifierCodec) {
+		this.identifierCodec = identifierCodec;
+	}
+
+	/**
+	 * Write the handle
+	 * 
+	 * @param handle the handle to write, its identifier must not be null
+	 * @param out    where to write
+	 * @throws IOException if the output cannot be written
+	 */
+	public void encode(@NonNull final ContextHandle<IDTYPE> handle, @NonNull final DataOutput out) throws IOException {
+		if (handle.identifier == null) {
+			throw new IOException("Cannot encode a context handle without an identifier");
+		}
+
+		out.writeByte((handle.version != null ? HAS_VERSION : 0) | (handle.revision != null ? HAS_REVISION : 0));
+		this.identifierCodec.encode(handle.identifier, out);
+
+		if (handle.version != null) {
+			Varints.writeVarInt(out, handle.version);
+		}
+
+		if (handle.revision != null) {
+			Varints.writeVarInt(out, handle.revision);
+		}
+	}
+
+	/**
+	 * Read a handle
+	 * 
+	 * @param in where to read from
+	 * @return the handle read
+	 * @throws IOException if the input cannot be read or is not a handle
+	 */
+	public ContextHandle<IDTYPE> decode(@NonNull final DataInput in) throws IOException {
+		final var holder = new ContextHandleHolder<IDTYPE>();
+		decode(in, holder);
+		return holder.toContextHandle();
+	}
+
+	/**
+	 * Read a handle into the holder, allocating nothing beyond what the identifier codec allocates
+	 * 
+	 * @param in     where to read from
+	 * @param holder receives the handle
+	 * @throws IOException if the input cannot be read or is not a handle
+	 */
+	public void decode(@NonNull final DataInput in, @NonNull final ContextHandleHolder<IDTYPE> holder) throws IOException {
+		final var flags = in.readUnsignedByte();
+
+		holder.identifier = this.identifierCodec.decode(in);
+		holder.version = (flags & HAS_VERSION) != 0 ? Varints.readVarInt(in) : -1;
+		holder.revision = (flags & HAS_REVISION) != 0 ? Varints.readVarInt(in) : -1;
+	}
+}
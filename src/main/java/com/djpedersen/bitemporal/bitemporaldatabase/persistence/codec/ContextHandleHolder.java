@@ -0,0 +1,51 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.ContextHandle;
+
+import lombok.ToString;
+
+/**
+ * A mutable, reusable target for {@link ContextHandleCodec}, holding the version and revision unboxed. A version or revision of -1
+ * means the handle does not specify one, a revision without a version is ignored as no such handle can be created.
+ * 
+ * @author Daniel R. Pedersen
+ *
+ * @param <IDTYPE> the type of the identifier
+ */
+@ToString
+public class ContextHandleHolder<IDTYPE> {
+
+	public IDTYPE identifier;
+	public int version = -1;
+	public int revision = -1;
+
+	/**
+	 * @return a new handle with the held values
+	 */
+	public ContextHandle<IDTYPE> toContextHandle() {
+		if (this.version < 0) {
+			return new ContextHandle<>(this.identifier, 0, 0).createIndentityContextHandle();
+		}
+
+		if (this.revision < 0) {
+			return new ContextHandle<>(this.identifier, this.version, 0).createVersionedContextHandle();
+		}
+
+		return new ContextHandle<>(this.identifier, this.version, this.revision);
+	}
+}
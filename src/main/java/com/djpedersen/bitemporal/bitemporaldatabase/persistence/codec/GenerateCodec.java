@@ -0,0 +1,43 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a struct class for which a {@link StructCodec} is generated at compile time, named after the class with a
+ * {@code GeneratedCodec} suffix (nested classes are joined with underscores) and registered for {@link StructCodecs#forType(Class)}.
+ * 
+ * The generated codec reads and writes every non-static, non-transient field, including inherited ones, with straight-line code and
+ * no reflection. Fields that are not private are accessed directly, private fields through their JavaBean getter and setter, which
+ * may be generated by Lombok. The class needs a no argument constructor accessible from its package, and no final fields.
+ * 
+ * Supported field types are the primitives and their boxes, String, UUID, Instant, enums, classes also marked with this annotation,
+ * and arrays, Lists, Sets and Collections of any of these. Enums are written by name, so constants may be re-ordered or added but
+ * not renamed or removed once data has been written.
+ * Fields are written in declaration order, so fields may not be re-ordered, added or removed once data has been written.
+ * 
+ * @author Daniel R. Pedersen
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface GenerateCodec {
+}
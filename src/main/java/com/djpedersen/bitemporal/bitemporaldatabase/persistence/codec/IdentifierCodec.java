@@ -0,0 +1,95 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Converts an identifier to and from bytes. Codecs for the common identifier types are provided.
+ * 
+ * @author Daniel R. Pedersen
+ *
+ * @param <IDTYPE> the type of the identifier
+ */
+public interface IdentifierCodec<IDTYPE> {
+
+	/**
+	 * UUIDs as sixteen bytes
+	 */
+	IdentifierCodec<UUID> UUIDS = new IdentifierCodec<>() {
+		@Override
+		public void encode(final UUID identifier, final DataOutput out) throws IOException {
+			out.writeLong(identifier.getMostSignificantBits());
+			out.writeLong(identifier.getLeastSignificantBits());
+		}
+
+		@Override
+		public UUID decode(final DataInput in) throws IOException {
+			return new UUID(in.readLong(), in.readLong());
+		}
+	};
+
+	/**
+	 * Strings as modified UTF-8, see {@link DataOutput#writeUTF(String)}
+	 */
+	IdentifierCodec<String> STRINGS = new IdentifierCodec<>() {
+		@Override
+		public void encode(final String identifier, final DataOutput out) throws IOException {
+			out.writeUTF(identifier);
+		}
+
+		@Override
+		public String decode(final DataInput in) throws IOException {
+			return in.readUTF();
+		}
+	};
+
+	/**
+	 * Longs as zigzag varints
+	 */
+	IdentifierCodec<Long> LONGS = new IdentifierCodec<>() {
+		@Override
+		public void encode(final Long identifier, final DataOutput out) throws IOException {
+			Varints.writeSignedVarLong(out, identifier);
+		}
+
+		@Override
+		public Long decode(final DataInput in) throws IOException {
+			return Varints.readSignedVarLong(in);
+		}
+	};
+
+	/**
+	 * Write the identifier
+	 * 
+	 * @param identifier the identifier to write, never null
+	 * @param out        where to write
+	 * @throws IOException if the output cannot be written
+	 */
+	void encode(IDTYPE identifier, DataOutput out) throws IOException;
+
+	/**
+	 * Read an identifier written by {@link #encode(Object, DataOutput)}
+	 * 
+	 * @param in where to read from
+	 * @return the identifier read
+	 * @throws IOException if the input cannot be read or is not an identifier
+	 */
+	IDTYPE decode(DataInput in) throws IOException;
+}
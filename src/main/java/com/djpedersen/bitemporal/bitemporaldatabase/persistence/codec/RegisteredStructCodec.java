@@ -0,0 +1,35 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec;
+
+/**
+ * A {@link StructCodec} discoverable through {@link java.util.ServiceLoader}, listed in
+ * {@code META-INF/services/com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec.RegisteredStructCodec}. Codecs generated
+ * for {@link GenerateCodec} classes are registered automatically, hand written codecs may be registered the same way.
+ * 
+ * Implementations need a public no argument constructor.
+ * 
+ * @author Daniel R. Pedersen
+ *
+ * @param <STRUCT> the type of the structure
+ */
+public interface RegisteredStructCodec<STRUCT> extends StructCodec<STRUCT> {
+
+	/**
+	 * @return the exact class of the structures this codec handles
+	 */
+	Class<STRUCT> structType();
+}
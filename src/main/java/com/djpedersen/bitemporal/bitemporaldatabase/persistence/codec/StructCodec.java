@@ -0,0 +1,49 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Converts a temporal structure to and from bytes for persistence implementations that store structures outside the heap.
+ * Implementations must be able to decode everything they have ever encoded, and should be stateless so one instance can be shared.
+ * 
+ * @author Daniel R. Pedersen
+ *
+ * @param <STRUCT> the type of the structure
+ */
+public interface StructCodec<STRUCT> {
+
+	/**
+	 * Write the structure to the output
+	 * 
+	 * @param struct the structure to write
+	 * @param out    where to write the structure
+	 * @throws IOException if the output cannot be written
+	 */
+	void encode(STRUCT struct, DataOutput out) throws IOException;
+
+	/**
+	 * Read a structure previously written by {@link #encode(Object, DataOutput)}
+	 * 
+	 * @param in where to read the structure from
+	 * @return the structure read
+	 * @throws IOException if the input cannot be read or is not a structure
+	 */
+	STRUCT decode(DataInput in) throws IOException;
+}
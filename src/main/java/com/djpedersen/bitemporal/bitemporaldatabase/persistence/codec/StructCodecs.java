@@ -0,0 +1,79 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.NonNull;
+
+/**
+ * Finds the {@link StructCodec} for a struct class. Codecs are discovered through {@link ServiceLoader} as
+ * {@link RegisteredStructCodec}s on first use, or registered explicitly.
+ * 
+ * @author Daniel R. Pedersen
+ */
+public final class StructCodecs {
+
+	private static final Map<Class<?>, StructCodec<?>> CODECS = new ConcurrentHashMap<>();
+
+	static {
+		for (final var codec : ServiceLoader.load(RegisteredStructCodec.class, StructCodecs.class.getClassLoader())) {
+			CODECS.putIfAbsent(codec.structType(), codec);
+		}
+	}
+
+	private StructCodecs() {
+	}
+
+	/**
+	 * Register a codec, replacing any discovered or registered before
+	 * 
+	 * @param <STRUCT>   the type of the structure
+	 * @param structType the class of the structures the codec handles
+	 * @param codec      the codec
+	 */
+	public static <STRUCT> void register(@NonNull final Class<STRUCT> structType, @NonNull final StructCodec<STRUCT> codec) {
+		CODECS.put(structType, codec);
+	}
+
+	/**
+	 * Find the codec for a struct class
+	 * 
+	 * @param <STRUCT>   the type of the structure
+	 * @param structType the exact class of the structure
+	 * @return the codec, if one was discovered or registered
+	 */
+	@SuppressWarnings("unchecked")
+	public static <STRUCT> Optional<StructCodec<STRUCT>> find(@NonNull final Class<STRUCT> structType) {
+		return Optional.ofNullable((StructCodec<STRUCT>) CODECS.get(structType));
+	}
+
+	/**
+	 * Get the codec for a struct class
+	 * 
+	 * @param <STRUCT>   the type of the structure
+	 * @param structType the exact class of the structure
+	 * @return the codec
+	 * @throws IllegalArgumentException if no codec was discovered or registered for the class
+	 */
+	public static <STRUCT> StructCodec<STRUCT> forType(@NonNull final Class<STRUCT> structType) {
+		return find(structType).orElseThrow(() -> new IllegalArgumentException("No struct codec for " + structType.getName()
+				+ ", mark it with @GenerateCodec or register one"));
+	}
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalContext;
+
+import lombok.NonNull;
+
+/**
+ * A compact binary encoding for runs of {@link TemporalContext}s. Contexts are encoded by an {@link Encoder} and decoded by a
+ * {@link Decoder} in the same order; both carry state from one context to the next, which is what makes the encoding compact:
+ * 
+ * <ul>
+ * <li>a flags byte</li>
+ * <li>the version and revision as varints</li>
+ * <li>effectiveFrom as zigzag varint epoch nanoseconds, relative to the previous context's effectiveFrom</li>
+ * <li>recordedOn as zigzag varint epoch nanoseconds, relative to the previous context's recordedOn, or to its own effectiveFrom for
+ * the first context</li>
+ * <li>the comment, either as a reference to an earlier occurrence of the same comment or as a varint length and UTF-8 bytes</li>
+ * </ul>
+ * 
+ * Instants that cannot be expressed in epoch nanoseconds, beyond roughly the years 1677 to 2262, are written as absolute seconds
+ * and nanoseconds instead and restart the relative encoding. A typical context takes under twenty bytes, against forty or more written
+ * field by field.
+ * 
+ * Each run is independent, {@link Encoder#reset()} and {@link Decoder#reset()} start a new one, e.g. for each record of a store
+ * that is read at random. Encoders and decoders are not thread safe.
+ * 
+ * @author Daniel R. Pedersen
+ */
+public final class TemporalContextCodec {
+
+	private static final int HAS_COMMENT = 1;
+	private static final int COMMENT_REFERENCE = 1 << 1;
+	private static final int ABSOLUTE_INSTANTS = 1 << 2;
+
+	/**
+	 * The most distinct comments remembered per run, later comments are always written in full
+	 */
+	static final int DICTIONARY_LIMIT = 1024;
+
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+	private TemporalContextCodec() {
+	}
+
+	/**
+	 * @return a new encoder at the start of a run
+	 */
+	public static Encoder encoder() {
+		return new Encoder();
+	}
+
+	/**
+	 * @return a new decoder at the start of a run
+	 */
+	public static Decoder decoder() {
+		return new Decoder();
+	}
+
+	/**
+	 * @return true if the instant can be expressed in epoch nanoseconds
+	 */
+	private static boolean fitsEpochNanos(final Instant instant) {
+		final var seconds = instant.getEpochSecond();
+		return seconds > Long.MIN_VALUE / NANOS_PER_SECOND + 1 && seconds < Long.MAX_VALUE / NANOS_PER_SECOND - 1;
+	}
+
+	private static long epochNanos(final long seconds, final int nanos) {
+		return seconds * NANOS_PER_SECOND + nanos;
+	}
+
+	/**
+	 * Writes contexts
+	 */
+	public static final class Encoder {
+
+		private boolean relative;
+		private long previousEffectiveFrom;
+		private long previousRecordedOn;
+
+		private Map<String, Integer> dictionary;
+
+		private Encoder() {
+		}
+
+		/**
+		 * Start a new run, forgetting the previous contexts and comments
+		 */
+		public void reset() {
+			this.relative = false;
+
+			if (this.dictionary != null) {
+				this.dictionary.clear();
+			}
+		}
+
+		/**
+		 * Write the context
+		 * 
+		 * @param context the context to write
+		 * @param out     where to write
+		 * @throws IOException if the output cannot be written
+		 */
+		public void encode(@NonNull final TemporalContext context, @NonNull final DataOutput out) throws IOException {
+			final var absolute = !fitsEpochNanos(context.effectiveFrom) || !fitsEpochNanos(context.recordedOn);
+			final var reference = context.comment == null ? null : dictionary().get(context.comment);
+
+			int flags = absolute ? ABSOLUTE_INSTANTS : 0;
+			if (context.comment != null) {
+				flags |= reference != null ? HAS_COMMENT | COMMENT_REFERENCE : HAS_COMMENT;
+			}
+
+			out.writeByte(flags);
+			Varints.writeVarInt(out, context.version);
+			Varints.writeVarInt(out, context.revision);
+
+			if (absolute) {
+				writeAbsolute(out, context.effectiveFrom);
+				writeAbsolute(out, context.recordedOn);
+				this.relative = false;
+			} else {
+				final var effectiveFrom = epochNanos(context.effectiveFrom.getEpochSecond(), context.effectiveFrom.getNano());
+				final var recordedOn = epochNanos(context.recordedOn.getEpochSecond(), context.recordedOn.getNano());
+
+				Varints.writeSignedVarLong(out, effectiveFrom - (this.relative ? this.previousEffectiveFrom : 0));
+				Varints.writeSignedVarLong(out, recordedOn - (this.relative ? this.previousRecordedOn : effectiveFrom));
+
+				this.relative = true;
+				this.previousEffectiveFrom = effectiveFrom;
+				this.previousRecordedOn = recordedOn;
+			}
+
+			if (reference != null) {
+				Varints.writeVarInt(out, reference);
+			} else if (context.comment != null) {
+				final var bytes = context.comment.getBytes(StandardCharsets.UTF_8);
+				Varints.writeVarInt(out, bytes.length);
+				out.write(bytes);
+
+				if (this.dictionary.size() < DICTIONARY_LIMIT) {
+					this.dictionary.put(context.comment, this.dictionary.size());
+				}
+			}
+		}
+
+		private Map<String, Integer> dictionary() {
+			if (this.dictionary == null) {
+				this.dictionary = new HashMap<>();
+			}
+			return this.dictionary;
+		}
+
+		private static void writeAbsolute(final DataOutput out, final Instant instant) throws IOException {
+			Varints.writeSignedVarLong(out, instant.getEpochSecond());
+			Varints.writeVarInt(out, instant.getNano());
+		}
+	}
+
+	/**
+	 * Reads contexts written by an {@link Encoder}
+	 */
+	public static final class Decoder {
+
+		private boolean relative;
+		private long previousEffectiveFrom;
+		private long previousRecordedOn;
+
+		private final List<String> dictionary = new ArrayList<>();
+
+		private byte[] scratch = new byte[64];
+
+		private Decoder() {
+		}
+
+		/**
+		 * Start a new run, forgetting the previous contexts and comments
+		 */
+		public void reset() {
+			this.relative = false;
+			this.dictionary.clear();
+		}
+
+		/**
+		 * Read the next context
+		 * 
+		 * @param in where to read from
+		 * @return the context read
+		 * @throws IOException if the input cannot be read or is not a context
+		 */
+		public TemporalContext decode(@NonNull final DataInput in) throws IOException {
+			final var holder = new TemporalContextHolder();
+			decode(in, holder);
+			return holder.toContext();
+		}
+
+		/**
+		 * Read the next context into the holder. Nothing is allocated unless the context carries a comment not seen before in this run.
+		 * 
+		 * @param in     where to read from
+		 * @param holder receives the context
+		 * @throws IOException if the input cannot be read or is not a context
+		 */
+		public void decode(@NonNull final DataInput in, @NonNull final TemporalContextHolder holder) throws IOException {
+			final var flags = in.readUnsignedByte();
+
+			holder.version = Varints.readVarInt(in);
+			holder.revision = Varints.readVarInt(in);
+
+			if ((flags & ABSOLUTE_INSTANTS) != 0) {
+				holder.effectiveFromSeconds = Varints.readSignedVarLong(in);
+				holder.effectiveFromNanos = Varints.readVarInt(in);
+				holder.recordedOnSeconds = Varints.readSignedVarLong(in);
+				holder.recordedOnNanos = Varints.readVarInt(in);
+				this.relative = false;
+			} else {
+				final var effectiveFrom = Varints.readSignedVarLong(in) + (this.relative ? this.previousEffectiveFrom : 0);
+				final var recordedOn = Varints.readSignedVarLong(in) + (this.relative ? this.previousRecordedOn : effectiveFrom);
+
+				holder.effectiveFromSeconds = Math.floorDiv(effectiveFrom, NANOS_PER_SECOND);
+				holder.effectiveFromNanos = (int) Math.floorMod(effectiveFrom, NANOS_PER_SECOND);
+				holder.recordedOnSeconds = Math.floorDiv(recordedOn, NANOS_PER_SECOND);
+				holder.recordedOnNanos = (int) Math.floorMod(recordedOn, NANOS_PER_SECOND);
+
+				this.relative = true;
+				this.previousEffectiveFrom = effectiveFrom;
+				this.previousRecordedOn = recordedOn;
+			}
+
+			if ((flags & HAS_COMMENT) == 0) {
+				holder.comment = null;
+			} else if ((flags & COMMENT_REFERENCE) != 0) {
+				final var reference = Varints.readVarInt(in);
+
+				if (reference < 0 || reference >= this.dictionary.size()) {
+					throw new IOException("Unknown comment reference " + reference);
+				}
+
+				holder.comment = this.dictionary.get(reference);
+			} else {
+				holder.comment = readComment(in);
+
+				if (this.dictionary.size() < DICTIONARY_LIMIT) {
+					this.dictionary.add(holder.comment);
+				}
+			}
+		}
+
+		private String readComment(final DataInput in) throws IOException {
+			final var length = Varints.readVarInt(in);
+
+			if (length < 0) {
+				throw new IOException("Negative comment length " + length);
+			}
+
+			if (this.scratch.length < length) {
+				this.scratch = new byte[Math.max(length, this.scratch.length * 2)];
+			}
+
+			in.readFully(this.scratch, 0, length);
+			return new String(this.scratch, 0, length, StandardCharsets.UTF_8);
+		}
+	}
+}
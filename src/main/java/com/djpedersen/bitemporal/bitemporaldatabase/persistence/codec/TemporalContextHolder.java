@@ -0,0 +1,67 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec;
+
+import java.time.Instant;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalContext;
+
+import lombok.ToString;
+
+/**
+ * A mutable, reusable target for {@link TemporalContextCodec.Decoder}, so contexts can be decoded and inspected without allocating.
+ * The instants are held as epoch seconds and nanoseconds.
+ * 
+ * @author Daniel R. Pedersen
+ */
+@ToString
+public class TemporalContextHolder {
+
+	public int version;
+	public int revision;
+
+	public long effectiveFromSeconds;
+	public int effectiveFromNanos;
+
+	public long recordedOnSeconds;
+	public int recordedOnNanos;
+
+	/**
+	 * The comment, shared with the decoder's dictionary when the comment was dictionary coded
+	 */
+	public String comment;
+
+	/**
+	 * @return when the context is effective
+	 */
+	public Instant effectiveFrom() {
+		return Instant.ofEpochSecond(this.effectiveFromSeconds, this.effectiveFromNanos);
+	}
+
+	/**
+	 * @return when the context was recorded
+	 */
+	public Instant recordedOn() {
+		return Instant.ofEpochSecond(this.recordedOnSeconds, this.recordedOnNanos);
+	}
+
+	/**
+	 * @return a new context with the held values
+	 */
+	public TemporalContext toContext() {
+		return new TemporalContext(effectiveFrom(), this.version, this.revision, this.comment, recordedOn());
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Variable length integer encoding: seven bits per byte, least significant group first, the high bit set on every byte but the last.
+ * Small non-negative values take a single byte. Signed values that may be negative are zigzag encoded first so that small magnitudes
+ * of either sign stay short.
+ * 
+ * @author Daniel R. Pedersen
+ */
+public final class Varints {
+
+	private Varints() {
+	}
+
+	/**
+	 * Write an int as an unsigned varint, negative values take five bytes
+	 * 
+	 * @param out   where to write
+	 * @param value the value to write
+	 * @throws IOException if the output cannot be written
+	 */
+	public static void writeVarInt(final DataOutput out, final int value) throws IOException {
+		int remaining = value;
+
+		while ((remaining & ~0x7F) != 0) {
+			out.writeByte((remaining & 0x7F) | 0x80);
+			remaining >>>= 7;
+		}
+
+		out.writeByte(remaining);
+	}
+
+	/**
+	 * Read an int written by {@link #writeVarInt(DataOutput, int)}
+	 * 
+	 * @param in where to read from
+	 * @return the value read
+	 * @throws IOException if the input cannot be read or the varint is too long
+	 */
+	public static int readVarInt(final DataInput in) throws IOException {
+		int value = 0;
+
+		for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+			final var b = in.readByte();
+			value |= (b & 0x7F) << shift;
+
+			if (b >= 0) {
+				return value;
+			}
+		}
+
+		throw new IOException("Malformed varint");
+	}
+
+	/**
+	 * Write a long as an unsigned varint, negative values take ten bytes
+	 * 
+	 * @param out   where to write
+	 * @param value the value to write
+	 * @throws IOException if the output cannot be written
+	 */
+	public static void writeVarLong(final DataOutput out, final long value) throws IOException {
+		long remaining = value;
+
+		while ((remaining & ~0x7FL) != 0) {
+			out.writeByte((int) ((remaining & 0x7F) | 0x80));
+			remaining >>>= 7;
+		}
+
+		out.writeByte((int) remaining);
+	}
+
+	/**
+	 * Read a long written by {@link #writeVarLong(DataOutput, long)}
+	 * 
+	 * @param in where to read from
+	 * @return the value read
+	 * @throws IOException if the input cannot be read or the varint is too long
+	 */
+	public static long readVarLong(final DataInput in) throws IOException {
+		long value = 0;
+
+		for (int shift = 0; shift < Long.SIZE; shift += 7) {
+			final var b = in.readByte();
+			value |= (long) (b & 0x7F) << shift;
+
+			if (b >= 0) {
+				return value;
+			}
+		}
+
+		throw new IOException("Malformed varlong");
+	}
+
+	/**
+	 * Write a signed long zigzag encoded
+	 * 
+	 * @param out   where to write
+	 * @param value the value to write
+	 * @throws IOException if the output cannot be written
+	 */
+	public static void writeSignedVarLong(final DataOutput out, final long value) throws IOException {
+		writeVarLong(out, (value << 1) ^ (value >> 63));
+	}
+
+	/**
+	 * Read a long written by {@link #writeSignedVarLong(DataOutput, long)}
+	 * 
+	 * @param in where to read from
+	 * @return the value read
+	 * @throws IOException if the input cannot be read or the varint is too long
+	 */
+	public static long readSignedVarLong(final DataInput in) throws IOException {
+		final var zigzag = readVarLong(in);
+		return (zigzag >>> 1) ^ -(zigzag & 1);
+	}
+}
@@ -0,0 +1,492 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec.GenerateCodec;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec.RegisteredStructCodec;
+
+/**
+ * Generates a {@link RegisteredStructCodec} for every class marked with {@link GenerateCodec}, and lists them all in the
+ * {@link java.util.ServiceLoader} file for {@link RegisteredStructCodec}.
+ * 
+ * Each codec encodes and decodes the fields one after another in straight-line code, so there is no reflection and no per-field
+ * dispatch at run time. Fields of unsupported types are reported as compile errors against the field.
+ * 
+ * @author Daniel R. Pedersen
+ */
+@SupportedAnnotationTypes("com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec.GenerateCodec")
+public class StructCodecProcessor extends AbstractProcessor {
+
+	private static final String SUFFIX = "GeneratedCodec";
+	private static final String SUPPORT = "com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec.CodecSupport";
+	private static final String SERVICES = "META-INF/services/" + RegisteredStructCodec.class.getName();
+
+	private static final Map<TypeKind, String> PRIMITIVES = Map.of(TypeKind.BOOLEAN, "Boolean", TypeKind.BYTE, "Byte", TypeKind.SHORT,
+			"Short", TypeKind.CHAR, "Char", TypeKind.INT, "Int", TypeKind.LONG, "Long", TypeKind.FLOAT, "Float", TypeKind.DOUBLE,
+			"Double");
+
+	private final Set<String> generated = new TreeSet<>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+		for (final var element : roundEnv.getElementsAnnotatedWith(GenerateCodec.class)) {
+			if (element.getKind() != ElementKind.CLASS || element.getModifiers().contains(Modifier.ABSTRACT)) {
+				error(element, "@GenerateCodec can only be used on concrete classes");
+				continue;
+			}
+
+			generate((TypeElement) element);
+		}
+
+		if (roundEnv.processingOver() && !this.generated.isEmpty()) {
+			writeServices();
+		}
+
+		return true;
+	}
+
+	private void generate(final TypeElement struct) {
+		final var packageName = this.processingEnv.getElementUtils().getPackageOf(struct).getQualifiedName().toString();
+		final var codecName = codecSimpleName(struct);
+		final var structName = struct.getQualifiedName().toString();
+		final var source = new Source();
+
+		source.line(0, "@Override");
+		source.line(0, "public void encode(final " + structName + " struct, final java.io.DataOutput out) throws java.io.IOException {");
+		final var fields = fieldsOf(struct);
+		var valid = true;
+
+		for (final var field : fields) {
+			valid &= source.write(1, field, field.asType(), getter(field));
+		}
+
+		source.line(0, "}");
+		source.line(0, "");
+		source.line(0, "@Override");
+		source.line(0, "public " + structName + " decode(final java.io.DataInput in) throws java.io.IOException {");
+		source.line(1, "final " + structName + " struct = new " + structName + "();");
+
+		for (final var field : fields) {
+			final var value = source.read(1, field, field.asType());
+
+			if (value != null) {
+				source.line(1, setter(field, value) + ";");
+			}
+		}
+
+		source.line(1, "return struct;");
+		source.line(0, "}");
+
+		if (!valid) {
+			return;
+		}
+
+		final var qualifiedCodecName = packageName.isEmpty() ? codecName : packageName + "." + codecName;
+
+		try (Writer writer = this.processingEnv.getFiler().createSourceFile(qualifiedCodecName, struct).openWriter()) {
+			if (!packageName.isEmpty()) {
+				writer.write("package " + packageName + ";\n\n");
+			}
+
+			writer.write("@javax.annotation.processing.Generated(\"" + getClass().getName() + "\")\n");
+			writer.write("public final class " + codecName + " implements " + RegisteredStructCodec.class.getName() + "<" + structName
+					+ "> {\n\n");
+			writer.write("\tpublic static final " + codecName + " INSTANCE = new " + codecName + "();\n\n");
+			writer.write("\t@Override\n");
+			writer.write("\tpublic Class<" + structName + "> structType() {\n");
+			writer.write("\t\treturn " + structName + ".class;\n");
+			writer.write("\t}\n\n");
+			writer.write(source.body.toString());
+			writer.write("}\n");
+		} catch (final IOException e) {
+			error(struct, "Unable to write " + qualifiedCodecName + ": " + e.getMessage());
+			return;
+		}
+
+		this.generated.add(qualifiedCodecName);
+	}
+
+	private void writeServices() {
+		try (Writer writer = this.processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SERVICES).openWriter()) {
+			for (final var codec : this.generated) {
+				writer.write(codec + "\n");
+			}
+		} catch (final IOException e) {
+			this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + SERVICES + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return the non-static, non-transient fields of the struct and its superclasses, superclass fields first
+	 */
+	private List<VariableElement> fieldsOf(final TypeElement struct) {
+		final var superclass = struct.getSuperclass();
+		final var fields = superclass.getKind() == TypeKind.DECLARED
+				? fieldsOf((TypeElement) ((DeclaredType) superclass).asElement())
+				: new ArrayList<VariableElement>();
+
+		for (final var field : ElementFilter.fieldsIn(struct.getEnclosedElements())) {
+			final var modifiers = field.getModifiers();
+
+			if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+				continue;
+			}
+
+			if (modifiers.contains(Modifier.FINAL)) {
+				error(field, "@GenerateCodec cannot decode final field " + field.getSimpleName());
+			}
+
+			fields.add(field);
+		}
+
+		return fields;
+	}
+
+	private static String codecSimpleName(final TypeElement struct) {
+		final var name = new StringBuilder(struct.getSimpleName());
+
+		for (var enclosing = struct.getEnclosingElement(); enclosing instanceof TypeElement type; enclosing = type.getEnclosingElement()) {
+			name.insert(0, type.getSimpleName() + "_");
+		}
+
+		return name.append(SUFFIX).toString();
+	}
+
+	private static String codecOf(final TypeElement struct) {
+		final var enclosing = struct.getEnclosingElement();
+		var packageElement = enclosing;
+
+		while (!(packageElement.getKind() == ElementKind.PACKAGE)) {
+			packageElement = packageElement.getEnclosingElement();
+		}
+
+		final var packageName = packageElement.toString();
+		return (packageName.isEmpty() ? "" : packageName + ".") + codecSimpleName(struct);
+	}
+
+	private static boolean isPrivate(final VariableElement field) {
+		return field.getModifiers().contains(Modifier.PRIVATE);
+	}
+
+	private static String capitalized(final VariableElement field) {
+		final var name = field.getSimpleName().toString();
+		return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+	}
+
+	private static String getter(final VariableElement field) {
+		if (!isPrivate(field)) {
+			return "struct." + field.getSimpleName();
+		}
+
+		return "struct." + (field.asType().getKind() == TypeKind.BOOLEAN ? "is" : "get") + capitalized(field) + "()";
+	}
+
+	private static String setter(final VariableElement field, final String value) {
+		if (!isPrivate(field)) {
+			return "struct." + field.getSimpleName() + " = " + value;
+		}
+
+		return "struct.set" + capitalized(field) + "(" + value + ")";
+	}
+
+	private static String typeName(final TypeMirror type) {
+		if (type.getKind().isPrimitive()) {
+			return type.getKind().name().toLowerCase();
+		}
+
+		if (type instanceof ArrayType array) {
+			return typeName(array.getComponentType()) + "[]";
+		}
+
+		final var declared = (DeclaredType) type;
+		final var name = new StringBuilder(((TypeElement) declared.asElement()).getQualifiedName());
+
+		if (!declared.getTypeArguments().isEmpty()) {
+			name.append('<');
+
+			for (int i = 0; i < declared.getTypeArguments().size(); i++) {
+				name.append(i == 0 ? "" : ", ").append(typeName(declared.getTypeArguments().get(i)));
+			}
+
+			name.append('>');
+		}
+
+		return name.toString();
+	}
+
+	private void error(final Element element, final String message) {
+		this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+
+	/**
+	 * The method bodies of one codec, with the locals numbered so nested loops never clash
+	 */
+	private final class Source {
+		final StringBuilder body = new StringBuilder();
+
+		private int locals;
+
+		void line(final int depth, final String text) {
+			this.body.append("\t".repeat(text.isEmpty() ? 0 : depth + 1)).append(text).append('\n');
+		}
+
+		private String local(final String prefix) {
+			return prefix + this.locals++;
+		}
+
+		/**
+		 * Emit the statements writing the value of the expression
+		 * 
+		 * @return false if the type is not supported
+		 */
+		boolean write(final int depth, final VariableElement field, final TypeMirror type, final String expression) {
+			final var primitive = PRIMITIVES.get(type.getKind());
+
+			if (primitive != null) {
+				line(depth, "out.write" + primitive + "(" + expression + ");");
+				return true;
+			}
+
+			if (type instanceof ArrayType array) {
+				final var value = local("array");
+				final var element = local("element");
+				line(depth, "final " + typeName(array) + " " + value + " = " + expression + ";");
+				line(depth, SUPPORT + ".writeLength(out, " + value + " == null ? -1 : " + value + ".length);");
+				line(depth, "if (" + value + " != null) {");
+				line(depth + 1, "for (final " + typeName(array.getComponentType()) + " " + element + " : " + value + ") {");
+				final var valid = write(depth + 2, field, array.getComponentType(), element);
+				line(depth + 1, "}");
+				line(depth, "}");
+				return valid;
+			}
+
+			if (!(type instanceof DeclaredType declared)) {
+				return unsupported(field, type);
+			}
+
+			final var element = (TypeElement) declared.asElement();
+			final var name = element.getQualifiedName().toString();
+
+			switch (name) {
+			case "java.lang.String":
+				line(depth, SUPPORT + ".writeString(out, " + expression + ");");
+				return true;
+			case "java.util.UUID":
+				line(depth, SUPPORT + ".writeUUID(out, " + expression + ");");
+				return true;
+			case "java.time.Instant":
+				line(depth, SUPPORT + ".writeInstant(out, " + expression + ");");
+				return true;
+			case "java.util.List", "java.util.Set", "java.util.Collection":
+				return writeCollection(depth, field, declared, expression);
+			default:
+			}
+
+			if (element.getKind() == ElementKind.ENUM) {
+				line(depth, SUPPORT + ".writeEnum(out, " + expression + ");");
+				return true;
+			}
+
+			final var unboxed = unboxed(type);
+
+			if (unboxed != null || element.getAnnotation(GenerateCodec.class) != null) {
+				final var value = local("value");
+				line(depth, "final " + typeName(type) + " " + value + " = " + expression + ";");
+				line(depth, "out.writeBoolean(" + value + " != null);");
+				line(depth, "if (" + value + " != null) {");
+
+				if (unboxed != null) {
+					line(depth + 1, "out.write" + PRIMITIVES.get(unboxed.getKind()) + "(" + value + ");");
+				} else {
+					line(depth + 1, codecOf(element) + ".INSTANCE.encode(" + value + ", out);");
+				}
+
+				line(depth, "}");
+				return true;
+			}
+
+			return unsupported(field, type);
+		}
+
+		private boolean writeCollection(final int depth, final VariableElement field, final DeclaredType type, final String expression) {
+			if (type.getTypeArguments().size() != 1 || type.getTypeArguments().get(0).getKind() == TypeKind.WILDCARD) {
+				return unsupported(field, type);
+			}
+
+			final var elementType = type.getTypeArguments().get(0);
+			final var value = local("collection");
+			final var element = local("element");
+			line(depth, "final " + typeName(type) + " " + value + " = " + expression + ";");
+			line(depth, SUPPORT + ".writeLength(out, " + value + " == null ? -1 : " + value + ".size());");
+			line(depth, "if (" + value + " != null) {");
+			line(depth + 1, "for (final " + typeName(elementType) + " " + element + " : " + value + ") {");
+			final var valid = write(depth + 2, field, elementType, element);
+			line(depth + 1, "}");
+			line(depth, "}");
+			return valid;
+		}
+
+		/**
+		 * Emit the statements reading a value into a new local
+		 * 
+		 * @return the name of the local, null if the type is not supported
+		 */
+		String read(final int depth, final VariableElement field, final TypeMirror type) {
+			final var primitive = PRIMITIVES.get(type.getKind());
+			final var value = local("value");
+
+			if (primitive != null) {
+				line(depth, "final " + typeName(type) + " " + value + " = in.read" + primitive + "();");
+				return value;
+			}
+
+			if (type instanceof ArrayType array) {
+				final var length = local("length");
+				final var index = local("index");
+				var component = array.getComponentType();
+				var dimensions = "";
+
+				while (component instanceof ArrayType nested) {
+					component = nested.getComponentType();
+					dimensions += "[]";
+				}
+
+				if (component instanceof DeclaredType declared && !declared.getTypeArguments().isEmpty()) {
+					unsupported(field, type);
+					return null;
+				}
+
+				line(depth, "final int " + length + " = " + SUPPORT + ".readLength(in);");
+				line(depth, "final " + typeName(array) + " " + value + " = " + length + " < 0 ? null : new " + typeName(component) + "["
+						+ length + "]" + dimensions + ";");
+				line(depth, "for (int " + index + " = 0; " + index + " < " + length + "; " + index + "++) {");
+				final var element = read(depth + 1, field, array.getComponentType());
+				line(depth + 1, value + "[" + index + "] = " + element + ";");
+				line(depth, "}");
+				return element == null ? null : value;
+			}
+
+			if (!(type instanceof DeclaredType declared)) {
+				unsupported(field, type);
+				return null;
+			}
+
+			final var element = (TypeElement) declared.asElement();
+			final var name = element.getQualifiedName().toString();
+			final var declaration = "final " + typeName(type) + " " + value + " = ";
+
+			switch (name) {
+			case "java.lang.String":
+				line(depth, declaration + SUPPORT + ".readString(in);");
+				return value;
+			case "java.util.UUID":
+				line(depth, declaration + SUPPORT + ".readUUID(in);");
+				return value;
+			case "java.time.Instant":
+				line(depth, declaration + SUPPORT + ".readInstant(in);");
+				return value;
+			case "java.util.List", "java.util.Collection":
+				return readCollection(depth, field, declared, value, "java.util.ArrayList");
+			case "java.util.Set":
+				return readCollection(depth, field, declared, value, "java.util.LinkedHashSet");
+			default:
+			}
+
+			if (element.getKind() == ElementKind.ENUM) {
+				line(depth, declaration + SUPPORT + ".readEnum(in, " + name + ".class);");
+				return value;
+			}
+
+			final var unboxed = unboxed(type);
+
+			if (unboxed != null) {
+				line(depth, declaration + "in.readBoolean() ? " + name + ".valueOf(in.read" + PRIMITIVES.get(unboxed.getKind())
+						+ "()) : null;");
+				return value;
+			}
+
+			if (element.getAnnotation(GenerateCodec.class) != null) {
+				line(depth, declaration + "in.readBoolean() ? " + codecOf(element) + ".INSTANCE.decode(in) : null;");
+				return value;
+			}
+
+			unsupported(field, type);
+			return null;
+		}
+
+		private String readCollection(final int depth, final VariableElement field, final DeclaredType type, final String value,
+				final String implementation) {
+			if (type.getTypeArguments().size() != 1 || type.getTypeArguments().get(0).getKind() == TypeKind.WILDCARD) {
+				unsupported(field, type);
+				return null;
+			}
+
+			final var length = local("length");
+			final var index = local("index");
+			line(depth, "final int " + length + " = " + SUPPORT + ".readLength(in);");
+			line(depth, "final " + typeName(type) + " " + value + " = " + length + " < 0 ? null : new " + implementation + "<>(" + length
+					+ ");");
+			line(depth, "for (int " + index + " = 0; " + index + " < " + length + "; " + index + "++) {");
+			final var element = read(depth + 1, field, type.getTypeArguments().get(0));
+			line(depth + 1, value + ".add(" + element + ");");
+			line(depth, "}");
+			return element == null ? null : value;
+		}
+
+		private TypeMirror unboxed(final TypeMirror type) {
+			try {
+				return StructCodecProcessor.this.processingEnv.getTypeUtils().unboxedType(type);
+			} catch (final IllegalArgumentException e) {
+				return null;
+			}
+		}
+
+		private boolean unsupported(final VariableElement field, final TypeMirror type) {
+			error(field, "@GenerateCodec does not support " + type + " of field " + field.getSimpleName());
+			return false;
+		}
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.delta;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+import java.util.function.UnaryOperator;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalContext;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalSnapshot;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalStructureInterface;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.HistoryBackedTemporalPersistence;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceException;
+import com.djpedersen.bitemporal.bitemporaldatabase.propsetter.AccessorStrategy;
+
+import lombok.NonNull;
+
+/**
+ * A concurrent, heap based implementation of temporal persistence which stores each version and revision as a {@link FieldDelta}
+ * against the snapshot it was derived from, with a full keyframe struct every {@code keyframeInterval} snapshots. Histories whose
+ * versions change a field or two at a time hold only those fields, rather than a complete struct per snapshot.
+ * 
+ * A version is diffed against the latest revision of the previous version, a struct correction against the revision corrected, and
+ * an effective time correction against the struct it moves. A struct of a different class to its predecessor is stored as a keyframe.
+ * 
+ * Every snapshot is copied with the struct copier before it is keyframed or diffed, so neither the caller's struct nor the struct of
+ * a returned snapshot is ever stored. Reads rebuild the struct by copying the keyframe and applying the deltas since, so reading
+ * costs at most {@code keyframeInterval} deltas and every read returns its own struct. The values of changed fields are not copied
+ * when applied, as a field may hold any object and the copier only copies whole structs, so the changed values of a delta are shared
+ * by every struct rebuilt through it and must not be modified, see
+ * {@link com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceInterface}. Everything but storage, including
+ * the parallel corrections and the state and event indexes, is shared with the other backends by
+ * {@link HistoryBackedTemporalPersistence}.
+ * 
+ * @author Daniel R. Pedersen
+ *
+ * @param <IDTYPE>     the type of the structure's identifier
+ * @param <STATE_ENUM> the type of the structure's state enum
+ * @param <EVENT_ENUM> the type of the structure's event enum
+ * @param <STRUCT>     the type of the structure
+ * @param <SNAPSHOT>   the type of the structure's snapshot
+ */
+public class DeltaTemporalPersistence<IDTYPE, STATE_ENUM extends Enum<?>, EVENT_ENUM extends Enum<?>, STRUCT extends TemporalStructureInterface<IDTYPE, STATE_ENUM, EVENT_ENUM>, SNAPSHOT extends TemporalSnapshot<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT>>
+		extends HistoryBackedTemporalPersistence<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT, SNAPSHOT, DeltaTemporalPersistence.Stored<STRUCT>> {
+
+	/**
+	 * The keyframe interval used when none is specified
+	 */
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 16;
+
+	/**
+	 * A stored snapshot: either a keyframe holding the whole struct, or a delta against its base
+	 *
+	 * @param depth the number of deltas between this and its keyframe, 0 for a keyframe
+	 */
+	static record Stored<STRUCT>(TemporalContext context, STRUCT keyframe, Stored<STRUCT> base, FieldDelta delta, int depth) {
+	}
+
+	/**
+	 * The most deltas stored between keyframes, plus one
+	 */
+	private final int keyframeInterval;
+
+	private final ConcurrentMap<Class<?>, StructDiffer> differs = new ConcurrentHashMap<>();
+
+	/**
+	 * Create an empty delta persistence storing a keyframe every {@link #DEFAULT_KEYFRAME_INTERVAL} snapshots
+	 *
+	 * @param collectionName  the name used when reporting problems
+	 * @param snapshotFactory creates a snapshot from a context and struct, e.g. {@code ExampleSnapshot::new}
+	 * @param structCopier    creates an independent copy of a struct, e.g. {@code ExampleStruct::new}
+	 */
+	public DeltaTemporalPersistence(@NonNull final String collectionName, @NonNull final BiFunction<TemporalContext, STRUCT, SNAPSHOT> snapshotFactory,
+			@NonNull final UnaryOperator<STRUCT> structCopier) {
+		this(collectionName, snapshotFactory, structCopier, DEFAULT_KEYFRAME_INTERVAL, AccessorStrategy.VAR_HANDLE);
+	}
+
+	/**
+	 * Create an empty delta persistence
+	 *
+	 * @param collectionName   the name used when reporting problems
+	 * @param snapshotFactory  creates a snapshot from a context and struct, e.g. {@code ExampleSnapshot::new}
+	 * @param structCopier     creates an independent copy of a struct, e.g. {@code ExampleStruct::new}
+	 * @param keyframeInterval store a keyframe every so many snapshots of a chain, 1 stores only keyframes
+	 * @param accessorStrategy how correction paths and deltas access the fields of a struct
+	 */
+	public DeltaTemporalPersistence(@NonNull final String collectionName, @NonNull final BiFunction<TemporalContext, STRUCT, SNAPSHOT> snapshotFactory,
+			@NonNull final UnaryOperator<STRUCT> structCopier, final int keyframeInterval, @NonNull final AccessorStrategy accessorStrategy) {
+		super(collectionName, snapshotFactory, structCopier, accessorStrategy, Stored::context);
+
+		if (keyframeInterval < 1) {
+			throw new IllegalArgumentException("keyframeInterval must be at least 1");
+		}
+
+		this.keyframeInterval = keyframeInterval;
+	}
+
+	/**
+	 * @param id the identifier to inspect
+	 * @return the number of snapshots of the identifier stored as keyframes, 0 if the identifier is unknown
+	 */
+	public int keyframeCount(@NonNull final IDTYPE id) {
+		return (int) storedVersions(id, true).stream().filter(stored -> stored.keyframe != null).count();
+	}
+
+	//
+	// Storage
+	//
+
+	/**
+	 * Each snapshot is stored as a delta against its base
+	 */
+	@Override
+	protected List<Stored<STRUCT>> store(@NonNull final IDTYPE id, @NonNull final List<SNAPSHOT> snapshots, @NonNull final List<Stored<STRUCT>> bases)
+			throws TemporalPersistenceException {
+		final var stored = new ArrayList<Stored<STRUCT>>(snapshots.size());
+
+		for (int i = 0; i < snapshots.size(); i++) {
+			stored.add(store(snapshots.get(i), bases.get(i)));
+		}
+
+		return stored;
+	}
+
+	/**
+	 * Keyframes are loaded with a copy of the stored struct, deltas with a rebuilt copy of it
+	 */
+	@Override
+	protected SNAPSHOT load(@NonNull final Stored<STRUCT> stored) throws TemporalPersistenceException {
+		return this.snapshotFactory.apply(stored.context, rebuild(stored));
+	}
+
+	/**
+	 * Store the snapshot as a delta against its base, or as a keyframe if it has no base or the base's chain is long enough or of
+	 * another class
+	 */
+	private Stored<STRUCT> store(final SNAPSHOT snapshot, final Stored<STRUCT> base) throws TemporalPersistenceException {
+		final var struct = structCopier().apply(snapshot.struct);
+
+		if (base == null || base.depth + 1 >= this.keyframeInterval) {
+			return new Stored<>(snapshot.context, struct, null, null, 0);
+		}
+
+		final var previous = rebuild(base);
+
+		if (previous.getClass() != struct.getClass()) {
+			return new Stored<>(snapshot.context, struct, null, null, 0);
+		}
+
+		try {
+			final var delta = differFor(struct.getClass()).diff(previous, struct);
+			return new Stored<>(snapshot.context, null, base, delta, base.depth + 1);
+		} catch (final IllegalAccessException | IllegalArgumentException | SecurityException e) {
+			throw new TemporalPersistenceException("Unable to diff " + this.collectionName + " " + snapshot.contextHandle.identifier + " v"
+					+ snapshot.context.version + "r" + snapshot.context.revision, e);
+		}
+	}
+
+	/**
+	 * @return a copy of the keyframe with the deltas since applied, if any
+	 */
+	private STRUCT rebuild(final Stored<STRUCT> stored) throws TemporalPersistenceException {
+		if (stored.keyframe != null) {
+			return structCopier().apply(stored.keyframe);
+		}
+
+		@SuppressWarnings("unchecked")
+		final Stored<STRUCT>[] chain = new Stored[stored.depth];
+		var current = stored;
+
+		for (int i = chain.length - 1; i >= 0; i--) {
+			chain[i] = current;
+			current = current.base;
+		}
+
+		final var struct = structCopier().apply(current.keyframe);
+		final var differ = differFor(struct.getClass());
+
+		try {
+			for (final var link : chain) {
+				differ.apply(link.delta, struct);
+			}
+		} catch (final IllegalAccessException | IllegalArgumentException | SecurityException e) {
+			throw new TemporalPersistenceException("Unable to rebuild " + this.collectionName + " v" + stored.context.version + "r"
+					+ stored.context.revision, e);
+		}
+
+		return struct;
+	}
+
+	private StructDiffer differFor(final Class<?> type) {
+		return this.differs.computeIfAbsent(type, key -> new StructDiffer(key, accessorStrategy()));
+	}
+}
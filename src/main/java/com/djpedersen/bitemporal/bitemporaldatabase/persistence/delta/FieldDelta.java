@@ -0,0 +1,53 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.delta;
+
+/**
+ * The fields of a struct that differ from its predecessor, as found by {@link StructDiffer#diff(Object, Object)}. Only the changed
+ * fields are held, by their index in the differ, along with their new values, which are shared with the struct diffed rather than
+ * copied.
+ * 
+ * @author Daniel R. Pedersen
+ */
+public final class FieldDelta {
+
+	/**
+	 * A delta with no changes
+	 */
+	static final FieldDelta EMPTY = new FieldDelta(new int[0], new Object[0]);
+
+	final int[] fields;
+	final Object[] values;
+
+	FieldDelta(final int[] fields, final Object[] values) {
+		this.fields = fields;
+		this.values = values;
+	}
+
+	/**
+	 * @return the number of fields changed
+	 */
+	public int size() {
+		return this.fields.length;
+	}
+
+	/**
+	 * @return true if no field changed
+	 */
+	public boolean isEmpty() {
+		return this.fields.length == 0;
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.delta;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.propsetter.AccessorStrategy;
+import com.djpedersen.bitemporal.bitemporaldatabase.propsetter.FieldAccessor;
+import com.djpedersen.bitemporal.bitemporaldatabase.propsetter.FieldTable;
+
+import lombok.NonNull;
+
+/**
+ * Finds and applies field level differences between two structs of exactly the same class. Every instance field of the class,
+ * inherited ones included, is compared with {@link Objects#deepEquals(Object, Object)}; fields are not descended into, so a changed
+ * list is held whole.
+ * 
+ * Instances are immutable and may be shared between threads.
+ * 
+ * @author Daniel R. Pedersen
+ */
+public final class StructDiffer {
+
+	private final Class<?> type;
+	private final FieldAccessor[] accessors;
+
+	/**
+	 * @param type     the exact class of the structs to diff
+	 * @param strategy how the fields are read and written
+	 */
+	public StructDiffer(@NonNull final Class<?> type, @NonNull final AccessorStrategy strategy) {
+		this.type = type;
+		this.accessors = FieldTable.of(type).fields().stream().map(strategy::accessorFor).toArray(FieldAccessor[]::new);
+	}
+
+	/**
+	 * @return the exact class of the structs diffed
+	 */
+	public Class<?> type() {
+		return this.type;
+	}
+
+	/**
+	 * @return the number of fields compared
+	 */
+	public int fieldCount() {
+		return this.accessors.length;
+	}
+
+	/**
+	 * Find the fields of the next struct that differ from the base struct
+	 * 
+	 * @param base the earlier struct
+	 * @param next the later struct
+	 * @return the changed fields holding the values of the next struct
+	 * @throws IllegalArgumentException if either struct is not exactly of this differ's class
+	 * @throws IllegalAccessException   if a field cannot be accessed
+	 */
+	public FieldDelta diff(@NonNull final Object base, @NonNull final Object next) throws IllegalAccessException {
+		checkType(base);
+		checkType(next);
+
+		final var fields = new int[this.accessors.length];
+		final var values = new Object[this.accessors.length];
+		int changed = 0;
+
+		for (int i = 0; i < this.accessors.length; i++) {
+			final var value = this.accessors[i].get(next);
+
+			if (!Objects.deepEquals(this.accessors[i].get(base), value)) {
+				fields[changed] = i;
+				values[changed] = value;
+				changed++;
+			}
+		}
+
+		return changed == 0 ? FieldDelta.EMPTY : new FieldDelta(Arrays.copyOf(fields, changed), Arrays.copyOf(values, changed));
+	}
+
+	/**
+	 * Set the changed fields of the delta on the target, the values being set as they are rather than copied
+	 * 
+	 * @param delta  a delta found by this differ
+	 * @param target the struct to change
+	 * @throws IllegalArgumentException if the target is not exactly of this differ's class
+	 * @throws IllegalAccessException   if a field cannot be accessed
+	 */
+	public void apply(@NonNull final FieldDelta delta, @NonNull final Object target) throws IllegalAccessException {
+		checkType(target);
+
+		for (int i = 0; i < delta.fields.length; i++) {
+			this.accessors[delta.fields[i]].set(target, delta.values[i]);
+		}
+	}
+
+	private void checkType(final Object struct) {
+		if (struct.getClass() != this.type) {
+			throw new IllegalArgumentException("Cannot diff a " + struct.getClass().getName() + " as a " + this.type.getName());
+		}
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.index;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalContext;
+
+import lombok.NonNull;
+
+/**
+ * A per-identifier index over both time axes. Every revision is indexed as a rectangle: it is effective from its effectiveFrom and
+ * was believed from its recordedOn until the next revision of the same version was recorded. Answers "what did we believe was
+ * effective on T1 as of T2" without materializing the history.
+ * 
+ * Each version keeps its revisions by recordedOn, so the revision of a version believed on T2 is a floor lookup. Versions are
+ * recorded in order and, as every persistence keeps them, the revisions believed on any T2 are in effective order by version. A
+ * query therefore binary searches the versions twice, once for the last version recorded by T2 and once for the last of those
+ * effective by T1, taking O(log v * log r) for v versions of at most r revisions each, however much correction the history holds.
+ * 
+ * The index is not synchronized, callers guard it with the same lock as the history it indexes.
+ * 
+ * @author Daniel R. Pedersen
+ *
+ * @param <V> the type of the indexed value, typically the snapshot
+ */
+public class BitemporalIndex<V> {
+
+	private static class Entry<V> {
+		final TemporalContext context;
+		final V value;
+
+		Entry(final TemporalContext context, final V value) {
+			this.context = context;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * The revisions of one version, by revision and by when they were recorded
+	 */
+	private static class Version<V> {
+		final NavigableMap<Integer, Entry<V>> byRevision = new TreeMap<>();
+		final NavigableMap<Instant, Entry<V>> byRecorded = new TreeMap<>();
+
+		/**
+		 * @return the revision believed on the instant, null if the version was not yet recorded
+		 */
+		Entry<V> believedOn(final Instant recordedAsOf) {
+			final var believed = this.byRecorded.floorEntry(recordedAsOf);
+			return believed == null ? null : believed.getValue();
+		}
+	}
+
+	/**
+	 * The versions at version - 1, null for a version not yet indexed
+	 */
+	private final List<Version<V>> versions = new ArrayList<>();
+
+	/**
+	 * Index the value as the given revision of its version
+	 * 
+	 * @param context the context of the value
+	 * @param value   the value to index
+	 */
+	public void put(@NonNull final TemporalContext context, @NonNull final V value) {
+		while (this.versions.size() < context.version) {
+			this.versions.add(null);
+		}
+
+		var version = this.versions.get(context.version - 1);
+
+		if (version == null) {
+			version = new Version<>();
+			this.versions.set(context.version - 1, version);
+		}
+
+		final var entry = new Entry<>(context, value);
+		final var replaced = version.byRevision.put(context.revision, entry);
+
+		if (replaced != null) {
+			version.byRecorded.remove(replaced.context.recordedOn, replaced);
+		}
+
+		// of revisions recorded on the same instant the later revision is believed
+		final var sameInstant = version.byRecorded.get(context.recordedOn);
+		if (sameInstant == null || sameInstant.context.revision < context.revision) {
+			version.byRecorded.put(context.recordedOn, entry);
+		}
+	}
+
+	/**
+	 * @param effectiveOn  the instant on the effective axis
+	 * @param recordedAsOf the instant on the recorded axis
+	 * @return the value believed effective on effectiveOn as of recordedAsOf, null if none
+	 */
+	public V asOf(@NonNull final Instant effectiveOn, @NonNull final Instant recordedAsOf) {
+		// the last version recorded by recordedAsOf
+		int low = 0;
+		int high = this.versions.size() - 1;
+		int recorded = -1;
+
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			final var version = this.versions.get(middle);
+
+			if (version != null && version.believedOn(recordedAsOf) != null) {
+				recorded = middle;
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+
+		// the last of those effective by effectiveOn
+		low = 0;
+		high = recorded;
+		Entry<V> found = null;
+
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			final var version = this.versions.get(middle);
+			final var believed = version == null ? null : version.believedOn(recordedAsOf);
+
+			if (believed != null && !believed.context.effectiveFrom.isAfter(effectiveOn)) {
+				found = believed;
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+
+		return found == null ? null : found.value;
+	}
+
+	/**
+	 * @param recordedAsOf the instant on the recorded axis
+	 * @return the revision of every version believed as of recordedAsOf, in reverse version order
+	 */
+	public List<V> versionsAsOf(@NonNull final Instant recordedAsOf) {
+		final var found = new ArrayList<V>();
+
+		for (int i = this.versions.size() - 1; i >= 0; i--) {
+			final var version = this.versions.get(i);
+			final var believed = version == null ? null : version.believedOn(recordedAsOf);
+
+			if (believed != null) {
+				found.add(believed.value);
+			}
+		}
+
+		return found;
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.index;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalContext;
+
+import lombok.NonNull;
+
+/**
+ * A per-identifier index of the latest revision of each version ordered by when the version is effective. Answers "which version
+ * is effective on instant T" with a single floor lookup, O(log v), instead of walking the versions.
+ * 
+ * Only the latest revision of a version is indexed; putting an older revision than the one already held is ignored, putting a
+ * newer revision replaces it, even if the revision moved the version's effectiveFrom. Versions sharing an effectiveFrom are ordered
+ * by version, the higher version being the effective one.
+ * 
+ * The index is not synchronized, callers guard it with the same lock as the history it indexes.
+ * 
+ * @author Daniel R. Pedersen
+ *
+ * @param <V> the type of the indexed value, typically the snapshot
+ */
+public class EffectiveTimeIndex<V> {
+
+	private static record EffectiveKey(Instant effectiveFrom, int version) implements Comparable<EffectiveKey> {
+
+		@Override
+		public int compareTo(final EffectiveKey other) {
+			final int byEffective = this.effectiveFrom.compareTo(other.effectiveFrom);
+			return byEffective != 0 ? byEffective : Integer.compare(this.version, other.version);
+		}
+	}
+
+	private static record Indexed<V>(TemporalContext context, V value) {
+	}
+
+	private final NavigableMap<EffectiveKey, V> byEffective = new TreeMap<>();
+
+	private final Map<Integer, Indexed<V>> byVersion = new HashMap<>();
+
+	/**
+	 * Index the value as the given revision of its version, if it is not older than the revision already indexed.
+	 * 
+	 * @param context the context of the value
+	 * @param value   the value to index
+	 * @return true if indexed, false if a later revision of the version is already indexed
+	 */
+	public boolean put(@NonNull final TemporalContext context, @NonNull final V value) {
+		final var existing = this.byVersion.get(context.version);
+
+		if (existing != null) {
+			if (existing.context.revision > context.revision) {
+				return false;
+			}
+
+			this.byEffective.remove(keyOf(existing.context));
+		}
+
+		this.byVersion.put(context.version, new Indexed<>(context, value));
+		this.byEffective.put(keyOf(context), value);
+		return true;
+	}
+
+	/**
+	 * Remove a version from the index
+	 * 
+	 * @param version the version to remove
+	 * @return the removed value, null if the version was not indexed
+	 */
+	public V remove(final int version) {
+		final var existing = this.byVersion.remove(version);
+
+		if (existing == null) {
+			return null;
+		}
+
+		this.byEffective.remove(keyOf(existing.context));
+		return existing.value;
+	}
+
+	/**
+	 * @param effectiveOn the instant to search for
+	 * @return the value of the version effective on the instant, null if no version is effective yet
+	 */
+	public V floor(@NonNull final Instant effectiveOn) {
+		final var entry = this.byEffective.floorEntry(new EffectiveKey(effectiveOn, Integer.MAX_VALUE));
+		return entry == null ? null : entry.getValue();
+	}
+
+	/**
+	 * @param effectiveOn the instant to search for
+	 * @return the value of the first version that becomes effective after the instant, null if there is none
+	 */
+	public V higher(@NonNull final Instant effectiveOn) {
+		final var entry = this.byEffective.higherEntry(new EffectiveKey(effectiveOn, Integer.MAX_VALUE));
+		return entry == null ? null : entry.getValue();
+	}
+
+	/**
+	 * @param version the version to find
+	 * @return the value indexed for the version, null if not indexed
+	 */
+	public V get(final int version) {
+		final var existing = this.byVersion.get(version);
+		return existing == null ? null : existing.value;
+	}
+
+	/**
+	 * @param effectiveFrom  optional inclusive starting timestamp, null implies the beginning of time
+	 * @param effectiveUntil optional exclusive ending timestamp, null implies the end of time
+	 * @return the values effective within the range, latest effective first
+	 */
+	public List<V> between(final Instant effectiveFrom, final Instant effectiveUntil) {
+		NavigableMap<EffectiveKey, V> range = this.byEffective;
+
+		if (effectiveFrom != null) {
+			range = range.tailMap(new EffectiveKey(effectiveFrom, Integer.MIN_VALUE), true);
+		}
+
+		if (effectiveUntil != null) {
+			range = range.headMap(new EffectiveKey(effectiveUntil, Integer.MIN_VALUE), false);
+		}
+
+		return new ArrayList<>(range.descendingMap().values());
+	}
+
+	/**
+	 * @return the number of versions indexed
+	 */
+	public int size() {
+		return this.byVersion.size();
+	}
+
+	private static EffectiveKey keyOf(final TemporalContext context) {
+		return new EffectiveKey(context.effectiveFrom, context.version);
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.index;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalContext;
+
+import lombok.NonNull;
+
+/**
+ * A secondary index of the latest revision of every version of every identifier by its event and when it became effective, so the
+ * versions of all identifiers with an event effective within a range are found with a single range scan of that event's timeline.
+ * 
+ * The timelines are held per event, indexed by the event's ordinal. As with {@link EffectiveTimeIndex} only the latest revision of
+ * a version is indexed, a newer revision replacing the older even if it changed the version's event or effectiveFrom.
+ * 
+ * The index is safe to use concurrently. Callers publishing to a history call {@link #published(Object, List)} while holding its
+ * write lock.
+ * 
+ * @author Daniel R. Pedersen
+ *
+ * @param <IDTYPE>     the type of the identifiers
+ * @param <V>          the type of the values indexed, typically the snapshot
+ * @param <EVENT_ENUM> the type of the event enum
+ */
+public class EventIndex<IDTYPE, V, EVENT_ENUM extends Enum<?>> {
+
+	/**
+	 * Orders a timeline by effectiveFrom, the sequence distinguishing versions effective at the same instant
+	 */
+	private static record TimelineKey(Instant effectiveFrom, long sequence) implements Comparable<TimelineKey> {
+
+		@Override
+		public int compareTo(final TimelineKey other) {
+			final int byEffective = this.effectiveFrom.compareTo(other.effectiveFrom);
+			return byEffective != 0 ? byEffective : Long.compare(this.sequence, other.sequence);
+		}
+	}
+
+	private static record VersionKey<IDTYPE>(IDTYPE id, int version) {
+	}
+
+	/**
+	 * Where a version is indexed
+	 */
+	private static record Indexed(int event, TimelineKey key, int revision) {
+	}
+
+	/**
+	 * Extracts the context of a value
+	 */
+	private final Function<? super V, TemporalContext> contextOf;
+
+	/**
+	 * Extracts the event of a value, null if it has none
+	 */
+	private final Function<? super V, EVENT_ENUM> eventOf;
+
+	/**
+	 * The versions with each event by when they became effective, by ordinal
+	 */
+	private final List<NavigableMap<TimelineKey, V>> timelines;
+
+	private final ConcurrentMap<VersionKey<IDTYPE>, Indexed> versions = new ConcurrentHashMap<>();
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	/**
+	 * Create an empty index
+	 * 
+	 * @param eventType the event enum
+	 * @param contextOf extracts the context of a value, e.g. {@code snapshot -> snapshot.context}
+	 * @param eventOf   extracts the event of a value, e.g. {@code snapshot -> snapshot.struct.getEvent()}
+	 */
+	public EventIndex(@NonNull final Class<EVENT_ENUM> eventType, @NonNull final Function<? super V, TemporalContext> contextOf,
+			@NonNull final Function<? super V, EVENT_ENUM> eventOf) {
+		this.contextOf = contextOf;
+		this.eventOf = eventOf;
+
+		final int eventCount = eventType.getEnumConstants().length;
+		this.timelines = new ArrayList<>(eventCount);
+
+		for (int i = 0; i < eventCount; i++) {
+			this.timelines.add(new ConcurrentSkipListMap<>());
+		}
+	}
+
+	/**
+	 * Index the values just published to an identifier's history, the caller holding its write lock
+	 * 
+	 * @param id     the identifier
+	 * @param values the values published
+	 */
+	public void published(@NonNull final IDTYPE id, @NonNull final List<V> values) {
+		for (final var value : values) {
+			final var context = this.contextOf.apply(value);
+			final var versionKey = new VersionKey<>(id, context.version);
+			final var existing = this.versions.get(versionKey);
+
+			if (existing != null) {
+				if (existing.revision > context.revision) {
+					continue;
+				}
+
+				this.timelines.get(existing.event).remove(existing.key);
+				this.versions.remove(versionKey);
+			}
+
+			final var event = this.eventOf.apply(value);
+
+			if (event != null) {
+				final var key = new TimelineKey(context.effectiveFrom, this.sequence.getAndIncrement());
+				this.timelines.get(event.ordinal()).put(key, value);
+				this.versions.put(versionKey, new Indexed(event.ordinal(), key, context.revision));
+			}
+		}
+	}
+
+	/**
+	 * @param event          the event to find
+	 * @param effectiveFrom  optional inclusive starting timestamp, null implies the beginning of time
+	 * @param effectiveUntil optional exclusive ending timestamp, null implies the end of time
+	 * @return the versions of every identifier with the event effective within the range, earliest effective first
+	 */
+	public List<V> between(@NonNull final EVENT_ENUM event, final Instant effectiveFrom, final Instant effectiveUntil) {
+		NavigableMap<TimelineKey, V> range = this.timelines.get(event.ordinal());
+
+		if (effectiveFrom != null) {
+			range = range.tailMap(new TimelineKey(effectiveFrom, Long.MIN_VALUE), true);
+		}
+
+		if (effectiveUntil != null) {
+			range = range.headMap(new TimelineKey(effectiveUntil, Long.MIN_VALUE), false);
+		}
+
+		return new ArrayList<>(range.values());
+	}
+}
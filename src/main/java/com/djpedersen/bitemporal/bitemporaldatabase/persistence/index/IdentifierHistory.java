@@ -0,0 +1,311 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.index;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.ContextHandle;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalContext;
+
+import lombok.NonNull;
+
+/**
+ * The complete version and revision chain of a single identifier. Versions are kept in a sorted map of sorted revision maps so
+ * that any version or revision is found in O(log n), and an {@link EffectiveTimeIndex} finds the version effective on any instant
+ * in O(log n).
+ * 
+ * The values held are typically snapshots, but may be anything that carries a context, e.g. the location of a snapshot stored
+ * elsewhere.
+ * 
+ * The history is not synchronized itself, callers are expected to hold the read or write side of {@link #lock} as appropriate. The
+ * one exception is {@link #rememberedEffectiveOn(Instant)}, which reads the version remembered by {@link #currentOn(Instant)}
+ * without locking.
+ * 
+ * @author Daniel R. Pedersen
+ *
+ * @param <SNAPSHOT> the type of the values held, typically the structure's snapshot
+ */
+public class IdentifierHistory<SNAPSHOT> {
+
+	/**
+	 * Guards every access to this history
+	 */
+	public final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Extracts the context of a value
+	 */
+	private final Function<? super SNAPSHOT, TemporalContext> contextOf;
+
+	/**
+	 * version -> revision -> snapshot
+	 */
+	private final NavigableMap<Integer, NavigableMap<Integer, SNAPSHOT>> versions = new TreeMap<>();
+
+	/**
+	 * The latest revision of each version by effectiveFrom
+	 */
+	private final EffectiveTimeIndex<SNAPSHOT> effectiveIndex = new EffectiveTimeIndex<>();
+
+	/**
+	 * Every revision by effectiveFrom and recordedOn
+	 */
+	private final BitemporalIndex<SNAPSHOT> bitemporalIndex = new BitemporalIndex<>();
+
+	/**
+	 * The version last found by {@link #currentOn(Instant)} and the period it remains effective for, forgotten whenever a value is
+	 * put
+	 */
+	private volatile Current<SNAPSHOT> current;
+
+	/**
+	 * A version effective from the inclusive instant until the exclusive instant, either being null for an open end
+	 */
+	private static record Current<SNAPSHOT>(Optional<SNAPSHOT> snapshot, Instant from, Instant until) {
+
+		boolean covers(final Instant instant) {
+			return (this.from == null || !instant.isBefore(this.from)) && (this.until == null || instant.isBefore(this.until));
+		}
+	}
+
+	/**
+	 * Create an empty history
+	 * 
+	 * @param contextOf extracts the context of a value, e.g. {@code snapshot -> snapshot.context}
+	 */
+	public IdentifierHistory(@NonNull final Function<? super SNAPSHOT, TemporalContext> contextOf) {
+		this.contextOf = contextOf;
+	}
+
+	/**
+	 * Add the snapshot into the chain at its version and revision
+	 * 
+	 * @param snapshot the snapshot to add
+	 */
+	public void put(@NonNull final SNAPSHOT snapshot) {
+		final var context = this.contextOf.apply(snapshot);
+
+		this.versions.computeIfAbsent(context.version, v -> new TreeMap<>()).put(context.revision, snapshot);
+		this.effectiveIndex.put(context, snapshot);
+		this.bitemporalIndex.put(context, snapshot);
+		this.current = null;
+	}
+
+	/**
+	 * @return the number of versions held
+	 */
+	public int versionCount() {
+		return this.versions.size();
+	}
+
+	/**
+	 * @return the latest revision of the last version, null if there are no versions
+	 */
+	public SNAPSHOT lastVersion() {
+		final var last = this.versions.lastEntry();
+		return last == null ? null : last.getValue().lastEntry().getValue();
+	}
+
+	/**
+	 * @param version the version to find
+	 * @return the latest revision of the version, null if not found
+	 */
+	public SNAPSHOT latestRevision(final int version) {
+		final var revisions = this.versions.get(version);
+		return revisions == null ? null : revisions.lastEntry().getValue();
+	}
+
+	/**
+	 * @param version  the version to find
+	 * @param revision the revision to find
+	 * @return the specific revision of the version, null if not found
+	 */
+	public SNAPSHOT revision(final int version, final int revision) {
+		final var revisions = this.versions.get(version);
+		return revisions == null ? null : revisions.get(revision);
+	}
+
+	/**
+	 * Find the snapshot a context handle refers to: the revision effective on the provided instant for an identity only handle, the
+	 * latest revision of the version for a versioned handle, else the exact revision
+	 * 
+	 * @param contextHandle the handle to resolve, its identifier is not checked
+	 * @param now           the instant identity only handles are effective on
+	 * @return the snapshot, null if not found
+	 */
+	public SNAPSHOT byContextHandle(@NonNull final ContextHandle<?> contextHandle, @NonNull final Instant now) {
+		if (contextHandle.version == null) {
+			return effectiveOn(now);
+		}
+
+		if (contextHandle.revision == null) {
+			return latestRevision(contextHandle.version);
+		}
+
+		return revision(contextHandle.version, contextHandle.revision);
+	}
+
+	/**
+	 * Find the latest revision of the version effective on the provided instant
+	 * 
+	 * @param effectiveOn the instant to search for
+	 * @return the effective snapshot, null if nothing was effective yet
+	 */
+	public SNAPSHOT effectiveOn(@NonNull final Instant effectiveOn) {
+		return this.effectiveIndex.floor(effectiveOn);
+	}
+
+	/**
+	 * Find the latest revision of the version effective on the provided instant, remembering it until the next version becomes
+	 * effective or a value is put. Only the read side of {@link #lock} need be held.
+	 * 
+	 * @param now the current instant
+	 * @return the effective snapshot, empty if nothing was effective yet
+	 */
+	public Optional<SNAPSHOT> currentOn(@NonNull final Instant now) {
+		final var remembered = rememberedEffectiveOn(now);
+
+		if (remembered != null) {
+			return remembered;
+		}
+
+		final var snapshot = effectiveOn(now);
+		final var from = snapshot == null ? null : this.contextOf.apply(snapshot).effectiveFrom;
+		final var found = new Current<>(Optional.ofNullable(snapshot), from, nextEffectiveFrom(now));
+
+		this.current = found;
+		return found.snapshot;
+	}
+
+	/**
+	 * Find the version remembered by {@link #currentOn(Instant)} if it is still effective on the provided instant. No lock need be
+	 * held, a value being put concurrently is either not yet visible or has made the history forget the version.
+	 * 
+	 * @param now the current instant
+	 * @return the remembered snapshot, empty if nothing was effective yet, null if no version is remembered for the instant
+	 */
+	public Optional<SNAPSHOT> rememberedEffectiveOn(@NonNull final Instant now) {
+		final var remembered = this.current;
+		return remembered != null && remembered.covers(now) ? remembered.snapshot : null;
+	}
+
+	/**
+	 * Find when the version effective on the provided instant stops being effective
+	 * 
+	 * @param effectiveOn the instant to search from
+	 * @return when the first version effective after the instant becomes effective, null if no later version is effective
+	 */
+	public Instant nextEffectiveFrom(@NonNull final Instant effectiveOn) {
+		final var next = this.effectiveIndex.higher(effectiveOn);
+		return next == null ? null : this.contextOf.apply(next).effectiveFrom;
+	}
+
+	/**
+	 * Find the revision believed, as of the recorded instant, to be effective on the effective instant
+	 * 
+	 * @param effectiveOn  the instant to search for
+	 * @param recordedAsOf the point in recorded time to answer as of
+	 * @return the effective snapshot, null if nothing was effective or recorded yet
+	 */
+	public SNAPSHOT effectiveOnAsOf(@NonNull final Instant effectiveOn, @NonNull final Instant recordedAsOf) {
+		return this.bitemporalIndex.asOf(effectiveOn, recordedAsOf);
+	}
+
+	/**
+	 * @param recordedAsOf the point in recorded time to answer as of
+	 * @return the revision of each version believed as of the recorded instant, in reverse version order
+	 */
+	public List<SNAPSHOT> versionsAsOf(@NonNull final Instant recordedAsOf) {
+		return this.bitemporalIndex.versionsAsOf(recordedAsOf);
+	}
+
+	/**
+	 * @return the latest revision of every version in ascending version order
+	 */
+	public List<SNAPSHOT> latestRevisions() {
+		final var latest = new ArrayList<SNAPSHOT>(this.versions.size());
+
+		for (final var revisions : this.versions.values()) {
+			latest.add(revisions.lastEntry().getValue());
+		}
+
+		return latest;
+	}
+
+	/**
+	 * @param startingVersion the inclusive starting version
+	 * @param endingVersion   the exclusive ending version
+	 * @param allRevisions    true to include every revision, false for only the latest revision of each version
+	 * @return the matching snapshots in reverse version and revision order
+	 */
+	public List<SNAPSHOT> byVersion(final int startingVersion, final int endingVersion, final boolean allRevisions) {
+		final var found = new ArrayList<SNAPSHOT>();
+
+		if (startingVersion >= endingVersion) {
+			return found;
+		}
+
+		for (final var revisions : this.versions.subMap(startingVersion, true, endingVersion, false).descendingMap().values()) {
+			addRevisions(found, revisions, allRevisions, null, null);
+		}
+
+		return found;
+	}
+
+	/**
+	 * @param effectiveFrom  optional inclusive starting timestamp, null implies the beginning of time
+	 * @param effectiveUntil optional exclusive ending timestamp, null implies the end of time
+	 * @param allRevisions   true to include every revision, false for only the latest revision of each version
+	 * @return the matching snapshots in reverse version and revision order
+	 */
+	public List<SNAPSHOT> byEffective(final Instant effectiveFrom, final Instant effectiveUntil, final boolean allRevisions) {
+		if (!allRevisions) {
+			return this.effectiveIndex.between(effectiveFrom, effectiveUntil);
+		}
+
+		final var found = new ArrayList<SNAPSHOT>();
+
+		for (final var revisions : this.versions.descendingMap().values()) {
+			addRevisions(found, revisions, allRevisions, effectiveFrom, effectiveUntil);
+		}
+
+		return found;
+	}
+
+	private void addRevisions(final List<SNAPSHOT> found, final NavigableMap<Integer, SNAPSHOT> revisions, final boolean allRevisions,
+			final Instant effectiveFrom, final Instant effectiveUntil) {
+
+		final Iterable<SNAPSHOT> candidates = allRevisions ? revisions.descendingMap().values() : List.of(revisions.lastEntry().getValue());
+
+		for (final var snapshot : candidates) {
+			if (isWithin(this.contextOf.apply(snapshot).effectiveFrom, effectiveFrom, effectiveUntil)) {
+				found.add(snapshot);
+			}
+		}
+	}
+
+	private static boolean isWithin(final Instant instant, final Instant from, final Instant until) {
+		return (from == null || !instant.isBefore(from)) && (until == null || instant.isBefore(until));
+	}
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.index;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+import lombok.NonNull;
+
+/**
+ * A secondary index of the identifiers in each state, the state of an identifier being the state of its version effective now.
+ * Identifiers are held in a set per state, indexed by the state's ordinal, so the identifiers currently in a state, or their
+ * number, are found without visiting any history.
+ * 
+ * Versions effective in the future are scheduled when published, and the identifiers they belong to moved to their new state by
+ * the first query made once they are effective. The states on any other instant are answered by checking, against its history,
+ * every identifier that has had a version in the state.
+ * 
+ * The index is safe to use concurrently. Callers publishing to a history call {@link #published(Object, IdentifierHistory, List)}
+ * while holding its write lock, queries read lock each history they check.
+ * 
+ * @author Daniel R. Pedersen
+ *
+ * @param <IDTYPE>     the type of the identifiers
+ * @param <V>          the type of the values held by the histories, typically the snapshot
+ * @param <STATE_ENUM> the type of the state enum
+ */
+public class StateIndex<IDTYPE, V, STATE_ENUM extends Enum<?>> {
+
+	/**
+	 * Extracts the state of a value, null if it has none
+	 */
+	private final Function<? super V, STATE_ENUM> stateOf;
+
+	/**
+	 * Finds the history of an identifier
+	 */
+	private final Function<? super IDTYPE, IdentifierHistory<V>> historyOf;
+
+	/**
+	 * The identifiers currently in each state, by ordinal
+	 */
+	private final List<Set<IDTYPE>> current;
+
+	/**
+	 * The identifiers having had the latest revision of any version in each state, by ordinal
+	 */
+	private final List<Set<IDTYPE>> candidates;
+
+	/**
+	 * The current state of each identifier, absent if none is effective yet
+	 */
+	private final ConcurrentMap<IDTYPE, STATE_ENUM> states = new ConcurrentHashMap<>();
+
+	/**
+	 * The identifiers with a version becoming effective after they were last indexed, by when it becomes effective
+	 */
+	private final ConcurrentSkipListMap<Instant, Set<IDTYPE>> pending = new ConcurrentSkipListMap<>();
+
+	/**
+	 * Create an empty index
+	 * 
+	 * @param stateType the state enum
+	 * @param stateOf   extracts the state of a value, e.g. {@code snapshot -> snapshot.struct.getState()}
+	 * @param historyOf finds the history of an identifier, null if there is none
+	 */
+	public StateIndex(@NonNull final Class<STATE_ENUM> stateType, @NonNull final Function<? super V, STATE_ENUM> stateOf,
+			@NonNull final Function<? super IDTYPE, IdentifierHistory<V>> historyOf) {
+		this.stateOf = stateOf;
+		this.historyOf = historyOf;
+
+		final int stateCount = stateType.getEnumConstants().length;
+		this.current = new ArrayList<>(stateCount);
+		this.candidates = new ArrayList<>(stateCount);
+
+		for (int i = 0; i < stateCount; i++) {
+			this.current.add(ConcurrentHashMap.newKeySet());
+			this.candidates.add(ConcurrentHashMap.newKeySet());
+		}
+	}
+
+	/**
+	 * Index the values just published to an identifier's history, the caller holding its write lock
+	 * 
+	 * @param id      the identifier
+	 * @param history the identifier's history, including the values
+	 * @param values  the values published
+	 */
+	public void published(@NonNull final IDTYPE id, @NonNull final IdentifierHistory<V> history, @NonNull final List<V> values) {
+		for (final var value : values) {
+			final var state = this.stateOf.apply(value);
+
+			if (state != null) {
+				this.candidates.get(state.ordinal()).add(id);
+			}
+		}
+
+		refresh(id, history, Instant.now());
+	}
+
+	/**
+	 * Index every version of an identifier's history, the caller holding its read or write lock
+	 * 
+	 * @param id      the identifier
+	 * @param history the identifier's history
+	 */
+	public void rebuild(@NonNull final IDTYPE id, @NonNull final IdentifierHistory<V> history) {
+		published(id, history, history.latestRevisions());
+	}
+
+	/**
+	 * @param state the state to count
+	 * @return the number of identifiers currently in the state
+	 */
+	public int count(@NonNull final STATE_ENUM state) {
+		advance(Instant.now());
+		return this.current.get(state.ordinal()).size();
+	}
+
+	/**
+	 * @param state the state to find
+	 * @return a copy of the identifiers currently in the state
+	 */
+	public Set<IDTYPE> identifiers(@NonNull final STATE_ENUM state) {
+		advance(Instant.now());
+		return new HashSet<>(this.current.get(state.ordinal()));
+	}
+
+	/**
+	 * @param state       the state to find
+	 * @param effectiveOn when the identifiers were in the state
+	 * @return the identifiers whose version effective on the instant is in the state
+	 */
+	public Set<IDTYPE> identifiers(@NonNull final STATE_ENUM state, @NonNull final Instant effectiveOn) {
+		final var found = new HashSet<IDTYPE>();
+
+		for (final var id : this.candidates.get(state.ordinal())) {
+			final var history = this.historyOf.apply(id);
+
+			if (history == null) {
+				continue;
+			}
+
+			history.lock.readLock().lock();
+			try {
+				final var effective = history.effectiveOn(effectiveOn);
+
+				if (effective != null && this.stateOf.apply(effective) == state) {
+					found.add(id);
+				}
+			} finally {
+				history.lock.readLock().unlock();
+			}
+		}
+
+		return found;
+	}
+
+	/**
+	 * Move every identifier with a version effective by the provided instant to its new state
+	 */
+	private void advance(final Instant now) {
+		for (var first = this.pending.firstEntry(); first != null && !first.getKey().isAfter(now); first = this.pending.firstEntry()) {
+			final var due = this.pending.remove(first.getKey());
+
+			if (due == null) {
+				continue;
+			}
+
+			for (final var id : due) {
+				final var history = this.historyOf.apply(id);
+
+				if (history == null) {
+					continue;
+				}
+
+				history.lock.readLock().lock();
+				try {
+					refresh(id, history, now);
+				} finally {
+					history.lock.readLock().unlock();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Move the identifier to the state effective on the instant and schedule its next version, the caller holding a lock of the
+	 * history
+	 */
+	private void refresh(final IDTYPE id, final IdentifierHistory<V> history, final Instant now) {
+		final var effective = history.effectiveOn(now);
+		final var state = effective == null ? null : this.stateOf.apply(effective);
+
+		this.states.compute(id, (key, previous) -> {
+			if (previous == state) {
+				return state;
+			}
+
+			if (previous != null) {
+				this.current.get(previous.ordinal()).remove(id);
+			}
+
+			if (state != null) {
+				this.current.get(state.ordinal()).add(id);
+			}
+
+			return state;
+		});
+
+		final var next = history.nextEffectiveFrom(now);
+
+		if (next != null) {
+			this.pending.compute(next, (key, ids) -> {
+				final var scheduled = ids == null ? new HashSet<IDTYPE>() : new HashSet<>(ids);
+				scheduled.add(id);
+				return scheduled;
+			});
+		}
+	}
+}
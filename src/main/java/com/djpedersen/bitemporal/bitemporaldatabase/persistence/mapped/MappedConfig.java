@@ -0,0 +1,56 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.mapped;
+
+import java.nio.file.Path;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * The settings of a {@link MappedTemporalPersistence}.
+ * 
+ * @author Daniel R. Pedersen
+ */
+@ToString
+@Builder
+public class MappedConfig {
+
+	/**
+	 * The directory holding the segment files, created if it does not exist
+	 */
+	@NonNull
+	public final Path directory;
+
+	/**
+	 * The fixed size in bytes of every segment file. Every create, append and correction is stored as a single record holding all of
+	 * its snapshots, and a record never spans segments, so this bounds the size of a single write: a record and its 8 byte header
+	 * must fit within one segment. Correcting every version of an identifier stores every version in the same record. A write too
+	 * large for a segment fails with a
+	 * {@link com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceException} and stores nothing. Must not
+	 * change once segments exist.
+	 */
+	@Builder.Default
+	public final int segmentBytes = 64 * 1024 * 1024;
+
+	/**
+	 * True to force every record to the storage device before the write is published, false to leave writing back the mapped pages
+	 * to the operating system and risk losing the most recent writes on a crash
+	 */
+	@Builder.Default
+	public final boolean syncOnWrite = true;
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.mapped;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import lombok.NonNull;
+
+/**
+ * An append only store of byte records kept in fixed size, memory mapped segment files. A record is addressed by a single long, its
+ * segment number times the segment size plus its offset within the segment, and is read back as a read only view of the mapping, so
+ * reads come straight from the page cache without copying the record onto the heap.
+ * 
+ * A record is framed as its payload length and the CRC32 of its payload followed by the payload, and is never empty, so a zero
+ * length marks the zero filled end of the data. Records never span segments, the unused end of a segment is left zero filled. On
+ * open every record is visited in the order written; a damaged record at the end of the last segment, left by a crash mid write,
+ * ends the store there, damage anywhere else, including a damaged record or a zero length followed by further data, fails the
+ * open.
+ * 
+ * Appends are serialized, reads are lock free and may run concurrently with appends.
+ * 
+ * @author Daniel R. Pedersen
+ */
+public final class MappedSegmentStore implements AutoCloseable {
+
+	/**
+	 * Receives every record found when the store is opened
+	 */
+	@FunctionalInterface
+	public interface RecordVisitor {
+		/**
+		 * @param address the address of the record
+		 * @param payload a read only view of the record's payload
+		 * @throws IOException if the record cannot be processed, failing the open
+		 */
+		void visit(long address, ByteBuffer payload) throws IOException;
+	}
+
+	static final String SEGMENT_SUFFIX = ".seg";
+
+	private static final Pattern SEGMENT_NAME = Pattern.compile("(\\d{20})\\" + SEGMENT_SUFFIX);
+
+	private static final int HEADER_BYTES = Integer.BYTES * 2;
+
+	private final Path directory;
+	private final int segmentBytes;
+	private final boolean syncOnWrite;
+
+	/**
+	 * Replaced, never modified, whenever a segment is added so readers need no lock
+	 */
+	private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+	/**
+	 * Where the next record is written in the last segment
+	 */
+	private int position;
+
+	private volatile boolean closed;
+
+	private MappedSegmentStore(final Path directory, final int segmentBytes, final boolean syncOnWrite) {
+		this.directory = directory;
+		this.segmentBytes = segmentBytes;
+		this.syncOnWrite = syncOnWrite;
+	}
+
+	/**
+	 * Open the store in the provided directory, visiting every record already stored in the order written
+	 * 
+	 * @param directory    the directory holding the segment files, created if it does not exist
+	 * @param segmentBytes the size of every segment file
+	 * @param syncOnWrite  true to force each record to the storage device as it is appended
+	 * @param visitor      receives every record already stored
+	 * @return the opened store, ready to append
+	 * @throws IOException if the store cannot be read or is damaged
+	 */
+	public static MappedSegmentStore open(@NonNull final Path directory, final int segmentBytes, final boolean syncOnWrite,
+			@NonNull final RecordVisitor visitor) throws IOException {
+		if (segmentBytes <= HEADER_BYTES) {
+			throw new IllegalArgumentException("segmentBytes must be greater than " + HEADER_BYTES);
+		}
+
+		final var store = new MappedSegmentStore(directory, segmentBytes, syncOnWrite);
+
+		Files.createDirectories(directory);
+		final var files = listSegments(directory);
+
+		for (int i = 0; i < files.size(); i++) {
+			if (segmentNumber(files.get(i)) != i) {
+				throw new IOException("Segment " + i + " is missing from " + directory);
+			}
+
+			store.addSegment(files.get(i));
+			store.position = store.scanSegment(i, i == files.size() - 1, visitor);
+		}
+
+		if (files.isEmpty()) {
+			store.addSegment(store.segmentPath(0));
+		}
+
+		return store;
+	}
+
+	/**
+	 * Append a record
+	 * 
+	 * @param payload the bytes from the buffer's position to its limit, the position is advanced to the limit
+	 * @return the address of the record
+	 * @throws IllegalArgumentException if the payload is empty
+	 * @throws IOException              if the record is larger than a segment or cannot be written
+	 */
+	public synchronized long append(@NonNull final ByteBuffer payload) throws IOException {
+		ensureOpen();
+
+		final var length = payload.remaining();
+
+		if (length == 0) {
+			throw new IllegalArgumentException("A record must not be empty");
+		}
+
+		if (length > this.segmentBytes - HEADER_BYTES) {
+			throw new IOException("A record of " + length + " bytes does not fit a segment of " + this.segmentBytes + " bytes");
+		}
+
+		if (this.position + HEADER_BYTES + length > this.segmentBytes) {
+			addSegment(segmentPath(this.segments.length));
+			this.position = 0;
+		}
+
+		final var crc = new CRC32();
+		crc.update(payload.duplicate());
+
+		final var number = this.segments.length - 1;
+		final var segment = this.segments[number];
+		final var offset = this.position;
+
+		// the length goes in first, a record torn by a crash has a length and fails its checksum rather than looking like the end
+		segment.putInt(offset, length);
+		segment.putInt(offset + Integer.BYTES, (int) crc.getValue());
+		segment.put(offset + HEADER_BYTES, payload, payload.position(), length);
+		payload.position(payload.limit());
+
+		if (this.syncOnWrite) {
+			segment.force(offset, HEADER_BYTES + length);
+		}
+
+		this.position = offset + HEADER_BYTES + length;
+		return (long) number * this.segmentBytes + offset;
+	}
+
+	/**
+	 * Read a record
+	 * 
+	 * @param address the address returned when the record was appended
+	 * @return a read only view of the record's payload
+	 */
+	public ByteBuffer read(final long address) {
+		ensureOpen();
+
+		final var segment = this.segments[(int) (address / this.segmentBytes)];
+		final var offset = (int) (address % this.segmentBytes);
+
+		return segment.slice(offset + HEADER_BYTES, segment.getInt(offset)).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Force every appended record to the storage device
+	 */
+	public synchronized void force() {
+		ensureOpen();
+		this.segments[this.segments.length - 1].force();
+	}
+
+	/**
+	 * Force and release the segments, every later call fails. The mappings themselves are released once no longer reachable.
+	 */
+	@Override
+	public synchronized void close() {
+		if (this.closed) {
+			return;
+		}
+
+		this.segments[this.segments.length - 1].force();
+		this.closed = true;
+		this.segments = new MappedByteBuffer[0];
+	}
+
+	//
+	// Segments
+	//
+
+	static List<Path> listSegments(final Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(file -> SEGMENT_NAME.matcher(file.getFileName().toString()).matches()).sorted().toList();
+		}
+	}
+
+	private static long segmentNumber(final Path segment) {
+		final var matcher = SEGMENT_NAME.matcher(segment.getFileName().toString());
+		matcher.matches();
+		return Long.parseLong(matcher.group(1));
+	}
+
+	private Path segmentPath(final int number) {
+		return this.directory.resolve(String.format("%020d", number) + SEGMENT_SUFFIX);
+	}
+
+	private void addSegment(final Path path) throws IOException {
+		if (Files.exists(path) && Files.size(path) != this.segmentBytes) {
+			throw new IOException("Segment " + path + " is " + Files.size(path) + " bytes, expected " + this.segmentBytes);
+		}
+
+		// the mapping outlives the channel
+		try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			final var segments = Arrays.copyOf(this.segments, this.segments.length + 1);
+			segments[segments.length - 1] = channel.map(FileChannel.MapMode.READ_WRITE, 0, this.segmentBytes);
+			this.segments = segments;
+		}
+	}
+
+	/**
+	 * Visit every record of the segment
+	 * 
+	 * @return the offset following the last complete record
+	 */
+	private int scanSegment(final int number, final boolean last, final RecordVisitor visitor) throws IOException {
+		final var segment = this.segments[number];
+		final var crc = new CRC32();
+		int offset = 0;
+
+		while (offset <= this.segmentBytes - HEADER_BYTES) {
+			final var length = segment.getInt(offset);
+
+			if (length == 0) {
+				if (isClear(segment, offset)) {
+					break;
+				}
+
+				// no record is empty, data following a zero length means the length itself was damaged
+				return damaged(number, last, offset, offset);
+			}
+
+			if (length < 0 || length > this.segmentBytes - HEADER_BYTES - offset) {
+				return damaged(number, last, offset, offset + HEADER_BYTES);
+			}
+
+			final var payload = segment.slice(offset + HEADER_BYTES, length).asReadOnlyBuffer();
+			crc.reset();
+			crc.update(payload.duplicate());
+
+			if ((int) crc.getValue() != segment.getInt(offset + Integer.BYTES)) {
+				return damaged(number, last, offset, offset + HEADER_BYTES + length);
+			}
+
+			visitor.visit((long) number * this.segmentBytes + offset, payload);
+			offset += HEADER_BYTES + length;
+		}
+
+		if (last) {
+			clearFrom(segment, offset);
+		}
+
+		return offset;
+	}
+
+	/**
+	 * @param end the offset following the damaged record, or its header when its length is damaged
+	 */
+	private int damaged(final int number, final boolean last, final int offset, final int end) throws IOException {
+		final var segment = this.segments[number];
+
+		if (!last || !isClear(segment, end)) {
+			throw new IOException("Damaged record in segment " + segmentPath(number) + " at offset " + offset);
+		}
+
+		// zero the remains so they can never be mistaken for records once overwritten
+		clearFrom(segment, offset);
+		return offset;
+	}
+
+	/**
+	 * @return true if nothing was written from the offset to the end of the segment
+	 */
+	private boolean isClear(final MappedByteBuffer segment, final int offset) {
+		for (int i = offset; i < this.segmentBytes; i++) {
+			if (segment.get(i) != 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private void clearFrom(final MappedByteBuffer segment, final int offset) {
+		boolean cleared = false;
+
+		for (int i = offset; i < this.segmentBytes; i++) {
+			if (segment.get(i) != 0) {
+				segment.put(i, (byte) 0);
+				cleared = true;
+			}
+		}
+
+		if (cleared) {
+			segment.force();
+		}
+	}
+
+	private void ensureOpen() {
+		if (this.closed) {
+			throw new IllegalStateException("The segment store in " + this.directory + " is closed");
+		}
+	}
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.mapped;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalContext;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalSnapshot;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalStructureInterface;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.HistoryBackedTemporalPersistence;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceException;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec.ByteBufferDataInput;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec.StructCodec;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec.TemporalContextCodec;
+import com.djpedersen.bitemporal.bitemporaldatabase.propsetter.AccessorStrategy;
+
+import lombok.NonNull;
+
+/**
+ * A durable implementation of temporal persistence which keeps encoded snapshots in a {@link MappedSegmentStore} rather than on the
+ * heap. Only the contexts and the address of each snapshot are held in memory, indexed per identifier by version, revision and
+ * effective time, so a lookup such as {@link #getByIdVersionAndRevision(Object, int, int)} finds the address in O(log n) and decodes
+ * the struct straight out of the mapped segment. Histories may be far larger than the heap, and a struct only becomes garbage once
+ * the caller is done with it.
+ * 
+ * Every create, append and correction is stored as a single record, so an operation is either recovered completely or not at all.
+ * A record must fit within a segment, see {@link MappedConfig#segmentBytes}.
+ * Contexts are encoded by {@link TemporalContextCodec}, each record being a run of its own. Opening the persistence rebuilds the in
+ * memory indexes from the store.
+ * 
+ * Corrections are applied copy-on-write to a freshly decoded struct, so no struct copier is needed. Everything but storage, including
+ * the parallel corrections and the state and event indexes, is shared with the other backends by
+ * {@link HistoryBackedTemporalPersistence}. Only one instance may use a directory at a time.
+ * 
+ * @author Daniel R. Pedersen
+ *
+ * @param <IDTYPE>     the type of the structure's identifier
+ * @param <STATE_ENUM> the type of the structure's state enum
+ * @param <EVENT_ENUM> the type of the structure's event enum
+ * @param <STRUCT>     the type of the structure
+ * @param <SNAPSHOT>   the type of the structure's snapshot
+ */
+public class MappedTemporalPersistence<IDTYPE, STATE_ENUM extends Enum<?>, EVENT_ENUM extends Enum<?>, STRUCT extends TemporalStructureInterface<IDTYPE, STATE_ENUM, EVENT_ENUM>, SNAPSHOT extends TemporalSnapshot<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT>>
+		extends HistoryBackedTemporalPersistence<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT, SNAPSHOT, MappedTemporalPersistence.SnapshotRef>
+		implements AutoCloseable {
+
+	/**
+	 * Where a snapshot is stored: the address of its record and the offset of its struct within the record
+	 */
+	static record SnapshotRef(TemporalContext context, long address, int structOffset) {
+	}
+
+	/**
+	 * Converts structs to and from the bytes in the store
+	 */
+	private final StructCodec<STRUCT> structCodec;
+
+	private final MappedSegmentStore store;
+
+	/**
+	 * Only used while recovering, which is single threaded
+	 */
+	private final TemporalContextCodec.Decoder recoveryDecoder = TemporalContextCodec.decoder();
+
+	/**
+	 * Open the persistence, rebuilding the indexes from any existing segments
+	 *
+	 * @param collectionName  the name used when reporting problems
+	 * @param snapshotFactory creates a snapshot from a context and struct, e.g. {@code ExampleSnapshot::new}
+	 * @param structCodec     converts structs to and from the bytes in the store
+	 * @param config          where and how the segments are written
+	 * @throws TemporalPersistenceException if the segments cannot be opened or are damaged
+	 */
+	public MappedTemporalPersistence(@NonNull final String collectionName, @NonNull final BiFunction<TemporalContext, STRUCT, SNAPSHOT> snapshotFactory,
+			@NonNull final StructCodec<STRUCT> structCodec, @NonNull final MappedConfig config) throws TemporalPersistenceException {
+		this(collectionName, snapshotFactory, AccessorStrategy.VAR_HANDLE, structCodec, config);
+	}
+
+	/**
+	 * Open the persistence, rebuilding the indexes from any existing segments
+	 *
+	 * @param collectionName   the name used when reporting problems
+	 * @param snapshotFactory  creates a snapshot from a context and struct, e.g. {@code ExampleSnapshot::new}
+	 * @param accessorStrategy how correction paths access the fields of a struct
+	 * @param structCodec      converts structs to and from the bytes in the store
+	 * @param config           where and how the segments are written
+	 * @throws TemporalPersistenceException if the segments cannot be opened or are damaged
+	 */
+	public MappedTemporalPersistence(@NonNull final String collectionName, @NonNull final BiFunction<TemporalContext, STRUCT, SNAPSHOT> snapshotFactory,
+			@NonNull final AccessorStrategy accessorStrategy, @NonNull final StructCodec<STRUCT> structCodec, @NonNull final MappedConfig config)
+			throws TemporalPersistenceException {
+		super(collectionName, snapshotFactory, null, accessorStrategy, SnapshotRef::context);
+		this.structCodec = structCodec;
+
+		try {
+			this.store = MappedSegmentStore.open(config.directory, config.segmentBytes, config.syncOnWrite, this::recover);
+		} catch (final IOException e) {
+			throw new TemporalPersistenceException("Unable to open the segments of " + collectionName + " in " + config.directory, e);
+		}
+	}
+
+	/**
+	 * Force and release the segments, every later call fails
+	 */
+	@Override
+	public void close() {
+		this.store.close();
+	}
+
+	//
+	// Storage
+	//
+
+	/**
+	 * The snapshots of one operation are stored as a single record, every snapshot being encoded whole
+	 */
+	@Override
+	protected List<SnapshotRef> store(@NonNull final IDTYPE id, @NonNull final List<SNAPSHOT> snapshots, @NonNull final List<SnapshotRef> bases)
+			throws TemporalPersistenceException {
+		final var buffer = new RecordBuffer();
+		final var out = new DataOutputStream(buffer);
+		final var structOffsets = new int[snapshots.size()];
+		final var contextEncoder = TemporalContextCodec.encoder();
+
+		try {
+			out.writeInt(snapshots.size());
+
+			for (int i = 0; i < snapshots.size(); i++) {
+				contextEncoder.encode(snapshots.get(i).context, out);
+				structOffsets[i] = out.size();
+				this.structCodec.encode(snapshots.get(i).struct, out);
+			}
+
+			out.flush();
+			final var address = this.store.append(buffer.contents());
+
+			final var refs = new ArrayList<SnapshotRef>(snapshots.size());
+			for (int i = 0; i < snapshots.size(); i++) {
+				refs.add(new SnapshotRef(snapshots.get(i).context, address, structOffsets[i]));
+			}
+			return refs;
+		} catch (final IOException e) {
+			throw new TemporalPersistenceException("Unable to store " + this.collectionName + " " + id, e);
+		}
+	}
+
+	@Override
+	protected SNAPSHOT load(@NonNull final SnapshotRef ref) throws TemporalPersistenceException {
+		final var payload = this.store.read(ref.address);
+		payload.position(ref.structOffset);
+
+		try {
+			return this.snapshotFactory.apply(ref.context, this.structCodec.decode(new ByteBufferDataInput(payload)));
+		} catch (final IOException e) {
+			throw new TemporalPersistenceException("Unable to decode " + this.collectionName + " v" + ref.context.version + "r" + ref.context.revision
+					+ " at " + ref.address, e);
+		}
+	}
+
+	/**
+	 * Decode the snapshots in the order they are stored, so the segments are read sequentially, each distinct ref only once
+	 *
+	 * @return the snapshot of each key, in the order of the keys
+	 */
+	@Override
+	protected <KEY> Map<KEY, SNAPSHOT> loadAll(@NonNull final Map<KEY, SnapshotRef> refs) throws TemporalPersistenceException {
+		final var distinct = new ArrayList<>(new LinkedHashSet<>(refs.values()));
+		distinct.sort(Comparator.comparingLong(SnapshotRef::address).thenComparingInt(SnapshotRef::structOffset));
+
+		final var loaded = new HashMap<SnapshotRef, SNAPSHOT>();
+		for (final var ref : distinct) {
+			loaded.put(ref, load(ref));
+		}
+
+		final var found = new LinkedHashMap<KEY, SNAPSHOT>();
+		refs.forEach((key, ref) -> found.put(key, loaded.get(ref)));
+		return found;
+	}
+
+	/**
+	 * Rebuild the index entries of one stored record
+	 */
+	private void recover(final long address, final ByteBuffer payload) throws IOException {
+		final var in = new ByteBufferDataInput(payload);
+		final var count = in.readInt();
+		this.recoveryDecoder.reset();
+
+		for (int i = 0; i < count; i++) {
+			final var context = this.recoveryDecoder.decode(in);
+			final var structOffset = payload.position();
+			final var id = this.structCodec.decode(in).getIdentifier();
+
+			restore(id, new SnapshotRef(context, address, structOffset));
+		}
+	}
+
+	/**
+	 * A record buffer which hands over its contents without copying them
+	 */
+	private static final class RecordBuffer extends ByteArrayOutputStream {
+		ByteBuffer contents() {
+			return ByteBuffer.wrap(this.buf, 0, this.count);
+		}
+	}
+}
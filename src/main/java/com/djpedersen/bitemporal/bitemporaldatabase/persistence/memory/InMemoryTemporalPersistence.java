@@ -0,0 +1,154 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.memory;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.function.UnaryOperator;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalContext;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalSnapshot;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalStructureInterface;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.HistoryBackedTemporalPersistence;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceException;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceInterface;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.index.EventIndex;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.index.StateIndex;
+import com.djpedersen.bitemporal.bitemporaldatabase.propsetter.AccessorStrategy;
+import com.djpedersen.bitemporal.bitemporaldatabase.propsetter.CopyOnWrite;
+
+import lombok.NonNull;
+
+/**
+ * A concurrent, heap based implementation of temporal persistence. Each identifier owns its own sorted version and revision chain
+ * guarded by its own read/write lock, so readers never block one another and writers only contend on the same identifier.
+ *
+ * Versions are always kept in effective order, appending a version effective before the last version is rejected; use
+ * {@link #correctContextEffectiveOn(Object, int, Instant, String)} to re-order versions. Each history remembers its current version
+ * until the next version becomes effective or the identifier is written to, so {@link #getByIdCurrent(Object)} rarely takes a lock.
+ *
+ * Every struct created or appended is copied by the provided struct copier before it is stored, so changing the caller's struct
+ * afterwards cannot rewrite history; without a copier the struct is kept as handed over and must not be changed, see
+ * {@link TemporalPersistenceInterface}. Snapshots are shared between readers. Corrections are applied to a copy of the struct made
+ * by the provided struct copier, or when no copier is provided to a {@link CopyOnWrite} copy holding new objects only along the
+ * corrected paths and sharing the rest with the original; the original snapshot is never altered. Correction paths are compiled once and reused for every version corrected, and every path of a
+ * multi-path correction is applied to the same copy so each version gains a single revision.
+ *
+ * Correcting every version of an identifier with at least {@link #DEFAULT_PARALLEL_THRESHOLD} versions copies and corrects the
+ * versions in parallel on a {@link ForkJoinPool}, then publishes every revision together, see
+ * {@link #setParallelCorrections(ForkJoinPool, int)}.
+ *
+ * Once {@link #indexStates(Class)} is called a {@link StateIndex} answers which identifiers are in a state without scanning them, and
+ * once {@link #indexEvents(Class)} is called an {@link EventIndex} finds the versions with an event effective within a range.
+ *
+ * Subclasses may make the collection durable by overriding {@link #beforePublish(Object, List)}, which sees every snapshot before it
+ * becomes visible, and by rebuilding the collection through {@link #restore(TemporalSnapshot)}.
+ *
+ * @author Daniel R. Pedersen
+ *
+ * @param <IDTYPE>     the type of the structure's identifier
+ * @param <STATE_ENUM> the type of the structure's state enum
+ * @param <EVENT_ENUM> the type of the structure's event enum
+ * @param <STRUCT>     the type of the structure
+ * @param <SNAPSHOT>   the type of the structure's snapshot
+ */
+public class InMemoryTemporalPersistence<IDTYPE, STATE_ENUM extends Enum<?>, EVENT_ENUM extends Enum<?>, STRUCT extends TemporalStructureInterface<IDTYPE, STATE_ENUM, EVENT_ENUM>, SNAPSHOT extends TemporalSnapshot<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT>>
+		extends HistoryBackedTemporalPersistence<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT, SNAPSHOT, SNAPSHOT> {
+
+	/**
+	 * Create an empty in memory persistence
+	 *
+	 * @param collectionName  the name used when reporting problems
+	 * @param snapshotFactory creates a snapshot from a context and struct, e.g. {@code ExampleSnapshot::new}
+	 * @param structCopier    creates an independent copy of a struct, e.g. {@code ExampleStruct::new}
+	 */
+	public InMemoryTemporalPersistence(@NonNull final String collectionName, @NonNull final BiFunction<TemporalContext, STRUCT, SNAPSHOT> snapshotFactory,
+			@NonNull final UnaryOperator<STRUCT> structCopier) {
+		this(collectionName, snapshotFactory, structCopier, AccessorStrategy.VAR_HANDLE);
+	}
+
+	/**
+	 * Create an empty in memory persistence
+	 *
+	 * @param collectionName   the name used when reporting problems
+	 * @param snapshotFactory  creates a snapshot from a context and struct, e.g. {@code ExampleSnapshot::new}
+	 * @param structCopier     creates an independent copy of a struct, e.g. {@code ExampleStruct::new}
+	 * @param accessorStrategy how correction paths access the fields of a struct
+	 */
+	public InMemoryTemporalPersistence(@NonNull final String collectionName, @NonNull final BiFunction<TemporalContext, STRUCT, SNAPSHOT> snapshotFactory,
+			@NonNull final UnaryOperator<STRUCT> structCopier, @NonNull final AccessorStrategy accessorStrategy) {
+		super(collectionName, snapshotFactory, structCopier, accessorStrategy, snapshot -> snapshot.context);
+	}
+
+	/**
+	 * Create an empty in memory persistence whose corrections copy only the objects along the corrected paths, see {@link CopyOnWrite}
+	 * for the objects that can be copied
+	 *
+	 * @param collectionName   the name used when reporting problems
+	 * @param snapshotFactory  creates a snapshot from a context and struct, e.g. {@code ExampleSnapshot::new}
+	 * @param accessorStrategy how correction paths access the fields of a struct
+	 */
+	public InMemoryTemporalPersistence(@NonNull final String collectionName, @NonNull final BiFunction<TemporalContext, STRUCT, SNAPSHOT> snapshotFactory,
+			@NonNull final AccessorStrategy accessorStrategy) {
+		super(collectionName, snapshotFactory, null, accessorStrategy, snapshot -> snapshot.context);
+	}
+
+	//
+	// Storage
+	//
+
+	/**
+	 * The snapshots are held as they are, once {@link #beforePublish(Object, List)} accepts them
+	 */
+	@Override
+	protected List<SNAPSHOT> store(@NonNull final IDTYPE id, @NonNull final List<SNAPSHOT> snapshots, @NonNull final List<SNAPSHOT> bases)
+			throws TemporalPersistenceException {
+		beforePublish(id, snapshots);
+		return snapshots;
+	}
+
+	@Override
+	protected SNAPSHOT load(@NonNull final SNAPSHOT stored) {
+		return stored;
+	}
+
+	//
+	// Extension
+	//
+
+	/**
+	 * Called with the snapshots produced by a single create, append or correction, in the order they will be published, while the
+	 * identifier's write lock is held. Nothing is published if this throws. The default does nothing.
+	 *
+	 * @param id        the identifier the snapshots belong to
+	 * @param snapshots the snapshots about to be published
+	 * @throws TemporalPersistenceException to abandon the operation
+	 */
+	protected void beforePublish(@NonNull final IDTYPE id, @NonNull final List<SNAPSHOT> snapshots) throws TemporalPersistenceException {
+	}
+
+	/**
+	 * Publish a previously stored snapshot without validation and without calling {@link #beforePublish(Object, List)}. Snapshots
+	 * must be restored in the order they were originally published, and not concurrently with any other operation.
+	 *
+	 * @param snapshot the snapshot to restore
+	 */
+	protected void restore(@NonNull final SNAPSHOT snapshot) {
+		restore(snapshot.struct.getIdentifier(), snapshot);
+	}
+}
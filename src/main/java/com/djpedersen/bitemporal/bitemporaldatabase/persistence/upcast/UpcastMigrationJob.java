@@ -0,0 +1,150 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.upcast;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalSnapshot;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalStructureInterface;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceException;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceInterface;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.UncheckedTemporalPersistenceException;
+import com.djpedersen.bitemporal.bitemporaldatabase.propsetter.FieldTable;
+
+import lombok.NonNull;
+
+/**
+ * Rewrites the histories of a persistence in the current edition, offline of the readers which otherwise migrate each snapshot
+ * as it is read. The latest revision of every version older than the current edition is upcast, and each field the upcasters
+ * changed is written back with a single {@link TemporalPersistenceInterface#correctStructByVersion(Object, int, Map, String)}, so
+ * the old edition remains in the history as the previous revision.
+ * 
+ * The edition must be held in a field of the struct, so the revision written records the edition it was migrated to. Upcasters
+ * must return a struct of the same class.
+ * 
+ * @author Daniel R. Pedersen
+ *
+ * @param <IDTYPE>     the type of the structure's identifier
+ * @param <STATE_ENUM> the type of the structure's state enum
+ * @param <EVENT_ENUM> the type of the structure's event enum
+ * @param <STRUCT>     the type of the structure
+ * @param <SNAPSHOT>   the type of the structure's snapshot
+ */
+public class UpcastMigrationJob<IDTYPE, STATE_ENUM extends Enum<?>, EVENT_ENUM extends Enum<?>, STRUCT extends TemporalStructureInterface<IDTYPE, STATE_ENUM, EVENT_ENUM>, SNAPSHOT extends TemporalSnapshot<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT>> {
+
+	private final TemporalPersistenceInterface<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT, SNAPSHOT> persistence;
+	private final UpcasterRegistry<STRUCT> upcasters;
+	private final String reason;
+
+	/**
+	 * @param persistence the persistence to migrate, not an {@link UpcastingTemporalPersistence} in front of it
+	 * @param upcasters   migrates structs to the current edition
+	 * @param reason      the reason recorded in every revision
+	 */
+	public UpcastMigrationJob(@NonNull final TemporalPersistenceInterface<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT, SNAPSHOT> persistence,
+			@NonNull final UpcasterRegistry<STRUCT> upcasters, @NonNull final String reason) {
+		this.persistence = persistence;
+		this.upcasters = upcasters;
+		this.reason = reason;
+	}
+
+	/**
+	 * Migrate every version of the identifiers, in parallel if the stream is parallel. Each version is migrated atomically on its
+	 * own, the job stops at the first failure.
+	 * 
+	 * @param ids the identifiers to migrate
+	 * @return the number of versions migrated
+	 * @throws TemporalPersistenceException if a version cannot be migrated
+	 */
+	public long run(@NonNull final Stream<IDTYPE> ids) throws TemporalPersistenceException {
+		try {
+			return ids.mapToLong(id -> {
+				try {
+					return migrate(id);
+				} catch (final TemporalPersistenceException e) {
+					throw new UncheckedTemporalPersistenceException(e);
+				}
+			}).sum();
+		} catch (final UncheckedTemporalPersistenceException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Migrate every version of an identifier
+	 * 
+	 * @param id the identifier to migrate
+	 * @return the number of versions migrated
+	 * @throws TemporalPersistenceException if a version cannot be migrated
+	 */
+	public int migrate(@NonNull final IDTYPE id) throws TemporalPersistenceException {
+		int migrated = 0;
+
+		for (final var snapshot : this.persistence.getAllVersions(id)) {
+			if (this.upcasters.isCurrent(snapshot.struct)) {
+				continue;
+			}
+
+			final var corrections = changedFields(snapshot.struct, this.upcasters.upcast(snapshot.struct));
+			final var pair = corrections.isEmpty() ? null
+					: this.persistence.correctStructByVersion(id, snapshot.context.version, corrections, this.reason);
+
+			if (pair == null || !this.upcasters.isCurrent(pair.correctedSnapshot.struct)) {
+				throw new TemporalPersistenceException("Unable to record the migration of " + id + " v" + snapshot.context.version
+						+ " to edition " + this.upcasters.currentEdition());
+			}
+
+			migrated++;
+		}
+
+		return migrated;
+	}
+
+	/**
+	 * @return the correction path and new value of every field the upcast changed
+	 */
+	private Map<String, Object> changedFields(final STRUCT original, final STRUCT upcast) throws TemporalPersistenceException {
+		if (original.getClass() != upcast.getClass()) {
+			throw new TemporalPersistenceException("Cannot migrate a " + original.getClass().getName() + " to a " + upcast.getClass().getName());
+		}
+
+		final var table = FieldTable.of(original.getClass());
+		final var corrections = new LinkedHashMap<String, Object>();
+
+		for (final var field : table.fields()) {
+			try {
+				final var value = field.get(upcast);
+
+				if (Objects.deepEquals(field.get(original), value)) {
+					continue;
+				}
+
+				if (table.get(field.getName()) != field) {
+					throw new TemporalPersistenceException("Cannot migrate the hidden field " + field.getDeclaringClass().getName() + "." + field.getName());
+				}
+
+				corrections.put("$." + field.getName(), value);
+			} catch (final IllegalAccessException e) {
+				throw new TemporalPersistenceException("Unable to read " + field + " while migrating", e);
+			}
+		}
+
+		return corrections;
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.upcast;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceException;
+
+import lombok.NonNull;
+
+/**
+ * Migrates a struct of one edition to a later edition, see {@link UpcasterRegistry}.
+ * 
+ * @author Daniel R. Pedersen
+ *
+ * @param <STRUCT> the type of the structure
+ */
+@FunctionalInterface
+public interface Upcaster<STRUCT> {
+
+	/**
+	 * @param struct the struct to migrate, which must not be altered as the persistence may still hold it
+	 * @return a struct of a later edition, typically the next
+	 * @throws TemporalPersistenceException if the struct cannot be migrated
+	 */
+	STRUCT upcast(@NonNull STRUCT struct) throws TemporalPersistenceException;
+
+}
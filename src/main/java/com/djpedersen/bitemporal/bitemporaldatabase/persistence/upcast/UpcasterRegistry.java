@@ -0,0 +1,113 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.upcast;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalStructureInterface;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceException;
+
+import lombok.NonNull;
+
+/**
+ * The upcasters of a struct type keyed by the edition they migrate from. A struct older than the current edition, as reported by
+ * {@link TemporalStructureInterface#getEdition()}, is migrated by applying the upcaster of its edition, then of the edition that
+ * produced, until it reaches the current edition.
+ * 
+ * @author Daniel R. Pedersen
+ *
+ * @param <STRUCT> the type of the structure
+ */
+public class UpcasterRegistry<STRUCT extends TemporalStructureInterface<?, ?, ?>> {
+
+	private final int currentEdition;
+
+	private final Map<Integer, Upcaster<STRUCT>> upcasters = new ConcurrentHashMap<>();
+
+	/**
+	 * @param currentEdition the edition structs are migrated to
+	 */
+	public UpcasterRegistry(final int currentEdition) {
+		if (currentEdition < 1) {
+			throw new IllegalArgumentException("Editions start at 1");
+		}
+
+		this.currentEdition = currentEdition;
+	}
+
+	/**
+	 * @param fromEdition the edition the upcaster migrates from
+	 * @param upcaster    migrates a struct of the edition to a later edition
+	 * @return this registry
+	 * @throws IllegalArgumentException if the edition is not older than the current edition or already has an upcaster
+	 */
+	public UpcasterRegistry<STRUCT> register(final int fromEdition, @NonNull final Upcaster<STRUCT> upcaster) {
+		if (fromEdition < 1 || fromEdition >= this.currentEdition) {
+			throw new IllegalArgumentException("Edition " + fromEdition + " is not older than the current edition " + this.currentEdition);
+		}
+
+		if (this.upcasters.putIfAbsent(fromEdition, upcaster) != null) {
+			throw new IllegalArgumentException("Edition " + fromEdition + " already has an upcaster");
+		}
+
+		return this;
+	}
+
+	/**
+	 * @return the edition structs are migrated to
+	 */
+	public int currentEdition() {
+		return this.currentEdition;
+	}
+
+	/**
+	 * @param struct the struct to check
+	 * @return true if the struct needs no migration
+	 */
+	public boolean isCurrent(@NonNull final STRUCT struct) {
+		return struct.getEdition() >= this.currentEdition;
+	}
+
+	/**
+	 * Migrate the struct to the current edition
+	 * 
+	 * @param struct the struct to migrate, which is not altered
+	 * @return the struct of the current edition, the struct itself if already current
+	 * @throws TemporalPersistenceException if an edition has no upcaster, or an upcaster fails or does not raise the edition
+	 */
+	public STRUCT upcast(@NonNull final STRUCT struct) throws TemporalPersistenceException {
+		var upcast = struct;
+
+		while (upcast.getEdition() < this.currentEdition) {
+			final int edition = upcast.getEdition();
+			final var upcaster = this.upcasters.get(edition);
+
+			if (upcaster == null) {
+				throw new TemporalPersistenceException("No upcaster from edition " + edition + " of " + struct.getClass().getName());
+			}
+
+			upcast = upcaster.upcast(upcast);
+
+			if (upcast.getEdition() <= edition) {
+				throw new TemporalPersistenceException("The upcaster from edition " + edition + " of " + struct.getClass().getName()
+						+ " did not raise the edition");
+			}
+		}
+
+		return upcast;
+	}
+}
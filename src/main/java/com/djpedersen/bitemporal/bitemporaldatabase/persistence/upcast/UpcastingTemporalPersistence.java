@@ -0,0 +1,122 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.upcast;
+
+import java.util.function.BiFunction;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.ContextHandle;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalContext;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalSnapshot;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalStructureInterface;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.ForwardingTemporalPersistence;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceException;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceInterface;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.cache.WindowTinyLfuCache;
+
+import lombok.NonNull;
+
+/**
+ * Migrates snapshots of old editions to the current edition as they are read, so a schema change does not require every history
+ * to be rewritten. Snapshots already of the current edition are returned untouched.
+ * 
+ * A migrated snapshot is cached by its context handle, a revision never changing once written, so reading it again does not
+ * migrate it again. The cache holds at most the configured number of snapshots, evicting with {@link WindowTinyLfuCache W-TinyLFU}
+ * so the most frequently read migrations stay cached.
+ * Histories may be rewritten in the current edition at leisure with an {@link UpcastMigrationJob}.
+ * 
+ * @author Daniel R. Pedersen
+ *
+ * @param <IDTYPE>     the type of the structure's identifier
+ * @param <STATE_ENUM> the type of the structure's state enum
+ * @param <EVENT_ENUM> the type of the structure's event enum
+ * @param <STRUCT>     the type of the structure
+ * @param <SNAPSHOT>   the type of the structure's snapshot
+ */
+public class UpcastingTemporalPersistence<IDTYPE, STATE_ENUM extends Enum<?>, EVENT_ENUM extends Enum<?>, STRUCT extends TemporalStructureInterface<IDTYPE, STATE_ENUM, EVENT_ENUM>, SNAPSHOT extends TemporalSnapshot<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT>>
+		extends ForwardingTemporalPersistence<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT, SNAPSHOT> {
+
+	/**
+	 * The most migrated snapshots cached when not otherwise set
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 10_000;
+
+	private final BiFunction<TemporalContext, STRUCT, SNAPSHOT> snapshotFactory;
+
+	private final UpcasterRegistry<STRUCT> upcasters;
+
+	/**
+	 * The migrated snapshots, null when caching is disabled
+	 */
+	private final WindowTinyLfuCache<ContextHandle<IDTYPE>, SNAPSHOT> migrated;
+
+	/**
+	 * @param delegate        the persistence holding the snapshots
+	 * @param snapshotFactory creates a snapshot from a context and struct, e.g. {@code ExampleSnapshot::new}
+	 * @param upcasters       migrates structs to the current edition
+	 */
+	public UpcastingTemporalPersistence(@NonNull final TemporalPersistenceInterface<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT, SNAPSHOT> delegate,
+			@NonNull final BiFunction<TemporalContext, STRUCT, SNAPSHOT> snapshotFactory, @NonNull final UpcasterRegistry<STRUCT> upcasters) {
+		this(delegate, snapshotFactory, upcasters, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * @param delegate        the persistence holding the snapshots
+	 * @param snapshotFactory creates a snapshot from a context and struct, e.g. {@code ExampleSnapshot::new}
+	 * @param upcasters       migrates structs to the current edition
+	 * @param cacheSize       the most migrated snapshots cached, 0 to cache none
+	 */
+	public UpcastingTemporalPersistence(@NonNull final TemporalPersistenceInterface<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT, SNAPSHOT> delegate,
+			@NonNull final BiFunction<TemporalContext, STRUCT, SNAPSHOT> snapshotFactory, @NonNull final UpcasterRegistry<STRUCT> upcasters,
+			final int cacheSize) {
+		super(delegate);
+
+		if (cacheSize < 0) {
+			throw new IllegalArgumentException("cacheSize must not be negative");
+		}
+
+		this.snapshotFactory = snapshotFactory;
+		this.upcasters = upcasters;
+		this.migrated = cacheSize > 0 ? new WindowTinyLfuCache<>(cacheSize) : null;
+	}
+
+	/**
+	 * @return the number of migrated snapshots cached
+	 */
+	public int cachedCount() {
+		return this.migrated == null ? 0 : this.migrated.size();
+	}
+
+	@Override
+	protected SNAPSHOT transform(@NonNull final SNAPSHOT snapshot) throws TemporalPersistenceException {
+		if (this.upcasters.isCurrent(snapshot.struct)) {
+			return snapshot;
+		}
+
+		final var cached = this.migrated == null ? null : this.migrated.get(snapshot.contextHandle);
+
+		if (cached != null) {
+			return cached;
+		}
+
+		final var upcast = this.snapshotFactory.apply(snapshot.context, this.upcasters.upcast(snapshot.struct));
+
+		if (this.migrated != null) {
+			this.migrated.put(snapshot.contextHandle, upcast);
+		}
+
+		return upcast;
+	}
+}
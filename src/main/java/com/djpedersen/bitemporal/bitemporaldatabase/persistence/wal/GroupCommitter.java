@@ -0,0 +1,176 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.wal;
+
+import java.io.IOException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coalesces the syncs of concurrent writers. Each writer registers its record once written and then waits for it to become durable.
+ * The first writer to wait leads the next sync: it lingers for up to the window, or until enough records are pending, and then syncs
+ * once on behalf of every record registered so far. Writers arriving while a sync is in progress are covered by the next one.
+ * 
+ * There is no background thread, an idle log costs nothing and a lone writer with no window syncs immediately.
+ * 
+ * @author Daniel R. Pedersen
+ */
+final class GroupCommitter {
+
+	/**
+	 * Makes every record registered before the call durable
+	 */
+	@FunctionalInterface
+	interface Sync {
+		void sync() throws IOException;
+	}
+
+	private final Sync sync;
+	private final long windowNanos;
+	private final int maxRecords;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * Signalled when enough records are pending to cut the leader's window short
+	 */
+	private final Condition arrived = this.lock.newCondition();
+
+	/**
+	 * Signalled when a sync completes
+	 */
+	private final Condition synced = this.lock.newCondition();
+
+	private long registered;
+	private long durable;
+	private boolean syncing;
+	private IOException failure;
+
+	/**
+	 * @param sync        makes every registered record durable
+	 * @param windowNanos how long a leader waits for more records before syncing, zero to sync as soon as possible
+	 * @param maxRecords  how many pending records cut the window short
+	 */
+	GroupCommitter(final Sync sync, final long windowNanos, final int maxRecords) {
+		this.sync = sync;
+		this.windowNanos = Math.max(0, windowNanos);
+		this.maxRecords = Math.max(1, maxRecords);
+	}
+
+	/**
+	 * Register a record just written. Must be called in the order the records were written.
+	 * 
+	 * @return the ticket to wait on
+	 */
+	long register() {
+		this.lock.lock();
+		try {
+			this.registered++;
+
+			if (this.syncing && this.registered - this.durable >= this.maxRecords) {
+				this.arrived.signal();
+			}
+
+			return this.registered;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Record that everything registered so far has been made durable by some other means, e.g. when a segment is closed
+	 */
+	void markDurable() {
+		this.lock.lock();
+		try {
+			this.durable = this.registered;
+			this.synced.signalAll();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Wait until the record with the provided ticket is durable, leading a sync if none is in progress
+	 * 
+	 * @param ticket the ticket returned by {@link #register()}
+	 * @throws IOException if a sync covering the record failed, every later wait fails too
+	 */
+	void awaitDurable(final long ticket) throws IOException {
+		this.lock.lock();
+		try {
+			while (this.durable < ticket) {
+				if (this.failure != null) {
+					throw new IOException("An earlier sync failed", this.failure);
+				}
+
+				if (this.syncing) {
+					this.synced.awaitUninterruptibly();
+				} else {
+					lead();
+				}
+			}
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Sync on behalf of every pending record, called holding the lock
+	 */
+	private void lead() {
+		this.syncing = true;
+
+		try {
+			lingerForRecords();
+
+			final var target = this.registered;
+			IOException error = null;
+
+			this.lock.unlock();
+			try {
+				this.sync.sync();
+			} catch (final IOException e) {
+				error = e;
+			} finally {
+				this.lock.lock();
+			}
+
+			if (error == null) {
+				this.durable = Math.max(this.durable, target);
+			} else if (this.durable < target) {
+				this.failure = error;
+			}
+		} finally {
+			this.syncing = false;
+			this.synced.signalAll();
+		}
+	}
+
+	private void lingerForRecords() {
+		var remaining = this.windowNanos;
+
+		while (remaining > 0 && this.registered - this.durable < this.maxRecords) {
+			try {
+				remaining = this.arrived.awaitNanos(remaining);
+			} catch (final InterruptedException e) {
+				// sync straight away, the records waiting must not be abandoned
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.wal;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * The settings of a {@link WalTemporalPersistence}.
+ * 
+ * @author Daniel R. Pedersen
+ */
+@ToString
+@Builder
+public class WalConfig {
+
+	/**
+	 * The directory holding the log segments, created if it does not exist
+	 */
+	@NonNull
+	public final Path directory;
+
+	/**
+	 * The size in bytes a segment may grow to before a new segment is started. A record larger than this is written to a segment of
+	 * its own.
+	 */
+	@Builder.Default
+	public final long segmentBytes = 64L * 1024L * 1024L;
+
+	/**
+	 * True to force every record to the storage device before the write is published, false to leave flushing to the operating
+	 * system and risk losing the most recent writes on a crash
+	 */
+	@Builder.Default
+	public final boolean syncOnWrite = true;
+
+	/**
+	 * How long a sync waits for concurrent writes to join it, zero only shares a sync with the writes that arrived while the previous
+	 * sync was in progress. A longer window trades the latency of each write for fewer syncs under load.
+	 */
+	@NonNull
+	@Builder.Default
+	public final Duration groupCommitWindow = Duration.ZERO;
+
+	/**
+	 * How many pending writes end the group commit window early
+	 */
+	@Builder.Default
+	public final int groupCommitRecords = 256;
+}
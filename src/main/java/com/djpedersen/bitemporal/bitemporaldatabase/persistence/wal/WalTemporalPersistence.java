@@ -0,0 +1,102 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.wal;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.UnaryOperator;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalContext;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalSnapshot;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalStructureInterface;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceException;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec.StructCodec;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.memory.InMemoryTemporalPersistence;
+import com.djpedersen.bitemporal.bitemporaldatabase.propsetter.AccessorStrategy;
+
+import lombok.NonNull;
+
+/**
+ * A durable implementation of temporal persistence which keeps the whole collection in memory, exactly like
+ * {@link InMemoryTemporalPersistence}, and appends every create, append and correction to a segmented write ahead log before it is
+ * published. Nothing in the log is ever rewritten, matching the bitemporal model where snapshots are only ever added.
+ * 
+ * Opening the persistence replays the log to rebuild the in memory histories and indexes. Every write is durable once it returns
+ * when {@link WalConfig#syncOnWrite} is set, concurrent writes to different identifiers are grouped into a single sync as configured
+ * by {@link WalConfig#groupCommitWindow}.
+ * 
+ * Only one instance may use a log directory at a time.
+ * 
+ * @author Daniel R. Pedersen
+ *
+ * @param <IDTYPE>     the type of the structure's identifier
+ * @param <STATE_ENUM> the type of the structure's state enum
+ * @param <EVENT_ENUM> the type of the structure's event enum
+ * @param <STRUCT>     the type of the structure
+ * @param <SNAPSHOT>   the type of the structure's snapshot
+ */
+public class WalTemporalPersistence<IDTYPE, STATE_ENUM extends Enum<?>, EVENT_ENUM extends Enum<?>, STRUCT extends TemporalStructureInterface<IDTYPE, STATE_ENUM, EVENT_ENUM>, SNAPSHOT extends TemporalSnapshot<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT>>
+		extends InMemoryTemporalPersistence<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT, SNAPSHOT> implements AutoCloseable {
+
+	private final WriteAheadLog<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT, SNAPSHOT> log;
+
+	/**
+	 * Open the persistence, replaying any existing log
+	 *
+	 * @param collectionName  the name used when reporting problems
+	 * @param snapshotFactory creates a snapshot from a context and struct, e.g. {@code ExampleSnapshot::new}
+	 * @param structCopier    creates an independent copy of a struct, e.g. {@code ExampleStruct::new}
+	 * @param structCodec     converts structs to and from the bytes in the log
+	 * @param config          where and how the log is written
+	 * @throws TemporalPersistenceException if the log cannot be opened or is damaged
+	 */
+	public WalTemporalPersistence(@NonNull final String collectionName, @NonNull final BiFunction<TemporalContext, STRUCT, SNAPSHOT> snapshotFactory,
+			@NonNull final UnaryOperator<STRUCT> structCopier, @NonNull final StructCodec<STRUCT> structCodec, @NonNull final WalConfig config)
+			throws TemporalPersistenceException {
+		this(collectionName, snapshotFactory, structCopier, AccessorStrategy.VAR_HANDLE, structCodec, config);
+	}
+
+	/**
+	 * Open the persistence, replaying any existing log
+	 *
+	 * @param collectionName   the name used when reporting problems
+	 * @param snapshotFactory  creates a snapshot from a context and struct, e.g. {@code ExampleSnapshot::new}
+	 * @param structCopier     creates an independent copy of a struct, e.g. {@code ExampleStruct::new}
+	 * @param accessorStrategy how correction paths access the fields of a struct
+	 * @param structCodec      converts structs to and from the bytes in the log
+	 * @param config           where and how the log is written
+	 * @throws TemporalPersistenceException if the log cannot be opened or is damaged
+	 */
+	public WalTemporalPersistence(@NonNull final String collectionName, @NonNull final BiFunction<TemporalContext, STRUCT, SNAPSHOT> snapshotFactory,
+			@NonNull final UnaryOperator<STRUCT> structCopier, @NonNull final AccessorStrategy accessorStrategy,
+			@NonNull final StructCodec<STRUCT> structCodec, @NonNull final WalConfig config) throws TemporalPersistenceException {
+		super(collectionName, snapshotFactory, structCopier, accessorStrategy);
+		this.log = WriteAheadLog.open(config, structCodec, snapshotFactory, this::restore);
+	}
+
+	@Override
+	protected void beforePublish(@NonNull final IDTYPE id, @NonNull final List<SNAPSHOT> snapshots) throws TemporalPersistenceException {
+		this.log.append(snapshots);
+	}
+
+	/**
+	 * Flush and close the log. Reads continue to work, every later write fails.
+	 */
+	@Override
+	public void close() throws TemporalPersistenceException {
+		this.log.close();
+	}
+}
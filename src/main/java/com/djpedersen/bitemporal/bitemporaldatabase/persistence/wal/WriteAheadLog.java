@@ -0,0 +1,446 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.wal;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalContext;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalSnapshot;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalStructureInterface;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceException;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec.StructCodec;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec.TemporalContextCodec;
+
+import lombok.NonNull;
+
+/**
+ * An append only log of snapshots split over numbered segment files. Every call to {@link #append(List)} writes a single record
+ * holding all the snapshots of one operation, so an operation is either replayed completely or not at all.
+ * 
+ * A record is framed as its payload length, the CRC32 of its payload and the CRC32 of those two, all as big endian ints, followed
+ * by the payload: the record type, the snapshot count, and then the context and encoded struct of each snapshot. Contexts are
+ * encoded by {@link TemporalContextCodec}, each record being a run of its own.
+ * 
+ * When {@link WalConfig#syncOnWrite} is set concurrent appends share syncs through a {@link GroupCommitter}, each append still
+ * returns only once its own record is durable.
+ * 
+ * A crash can leave a partially written record at the end of the last segment. Replay discards a partial header, or a record
+ * whose header is intact but whose payload is short or damaged and runs to the end of the last segment, and truncates the segment
+ * back to the last complete record. Damage anywhere else, including a damaged header or a damaged record followed by further
+ * records, fails the replay, so a corrupted length can never pass for a torn tail.
+ * 
+ * @author Daniel R. Pedersen
+ */
+class WriteAheadLog<IDTYPE, STATE_ENUM extends Enum<?>, EVENT_ENUM extends Enum<?>, STRUCT extends TemporalStructureInterface<IDTYPE, STATE_ENUM, EVENT_ENUM>, SNAPSHOT extends TemporalSnapshot<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT>>
+		implements AutoCloseable {
+
+	static final String SEGMENT_SUFFIX = ".wal";
+
+	private static final Pattern SEGMENT_NAME = Pattern.compile("(\\d{20})\\" + SEGMENT_SUFFIX);
+
+	private static final int HEADER_BYTES = Integer.BYTES * 3;
+
+	private static final byte[] HEADER_PLACEHOLDER = new byte[HEADER_BYTES];
+
+	/**
+	 * The only record type so far, the snapshots published by one operation
+	 */
+	private static final byte RECORD_SNAPSHOTS = 1;
+
+	private final WalConfig config;
+	private final StructCodec<STRUCT> structCodec;
+	private final BiFunction<TemporalContext, STRUCT, SNAPSHOT> snapshotFactory;
+
+	private final GroupCommitter committer;
+
+	private final RecordBuffer buffer = new RecordBuffer();
+	private final DataOutputStream bufferOut = new DataOutputStream(this.buffer);
+	private final TemporalContextCodec.Encoder contextEncoder = TemporalContextCodec.encoder();
+	private final TemporalContextCodec.Decoder contextDecoder = TemporalContextCodec.decoder();
+
+	private long segmentNumber;
+
+	/**
+	 * Volatile so a sync can run without holding the log's monitor
+	 */
+	private volatile FileChannel segment;
+	private long segmentSize;
+
+	/**
+	 * Set once a write fails in a way that may have left the segment damaged, every later append is refused
+	 */
+	private IOException failure;
+
+	private boolean closed;
+
+	private WriteAheadLog(final WalConfig config, final StructCodec<STRUCT> structCodec, final BiFunction<TemporalContext, STRUCT, SNAPSHOT> snapshotFactory) {
+		this.config = config;
+		this.structCodec = structCodec;
+		this.snapshotFactory = snapshotFactory;
+		this.committer = new GroupCommitter(this::sync, config.groupCommitWindow.toNanos(), config.groupCommitRecords);
+	}
+
+	/**
+	 * Open the log in the configured directory, replaying every snapshot already logged in the order it was written
+	 * 
+	 * @param config          the settings of the log
+	 * @param structCodec     converts structs to and from bytes
+	 * @param snapshotFactory creates a snapshot from a replayed context and struct
+	 * @param replayed        receives every snapshot already in the log
+	 * @return the opened log, ready to append
+	 * @throws TemporalPersistenceException if the log cannot be read or is damaged
+	 */
+	static <IDTYPE, STATE_ENUM extends Enum<?>, EVENT_ENUM extends Enum<?>, STRUCT extends TemporalStructureInterface<IDTYPE, STATE_ENUM, EVENT_ENUM>, SNAPSHOT extends TemporalSnapshot<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT>> WriteAheadLog<IDTYPE, STATE_ENUM, EVENT_ENUM, STRUCT, SNAPSHOT> open(
+			@NonNull final WalConfig config, @NonNull final StructCodec<STRUCT> structCodec,
+			@NonNull final BiFunction<TemporalContext, STRUCT, SNAPSHOT> snapshotFactory, @NonNull final Consumer<SNAPSHOT> replayed)
+			throws TemporalPersistenceException {
+
+		final var log = new WriteAheadLog<>(config, structCodec, snapshotFactory);
+
+		try {
+			Files.createDirectories(config.directory);
+			final var segments = listSegments(config.directory);
+
+			for (int i = 0; i < segments.size(); i++) {
+				log.replaySegment(segments.get(i), i == segments.size() - 1, replayed);
+			}
+
+			if (segments.isEmpty()) {
+				log.openSegment(1, StandardOpenOption.CREATE_NEW);
+			} else {
+				log.openSegment(segmentNumber(segments.get(segments.size() - 1)), StandardOpenOption.CREATE);
+			}
+		} catch (final IOException e) {
+			throw new TemporalPersistenceException("Unable to open the write ahead log in " + config.directory, e);
+		}
+
+		return log;
+	}
+
+	/**
+	 * Write the snapshots of one operation as a single record
+	 * 
+	 * @param snapshots the snapshots to log, in publishing order
+	 * @throws TemporalPersistenceException if the record could not be written
+	 */
+	void append(@NonNull final List<SNAPSHOT> snapshots) throws TemporalPersistenceException {
+		final var ticket = write(snapshots);
+
+		if (!this.config.syncOnWrite) {
+			return;
+		}
+
+		try {
+			this.committer.awaitDurable(ticket);
+		} catch (final IOException e) {
+			synchronized (this) {
+				if (this.failure == null) {
+					this.failure = e;
+				}
+			}
+			throw new TemporalPersistenceException("Unable to sync the write ahead log in " + this.config.directory, e);
+		}
+	}
+
+	/**
+	 * Write the record without syncing it
+	 * 
+	 * @return the ticket to wait on for the record to become durable
+	 */
+	private synchronized long write(final List<SNAPSHOT> snapshots) throws TemporalPersistenceException {
+		if (this.closed) {
+			throw new TemporalPersistenceException("The write ahead log in " + this.config.directory + " is closed");
+		}
+
+		if (this.failure != null) {
+			throw new TemporalPersistenceException("The write ahead log in " + this.config.directory + " failed earlier", this.failure);
+		}
+
+		final ByteBuffer record;
+
+		try {
+			record = encode(snapshots);
+		} catch (final IOException e) {
+			throw new TemporalPersistenceException("Unable to encode a record for the write ahead log in " + this.config.directory, e);
+		}
+
+		try {
+			if (this.segmentSize > 0 && this.segmentSize + record.remaining() > this.config.segmentBytes) {
+				// nothing syncs a segment once it is closed, so everything in it must be made durable first
+				this.segment.force(false);
+				this.committer.markDurable();
+				this.segment.close();
+				openSegment(this.segmentNumber + 1, StandardOpenOption.CREATE_NEW);
+			}
+
+			final var size = record.remaining();
+			while (record.hasRemaining()) {
+				this.segment.write(record);
+			}
+
+			this.segmentSize += size;
+			return this.committer.register();
+		} catch (final IOException e) {
+			discardPartialRecord(e);
+			throw new TemporalPersistenceException("Unable to write to the write ahead log in " + this.config.directory, e);
+		}
+	}
+
+	@Override
+	public synchronized void close() throws TemporalPersistenceException {
+		if (this.closed) {
+			return;
+		}
+
+		this.closed = true;
+
+		try {
+			if (this.failure == null) {
+				this.segment.force(false);
+				this.committer.markDurable();
+			}
+			this.segment.close();
+		} catch (final IOException e) {
+			throw new TemporalPersistenceException("Unable to close the write ahead log in " + this.config.directory, e);
+		}
+	}
+
+	/**
+	 * Force the current segment, which may be replaced while forcing; a segment is always forced before it is replaced
+	 */
+	private void sync() throws IOException {
+		while (true) {
+			final var channel = this.segment;
+
+			try {
+				channel.force(false);
+				return;
+			} catch (final ClosedChannelException e) {
+				if (channel == this.segment) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	//
+	// Segments
+	//
+
+	static List<Path> listSegments(final Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(file -> SEGMENT_NAME.matcher(file.getFileName().toString()).matches()).sorted().toList();
+		}
+	}
+
+	private static long segmentNumber(final Path segment) {
+		final var matcher = SEGMENT_NAME.matcher(segment.getFileName().toString());
+		matcher.matches();
+		return Long.parseLong(matcher.group(1));
+	}
+
+	private void openSegment(final long number, final StandardOpenOption creation) throws IOException {
+		final var path = this.config.directory.resolve(String.format("%020d", number) + SEGMENT_SUFFIX);
+
+		this.segment = FileChannel.open(path, creation, StandardOpenOption.WRITE);
+		this.segmentSize = this.segment.size();
+		this.segment.position(this.segmentSize);
+		this.segmentNumber = number;
+	}
+
+	/**
+	 * Cut a failed write back off the segment so a later replay does not mistake it for damage, refusing all further writes if even
+	 * that fails
+	 */
+	private void discardPartialRecord(final IOException cause) {
+		try {
+			this.segment.truncate(this.segmentSize);
+			this.segment.position(this.segmentSize);
+		} catch (final IOException e) {
+			cause.addSuppressed(e);
+			this.failure = cause;
+		}
+	}
+
+	//
+	// Encoding
+	//
+
+	private ByteBuffer encode(final List<SNAPSHOT> snapshots) throws IOException {
+		this.buffer.reset();
+		this.bufferOut.write(HEADER_PLACEHOLDER);
+		this.bufferOut.writeByte(RECORD_SNAPSHOTS);
+		this.bufferOut.writeInt(snapshots.size());
+		this.contextEncoder.reset();
+
+		for (final var snapshot : snapshots) {
+			this.contextEncoder.encode(snapshot.context, this.bufferOut);
+			this.structCodec.encode(snapshot.struct, this.bufferOut);
+		}
+
+		this.bufferOut.flush();
+		return this.buffer.frame();
+	}
+
+	//
+	// Replay
+	//
+
+	private void replaySegment(final Path path, final boolean last, final Consumer<SNAPSHOT> replayed) throws IOException, TemporalPersistenceException {
+		final var fileSize = Files.size(path);
+		final var crc = new CRC32();
+		long position = 0;
+
+		try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			while (position < fileSize) {
+				final byte[] payload = readPayload(in, fileSize - position, crc, path, position);
+
+				if (payload == null) {
+					break;
+				}
+
+				decode(payload, path, position, replayed);
+				position += HEADER_BYTES + payload.length;
+			}
+		}
+
+		if (position < fileSize) {
+			if (!last) {
+				throw new TemporalPersistenceException("Damaged record in write ahead log segment " + path + " at offset " + position);
+			}
+
+			try (var channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+				channel.truncate(position);
+				channel.force(false);
+			}
+		}
+	}
+
+	/**
+	 * @return the payload of the next record, null if the header is incomplete, or the header is intact and the payload is
+	 *         incomplete or damaged and runs to the end of the segment, as a record torn by a crash does
+	 * @throws TemporalPersistenceException if the header is damaged, or the payload is damaged and further data follows it
+	 */
+	private static byte[] readPayload(final DataInputStream in, final long remaining, final CRC32 crc, final Path path, final long position)
+			throws IOException, TemporalPersistenceException {
+		try {
+			if (remaining < HEADER_BYTES) {
+				return null;
+			}
+
+			final var header = new byte[HEADER_BYTES];
+			in.readFully(header);
+
+			crc.reset();
+			crc.update(header, 0, Integer.BYTES * 2);
+
+			final var framing = ByteBuffer.wrap(header);
+			final var length = framing.getInt(0);
+			final var checksum = framing.getInt(Integer.BYTES);
+
+			if ((int) crc.getValue() != framing.getInt(Integer.BYTES * 2) || length < 0) {
+				throw new TemporalPersistenceException("Damaged record header in write ahead log segment " + path + " at offset " + position);
+			}
+
+			if (length > remaining - HEADER_BYTES) {
+				return null;
+			}
+
+			final var payload = new byte[length];
+			in.readFully(payload);
+
+			crc.reset();
+			crc.update(payload);
+
+			if ((int) crc.getValue() == checksum) {
+				return payload;
+			}
+
+			if (length == remaining - HEADER_BYTES) {
+				return null;
+			}
+
+			throw new TemporalPersistenceException("Damaged record in write ahead log segment " + path + " at offset " + position);
+		} catch (final EOFException e) {
+			return null;
+		}
+	}
+
+	private void decode(final byte[] payload, final Path path, final long position, final Consumer<SNAPSHOT> replayed)
+			throws IOException, TemporalPersistenceException {
+		final var in = new DataInputStream(new ByteArrayInputStream(payload));
+		final var type = in.readByte();
+
+		if (type != RECORD_SNAPSHOTS) {
+			throw new TemporalPersistenceException("Unknown record type " + type + " in write ahead log segment " + path + " at offset " + position);
+		}
+
+		final var count = in.readInt();
+		final var snapshots = new ArrayList<SNAPSHOT>(count);
+		this.contextDecoder.reset();
+
+		for (int i = 0; i < count; i++) {
+			final var context = this.contextDecoder.decode(in);
+			snapshots.add(this.snapshotFactory.apply(context, this.structCodec.decode(in)));
+		}
+
+		snapshots.forEach(replayed);
+	}
+
+	/**
+	 * A reusable record buffer which frames its contents without copying them
+	 */
+	private static final class RecordBuffer extends ByteArrayOutputStream {
+
+		/**
+		 * Fill in the header reserved at the start of the buffer, the header checksum covering the length and payload checksum
+		 * 
+		 * @return the framed record
+		 */
+		ByteBuffer frame() {
+			final var crc = new CRC32();
+			crc.update(this.buf, HEADER_BYTES, this.count - HEADER_BYTES);
+
+			final var record = ByteBuffer.wrap(this.buf, 0, this.count);
+			record.putInt(0, this.count - HEADER_BYTES);
+			record.putInt(Integer.BYTES, (int) crc.getValue());
+
+			crc.reset();
+			crc.update(this.buf, 0, Integer.BYTES * 2);
+			record.putInt(Integer.BYTES * 2, (int) crc.getValue());
+			return record;
+		}
+	}
+}
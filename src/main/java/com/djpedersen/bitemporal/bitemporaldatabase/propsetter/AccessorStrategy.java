@@ -0,0 +1,129 @@
+package com.djpedersen.bitemporal.bitemporaldatabase.propsetter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import lombok.NonNull;
+
+/**
+ * How a {@link CompiledPropertyPath} reads and writes the fields along its path.
+ */
+public enum AccessorStrategy {
+
+	/**
+	 * Core reflection, {@link Field#get(Object)} and {@link Field#set(Object, Object)}
+	 */
+	REFLECTION {
+		@Override
+		public FieldAccessor accessorFor(@NonNull final Field field) {
+			return new ReflectiveFieldAccessor(field);
+		}
+	},
+
+	/**
+	 * A {@link VarHandle} obtained through {@link MethodHandles#privateLookupIn(Class, MethodHandles.Lookup)} and invoked exactly,
+	 * so a call makes none of the access checks of core reflection. The handles are created per field at run time and held by the
+	 * accessor rather than in static final fields, so the JIT cannot constant fold them into a plain field access. Static and final
+	 * fields, which a VarHandle cannot write, and fields whose class is not open to this library fall back to {@link #REFLECTION}.
+	 */
+	VAR_HANDLE {
+		@Override
+		public FieldAccessor accessorFor(@NonNull final Field field) {
+			final int modifiers = field.getModifiers();
+
+			if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)) {
+				return REFLECTION.accessorFor(field);
+			}
+
+			try {
+				final var lookup = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup());
+				return new VarHandleFieldAccessor(field, lookup.unreflectVarHandle(field));
+			} catch (final IllegalAccessException | SecurityException e) {
+				return REFLECTION.accessorFor(field);
+			}
+		}
+	};
+
+	/**
+	 * Create an accessor for the field. The field must already be accessible.
+	 * 
+	 * @param field the field to access
+	 * @return the accessor
+	 */
+	public abstract FieldAccessor accessorFor(Field field);
+
+	private static final class ReflectiveFieldAccessor implements FieldAccessor {
+		private final Field field;
+
+		ReflectiveFieldAccessor(final Field field) {
+			this.field = field;
+		}
+
+		@Override
+		public Object get(final Object target) throws IllegalAccessException {
+			return this.field.get(target);
+		}
+
+		@Override
+		public void set(final Object target, final Object value) throws IllegalAccessException {
+			this.field.set(target, value);
+		}
+	}
+
+	private static final class VarHandleFieldAccessor implements FieldAccessor {
+		private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+		private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+		private final Field field;
+		private final MethodHandle getter;
+		private final MethodHandle setter;
+
+		VarHandleFieldAccessor(final Field field, final VarHandle varHandle) {
+			this.field = field;
+			this.getter = varHandle.toMethodHandle(VarHandle.AccessMode.GET).asType(GETTER_TYPE);
+			this.setter = varHandle.toMethodHandle(VarHandle.AccessMode.SET).asType(SETTER_TYPE);
+		}
+
+		@Override
+		public Object get(final Object target) {
+			checkTarget(target);
+
+			try {
+				return (Object) this.getter.invokeExact(target);
+			} catch (final RuntimeException | Error e) {
+				throw e;
+			} catch (final Throwable e) {
+				throw new IllegalStateException("Unable to get " + this.field, e);
+			}
+		}
+
+		@Override
+		public void set(final Object target, final Object value) {
+			checkTarget(target);
+
+			if (value == null && this.field.getType().isPrimitive()) {
+				throw new IllegalArgumentException("Can not set " + this.field.getType() + " field " + this.field + " to null value");
+			}
+
+			try {
+				this.setter.invokeExact(target, value);
+			} catch (final ClassCastException e) {
+				throw new IllegalArgumentException("Can not set " + this.field.getType() + " field " + this.field + " to " + value.getClass(), e);
+			} catch (final RuntimeException | Error e) {
+				throw e;
+			} catch (final Throwable e) {
+				throw new IllegalStateException("Unable to set " + this.field, e);
+			}
+		}
+
+		private void checkTarget(final Object target) {
+			if (!this.field.getDeclaringClass().isInstance(target)) {
+				throw new IllegalArgumentException("Can not access " + this.field + " on " + (target == null ? "null" : target.getClass()));
+			}
+		}
+	}
+}
@@ -0,0 +1,485 @@
+package com.djpedersen.bitemporal.bitemporaldatabase.propsetter;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import lombok.NonNull;
+
+/**
+ * An attribute path, in the {@link PropertySetter} format, parsed once into a chain of hops. Each hop caches the field it resolved
+ * for the class it last saw, so applying the same path to many objects of the same class does no string processing and no
+ * reflection lookups. Fields are resolved through the {@link FieldTable} of the class, so inherited fields are found too.
+ *
+ * Unlike the original {@link PropertySetter} traversal an indexed node may be the last node of the path, in which case the element
+ * of the Array or List is replaced. The element of a Set cannot be replaced.
+ *
+ * Fields are read and written through accessors created by the path's {@link AccessorStrategy}.
+ *
+ * Setting through a {@link CopyOnWrite} copies the objects along the path instead of altering them.
+ *
+ * Instances are immutable apart from their hop caches, which are safely published, and may be shared between threads.
+ */
+public final class CompiledPropertyPath {
+
+	/**
+	 * The strategy used when none is specified
+	 */
+	public static final AccessorStrategy DEFAULT_STRATEGY = AccessorStrategy.REFLECTION;
+
+	/**
+	 * The most paths cached per root class, further paths are compiled on every use so that applying ever more distinct paths, e.g.
+	 * one per list index, cannot grow the cache without limit
+	 */
+	public static final int MAX_CACHED_PATHS = 1_024;
+
+	private static record CacheKey(String attributePath, AccessorStrategy strategy) {
+	}
+
+	/**
+	 * root class -> (attribute path, strategy) -> compiled path
+	 */
+	private static final ClassValue<ConcurrentMap<CacheKey, CompiledPropertyPath>> COMPILED = new ClassValue<>() {
+		@Override
+		protected ConcurrentMap<CacheKey, CompiledPropertyPath> computeValue(final Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+
+	/**
+	 * The field resolved for a specific class, field and accessor are null if the class has no such attribute
+	 */
+	private static record Resolution(Class<?> owner, Field field, FieldAccessor accessor) {
+	}
+
+	/**
+	 * One node of the path, e.g. "subStructList[3]"
+	 */
+	private static final class Hop {
+		final String attributeName;
+
+		/**
+		 * The index into the Array, List or Set, or -1 for a plain attribute
+		 */
+		final int index;
+
+		volatile Resolution resolution;
+
+		Hop(final String attributeName, final int index) {
+			this.attributeName = attributeName;
+			this.index = index;
+		}
+
+		FieldAccessor accessorOf(final Object object, final AccessorStrategy strategy) {
+			final var type = object.getClass();
+			var cached = this.resolution;
+
+			if (cached == null || cached.owner != type) {
+				cached = resolve(type, this.attributeName, strategy);
+				this.resolution = cached;
+			}
+
+			return cached.accessor;
+		}
+	}
+
+	/**
+	 * A Set on a copy-on-write path whose element is to be replaced by its copy
+	 */
+	private static record SetRebuild(Object parent, FieldAccessor accessor, Set<?> set, int index, Object element) {
+	}
+
+	/**
+	 * Sentinel for an index beyond the end of an Array, List or Set
+	 */
+	private static final Object MISSING = new Object();
+
+	private final String attributePath;
+	private final AccessorStrategy strategy;
+	private final Hop[] hops;
+
+	private CompiledPropertyPath(final String attributePath, final AccessorStrategy strategy, final Hop[] hops) {
+		this.attributePath = attributePath;
+		this.strategy = strategy;
+		this.hops = hops;
+	}
+
+	/**
+	 * Get the compiled form of the path for objects of the provided class, compiling it on first use. At most
+	 * {@link #MAX_CACHED_PATHS} paths are cached per class.
+	 *
+	 * @param rootType      the class of the objects the path will be applied to
+	 * @param attributePath the path to the attribute to set, must start with "$."
+	 * @return the compiled path
+	 * @throws IllegalArgumentException if the path is malformed
+	 */
+	public static CompiledPropertyPath of(@NonNull final Class<?> rootType, @NonNull final String attributePath) {
+		return of(rootType, attributePath, DEFAULT_STRATEGY);
+	}
+
+	/**
+	 * Get the compiled form of the path for objects of the provided class using the provided accessor strategy, compiling it on first
+	 * use. At most {@link #MAX_CACHED_PATHS} paths are cached per class.
+	 *
+	 * @param rootType      the class of the objects the path will be applied to
+	 * @param attributePath the path to the attribute to set, must start with "$."
+	 * @param strategy      how the fields along the path are accessed
+	 * @return the compiled path
+	 * @throws IllegalArgumentException if the path is malformed
+	 */
+	public static CompiledPropertyPath of(@NonNull final Class<?> rootType, @NonNull final String attributePath, @NonNull final AccessorStrategy strategy) {
+		final var compiled = COMPILED.get(rootType);
+		final var key = new CacheKey(attributePath, strategy);
+		final var existing = compiled.get(key);
+
+		if (existing != null) {
+			return existing;
+		}
+
+		// the size check races with other threads compiling, so the cache may overshoot by at most one path per thread
+		if (compiled.size() >= MAX_CACHED_PATHS) {
+			return compile(attributePath, strategy).resolveFrom(rootType);
+		}
+
+		return compiled.computeIfAbsent(key, k -> compile(attributePath, strategy).resolveFrom(rootType));
+	}
+
+	/**
+	 * Parse the path without caching the result, using the default accessor strategy.
+	 *
+	 * @param attributePath the path to the attribute to set, must start with "$."
+	 * @return the compiled path
+	 * @throws IllegalArgumentException if the path is malformed
+	 */
+	public static CompiledPropertyPath compile(@NonNull final String attributePath) {
+		return compile(attributePath, DEFAULT_STRATEGY);
+	}
+
+	/**
+	 * Parse the path without caching the result.
+	 *
+	 * @param attributePath the path to the attribute to set, must start with "$."
+	 * @param strategy      how the fields along the path are accessed
+	 * @return the compiled path
+	 * @throws IllegalArgumentException if the path is malformed
+	 */
+	public static CompiledPropertyPath compile(@NonNull final String attributePath, @NonNull final AccessorStrategy strategy) {
+		if (!attributePath.startsWith("$.")) {
+			throw new IllegalArgumentException("'attributePath' parameter must start with $.");
+		}
+
+		final var pathNames = attributePath.split("\\.");
+		final var hops = new ArrayList<Hop>(pathNames.length);
+
+		for (int i = 1; i < pathNames.length; i++) {
+			var attributeName = pathNames[i];
+			int index = -1;
+
+			final int arrayStart = attributeName.indexOf('[');
+
+			if (arrayStart > 0) {
+				final int arrayEnd = attributeName.indexOf(']', arrayStart);
+
+				if (arrayEnd != attributeName.length() - 1) {
+					throw new IllegalArgumentException("malformed index in '" + pathNames[i] + "' of " + attributePath);
+				}
+
+				try {
+					index = Integer.parseInt(attributeName.substring(arrayStart + 1, arrayEnd));
+				} catch (final NumberFormatException e) {
+					throw new IllegalArgumentException("malformed index in '" + pathNames[i] + "' of " + attributePath, e);
+				}
+
+				if (index < 0) {
+					throw new IllegalArgumentException("negative index in '" + pathNames[i] + "' of " + attributePath);
+				}
+
+				attributeName = attributeName.substring(0, arrayStart);
+			}
+
+			hops.add(new Hop(attributeName, index));
+		}
+
+		return new CompiledPropertyPath(attributePath, strategy, hops.toArray(Hop[]::new));
+	}
+
+	/**
+	 * Resolve the hops ahead of time by following the declared types of the attributes from the root type. Hops whose declared
+	 * type is not the runtime type, or cannot be determined, are resolved on first use instead.
+	 */
+	private CompiledPropertyPath resolveFrom(final Class<?> rootType) {
+		Class<?> type = rootType;
+
+		for (final var hop : this.hops) {
+			hop.resolution = resolve(type, hop.attributeName, this.strategy);
+			final var field = hop.resolution.field;
+
+			if (field == null) {
+				break;
+			}
+
+			type = hop.index < 0 ? field.getType() : elementTypeOf(field);
+
+			if (type == null) {
+				break;
+			}
+		}
+
+		return this;
+	}
+
+	private static Class<?> elementTypeOf(final Field field) {
+		if (field.getType().isArray()) {
+			return field.getType().getComponentType();
+		}
+
+		if (field.getGenericType() instanceof ParameterizedType parameterized && parameterized.getActualTypeArguments().length == 1
+				&& parameterized.getActualTypeArguments()[0] instanceof Class<?> elementType) {
+			return elementType;
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return the path this was compiled from
+	 */
+	public String getAttributePath() {
+		return this.attributePath;
+	}
+
+	/**
+	 * @return how the fields along the path are accessed
+	 */
+	public AccessorStrategy getStrategy() {
+		return this.strategy;
+	}
+
+	/**
+	 * Set the attribute on the provided object to the provided new value. If any part of the path does not match an attribute in the
+	 * associated object, or an index is beyond the end of its Array, List or Set, then no change is affected.
+	 *
+	 * @param objectToFix the object to traverse and set
+	 * @param newValue    the new value (can be null, if allowed by the property)
+	 * @return true if set, else false
+	 * @throws IllegalArgumentException if the new value cannot be assigned to the attribute
+	 * @throws IllegalAccessException   if an attribute cannot be accessed
+	 */
+	public boolean set(final Object objectToFix, final Object newValue) throws IllegalAccessException {
+		if (objectToFix == null || this.hops.length == 0) {
+			return false;
+		}
+
+		Object currentObject = objectToFix;
+		final int last = this.hops.length - 1;
+
+		for (int i = 0; i < last; i++) {
+			currentObject = get(this.hops[i], currentObject, this.strategy);
+
+			if (currentObject == null || currentObject == MISSING) {
+				return false;
+			}
+		}
+
+		final var hop = this.hops[last];
+		final var accessor = hop.accessorOf(currentObject, this.strategy);
+
+		if (accessor == null) {
+			return false;
+		}
+
+		if (hop.index < 0) {
+			accessor.set(currentObject, newValue);
+			return true;
+		}
+
+		return setElement(accessor.get(currentObject), hop.index, newValue);
+	}
+
+	/**
+	 * Set the attribute on the copy held by the provided copy-on-write, copying only the objects along the path and sharing everything
+	 * else with the original. If any part of the path does not match an attribute in the associated object, or an index is beyond the
+	 * end of its Array, List or Set, then nothing is copied and no change is affected.
+	 *
+	 * @param copy     the copy-on-write of the object to fix
+	 * @param newValue the new value (can be null, if allowed by the property)
+	 * @return true if set, else false
+	 * @throws IllegalArgumentException if the new value cannot be assigned to the attribute, or an object cannot be copied
+	 * @throws IllegalAccessException   if an attribute cannot be accessed
+	 */
+	public boolean set(@NonNull final CopyOnWrite copy, final Object newValue) throws IllegalAccessException {
+		if (this.hops.length == 0 || !isSettable(copy.result())) {
+			return false;
+		}
+
+		Object parent = copy.writableRoot();
+		final int last = this.hops.length - 1;
+		List<SetRebuild> rebuilds = null;
+
+		for (int i = 0; i < last; i++) {
+			final var hop = this.hops[i];
+			final var accessor = hop.accessorOf(parent, this.strategy);
+			final var value = accessor.get(parent);
+			final Object child;
+
+			if (hop.index < 0) {
+				child = copy.writable(value);
+				accessor.set(parent, child);
+			} else if (value instanceof Set<?> set) {
+				child = copy.writable(getElement(set, hop.index));
+
+				if (rebuilds == null) {
+					rebuilds = new ArrayList<>();
+				}
+				rebuilds.add(new SetRebuild(parent, accessor, set, hop.index, child));
+			} else {
+				final var container = copy.writable(value);
+				child = copy.writable(getElement(container, hop.index));
+				setElement(copy.modifiable(container), hop.index, child);
+				accessor.set(parent, container);
+			}
+
+			parent = child;
+		}
+
+		final var hop = this.hops[last];
+		final var accessor = hop.accessorOf(parent, this.strategy);
+
+		if (hop.index < 0) {
+			accessor.set(parent, newValue);
+		} else {
+			final var container = copy.writable(accessor.get(parent));
+			setElement(copy.modifiable(container), hop.index, newValue);
+			accessor.set(parent, container);
+		}
+
+		// a Set is only rebuilt once the element copied below it is corrected, deepest first, so that it holds the element by its
+		// corrected hash
+		if (rebuilds != null) {
+			for (int i = rebuilds.size() - 1; i >= 0; i--) {
+				final var rebuild = rebuilds.get(i);
+				rebuild.accessor.set(rebuild.parent, copy.withElement(rebuild.set, rebuild.index, rebuild.element));
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return true if {@link #set(Object, Object)} would find the attribute within the object
+	 */
+	private boolean isSettable(final Object object) throws IllegalAccessException {
+		Object currentObject = object;
+		final int last = this.hops.length - 1;
+
+		for (int i = 0; i < last; i++) {
+			currentObject = get(this.hops[i], currentObject, this.strategy);
+
+			if (currentObject == null || currentObject == MISSING) {
+				return false;
+			}
+		}
+
+		final var hop = this.hops[last];
+		final var accessor = hop.accessorOf(currentObject, this.strategy);
+
+		if (accessor == null) {
+			return false;
+		} else if (hop.index < 0) {
+			return true;
+		}
+
+		final var container = accessor.get(currentObject);
+
+		if (container == null) {
+			return false;
+		} else if (container.getClass().isArray()) {
+			return hop.index < Array.getLength(container);
+		}
+
+		return container instanceof List<?> list && hop.index < list.size();
+	}
+
+	/**
+	 * @return the value of the hop within the object, null if the attribute is null or missing, MISSING if the index is out of range
+	 */
+	private static Object get(final Hop hop, final Object object, final AccessorStrategy strategy) throws IllegalAccessException {
+		final var accessor = hop.accessorOf(object, strategy);
+
+		if (accessor == null) {
+			return null;
+		}
+
+		final var value = accessor.get(object);
+
+		if (hop.index < 0 || value == null) {
+			return value;
+		}
+
+		return getElement(value, hop.index);
+	}
+
+	private static Object getElement(final Object container, final int index) {
+		if (container.getClass().isArray()) {
+			return index < Array.getLength(container) ? Array.get(container, index) : MISSING;
+		} else if (container instanceof List<?> list) {
+			return index < list.size() ? list.get(index) : MISSING;
+		} else if (container instanceof Set<?> set) {
+			if (index >= set.size()) {
+				return MISSING;
+			}
+
+			final Iterator<?> iterator = set.iterator();
+			for (int i = 0; i < index; i++) {
+				iterator.next();
+			}
+			return iterator.next();
+		}
+
+		return MISSING;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static boolean setElement(final Object container, final int index, final Object newValue) {
+		if (container == null) {
+			return false;
+		} else if (container.getClass().isArray()) {
+			if (index >= Array.getLength(container)) {
+				return false;
+			}
+
+			Array.set(container, index, newValue);
+			return true;
+		} else if (container instanceof List<?> list) {
+			if (index >= list.size()) {
+				return false;
+			}
+
+			((List<Object>) list).set(index, newValue);
+			return true;
+		}
+
+		return false;
+	}
+
+	private static Resolution resolve(final Class<?> type, final String attributeName, final AccessorStrategy strategy) {
+		final var field = FieldTable.of(type).get(attributeName);
+
+		if (field == null) {
+			return new Resolution(type, null, null);
+		}
+
+		return new Resolution(type, field, strategy.accessorFor(field));
+	}
+
+	@Override
+	public String toString() {
+		return this.attributePath;
+	}
+}
@@ -0,0 +1,253 @@
+package com.djpedersen.bitemporal.bitemporaldatabase.propsetter;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import lombok.NonNull;
+
+/**
+ * Produces a corrected copy of an object graph by copying only the objects along the paths set through
+ * {@link CompiledPropertyPath#set(CopyOnWrite, Object)}, every untouched object is shared with the original. The original is never
+ * altered, and an object copied for one path is reused by later paths through it, so several paths through the same struct copy
+ * each object at most once.
+ *
+ * Objects are copied shallowly: arrays are cloned, Lists and Sets are cloned when their class offers a public clone, keeping e.g. a
+ * LinkedList a LinkedList or a TreeSet's comparator, else become ArrayLists and LinkedHashSets in the same order, and any other
+ * object is created through its no argument constructor, which may be private, with every instance field copied by the
+ * {@link AccessorStrategy}. A copy of one of the JDK's unmodifiable Lists or Sets, such as those of {@code List.of} or
+ * {@code Collections.unmodifiableSet}, is wrapped as unmodifiable in turn, so a correction never hands out a modifiable
+ * collection where the original was not; the wrapper, unlike {@code List.copyOf}, allows a null to be corrected in.
+ *
+ * Instances are not thread safe, use one per correction.
+ */
+public final class CopyOnWrite {
+
+	/**
+	 * The no argument constructor and field accessors of a class
+	 */
+	private static record Shape(Constructor<?> constructor, FieldAccessor[] accessors) {
+	}
+
+	/**
+	 * class -> strategy -> shape
+	 */
+	private static final ClassValue<ConcurrentMap<AccessorStrategy, Shape>> SHAPES = new ClassValue<>() {
+		@Override
+		protected ConcurrentMap<AccessorStrategy, Shape> computeValue(final Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+
+	/**
+	 * The accessible public clone method of a collection class, null if it has none
+	 */
+	private static final ClassValue<Method> CLONERS = new ClassValue<>() {
+		@Override
+		protected Method computeValue(final Class<?> type) {
+			if (!Cloneable.class.isAssignableFrom(type)) {
+				return null;
+			}
+
+			try {
+				final var clone = type.getMethod("clone");
+				return clone.trySetAccessible() ? clone : null;
+			} catch (final NoSuchMethodException e) {
+				return null;
+			}
+		}
+	};
+
+	/**
+	 * Whether a collection class is one of the JDK's unmodifiable Lists or Sets, which cannot be cloned
+	 */
+	private static final ClassValue<Boolean> UNMODIFIABLE = new ClassValue<>() {
+		@Override
+		protected Boolean computeValue(final Class<?> type) {
+			final var name = type.getName();
+			return name.startsWith("java.util.") && (name.contains("Immutable") || name.contains("$Unmodifiable") || name.contains("$Empty")
+					|| name.contains("$Singleton"));
+		}
+	};
+
+	private final Object original;
+	private final AccessorStrategy strategy;
+	private final Set<Object> copies = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	/**
+	 * unmodifiable copy -> the modifiable collection it wraps
+	 */
+	private final Map<Object, Collection<?>> backings = new IdentityHashMap<>();
+
+	private Object root;
+
+	/**
+	 * @param original the root of the object graph to correct
+	 * @param strategy how the fields of copied objects are read and written
+	 */
+	public CopyOnWrite(@NonNull final Object original, @NonNull final AccessorStrategy strategy) {
+		this.original = original;
+		this.strategy = strategy;
+		this.root = original;
+	}
+
+	/**
+	 * @return the original root
+	 */
+	public Object original() {
+		return this.original;
+	}
+
+	/**
+	 * @return the corrected copy of the root, or the original root if nothing has been set
+	 */
+	public Object result() {
+		return this.root;
+	}
+
+	/**
+	 * @return true if anything has been copied
+	 */
+	public boolean isCopied() {
+		return this.root != this.original;
+	}
+
+	/**
+	 * @return the root, copied if it has not been already
+	 */
+	Object writableRoot() throws IllegalAccessException {
+		this.root = writable(this.root);
+		return this.root;
+	}
+
+	/**
+	 * @return the object if copied by this, else a new shallow copy of it
+	 */
+	Object writable(final Object object) throws IllegalAccessException {
+		if (object == null || this.copies.contains(object)) {
+			return object;
+		}
+
+		final var copy = shallowCopy(object);
+		this.copies.add(copy);
+		return copy;
+	}
+
+	/**
+	 * @return the modifiable collection behind a collection copied by this as unmodifiable, else the container itself
+	 */
+	Object modifiable(final Object container) {
+		final var backing = this.backings.get(container);
+		return backing != null ? backing : container;
+	}
+
+	/**
+	 * Replace the element at the index of a Set, keeping its order
+	 *
+	 * @return a new Set copied by this
+	 */
+	@SuppressWarnings("unchecked")
+	Set<Object> withElement(final Set<?> set, final int index, final Object element) {
+		final var elements = new ArrayList<Object>(set);
+		elements.set(index, element);
+
+		final var copy = (Set<Object>) copyCollection(set);
+		copy.clear();
+		copy.addAll(elements);
+
+		final var result = (Set<Object>) keepUnmodifiable(set, copy);
+		this.copies.add(result);
+		return result;
+	}
+
+	private Object shallowCopy(final Object object) throws IllegalAccessException {
+		final var type = object.getClass();
+
+		if (type.isArray()) {
+			final int length = Array.getLength(object);
+			final var copy = Array.newInstance(type.getComponentType(), length);
+			System.arraycopy(object, 0, copy, 0, length);
+			return copy;
+		} else if (object instanceof List<?> || object instanceof Set<?>) {
+			return keepUnmodifiable(object, copyCollection(object));
+		}
+
+		final var shape = shapeOf(type);
+		final Object copy;
+
+		try {
+			copy = shape.constructor.newInstance();
+		} catch (final InstantiationException | InvocationTargetException e) {
+			throw new IllegalArgumentException("Unable to copy " + type.getName(), e);
+		}
+
+		for (final var accessor : shape.accessors) {
+			accessor.set(copy, accessor.get(object));
+		}
+
+		return copy;
+	}
+
+	/**
+	 * @return a copy of the List or Set of the same class if it can be cloned, else an ArrayList or LinkedHashSet
+	 */
+	private static Collection<?> copyCollection(final Object collection) {
+		final var clone = CLONERS.get(collection.getClass());
+
+		if (clone != null) {
+			try {
+				return (Collection<?>) clone.invoke(collection);
+			} catch (final IllegalAccessException | InvocationTargetException e) {
+				throw new IllegalArgumentException("Unable to copy " + collection.getClass().getName(), e);
+			}
+		}
+
+		return collection instanceof List<?> list ? new ArrayList<>(list) : new LinkedHashSet<>((Set<?>) collection);
+	}
+
+	/**
+	 * @return the copy wrapped as unmodifiable if the collection it was copied from is one of the JDK's unmodifiable collections,
+	 *         else the copy
+	 */
+	private Collection<?> keepUnmodifiable(final Object collection, final Collection<?> copy) {
+		if (!UNMODIFIABLE.get(collection.getClass())) {
+			return copy;
+		}
+
+		final Collection<?> wrapped = copy instanceof List<?> list ? Collections.unmodifiableList(list) : Collections.unmodifiableSet((Set<?>) copy);
+		this.backings.put(wrapped, copy);
+		return wrapped;
+	}
+
+	private Shape shapeOf(final Class<?> type) {
+		final var shapes = SHAPES.get(type);
+		final var existing = shapes.get(this.strategy);
+
+		return existing != null ? existing : shapes.computeIfAbsent(this.strategy, strategy -> {
+			final Constructor<?> constructor;
+
+			try {
+				constructor = type.getDeclaredConstructor();
+			} catch (final NoSuchMethodException e) {
+				throw new IllegalArgumentException("Cannot copy " + type.getName() + " without a no argument constructor", e);
+			}
+
+			if (!constructor.trySetAccessible()) {
+				throw new IllegalArgumentException("Cannot copy " + type.getName() + ", its no argument constructor is not accessible");
+			}
+
+			return new Shape(constructor, FieldTable.of(type).fields().stream().map(strategy::accessorFor).toArray(FieldAccessor[]::new));
+		});
+	}
+}
@@ -0,0 +1,24 @@
+package com.djpedersen.bitemporal.bitemporaldatabase.propsetter;
+
+/**
+ * Reads and writes a single instance field, as created by an {@link AccessorStrategy}.
+ * 
+ * Implementations follow the {@link java.lang.reflect.Field} conventions: an IllegalArgumentException is thrown if the target is not
+ * an instance of the field's class, or if the value cannot be assigned to the field (including null for a primitive field).
+ */
+public interface FieldAccessor {
+
+	/**
+	 * @param target the object holding the field
+	 * @return the value of the field
+	 * @throws IllegalAccessException if the field cannot be accessed
+	 */
+	Object get(Object target) throws IllegalAccessException;
+
+	/**
+	 * @param target the object holding the field
+	 * @param value  the new value of the field
+	 * @throws IllegalAccessException if the field cannot be accessed
+	 */
+	void set(Object target, Object value) throws IllegalAccessException;
+}
@@ -0,0 +1,75 @@
+package com.djpedersen.bitemporal.bitemporaldatabase.propsetter;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.NonNull;
+
+/**
+ * The instance fields of a class, including those inherited from its superclasses, looked up by name. Built once per class and
+ * held in a {@link ClassValue}, so a lookup is a single hash probe and the table goes away with its class loader.
+ * 
+ * A field declared by a subclass hides a field of the same name declared by a superclass. Every field is made accessible when the
+ * table is built, where the module system allows it.
+ */
+public final class FieldTable {
+
+	private static final ClassValue<FieldTable> TABLES = new ClassValue<>() {
+		@Override
+		protected FieldTable computeValue(final Class<?> type) {
+			return new FieldTable(type);
+		}
+	};
+
+	private final Map<String, Field> byName;
+
+	private final List<Field> fields;
+
+	private FieldTable(final Class<?> type) {
+		final var byName = new HashMap<String, Field>();
+		final var fields = new ArrayList<Field>();
+
+		for (Class<?> declaring = type; declaring != null && declaring != Object.class; declaring = declaring.getSuperclass()) {
+			for (final var field : declaring.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+					continue;
+				}
+
+				field.trySetAccessible();
+				byName.putIfAbsent(field.getName(), field);
+				fields.add(field);
+			}
+		}
+
+		this.byName = Map.copyOf(byName);
+		this.fields = Collections.unmodifiableList(fields);
+	}
+
+	/**
+	 * @param type the class to describe
+	 * @return the field table of the class
+	 */
+	public static FieldTable of(@NonNull final Class<?> type) {
+		return TABLES.get(type);
+	}
+
+	/**
+	 * @param name the name of the field
+	 * @return the visible instance field of that name, null if there is none
+	 */
+	public Field get(@NonNull final String name) {
+		return this.byName.get(name);
+	}
+
+	/**
+	 * @return every instance field of the class, hidden superclass fields included, declared fields first
+	 */
+	public List<Field> fields() {
+		return this.fields;
+	}
+}
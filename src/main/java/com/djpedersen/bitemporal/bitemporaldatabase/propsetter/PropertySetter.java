@@ -1,12 +1,6 @@
 package com.djpedersen.bitemporal.bitemporaldatabase.propsetter;
 
-import java.lang.reflect.Array;
-import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Set;
 
 import lombok.NonNull;
 
@@ -15,11 +9,14 @@ import lombok.NonNull;
  * 
  * Simple properties: $.attribute
  * 
- * Arrays/Sets/Lists: $.attribute[index] (does not yet work as the last node in a path)
+ * Arrays/Sets/Lists: $.attribute[index] (Sets cannot be the last node in a path)
  * 
  * Sub-object, simple property: $.subObject.subObjectAttribute
  * 
  * Maps: not yet implemented
+ * 
+ * Paths are compiled once per class, see {@link CompiledPropertyPath} to hold on to the compiled form when applying the same path
+ * to many objects.
  */
 public class PropertySetter {
 
@@ -48,106 +45,6 @@ public class PropertySetter {
 			throw new IllegalArgumentException("'attributePath' parameter must start with $.");
 		}
 
-		final var pathNames = attributePath.split("\\.");
-
-		Field attribute = null;
-		Object currentObject = objectToFix;
-
-		for (int i = 1; pathNames != null && i < pathNames.length; i++) {
-			var attributeName = pathNames[i];
-//			System.out.println("attributeName:" + attributeName);
-
-			final int arrayStart = attributeName.indexOf("[");
-			final int arrayEnd = attributeName.indexOf("]");
-
-			int arrayIndex = 0;
-			boolean isArrayPath = false;
-
-			if (arrayStart > 0) {
-				final String arrayIndexStr = attributeName.substring(arrayStart + 1, arrayEnd);
-				arrayIndex = Integer.parseInt(arrayIndexStr);
-				attributeName = attributeName.substring(0, arrayStart);
-				isArrayPath = true;
-//				System.out.println("isArrayPath, index: " + arrayIndex);
-			}
-
-			if (currentObject != null) {
-				attribute = getFieldByName(currentObject, attributeName);
-			} else {
-				attribute = null;
-			}
-
-			if (attribute == null) {
-//				System.out.println("no attribute found named " + attributeName);
-				break;
-			}
-
-			if (isArrayPath) {
-				if (attribute.getDeclaringClass().isArray()) {
-//					System.out.println("attribute is an Array");
-					attribute.setAccessible(true);
-					final var array = attribute.get(currentObject);
-					currentObject = Array.get(array, arrayIndex);
-				} else if (isListType(attribute) || isSetType(attribute)) {
-//					System.out.println("attribute is a List or Set");
-					attribute.setAccessible(true);
-					final var list = attribute.get(currentObject);
-					final Method method = list.getClass().getDeclaredMethod("get", int.class);
-					currentObject = method.invoke(list, arrayIndex);
-				} else {
-//					System.out.println("attribute is not an Array, List or Set: " + attribute.getType());
-				}
-			} else if (i < pathNames.length - 1) {
-				attribute.setAccessible(true);
-				currentObject = attribute.get(currentObject);
-			}
-		}
-
-		if (attribute != null) {
-//			System.out.println("Setting attribute " + attribute.getName() + " to: " + newValue);
-			attribute.setAccessible(true);
-			attribute.set(currentObject, newValue);
-			return true;
-		}
-		
-		return false;
-	}
-
-	private static boolean isListType(Field field) {
-		return List.class.isAssignableFrom(field.getType());
-//		
-//		if (List.class.isAssignableFrom(field.getType())) {
-//			Type genericType = field.getGenericType();
-//			if (genericType instanceof ParameterizedType) {
-//				Type[] actualTypeArguments = ((ParameterizedType) genericType).getActualTypeArguments();
-//				// Check if the actual type argument is not empty
-//				return actualTypeArguments.length > 0;
-//			}
-//		}
-//		return false;
-	}
-
-	private static boolean isSetType(Field field) {
-		return Set.class.isAssignableFrom(field.getType());
-//
-//		if (Set.class.isAssignableFrom(field.getType())) {
-//			Type genericType = field.getGenericType();
-//			if (genericType instanceof ParameterizedType) {
-//				Type[] actualTypeArguments = ((ParameterizedType) genericType).getActualTypeArguments();
-//				// Check if the actual type argument is not empty
-//				return actualTypeArguments.length > 0;
-//			}
-//		}
-//		return false;
-	}
-
-	private static Field getFieldByName(final Object object, final String attributeName) {
-		final Field[] fields = object.getClass().getDeclaredFields();
-
-		if (fields == null) {
-			return null;
-		}
-
-		return Arrays.stream(fields).filter(f -> f.getName().equals(attributeName)).findAny().orElse(null);
+		return CompiledPropertyPath.of(objectToFix.getClass(), attributePath).set(objectToFix, newValue);
 	}
 }
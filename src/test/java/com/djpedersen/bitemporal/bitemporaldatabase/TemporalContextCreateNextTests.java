@@ -100,6 +100,22 @@ class TemporalContextCreateNextTests {
 		Assertions.assertEquals(comment, nextRevisionContext.comment, "comment is wrong");
 	}
 
+	@Test
+	void createNextRevisionEffectiveComment() {
+		final var temporalContext = new TemporalContext();
+
+		final var effective = Instant.now().minus(1, ChronoUnit.DAYS);
+		final var comment = "a comment";
+
+		final var nextRevisionContext = temporalContext.createNextRevision(effective, comment);
+
+		Assertions.assertEquals(1, nextRevisionContext.version, "version is wrong");
+		Assertions.assertEquals(1, nextRevisionContext.revision, "revision is wrong");
+		Assertions.assertEquals(effective, nextRevisionContext.effectiveFrom, "effectiveFrom is wrong");
+		Assertions.assertNotNull(nextRevisionContext.recordedOn, "recordedOn is wrong");
+		Assertions.assertEquals(comment, nextRevisionContext.comment, "comment is wrong");
+	}
+
 	@Test
 	void createNextRevisionOfNextVersion() {
 		final var temporalContext = new TemporalContext();
@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.UUID;
 
 import com.djpedersen.bitemporal.bitemporaldatabase.TemporalStructureInterface;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec.GenerateCodec;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -31,6 +32,7 @@ import lombok.NonNull;
 /**
  * @author Daniel R. Pedersen
  */
+@GenerateCodec
 @Data
 @Builder
 @NoArgsConstructor
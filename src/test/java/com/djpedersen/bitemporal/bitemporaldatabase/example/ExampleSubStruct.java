@@ -1,11 +1,14 @@
 package com.djpedersen.bitemporal.bitemporaldatabase.example;
 
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec.GenerateCodec;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 
+@GenerateCodec
 @Builder
 @Data
 @NoArgsConstructor
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.example;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleEvent;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleState;
+
+/**
+ * The instants and structs shared by the tests
+ * 
+ * @author Daniel R. Pedersen
+ */
+public final class Examples {
+
+	public static final Instant DAY_1 = Instant.parse("2023-01-01T00:00:00Z");
+	public static final Instant DAY_2 = DAY_1.plus(1, ChronoUnit.DAYS);
+	public static final Instant DAY_3 = DAY_1.plus(2, ChronoUnit.DAYS);
+	public static final Instant DAY_4 = DAY_1.plus(3, ChronoUnit.DAYS);
+	public static final Instant DAY_5 = DAY_1.plus(4, ChronoUnit.DAYS);
+
+	private Examples() {
+	}
+
+	/**
+	 * @param id       the identifier of the struct
+	 * @param intValue the int value of the struct and its sub struct
+	 * @return a working struct with every kind of field set
+	 */
+	public static ExampleStruct struct(final UUID id, final int intValue) {
+		return ExampleStruct.builder().id(id).intValue(intValue).stringList(List.of("a", "b")).stringArray(new String[] { "c" })
+				.subStruct(new ExampleSubStruct(intValue)).state(ExampleState.Working).event(ExampleEvent.Create).build();
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence;
+
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.ContextHandle;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleSnapshot;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleEvent;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleState;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.Examples;
+
+/**
+ * The behaviour every {@link HistoryBackedTemporalPersistence} shares, run against each backend by extending this class
+ * 
+ * @author Daniel R. Pedersen
+ */
+public abstract class TemporalPersistenceContractTests {
+
+	private final UUID id = UUID.randomUUID();
+
+	private HistoryBackedTemporalPersistence<UUID, ExampleState, ExampleEvent, ExampleStruct, ExampleSnapshot, ?> persistence;
+
+	/**
+	 * @return an empty persistence of the backend under test, closed after the test if it is {@link AutoCloseable}
+	 * @throws TemporalPersistenceException if the persistence cannot be created
+	 */
+	protected abstract HistoryBackedTemporalPersistence<UUID, ExampleState, ExampleEvent, ExampleStruct, ExampleSnapshot, ?> create()
+			throws TemporalPersistenceException;
+
+	/**
+	 * Created on first use, so tests of the backend alone are free to create their own
+	 */
+	private HistoryBackedTemporalPersistence<UUID, ExampleState, ExampleEvent, ExampleStruct, ExampleSnapshot, ?> persistence()
+			throws TemporalPersistenceException {
+		if (this.persistence == null) {
+			this.persistence = create();
+		}
+
+		return this.persistence;
+	}
+
+	@AfterEach
+	void closePersistence() throws Exception {
+		if (this.persistence instanceof AutoCloseable closeable) {
+			closeable.close();
+		}
+	}
+
+	@Test
+	void createAndRead() throws TemporalPersistenceException {
+		final var persistence = persistence();
+		final var created = persistence.createNew(Examples.struct(this.id, 1), Examples.DAY_1, "created");
+		final var appended = persistence.appendVersion(Examples.struct(this.id, 2), Examples.DAY_2);
+
+		Assertions.assertEquals(created, persistence.getByIdVersionAndRevision(this.id, 1, 0).orElseThrow(), "wrong v1r0");
+		Assertions.assertEquals(appended, persistence.getByIdEffective(this.id, Examples.DAY_3).orElseThrow(), "wrong effective version");
+		Assertions.assertTrue(persistence.getByIdVersionAndRevision(this.id, 1, 1).isEmpty(), "unknown revision");
+		Assertions.assertTrue(persistence.getByIdCurrent(UUID.randomUUID()).isEmpty(), "unknown id");
+	}
+
+	@Test
+	void writeValidation() throws TemporalPersistenceException {
+		final var persistence = persistence();
+		persistence.createNew(Examples.struct(this.id, 1), Examples.DAY_2);
+
+		Assertions.assertThrows(SnapshotAlreadyExistsException.class, () -> persistence.createNew(Examples.struct(this.id, 1), Examples.DAY_2));
+		Assertions.assertThrows(SnapshotNotFoundException.class, () -> persistence.appendVersion(Examples.struct(UUID.randomUUID(), 1), Examples.DAY_2));
+		Assertions.assertThrows(TemporalPersistenceException.class, () -> persistence.appendVersion(Examples.struct(this.id, 2), Examples.DAY_1));
+	}
+
+	@Test
+	void corrections() throws TemporalPersistenceException {
+		final var persistence = persistence();
+		persistence.createNew(Examples.struct(this.id, 1), Examples.DAY_1);
+		persistence.appendVersion(Examples.struct(this.id, 2), Examples.DAY_2);
+
+		final var pair = persistence.correctStructByVersion(this.id, 1, Map.of("$.intValue", 11, "$.subStruct.subIntValue", 12), "fix");
+		Assertions.assertEquals(1, pair.originalSnapshot.struct.getIntValue(), "original was altered");
+		Assertions.assertEquals(11, pair.correctedSnapshot.struct.getIntValue(), "intValue not corrected");
+		Assertions.assertEquals(pair.correctedSnapshot, persistence.getByIdAndVersion(this.id, 1).orElseThrow(), "correction not stored");
+		Assertions.assertEquals(1, persistence.getByIdVersionAndRevision(this.id, 1, 0).orElseThrow().struct.getIntValue(), "v1r0 was altered");
+		Assertions.assertNull(persistence.correctStructByVersion(this.id, 1, "$.missing", 1, "fix"), "missing path should not correct");
+
+		Assertions.assertEquals(2, persistence.correctStructAllVersions(this.id, "$.intValue", 7, "all").size(), "both versions corrected");
+
+		final var moved = persistence.correctContextEffectiveOn(this.id, 1, Examples.DAY_3, "moved");
+		Assertions.assertEquals(2, moved.size(), "both versions re-ordered");
+		Assertions.assertEquals(Examples.DAY_3, persistence.getByIdLast(this.id).orElseThrow().context.effectiveFrom, "v1 should now be last");
+		Assertions.assertEquals(12, persistence.getByIdLast(this.id).orElseThrow().struct.getSubStruct().getSubIntValue(), "v1 struct moved");
+	}
+
+	@Test
+	void parallelCorrectionsAndIndexes() throws TemporalPersistenceException {
+		final var persistence = persistence();
+		persistence.setParallelCorrections(ForkJoinPool.commonPool(), 2);
+		persistence.indexStates(ExampleState.class);
+
+		persistence.createNew(Examples.struct(this.id, 0), Examples.DAY_1);
+		for (int i = 1; i < 10; i++) {
+			persistence.appendVersion(Examples.struct(this.id, i), Examples.DAY_1.plus(i, ChronoUnit.HOURS));
+		}
+
+		Assertions.assertEquals(Set.of(this.id), persistence.getIdsInState(ExampleState.Working), "create should be indexed");
+
+		final var pairs = persistence.correctStructAllVersions(this.id, "$.state", ExampleState.Closed, "close");
+		Assertions.assertEquals(10, pairs.size(), "every version corrected");
+		for (int i = 0; i < pairs.size(); i++) {
+			Assertions.assertEquals(i, pairs.get(i).correctedSnapshot.struct.getIntValue(), "corrections out of order");
+		}
+		Assertions.assertEquals(1, persistence.countInState(ExampleState.Closed), "correction should be indexed");
+		Assertions.assertEquals(ExampleState.Closed, persistence.getByIdCurrent(this.id).orElseThrow().struct.getState(), "wrong current state");
+	}
+
+	@Test
+	void streams() throws TemporalPersistenceException {
+		final var persistence = persistence();
+		persistence.createNew(Examples.struct(this.id, 1), Examples.DAY_1);
+		for (int i = 2; i <= 10; i++) {
+			persistence.appendVersion(Examples.struct(this.id, i), Examples.DAY_1.plus(i, ChronoUnit.HOURS));
+		}
+		persistence.correctStructByVersion(this.id, 3, "$.intValue", 33, "fix");
+
+		try (var stream = persistence.streamAllVersionsAndRevisions(this.id)) {
+			Assertions.assertEquals(persistence.getAllVersionsAndRevisions(this.id), stream.toList(), "stream should match the list");
+		}
+		try (var stream = persistence.streamAllVersions(this.id)) {
+			Assertions.assertEquals(persistence.getAllVersions(this.id).subList(0, 3), stream.limit(3).toList(), "stream should match the list");
+		}
+		try (var stream = persistence.streamAllVersions(UUID.randomUUID())) {
+			Assertions.assertEquals(0, stream.count(), "unknown id");
+		}
+	}
+
+	@Test
+	void batchReads() throws TemporalPersistenceException {
+		final var persistence = persistence();
+		final var other = UUID.randomUUID();
+
+		persistence.createNew(Examples.struct(other, 5), Examples.DAY_1);
+		persistence.createNew(Examples.struct(this.id, 1), Examples.DAY_1);
+		persistence.appendVersion(Examples.struct(this.id, 2), Examples.DAY_2);
+		persistence.correctStructByVersion(this.id, 1, "$.intValue", 11, "fix");
+
+		final var v1r0 = new ContextHandle<>(this.id, 1, 0);
+		final var v1 = new ContextHandle<>(this.id, 1, 0).createVersionedContextHandle();
+		final var current = new ContextHandle<>(other, 1, 0).createIndentityContextHandle();
+		final var found = persistence.getByContextHandles(List.of(v1, current, v1r0, new ContextHandle<>(this.id, 3, 0), v1));
+
+		Assertions.assertEquals(List.of(v1, current, v1r0), List.copyOf(found.keySet()), "wrong handles found or wrong order");
+		Assertions.assertEquals(persistence.getByIdAndVersion(this.id, 1).orElseThrow(), found.get(v1), "wrong latest revision");
+		Assertions.assertEquals(5, found.get(current).struct.getIntValue(), "wrong current snapshot");
+		Assertions.assertEquals(1, found.get(v1r0).struct.getIntValue(), "wrong revision");
+
+		final var effective = persistence.getByIdsEffective(List.of(this.id, UUID.randomUUID(), other), Examples.DAY_3);
+		Assertions.assertEquals(List.of(this.id, other), List.copyOf(effective.keySet()), "wrong ids found or wrong order");
+		Assertions.assertEquals(2, effective.get(this.id).struct.getIntValue(), "wrong effective version");
+	}
+
+	@Test
+	void scanEffective_Identifiers() throws TemporalPersistenceException {
+		final var persistence = persistence();
+		final var other = UUID.randomUUID();
+
+		persistence.createNew(Examples.struct(this.id, 1), Examples.DAY_1);
+		persistence.appendVersion(Examples.struct(this.id, 2), Examples.DAY_2);
+		persistence.createNew(Examples.struct(other, 5), Examples.DAY_3);
+
+		Assertions.assertEquals(List.of(2), persistence.scanEffective(Examples.DAY_2).map(s -> s.struct.getIntValue()).toList(), "only one effective");
+		Assertions.assertEquals(Set.of(this.id, other), persistence.scanEffective(Examples.DAY_3).map(s -> s.contextHandle.identifier).collect(Collectors.toSet()),
+				"both effective");
+	}
+}
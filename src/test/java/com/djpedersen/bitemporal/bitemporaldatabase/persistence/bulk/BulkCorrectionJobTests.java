@@ -0,0 +1,174 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.bulk;
+
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleSnapshot;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.Examples;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleEvent;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleState;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.ForwardingTemporalPersistence;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.SnapshotNotFoundException;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceException;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.memory.InMemoryTemporalPersistence;
+
+/**
+ * @author Daniel R. Pedersen
+ */
+class BulkCorrectionJobTests {
+
+	private InMemoryTemporalPersistence<UUID, ExampleState, ExampleEvent, ExampleStruct, ExampleSnapshot> persistence;
+	private final List<UUID> ids = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() throws TemporalPersistenceException {
+		this.persistence = new InMemoryTemporalPersistence<>("example", ExampleSnapshot::new, ExampleStruct::new);
+
+		for (int i = 0; i < 500; i++) {
+			final var id = UUID.randomUUID();
+			this.persistence.createNew(Examples.struct(id, i), Examples.DAY_1);
+			this.persistence.appendVersion(Examples.struct(id, i), Examples.DAY_1.plus(1, ChronoUnit.DAYS));
+			this.ids.add(id);
+		}
+	}
+
+	private BulkCorrectionJob<UUID, ExampleState, ExampleEvent, ExampleStruct, ExampleSnapshot> job(final BulkCorrectionListener<UUID> listener) {
+		return new BulkCorrectionJob<>(this.persistence, Map.of("$.state", ExampleState.Closed), "bulk fix",
+				BulkCorrectionConfig.builder().batchSize(32).parallelism(4).build(), listener);
+	}
+
+	@Test
+	void correctsEveryIdentifier() throws InterruptedException, TemporalPersistenceException {
+		final var reports = new CopyOnWriteArrayList<BulkCorrectionProgress>();
+		final var result = job(reports::add).run(this.ids.stream());
+
+		Assertions.assertEquals(new BulkCorrectionProgress(500, 500, 1000, 0, 0), result.progress, "wrong counts");
+		Assertions.assertFalse(result.cancelled, "not cancelled");
+		Assertions.assertTrue(result.failures.isEmpty(), "nothing should fail");
+		Assertions.assertEquals(16, reports.size(), "progress should be reported once per batch");
+		Assertions.assertEquals(result.progress, reports.stream().max((a, b) -> Long.compare(a.processed, b.processed)).orElseThrow(),
+				"the last report should hold the final counts");
+
+		for (final var id : this.ids) {
+			for (final var version : this.persistence.getAllVersions(id)) {
+				Assertions.assertEquals(ExampleState.Closed, version.struct.getState(), "correction not applied");
+				Assertions.assertEquals("bulk fix", version.context.comment, "wrong reason");
+			}
+		}
+	}
+
+	@Test
+	void filterOnCurrentSnapshot() throws InterruptedException, TemporalPersistenceException {
+		final var result = job(progress -> {
+		}).run(this.ids.stream(), snapshot -> snapshot.struct.getIntValue() % 2 == 0);
+
+		Assertions.assertEquals(new BulkCorrectionProgress(500, 250, 500, 250, 0), result.progress, "wrong counts");
+		Assertions.assertEquals(ExampleState.Working, this.persistence.getByIdCurrent(this.ids.get(1)).orElseThrow().struct.getState(),
+				"odd identifiers should be left alone");
+		Assertions.assertEquals(ExampleState.Closed, this.persistence.getByIdCurrent(this.ids.get(2)).orElseThrow().struct.getState(),
+				"even identifiers should be corrected");
+	}
+
+	@Test
+	void filter_WriteAfterMatchIsReported() throws InterruptedException {
+		final var id = this.ids.get(0);
+		final var racing = new ForwardingTemporalPersistence<UUID, ExampleState, ExampleEvent, ExampleStruct, ExampleSnapshot>(this.persistence) {
+			@Override
+			public Optional<ExampleSnapshot> getByIdCurrent(final UUID id) throws TemporalPersistenceException {
+				final var current = super.getByIdCurrent(id);
+				this.delegate.correctStructByVersion(id, 2, "$.intValue", 1, "concurrent write");
+				return current;
+			}
+		};
+
+		final var result = new BulkCorrectionJob<>(racing, Map.of("$.state", ExampleState.Closed), "bulk fix", BulkCorrectionConfig.builder().build(),
+				progress -> {
+				}).run(Stream.of(id), snapshot -> snapshot.struct.getIntValue() % 2 == 0);
+
+		Assertions.assertEquals(new BulkCorrectionProgress(1, 0, 2, 0, 1), result.progress, "wrong counts");
+		Assertions.assertTrue(result.failures.containsKey(id), "the identifier which stopped matching should be reported");
+	}
+
+	@Test
+	void failuresAreRecordedAndTheJobCarriesOn() throws InterruptedException {
+		final var unknown = UUID.randomUUID();
+		final var reported = new AtomicReference<UUID>();
+		final var result = job(new BulkCorrectionListener<>() {
+			@Override
+			public void progress(final BulkCorrectionProgress progress) {
+			}
+
+			@Override
+			public void failed(final UUID id, final TemporalPersistenceException failure) {
+				reported.set(id);
+			}
+		}).run(Stream.concat(Stream.of(unknown), this.ids.stream()));
+
+		Assertions.assertEquals(new BulkCorrectionProgress(501, 500, 1000, 0, 1), result.progress, "wrong counts");
+		Assertions.assertTrue(result.failures.get(unknown) instanceof SnapshotNotFoundException, "the unknown identifier should fail");
+		Assertions.assertEquals(unknown, reported.get(), "the failure should be reported");
+	}
+
+	@Test
+	void correctsToNull() throws InterruptedException, TemporalPersistenceException {
+		final var corrections = new HashMap<String, Object>();
+		corrections.put("$.state", null);
+
+		final var result = new BulkCorrectionJob<>(this.persistence, corrections, "clear state", BulkCorrectionConfig.builder().build(), progress -> {
+		}).run(this.ids.stream());
+
+		Assertions.assertTrue(result.failures.isEmpty(), "nothing should fail");
+
+		for (final var id : this.ids) {
+			for (final var snapshot : this.persistence.getAllVersions(id)) {
+				Assertions.assertNull(snapshot.struct.getState(), "state was not cleared for " + id);
+			}
+		}
+	}
+
+	@Test
+	void cancel() throws InterruptedException {
+		final var job = new AtomicReference<BulkCorrectionJob<UUID, ExampleState, ExampleEvent, ExampleStruct, ExampleSnapshot>>();
+		job.set(job(progress -> job.get().cancel()));
+
+		final var result = job.get().run(this.ids.stream());
+
+		Assertions.assertTrue(result.cancelled, "should be cancelled");
+		Assertions.assertTrue(result.progress.processed < 500, "cancelling should stop the job early");
+	}
+
+	@Test
+	void invalidConfig() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new BulkCorrectionJob<>(this.persistence, Map.of(), "fix",
+				BulkCorrectionConfig.builder().parallelism(0).build(), progress -> {
+				}));
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.cache;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.ContextHandle;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleSnapshot;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.Examples;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleEvent;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleState;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceException;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.memory.InMemoryTemporalPersistence;
+
+/**
+ * @author Daniel R. Pedersen
+ */
+class CachingTemporalPersistenceTests {
+
+	private CachingTemporalPersistence<UUID, ExampleState, ExampleEvent, ExampleStruct, ExampleSnapshot> persistence;
+	private UUID id;
+
+	@BeforeEach
+	void setUp() throws TemporalPersistenceException {
+		final var stored = new InMemoryTemporalPersistence<UUID, ExampleState, ExampleEvent, ExampleStruct, ExampleSnapshot>("example", ExampleSnapshot::new,
+				ExampleStruct::new);
+		this.persistence = new CachingTemporalPersistence<>(stored, 10);
+		this.id = UUID.randomUUID();
+
+		final var struct = ExampleStruct.builder().id(this.id).intValue(1).build();
+		this.persistence.createNew(struct, Examples.DAY_1);
+		this.persistence.appendVersion(struct, Examples.DAY_2);
+	}
+
+	@Test
+	void versionAndRevisionAreCached() throws TemporalPersistenceException {
+		final var first = this.persistence.getByIdVersionAndRevision(this.id, 2, 0).orElseThrow();
+		final var second = this.persistence.getByContextHandle(first.contextHandle).orElseThrow();
+
+		Assertions.assertSame(first, second, "should be served from the cache");
+		Assertions.assertEquals(1, this.persistence.hitCount(), "wrong hits");
+		Assertions.assertEquals(1, this.persistence.missCount(), "wrong misses");
+		Assertions.assertEquals(1, this.persistence.cachedCount(), "wrong cache size");
+	}
+
+	@Test
+	void partialHandlesAreNotCached() throws TemporalPersistenceException {
+		final var versioned = new ContextHandle<>(this.id, 2, 0).createVersionedContextHandle();
+		final var before = this.persistence.getByContextHandle(versioned).orElseThrow();
+
+		this.persistence.correctStructByVersion(this.id, 2, "$.intValue", 11, "test");
+
+		final var after = this.persistence.getByContextHandle(versioned).orElseThrow();
+		Assertions.assertEquals(0, before.context.revision, "wrong revision");
+		Assertions.assertEquals(1, after.context.revision, "corrected revision should be found");
+		Assertions.assertEquals(0, this.persistence.cachedCount(), "should not be cached");
+	}
+
+	@Test
+	void missingSnapshotsAreNotCached() throws TemporalPersistenceException {
+		Assertions.assertTrue(this.persistence.getByIdVersionAndRevision(this.id, 3, 0).isEmpty(), "should not be found");
+		Assertions.assertEquals(0, this.persistence.cachedCount(), "should not be cached");
+	}
+
+	@Test
+	void batchMixesCacheAndDelegate() throws TemporalPersistenceException {
+		final var cached = this.persistence.getByIdVersionAndRevision(this.id, 1, 0).orElseThrow();
+		final var second = new ContextHandle<>(this.id, 2, 0);
+		final var identity = second.createIndentityContextHandle();
+		final var missing = new ContextHandle<>(this.id, 3, 0);
+
+		final var found = this.persistence.getByContextHandles(List.of(second, missing, cached.contextHandle, identity));
+
+		Assertions.assertEquals(List.of(second, cached.contextHandle, identity), List.copyOf(found.keySet()), "should be in request order");
+		Assertions.assertSame(cached, found.get(cached.contextHandle), "should be served from the cache");
+		Assertions.assertEquals(2, found.get(identity).context.version, "identity should resolve to the current version");
+		Assertions.assertEquals(2, this.persistence.cachedCount(), "only complete handles should be cached");
+		Assertions.assertSame(found.get(second), this.persistence.getByContextHandle(second).orElseThrow(), "batch result should be cached");
+	}
+}
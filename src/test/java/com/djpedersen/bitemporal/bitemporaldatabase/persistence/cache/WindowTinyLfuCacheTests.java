@@ -0,0 +1,81 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Daniel R. Pedersen
+ */
+class WindowTinyLfuCacheTests {
+
+	@Test
+	void sizeIsBounded() {
+		final var cache = new WindowTinyLfuCache<Integer, String>(100);
+
+		for (int i = 0; i < 1_000; i++) {
+			cache.put(i, "value " + i);
+			Assertions.assertTrue(cache.size() <= 100, "cache overflowed");
+		}
+
+		Assertions.assertEquals(100, cache.size(), "cache should be full");
+	}
+
+	@Test
+	void popularEntriesSurviveAScan() {
+		final var cache = new WindowTinyLfuCache<Integer, String>(100);
+
+		for (int popular = 0; popular < 50; popular++) {
+			cache.put(popular, "popular " + popular);
+		}
+		for (int read = 0; read < 5; read++) {
+			for (int popular = 0; popular < 50; popular++) {
+				Assertions.assertNotNull(cache.get(popular), "popular entry missing");
+			}
+		}
+
+		for (int once = 1_000; once < 11_000; once++) {
+			if (cache.get(once) == null) {
+				cache.put(once, "once " + once);
+			}
+			if (once % 2 == 0) {
+				cache.get(once / 2 % 50);
+			}
+		}
+
+		for (int popular = 0; popular < 50; popular++) {
+			Assertions.assertTrue(cache.containsKey(popular), "popular entry " + popular + " was evicted by the scan");
+		}
+	}
+
+	@Test
+	void putReplacesValue() {
+		final var cache = new WindowTinyLfuCache<String, String>(10);
+
+		cache.put("key", "first");
+		cache.put("key", "second");
+
+		Assertions.assertEquals("second", cache.get("key"), "value should be replaced");
+		Assertions.assertEquals(1, cache.size(), "wrong size");
+		Assertions.assertNull(cache.get("other"), "should not be cached");
+	}
+
+	@Test
+	void maximumSizeMustBePositive() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new WindowTinyLfuCache<String, String>(0), "should be rejected");
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleState;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleSubStruct;
+
+/**
+ * A struct with a field of every type {@link GenerateCodec} supports, accessed directly rather than through getters and setters
+ * 
+ * @author Daniel R. Pedersen
+ */
+@GenerateCodec
+class CodecTypesStruct extends CodecTypesBase {
+
+	boolean booleanValue;
+	byte byteValue;
+	short shortValue;
+	char charValue;
+	int intValue;
+	long longValue;
+	float floatValue;
+	double doubleValue;
+
+	Integer boxedInt;
+	Double boxedDouble;
+
+	String string;
+	UUID uuid;
+	Instant instant;
+	ExampleState state;
+	ExampleSubStruct subStruct;
+
+	int[] ints;
+	String[][] strings;
+	List<Set<String>> nested;
+	Collection<ExampleSubStruct> subStructs;
+
+	transient String ignored;
+	static String shared;
+}
+
+/**
+ * Fields of superclasses are encoded first
+ */
+class CodecTypesBase {
+	long baseValue;
+}
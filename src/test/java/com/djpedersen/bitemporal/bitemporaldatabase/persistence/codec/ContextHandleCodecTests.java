@@ -0,0 +1,86 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.ContextHandle;
+
+/**
+ * @author Daniel R. Pedersen
+ */
+class ContextHandleCodecTests {
+
+	private static <IDTYPE> ContextHandle<IDTYPE> roundTrip(final ContextHandleCodec<IDTYPE> codec, final ContextHandle<IDTYPE> handle)
+			throws IOException {
+		final var bytes = new ByteArrayOutputStream();
+		codec.encode(handle, new DataOutputStream(bytes));
+		return codec.decode(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+	}
+
+	@Test
+	void roundTrip_Full() throws IOException {
+		final var handle = new ContextHandle<>(UUID.randomUUID(), 12, 3);
+
+		Assertions.assertEquals(handle, roundTrip(new ContextHandleCodec<>(IdentifierCodec.UUIDS), handle), "handle changed");
+	}
+
+	@Test
+	void roundTrip_Partial() throws IOException {
+		final var codec = new ContextHandleCodec<>(IdentifierCodec.STRINGS);
+		final var full = new ContextHandle<>("abc", 200, 0);
+
+		Assertions.assertEquals(full.createVersionedContextHandle(), roundTrip(codec, full.createVersionedContextHandle()), "versioned handle changed");
+		Assertions.assertEquals(full.createIndentityContextHandle(), roundTrip(codec, full.createIndentityContextHandle()),
+				"identity handle changed");
+	}
+
+	@Test
+	void compact() throws IOException {
+		final var bytes = new ByteArrayOutputStream();
+		new ContextHandleCodec<>(IdentifierCodec.LONGS).encode(new ContextHandle<>(5L, 2, 1), new DataOutputStream(bytes));
+
+		Assertions.assertEquals(4, bytes.size(), "expected flags, id, version and revision in a byte each");
+	}
+
+	@Test
+	void decode_Holder() throws IOException {
+		final var codec = new ContextHandleCodec<>(IdentifierCodec.LONGS);
+		final var bytes = new ByteArrayOutputStream();
+		final var out = new DataOutputStream(bytes);
+		codec.encode(new ContextHandle<>(5L, 2, 1), out);
+		codec.encode(new ContextHandle<>(6L, 3, 0).createVersionedContextHandle(), out);
+
+		final var in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		final var holder = new ContextHandleHolder<Long>();
+
+		codec.decode(in, holder);
+		Assertions.assertEquals(1, holder.revision, "revision wrong");
+
+		codec.decode(in, holder);
+		Assertions.assertEquals(6L, holder.identifier, "identifier not replaced");
+		Assertions.assertEquals(3, holder.version, "version not replaced");
+		Assertions.assertEquals(-1, holder.revision, "revision not cleared");
+	}
+}
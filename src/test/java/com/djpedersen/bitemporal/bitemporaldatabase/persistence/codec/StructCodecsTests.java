@@ -0,0 +1,216 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleEvent;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleState;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleSubStruct;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec.processor.StructCodecProcessor;
+
+/**
+ * @author Daniel R. Pedersen
+ */
+class StructCodecsTests {
+
+	private static <STRUCT> STRUCT roundTrip(final StructCodec<STRUCT> codec, final STRUCT struct) throws IOException {
+		final var bytes = new ByteArrayOutputStream();
+		codec.encode(struct, new DataOutputStream(bytes));
+
+		final var in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		final var decoded = codec.decode(in);
+		Assertions.assertEquals(-1, in.read(), "the whole encoding should be consumed");
+		return decoded;
+	}
+
+	private static enum Before {
+		Working, Closed
+	}
+
+	private static enum After {
+		Draft, Closed, Working
+	}
+
+	@Test
+	void enumsAreWrittenByName() throws IOException {
+		final var bytes = new ByteArrayOutputStream();
+		final var out = new DataOutputStream(bytes);
+		CodecSupport.writeEnum(out, Before.Working);
+		CodecSupport.writeEnum(out, null);
+		CodecSupport.writeEnum(out, Before.Closed);
+
+		final var in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		Assertions.assertEquals(After.Working, CodecSupport.readEnum(in, After.class), "re-ordered constant should be read by name");
+		Assertions.assertNull(CodecSupport.readEnum(in, After.class), "null should round trip");
+		Assertions.assertEquals(After.Closed, CodecSupport.readEnum(in, After.class), "re-ordered constant should be read by name");
+
+		Assertions.assertThrows(IOException.class, () -> CodecSupport.readEnum(
+				new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), ExampleEvent.class), "unknown constant should fail");
+	}
+
+	@Test
+	void generatedCodecsAreDiscovered() {
+		Assertions.assertTrue(StructCodecs.forType(ExampleStruct.class) instanceof RegisteredStructCodec,
+				"the generated codec should be registered");
+		Assertions.assertTrue(StructCodecs.find(ExampleSubStruct.class).isPresent(), "the nested struct codec should be registered");
+		Assertions.assertTrue(StructCodecs.find(String.class).isEmpty(), "unmarked classes have no codec");
+		Assertions.assertThrows(IllegalArgumentException.class, () -> StructCodecs.forType(String.class), "forType should throw");
+	}
+
+	@Test
+	void register_ReplacesCodec() {
+		final var discovered = StructCodecs.forType(ExampleSubStruct.class);
+		final StructCodec<ExampleSubStruct> codec = new StructCodec<>() {
+			@Override
+			public void encode(final ExampleSubStruct struct, final DataOutput out) {
+			}
+
+			@Override
+			public ExampleSubStruct decode(final DataInput in) {
+				return null;
+			}
+		};
+
+		try {
+			StructCodecs.register(ExampleSubStruct.class, codec);
+			Assertions.assertSame(codec, StructCodecs.forType(ExampleSubStruct.class), "the registered codec should replace the discovered one");
+		} finally {
+			StructCodecs.register(ExampleSubStruct.class, discovered);
+		}
+	}
+
+	@Test
+	void exampleStructRoundTrip() throws IOException {
+		final var struct = ExampleStruct.builder().id(UUID.randomUUID()).intValue(42).stringList(new ArrayList<>(List.of("a", "b")))
+				.stringArray(new String[] { "c", null, "é" })
+				.subStructList(new ArrayList<>(List.of(new ExampleSubStruct(1), new ExampleSubStruct(2))))
+				.subStruct(new ExampleSubStruct(3)).state(ExampleState.Closed).event(ExampleEvent.Close).build();
+
+		final var decoded = roundTrip(StructCodecs.forType(ExampleStruct.class), struct);
+		Assertions.assertEquals(struct, decoded, "the decoded struct should equal the original");
+		Assertions.assertNotSame(struct.getSubStruct(), decoded.getSubStruct(), "nested structs should be decoded, not shared");
+	}
+
+	@Test
+	void exampleStructNullsRoundTrip() throws IOException {
+		final var struct = new ExampleStruct();
+		Assertions.assertEquals(struct, roundTrip(StructCodecs.forType(ExampleStruct.class), struct), "nulls should round trip");
+	}
+
+	@Test
+	void allSupportedTypesRoundTrip() throws IOException {
+		final var struct = new CodecTypesStruct();
+		struct.baseValue = -7L;
+		struct.booleanValue = true;
+		struct.byteValue = -2;
+		struct.shortValue = 300;
+		struct.charValue = 'x';
+		struct.intValue = Integer.MIN_VALUE;
+		struct.longValue = Long.MAX_VALUE;
+		struct.floatValue = 1.5f;
+		struct.doubleValue = -2.25;
+		struct.boxedInt = 12;
+		struct.string = "text";
+		struct.uuid = UUID.randomUUID();
+		struct.instant = Instant.parse("1969-12-31T23:59:59.123456789Z");
+		struct.state = ExampleState.Working;
+		struct.subStruct = new ExampleSubStruct(9);
+		struct.ints = new int[] { 1, -1, 0 };
+		struct.strings = new String[][] { { "a" }, null, {} };
+		struct.nested = new ArrayList<>(List.of(new LinkedHashSet<>(List.of("x", "y")), Set.of()));
+		struct.subStructs = List.of(new ExampleSubStruct(4));
+		struct.ignored = "not written";
+
+		final var decoded = roundTrip(StructCodecs.forType(CodecTypesStruct.class), struct);
+
+		Assertions.assertEquals(-7L, decoded.baseValue, "superclass fields should round trip");
+		Assertions.assertTrue(decoded.booleanValue, "boolean should round trip");
+		Assertions.assertEquals(-2, decoded.byteValue, "byte should round trip");
+		Assertions.assertEquals(300, decoded.shortValue, "short should round trip");
+		Assertions.assertEquals('x', decoded.charValue, "char should round trip");
+		Assertions.assertEquals(Integer.MIN_VALUE, decoded.intValue, "int should round trip");
+		Assertions.assertEquals(Long.MAX_VALUE, decoded.longValue, "long should round trip");
+		Assertions.assertEquals(1.5f, decoded.floatValue, "float should round trip");
+		Assertions.assertEquals(-2.25, decoded.doubleValue, "double should round trip");
+		Assertions.assertEquals(12, decoded.boxedInt, "boxed values should round trip");
+		Assertions.assertNull(decoded.boxedDouble, "null boxed values should round trip");
+		Assertions.assertEquals("text", decoded.string, "strings should round trip");
+		Assertions.assertEquals(struct.uuid, decoded.uuid, "UUIDs should round trip");
+		Assertions.assertEquals(struct.instant, decoded.instant, "instants before the epoch should round trip");
+		Assertions.assertEquals(ExampleState.Working, decoded.state, "enums should round trip");
+		Assertions.assertEquals(struct.subStruct, decoded.subStruct, "nested structs should round trip");
+		Assertions.assertArrayEquals(struct.ints, decoded.ints, "primitive arrays should round trip");
+		Assertions.assertArrayEquals(struct.strings, decoded.strings, "nested arrays should round trip");
+		Assertions.assertEquals(struct.nested, decoded.nested, "nested collections should round trip");
+		Assertions.assertEquals(new ArrayList<>(struct.subStructs), decoded.subStructs, "collections should round trip");
+		Assertions.assertNull(decoded.ignored, "transient fields should not be written");
+	}
+
+	private static JavaFileObject source(final String name, final String code) {
+		return new SimpleJavaFileObject(URI.create("string:///" + name.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+				return code;
+			}
+		};
+	}
+
+	@Test
+	void unsupportedField_IsCompileError(@TempDir final Path output) {
+		final var compiler = ToolProvider.getSystemJavaCompiler();
+		final var diagnostics = new DiagnosticCollector<JavaFileObject>();
+		final var code = "package sample;\n" //
+				+ "@com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec.GenerateCodec\n" //
+				+ "public class Unsupported { java.util.Map<String, String> map; }\n";
+
+		final var task = compiler.getTask(new StringWriter(), null, diagnostics,
+				List.of("-d", output.toString(), "-classpath", System.getProperty("java.class.path")), null,
+				List.of(source("sample.Unsupported", code)));
+		task.setProcessors(List.of(new StructCodecProcessor()));
+
+		Assertions.assertFalse(task.call(), "compilation should fail");
+		Assertions.assertTrue(diagnostics.getDiagnostics().stream().anyMatch(
+				d -> d.getKind() == Diagnostic.Kind.ERROR && d.getMessage(null).contains("does not support java.util.Map<java.lang.String,java.lang.String>")),
+				"the unsupported field should be reported: " + diagnostics.getDiagnostics());
+	}
+}
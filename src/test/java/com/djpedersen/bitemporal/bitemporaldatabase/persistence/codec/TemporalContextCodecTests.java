@@ -0,0 +1,151 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalContext;
+
+/**
+ * @author Daniel R. Pedersen
+ */
+class TemporalContextCodecTests {
+
+	private static final Instant DAY_1 = Instant.parse("2023-01-01T00:00:00.123456789Z");
+
+	private static byte[] encode(final List<TemporalContext> contexts) throws IOException {
+		final var bytes = new ByteArrayOutputStream();
+		final var out = new DataOutputStream(bytes);
+		final var encoder = TemporalContextCodec.encoder();
+
+		for (final var context : contexts) {
+			encoder.encode(context, out);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	private static List<TemporalContext> decode(final byte[] bytes, final int count) throws IOException {
+		final var in = new DataInputStream(new ByteArrayInputStream(bytes));
+		final var decoder = TemporalContextCodec.decoder();
+		final var contexts = new ArrayList<TemporalContext>();
+
+		for (int i = 0; i < count; i++) {
+			contexts.add(decoder.decode(in));
+		}
+
+		Assertions.assertEquals(-1, in.read(), "bytes left over");
+		return contexts;
+	}
+
+	@Test
+	void roundTrip() throws IOException {
+		final var first = new TemporalContext(DAY_1, 1, 0, "created", DAY_1.plusMillis(5));
+		final var contexts = List.of(first, first.createNextRevision("fix"), first.createNextVersion(DAY_1.plus(1, ChronoUnit.DAYS), "fix"),
+				new TemporalContext(DAY_1.minus(400, ChronoUnit.DAYS), 3, 2, null, DAY_1), new TemporalContext(DAY_1, 70000, 300, "", DAY_1));
+
+		Assertions.assertEquals(contexts, decode(encode(contexts), contexts.size()), "contexts changed");
+	}
+
+	@Test
+	void roundTrip_AbsoluteInstants() throws IOException {
+		final var contexts = List.of(new TemporalContext(DAY_1, 1, 0, null, DAY_1), new TemporalContext(Instant.MIN, 2, 0, null, DAY_1),
+				new TemporalContext(DAY_1, 3, 0, null, Instant.MAX), new TemporalContext(Instant.EPOCH.minusNanos(1), 4, 0, null, DAY_1));
+
+		Assertions.assertEquals(contexts, decode(encode(contexts), contexts.size()), "contexts changed");
+	}
+
+	@Test
+	void compact() throws IOException {
+		final var contexts = new ArrayList<TemporalContext>();
+		for (int i = 1; i <= 100; i++) {
+			contexts.add(new TemporalContext(DAY_1.plus(i, ChronoUnit.HOURS), i, 1, "nightly correction", DAY_1.plus(i, ChronoUnit.HOURS)));
+		}
+
+		final var bytes = encode(contexts);
+
+		Assertions.assertTrue(bytes.length < 100 * 20, "expected under 20 bytes a context, got " + bytes.length / 100.0);
+		Assertions.assertEquals(contexts, decode(bytes, contexts.size()), "contexts changed");
+	}
+
+	@Test
+	void commentDictionary() throws IOException {
+		final var repeated = encode(List.of(new TemporalContext(DAY_1, 1, 0, "a long repeated comment", DAY_1),
+				new TemporalContext(DAY_1, 2, 0, "a long repeated comment", DAY_1)));
+		final var once = encode(List.of(new TemporalContext(DAY_1, 1, 0, "a long repeated comment", DAY_1)));
+
+		Assertions.assertTrue(repeated.length - once.length < 8, "repeated comment should be a reference");
+
+		final var contexts = decode(repeated, 2);
+		Assertions.assertSame(contexts.get(0).comment, contexts.get(1).comment, "repeated comment should be shared");
+	}
+
+	@Test
+	void reset() throws IOException {
+		final var bytes = new ByteArrayOutputStream();
+		final var out = new DataOutputStream(bytes);
+		final var encoder = TemporalContextCodec.encoder();
+		final var first = new TemporalContext(DAY_1, 1, 0, "comment", DAY_1);
+		final var second = new TemporalContext(DAY_1.plusSeconds(1), 2, 0, "comment", DAY_1.plusSeconds(1));
+
+		encoder.encode(first, out);
+		final var split = bytes.size();
+		encoder.reset();
+		encoder.encode(second, out);
+
+		// the second run must decode on its own
+		final var all = bytes.toByteArray();
+		final var decoder = TemporalContextCodec.decoder();
+		final var in = new DataInputStream(new ByteArrayInputStream(all, split, all.length - split));
+
+		Assertions.assertEquals(second, decoder.decode(in), "second run depends on the first");
+	}
+
+	@Test
+	void decode_Holder() throws IOException {
+		final var contexts = List.of(new TemporalContext(DAY_1, 1, 0, "created", DAY_1), new TemporalContext(DAY_1.plusSeconds(1), 2, 3, null, DAY_1));
+		final var in = new DataInputStream(new ByteArrayInputStream(encode(contexts)));
+		final var decoder = TemporalContextCodec.decoder();
+		final var holder = new TemporalContextHolder();
+
+		decoder.decode(in, holder);
+		Assertions.assertEquals(contexts.get(0), holder.toContext(), "first context wrong");
+
+		decoder.decode(in, holder);
+		Assertions.assertEquals(2, holder.version, "version not replaced");
+		Assertions.assertEquals(3, holder.revision, "revision not replaced");
+		Assertions.assertEquals(DAY_1.plusSeconds(1), holder.effectiveFrom(), "effectiveFrom not replaced");
+		Assertions.assertNull(holder.comment, "comment not cleared");
+	}
+
+	@Test
+	void decode_UnknownReference() {
+		final var bytes = new byte[] { 3, 1, 0, 0, 0, 5 };
+
+		Assertions.assertThrows(IOException.class, () -> decode(bytes, 1));
+	}
+}
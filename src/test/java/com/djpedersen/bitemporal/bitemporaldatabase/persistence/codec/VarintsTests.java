@@ -0,0 +1,74 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Daniel R. Pedersen
+ */
+class VarintsTests {
+
+	@Test
+	void varInt() throws IOException {
+		for (final int value : new int[] { 0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, -1, Integer.MIN_VALUE }) {
+			final var bytes = new ByteArrayOutputStream();
+			Varints.writeVarInt(new DataOutputStream(bytes), value);
+
+			Assertions.assertEquals(value, Varints.readVarInt(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))), "value " + value);
+		}
+	}
+
+	@Test
+	void varInt_Size() throws IOException {
+		final var bytes = new ByteArrayOutputStream();
+		Varints.writeVarInt(new DataOutputStream(bytes), 127);
+		Assertions.assertEquals(1, bytes.size(), "127 should take one byte");
+
+		bytes.reset();
+		Varints.writeVarInt(new DataOutputStream(bytes), 128);
+		Assertions.assertEquals(2, bytes.size(), "128 should take two bytes");
+	}
+
+	@Test
+	void signedVarLong() throws IOException {
+		for (final long value : new long[] { 0, 1, -1, 63, -64, 64, Long.MAX_VALUE, Long.MIN_VALUE }) {
+			final var bytes = new ByteArrayOutputStream();
+			Varints.writeSignedVarLong(new DataOutputStream(bytes), value);
+
+			Assertions.assertEquals(value, Varints.readSignedVarLong(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))),
+					"value " + value);
+		}
+
+		final var bytes = new ByteArrayOutputStream();
+		Varints.writeSignedVarLong(new DataOutputStream(bytes), -64);
+		Assertions.assertEquals(1, bytes.size(), "small negatives should take one byte");
+	}
+
+	@Test
+	void malformed() {
+		final var bytes = new byte[] { (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 1 };
+
+		Assertions.assertThrows(IOException.class, () -> Varints.readVarInt(new DataInputStream(new ByteArrayInputStream(bytes))));
+	}
+}
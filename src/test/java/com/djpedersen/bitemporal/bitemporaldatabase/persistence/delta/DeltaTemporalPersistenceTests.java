@@ -0,0 +1,113 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.delta;
+
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleSnapshot;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleEvent;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleState;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.Examples;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceContractTests;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceException;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.memory.InMemoryTemporalPersistence;
+import com.djpedersen.bitemporal.bitemporaldatabase.propsetter.AccessorStrategy;
+
+/**
+ * @author Daniel R. Pedersen
+ */
+class DeltaTemporalPersistenceTests extends TemporalPersistenceContractTests {
+
+	private final UUID id = UUID.randomUUID();
+
+	private static DeltaTemporalPersistence<UUID, ExampleState, ExampleEvent, ExampleStruct, ExampleSnapshot> open(final int keyframeInterval) {
+		return new DeltaTemporalPersistence<>("example", ExampleSnapshot::new, ExampleStruct::new, keyframeInterval, AccessorStrategy.VAR_HANDLE);
+	}
+
+	@Override
+	protected DeltaTemporalPersistence<UUID, ExampleState, ExampleEvent, ExampleStruct, ExampleSnapshot> create() {
+		return open(4);
+	}
+
+	@Test
+	void keyframesAreCopied() throws TemporalPersistenceException {
+		final var persistence = open(4);
+		final var struct = Examples.struct(this.id, 1);
+		final var created = persistence.createNew(struct, Examples.DAY_1);
+
+		struct.setIntValue(10);
+		created.struct.setIntValue(20);
+		persistence.getByIdLast(this.id).orElseThrow().struct.setIntValue(30);
+
+		Assertions.assertEquals(1, persistence.getByIdLast(this.id).orElseThrow().struct.getIntValue(), "the keyframe was shared");
+
+		persistence.appendVersion(Examples.struct(this.id, 2), Examples.DAY_2);
+		Assertions.assertEquals(2, persistence.getByIdLast(this.id).orElseThrow().struct.getIntValue(), "the delta was built on a changed keyframe");
+		Assertions.assertNotSame(persistence.getByIdLast(this.id).orElseThrow().struct, persistence.getByIdLast(this.id).orElseThrow().struct,
+				"each read of a delta should rebuild its own struct");
+	}
+
+	@Test
+	void keyframesAreStoredAtTheInterval() throws TemporalPersistenceException {
+		final var persistence = open(4);
+		persistence.createNew(Examples.struct(this.id, 1), Examples.DAY_1);
+
+		for (int i = 2; i <= 12; i++) {
+			persistence.appendVersion(Examples.struct(this.id, i), Examples.DAY_1.plus(i, ChronoUnit.HOURS));
+		}
+
+		Assertions.assertEquals(3, persistence.keyframeCount(this.id), "v1, v5 and v9 should be keyframes");
+		Assertions.assertEquals(0, persistence.keyframeCount(UUID.randomUUID()), "unknown id has no keyframes");
+		Assertions.assertThrows(IllegalArgumentException.class, () -> open(0));
+
+		for (int i = 1; i <= 12; i++) {
+			final var snapshot = persistence.getByIdAndVersion(this.id, i).orElseThrow();
+			Assertions.assertEquals(Examples.struct(this.id, i), snapshot.struct, "v" + i + " rebuilt wrongly");
+		}
+	}
+
+	@Test
+	void matchesInMemoryPersistence() throws TemporalPersistenceException {
+		final var delta = open(3);
+		final var reference = new InMemoryTemporalPersistence<UUID, ExampleState, ExampleEvent, ExampleStruct, ExampleSnapshot>("example",
+				ExampleSnapshot::new, ExampleStruct::new);
+
+		for (final var persistence : List.of(delta, reference)) {
+			persistence.createNew(Examples.struct(this.id, 1), Examples.DAY_1, "created");
+			for (int i = 2; i < 20; i++) {
+				persistence.appendVersion(Examples.struct(this.id, i % 3), Examples.DAY_1.plus(i, ChronoUnit.HOURS));
+			}
+			persistence.correctStructAllVersions(this.id, "$.stringList", List.of("c"), "fix");
+			persistence.correctStructByVersion(this.id, 7, "$.state", ExampleState.Closed, "close");
+			persistence.correctContextEffectiveOn(this.id, 3, Examples.DAY_3, "moved");
+		}
+
+		// recordedOn differs between the two, so compare everything else
+		Assertions.assertEquals(describe(reference.getAllVersionsAndRevisions(this.id)), describe(delta.getAllVersionsAndRevisions(this.id)),
+				"histories differ");
+	}
+
+	private static List<String> describe(final List<ExampleSnapshot> snapshots) {
+		return snapshots.stream().map(s -> "v" + s.context.version + "r" + s.context.revision + " " + s.context.effectiveFrom + " " + s.struct)
+				.toList();
+	}
+}
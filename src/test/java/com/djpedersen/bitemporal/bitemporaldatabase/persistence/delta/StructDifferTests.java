@@ -0,0 +1,81 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.delta;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleState;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleSubStruct;
+import com.djpedersen.bitemporal.bitemporaldatabase.propsetter.AccessorStrategy;
+
+/**
+ * @author Daniel R. Pedersen
+ */
+class StructDifferTests {
+
+	private final StructDiffer differ = new StructDiffer(ExampleStruct.class, AccessorStrategy.VAR_HANDLE);
+
+	private static ExampleStruct struct() {
+		return ExampleStruct.builder().id(UUID.randomUUID()).intValue(1).stringList(List.of("a", "b")).stringArray(new String[] { "c" })
+				.subStruct(new ExampleSubStruct(2)).state(ExampleState.Working).build();
+	}
+
+	@Test
+	void equalStructsHaveNoDelta() throws IllegalAccessException {
+		final var base = struct();
+		final var next = new ExampleStruct(base);
+
+		Assertions.assertTrue(this.differ.diff(base, next).isEmpty(), "equal copies should not differ, arrays included");
+	}
+
+	@Test
+	void onlyChangedFieldsAreHeld() throws IllegalAccessException {
+		final var base = struct();
+		final var next = new ExampleStruct(base);
+		next.setIntValue(5);
+		next.setState(ExampleState.Closed);
+
+		final var delta = this.differ.diff(base, next);
+		Assertions.assertEquals(2, delta.size(), "two fields changed");
+
+		final var target = new ExampleStruct(base);
+		this.differ.apply(delta, target);
+		Assertions.assertEquals(next, target, "applying the delta should reproduce the next struct");
+	}
+
+	@Test
+	void changedValuesAreSharedNotCopied() throws IllegalAccessException {
+		final var base = struct();
+		final var next = new ExampleStruct(base);
+		next.setStringList(List.of("z"));
+
+		final var target = new ExampleStruct(base);
+		this.differ.apply(this.differ.diff(base, next), target);
+		Assertions.assertSame(next.getStringList(), target.getStringList(), "the changed value should be shared");
+	}
+
+	@Test
+	void otherClassesAreRejected() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> this.differ.diff(struct(), new ExampleSubStruct(1)));
+		Assertions.assertEquals(ExampleStruct.class, this.differ.type(), "wrong type");
+		Assertions.assertEquals(8, this.differ.fieldCount(), "ExampleStruct has eight fields");
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.index;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalContext;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.Examples;
+
+/**
+ * @author Daniel R. Pedersen
+ */
+class BitemporalIndexTests {
+
+	private BitemporalIndex<String> index;
+
+	/**
+	 * v1 effective day 1 recorded day 1, v2 effective day 3 recorded day 2, v2 corrected on day 4 to be effective day 2
+	 */
+	@BeforeEach
+	void setUp() {
+		this.index = new BitemporalIndex<>();
+		this.index.put(new TemporalContext(Examples.DAY_1, 1, 0, null, Examples.DAY_1), "v1r0");
+		this.index.put(new TemporalContext(Examples.DAY_3, 2, 0, null, Examples.DAY_2), "v2r0");
+		this.index.put(new TemporalContext(Examples.DAY_2, 2, 1, null, Examples.DAY_4), "v2r1");
+	}
+
+	@Test
+	void asOf_BeforeCorrection() {
+		Assertions.assertEquals("v1r0", this.index.asOf(Examples.DAY_2, Examples.DAY_3), "v2 was not yet believed effective on day 2");
+		Assertions.assertEquals("v2r0", this.index.asOf(Examples.DAY_3, Examples.DAY_3), "wrong revision");
+	}
+
+	@Test
+	void asOf_AfterCorrection() {
+		Assertions.assertEquals("v2r1", this.index.asOf(Examples.DAY_2, Examples.DAY_4), "correction should be believed");
+		Assertions.assertEquals("v2r1", this.index.asOf(Examples.DAY_5, Examples.DAY_5), "correction should be believed");
+	}
+
+	@Test
+	void asOf_BeforeRecorded() {
+		Assertions.assertNull(this.index.asOf(Examples.DAY_5, Examples.DAY_1.minusNanos(1)), "nothing recorded yet");
+		Assertions.assertEquals("v1r0", this.index.asOf(Examples.DAY_5, Examples.DAY_1), "only v1 recorded");
+		Assertions.assertNull(this.index.asOf(Examples.DAY_1.minusNanos(1), Examples.DAY_5), "nothing effective yet");
+	}
+
+	@Test
+	void versionsAsOf() {
+		Assertions.assertEquals(List.of(), this.index.versionsAsOf(Examples.DAY_1.minusNanos(1)), "nothing recorded yet");
+		Assertions.assertEquals(List.of("v1r0"), this.index.versionsAsOf(Examples.DAY_1), "wrong versions");
+		Assertions.assertEquals(List.of("v2r0", "v1r0"), this.index.versionsAsOf(Examples.DAY_3), "wrong versions");
+		Assertions.assertEquals(List.of("v2r1", "v1r0"), this.index.versionsAsOf(Examples.DAY_4), "wrong versions");
+	}
+
+	@Test
+	void asOf_Reordered() {
+		// v1 moved on day 5 to be effective day 5, v2 taking its place as v1
+		this.index.put(new TemporalContext(Examples.DAY_2, 1, 1, null, Examples.DAY_5), "v1r1");
+		this.index.put(new TemporalContext(Examples.DAY_5, 2, 2, null, Examples.DAY_5), "v2r2");
+
+		Assertions.assertNull(this.index.asOf(Examples.DAY_1, Examples.DAY_5), "nothing effective on day 1 after the re-order");
+		Assertions.assertEquals("v1r1", this.index.asOf(Examples.DAY_4, Examples.DAY_5), "wrong revision");
+		Assertions.assertEquals("v2r2", this.index.asOf(Examples.DAY_5, Examples.DAY_5), "wrong revision");
+		Assertions.assertEquals("v1r0", this.index.asOf(Examples.DAY_1, Examples.DAY_4), "before the re-order");
+	}
+
+	@Test
+	void asOf_ManyCorrections() {
+		final var corrected = new BitemporalIndex<String>();
+
+		for (int version = 1; version <= 100; version++) {
+			corrected.put(new TemporalContext(Examples.DAY_1.plusSeconds(version), version, 0, null, Examples.DAY_1.plusSeconds(version)), "v" + version + "r0");
+		}
+		for (int revision = 1; revision <= 50; revision++) {
+			for (int version = 1; version <= 100; version++) {
+				corrected.put(new TemporalContext(Examples.DAY_1.plusSeconds(version), version, revision, null, Examples.DAY_2.plusSeconds(revision)),
+						"v" + version + "r" + revision);
+			}
+		}
+
+		Assertions.assertEquals("v40r0", corrected.asOf(Examples.DAY_1.plusSeconds(40), Examples.DAY_1.plusSeconds(60)), "before the corrections");
+		Assertions.assertEquals("v60r0", corrected.asOf(Examples.DAY_3, Examples.DAY_1.plusSeconds(60)), "only 60 versions recorded");
+		Assertions.assertEquals("v40r25", corrected.asOf(Examples.DAY_1.plusSeconds(40), Examples.DAY_2.plusSeconds(25)), "wrong revision");
+		Assertions.assertEquals("v100r50", corrected.asOf(Examples.DAY_3, Examples.DAY_3), "wrong revision");
+	}
+
+	@Test
+	void put_OutOfOrder() {
+		final var outOfOrder = new BitemporalIndex<String>();
+		outOfOrder.put(new TemporalContext(Examples.DAY_2, 1, 1, null, Examples.DAY_4), "v1r1");
+		outOfOrder.put(new TemporalContext(Examples.DAY_1, 1, 0, null, Examples.DAY_1), "v1r0");
+
+		Assertions.assertEquals("v1r0", outOfOrder.asOf(Examples.DAY_5, Examples.DAY_3), "wrong revision");
+		Assertions.assertEquals("v1r1", outOfOrder.asOf(Examples.DAY_5, Examples.DAY_4), "wrong revision");
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.index;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalContext;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.Examples;
+
+/**
+ * @author Daniel R. Pedersen
+ */
+class EffectiveTimeIndexTests {
+
+	private static TemporalContext context(final Instant effectiveFrom, final int version, final int revision) {
+		return new TemporalContext(effectiveFrom, version, revision, null, Examples.DAY_1);
+	}
+
+	@Test
+	void floor() {
+		final var index = new EffectiveTimeIndex<String>();
+		index.put(context(Examples.DAY_1, 1, 0), "v1");
+		index.put(context(Examples.DAY_2, 2, 0), "v2");
+		index.put(context(Examples.DAY_3, 3, 0), "v3");
+
+		Assertions.assertNull(index.floor(Examples.DAY_1.minusNanos(1)), "nothing effective yet");
+		Assertions.assertEquals("v1", index.floor(Examples.DAY_1), "wrong version");
+		Assertions.assertEquals("v2", index.floor(Examples.DAY_3.minusNanos(1)), "wrong version");
+		Assertions.assertEquals("v3", index.floor(Instant.MAX), "wrong version");
+	}
+
+	@Test
+	void floor_SharedEffective() {
+		final var index = new EffectiveTimeIndex<String>();
+		index.put(context(Examples.DAY_1, 1, 0), "v1");
+		index.put(context(Examples.DAY_1, 2, 0), "v2");
+
+		Assertions.assertEquals("v2", index.floor(Examples.DAY_1), "the later version should win");
+	}
+
+	@Test
+	void higher() {
+		final var index = new EffectiveTimeIndex<String>();
+		index.put(context(Examples.DAY_1, 1, 0), "v1");
+		index.put(context(Examples.DAY_3, 2, 0), "v2");
+
+		Assertions.assertEquals("v2", index.higher(Examples.DAY_2), "wrong next version");
+		Assertions.assertNull(index.higher(Examples.DAY_3), "there is no next version");
+	}
+
+	@Test
+	void put_LatestRevision() {
+		final var index = new EffectiveTimeIndex<String>();
+		index.put(context(Examples.DAY_1, 1, 0), "v1r0");
+		index.put(context(Examples.DAY_2, 2, 0), "v2r0");
+
+		Assertions.assertTrue(index.put(context(Examples.DAY_3, 2, 1), "v2r1"), "later revision should replace");
+		Assertions.assertFalse(index.put(context(Examples.DAY_2, 2, 0), "v2r0"), "earlier revision should be ignored");
+
+		Assertions.assertEquals(2, index.size(), "wrong size");
+		Assertions.assertEquals("v1r0", index.floor(Examples.DAY_2), "moved revision should no longer be effective");
+		Assertions.assertEquals("v2r1", index.floor(Examples.DAY_3), "wrong revision");
+		Assertions.assertEquals("v2r1", index.get(2), "wrong revision");
+	}
+
+	@Test
+	void remove() {
+		final var index = new EffectiveTimeIndex<String>();
+		index.put(context(Examples.DAY_1, 1, 0), "v1");
+		index.put(context(Examples.DAY_2, 2, 0), "v2");
+
+		Assertions.assertEquals("v2", index.remove(2), "wrong removal");
+		Assertions.assertNull(index.remove(2), "already removed");
+		Assertions.assertEquals("v1", index.floor(Examples.DAY_3), "wrong version");
+	}
+
+	@Test
+	void between() {
+		final var index = new EffectiveTimeIndex<String>();
+		index.put(context(Examples.DAY_1, 1, 0), "v1");
+		index.put(context(Examples.DAY_2, 2, 0), "v2");
+		index.put(context(Examples.DAY_3, 3, 0), "v3");
+
+		Assertions.assertEquals(List.of("v3", "v2", "v1"), index.between(null, null), "wrong range");
+		Assertions.assertEquals(List.of("v2"), index.between(Examples.DAY_2, Examples.DAY_3), "wrong range");
+		Assertions.assertEquals(List.of("v3", "v2"), index.between(Examples.DAY_2, null), "wrong range");
+		Assertions.assertEquals(List.of("v1"), index.between(null, Examples.DAY_2), "wrong range");
+	}
+}
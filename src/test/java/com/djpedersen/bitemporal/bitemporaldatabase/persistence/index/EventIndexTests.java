@@ -0,0 +1,72 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.index;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalContext;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleEvent;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.Examples;
+
+/**
+ * @author Daniel R. Pedersen
+ */
+class EventIndexTests {
+
+	private static record Value(String id, TemporalContext context, ExampleEvent event) {
+	}
+
+	private EventIndex<String, Value, ExampleEvent> index;
+
+	@BeforeEach
+	void setUp() {
+		this.index = new EventIndex<>(ExampleEvent.class, Value::context, Value::event);
+	}
+
+	private Value publish(final String id, final Instant effectiveFrom, final int version, final int revision, final ExampleEvent event) {
+		final var value = new Value(id, new TemporalContext(effectiveFrom, version, revision, null, Examples.DAY_1), event);
+		this.index.published(id, List.of(value));
+		return value;
+	}
+
+	@Test
+	void between() {
+		final var aCreate = publish("a", Examples.DAY_1, 1, 0, ExampleEvent.Create);
+		final var bCreate = publish("b", Examples.DAY_1, 1, 0, ExampleEvent.Create);
+		final var aClose = publish("a", Examples.DAY_2, 2, 0, ExampleEvent.Close);
+		final var bClose = publish("b", Examples.DAY_3, 2, 0, ExampleEvent.Close);
+
+		Assertions.assertEquals(List.of(aCreate, bCreate), this.index.between(ExampleEvent.Create, null, null), "wrong creates");
+		Assertions.assertEquals(List.of(aClose, bClose), this.index.between(ExampleEvent.Close, Examples.DAY_1, null), "wrong closes");
+		Assertions.assertEquals(List.of(aClose), this.index.between(ExampleEvent.Close, Examples.DAY_2, Examples.DAY_3), "until should be exclusive");
+		Assertions.assertEquals(List.of(bClose), this.index.between(ExampleEvent.Close, Examples.DAY_2.plusNanos(1), null), "from should be inclusive");
+	}
+
+	@Test
+	void revisionsReplaceTheirVersion() {
+		publish("a", Examples.DAY_1, 1, 0, ExampleEvent.Create);
+		final var moved = publish("a", Examples.DAY_2, 1, 1, ExampleEvent.Close);
+		publish("a", Examples.DAY_3, 1, 0, ExampleEvent.Create);
+
+		Assertions.assertEquals(List.of(), this.index.between(ExampleEvent.Create, null, null), "older revisions should be ignored");
+		Assertions.assertEquals(List.of(moved), this.index.between(ExampleEvent.Close, null, null), "the revision should replace v1r0");
+	}
+}
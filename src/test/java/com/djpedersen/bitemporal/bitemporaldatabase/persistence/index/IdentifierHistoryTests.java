@@ -0,0 +1,77 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.index;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalContext;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.Examples;
+
+/**
+ * @author Daniel R. Pedersen
+ */
+class IdentifierHistoryTests {
+
+	private static TemporalContext context(final Instant effectiveFrom, final int version, final int revision) {
+		return new TemporalContext(effectiveFrom, version, revision, null, Examples.DAY_1);
+	}
+
+	@Test
+	void currentOn_RememberedUntilNextVersion() {
+		final var history = new IdentifierHistory<TemporalContext>(context -> context);
+		final var v1 = context(Examples.DAY_1, 1, 0);
+		final var v2 = context(Examples.DAY_3, 2, 0);
+		history.put(v1);
+		history.put(v2);
+
+		Assertions.assertNull(history.rememberedEffectiveOn(Examples.DAY_2), "nothing remembered yet");
+		Assertions.assertEquals(Optional.of(v1), history.currentOn(Examples.DAY_2), "wrong version");
+		Assertions.assertEquals(Optional.of(v1), history.rememberedEffectiveOn(Examples.DAY_1), "should be remembered from its effective instant");
+		Assertions.assertEquals(Optional.of(v1), history.rememberedEffectiveOn(Examples.DAY_3.minusNanos(1)), "should be remembered until v2");
+		Assertions.assertNull(history.rememberedEffectiveOn(Examples.DAY_3), "v2 is effective");
+		Assertions.assertNull(history.rememberedEffectiveOn(Examples.DAY_1.minusNanos(1)), "v1 is not yet effective");
+		Assertions.assertEquals(Optional.of(v2), history.currentOn(Examples.DAY_3), "wrong version");
+		Assertions.assertEquals(Optional.of(v2), history.rememberedEffectiveOn(Instant.MAX), "the last version never expires");
+	}
+
+	@Test
+	void currentOn_NothingEffective() {
+		final var history = new IdentifierHistory<TemporalContext>(context -> context);
+		final var v1 = context(Examples.DAY_2, 1, 0);
+		history.put(v1);
+
+		Assertions.assertEquals(Optional.empty(), history.currentOn(Examples.DAY_1), "nothing effective yet");
+		Assertions.assertEquals(Optional.empty(), history.rememberedEffectiveOn(Examples.DAY_1.minusSeconds(1)), "should be remembered");
+		Assertions.assertNull(history.rememberedEffectiveOn(Examples.DAY_2), "v1 is effective");
+	}
+
+	@Test
+	void put_ForgetsCurrent() {
+		final var history = new IdentifierHistory<TemporalContext>(context -> context);
+		history.put(context(Examples.DAY_1, 1, 0));
+		history.currentOn(Examples.DAY_2);
+
+		final var corrected = context(Examples.DAY_1, 1, 1);
+		history.put(corrected);
+
+		Assertions.assertNull(history.rememberedEffectiveOn(Examples.DAY_2), "should be forgotten");
+		Assertions.assertEquals(Optional.of(corrected), history.currentOn(Examples.DAY_2), "correction should be current");
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.index;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalContext;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleState;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.Examples;
+
+/**
+ * @author Daniel R. Pedersen
+ */
+class StateIndexTests {
+
+	private static record Value(TemporalContext context, ExampleState state) {
+	}
+
+	private final Map<String, IdentifierHistory<Value>> histories = new HashMap<>();
+
+	private StateIndex<String, Value, ExampleState> index;
+
+	@BeforeEach
+	void setUp() {
+		this.index = new StateIndex<>(ExampleState.class, Value::state, this.histories::get);
+	}
+
+	private void publish(final String id, final Instant effectiveFrom, final int version, final int revision, final ExampleState state) {
+		final var history = this.histories.computeIfAbsent(id, key -> new IdentifierHistory<>(Value::context));
+		final var value = new Value(new TemporalContext(effectiveFrom, version, revision, null, Examples.DAY_1), state);
+
+		history.put(value);
+		this.index.published(id, history, List.of(value));
+	}
+
+	@Test
+	void currentStates() {
+		publish("a", Examples.DAY_1, 1, 0, ExampleState.Working);
+		publish("b", Examples.DAY_1, 1, 0, ExampleState.Working);
+		publish("b", Examples.DAY_2, 2, 0, ExampleState.Closed);
+
+		Assertions.assertEquals(Set.of("a"), this.index.identifiers(ExampleState.Working), "wrong working identifiers");
+		Assertions.assertEquals(Set.of("b"), this.index.identifiers(ExampleState.Closed), "wrong closed identifiers");
+
+		publish("b", Examples.DAY_2, 2, 1, ExampleState.Working);
+		Assertions.assertEquals(2, this.index.count(ExampleState.Working), "correction should move b");
+		Assertions.assertEquals(0, this.index.count(ExampleState.Closed), "correction should move b");
+	}
+
+	@Test
+	void effectiveOn() {
+		publish("a", Examples.DAY_1, 1, 0, ExampleState.Working);
+		publish("a", Examples.DAY_2, 2, 0, ExampleState.Closed);
+		publish("b", Examples.DAY_2, 1, 0, ExampleState.Working);
+
+		Assertions.assertEquals(Set.of("a"), this.index.identifiers(ExampleState.Working, Examples.DAY_1), "only a effective on day 1");
+		Assertions.assertEquals(Set.of("b"), this.index.identifiers(ExampleState.Working, Examples.DAY_2), "a closed on day 2");
+		Assertions.assertEquals(Set.of("a"), this.index.identifiers(ExampleState.Closed, Examples.DAY_2), "a closed on day 2");
+		Assertions.assertEquals(Set.of(), this.index.identifiers(ExampleState.Closed, Examples.DAY_1), "nothing closed on day 1");
+	}
+
+	@Test
+	void futureVersions() throws InterruptedException {
+		publish("a", Examples.DAY_1, 1, 0, ExampleState.Working);
+		publish("a", Instant.now().plusMillis(50), 2, 0, ExampleState.Closed);
+
+		Assertions.assertEquals(1, this.index.count(ExampleState.Working), "v2 is not effective yet");
+		Thread.sleep(100);
+		Assertions.assertEquals(0, this.index.count(ExampleState.Working), "v2 should now be effective");
+		Assertions.assertEquals(Set.of("a"), this.index.identifiers(ExampleState.Closed), "v2 should now be effective");
+	}
+
+	@Test
+	void rebuild() {
+		final var history = new IdentifierHistory<Value>(Value::context);
+		history.put(new Value(new TemporalContext(Examples.DAY_1, 1, 0, null, Examples.DAY_1), ExampleState.Working));
+		history.put(new Value(new TemporalContext(Examples.DAY_2, 2, 0, null, Examples.DAY_1), ExampleState.Closed));
+		this.histories.put("a", history);
+
+		this.index.rebuild("a", history);
+		Assertions.assertEquals(Set.of("a"), this.index.identifiers(ExampleState.Closed), "wrong current state");
+		Assertions.assertEquals(Set.of("a"), this.index.identifiers(ExampleState.Working, Examples.DAY_1), "wrong state on day 1");
+	}
+}
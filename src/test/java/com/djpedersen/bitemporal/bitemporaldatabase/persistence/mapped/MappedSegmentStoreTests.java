@@ -0,0 +1,222 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.mapped;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Daniel R. Pedersen
+ */
+class MappedSegmentStoreTests {
+
+	private static final int SEGMENT_BYTES = 64;
+
+	@TempDir
+	Path directory;
+
+	private static ByteBuffer bytes(final String value) {
+		return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String string(final ByteBuffer buffer) {
+		final var bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private List<String> reopen() throws IOException {
+		final var found = new ArrayList<String>();
+
+		try (var store = MappedSegmentStore.open(this.directory, SEGMENT_BYTES, false, (address, payload) -> found.add(string(payload)))) {
+			return found;
+		}
+	}
+
+	@Test
+	void appendAndRead() throws IOException {
+		try (var store = MappedSegmentStore.open(this.directory, SEGMENT_BYTES, true, (address, payload) -> Assertions.fail("store is empty"))) {
+			final var first = store.append(bytes("first"));
+			final var second = store.append(bytes("second"));
+
+			Assertions.assertEquals("first", string(store.read(first)), "wrong first record");
+			Assertions.assertEquals("second", string(store.read(second)), "wrong second record");
+			Assertions.assertTrue(store.read(first).isReadOnly(), "reads must not allow the record to be altered");
+		}
+	}
+
+	@Test
+	void segments_Roll() throws IOException {
+		final var written = new ArrayList<String>();
+
+		try (var store = MappedSegmentStore.open(this.directory, SEGMENT_BYTES, false, (address, payload) -> {
+		})) {
+			for (int i = 0; i < 20; i++) {
+				written.add("record " + i);
+				final var address = store.append(bytes(written.get(i)));
+				Assertions.assertEquals(written.get(i), string(store.read(address)), "wrong record " + i);
+			}
+		}
+
+		Assertions.assertTrue(MappedSegmentStore.listSegments(this.directory).size() > 1, "store did not roll");
+		Assertions.assertEquals(written, reopen(), "records were not recovered in order");
+	}
+
+	@Test
+	void recordTooLarge() throws IOException {
+		try (var store = MappedSegmentStore.open(this.directory, SEGMENT_BYTES, false, (address, payload) -> {
+		})) {
+			Assertions.assertThrows(IOException.class, () -> store.append(ByteBuffer.allocate(SEGMENT_BYTES)));
+		}
+	}
+
+	@Test
+	void damagedTail_Discarded() throws IOException {
+		final long second;
+
+		try (var store = MappedSegmentStore.open(this.directory, SEGMENT_BYTES, false, (address, payload) -> {
+		})) {
+			store.append(bytes("first"));
+			second = store.append(bytes("second"));
+		}
+
+		corrupt(MappedSegmentStore.listSegments(this.directory).get(0), second + 8);
+
+		Assertions.assertEquals(List.of("first"), reopen(), "damaged record should be discarded");
+
+		try (var store = MappedSegmentStore.open(this.directory, SEGMENT_BYTES, false, (address, payload) -> {
+		})) {
+			Assertions.assertEquals(second, store.append(bytes("third")), "damaged record should be overwritten");
+		}
+
+		Assertions.assertEquals(List.of("first", "third"), reopen(), "append after recovery was lost");
+	}
+
+	@Test
+	void damagedRecordBeforeTail_Fails() throws IOException {
+		final long second;
+
+		try (var store = MappedSegmentStore.open(this.directory, SEGMENT_BYTES, false, (address, payload) -> {
+		})) {
+			store.append(bytes("first"));
+			second = store.append(bytes("second"));
+			store.append(bytes("third"));
+		}
+
+		final var segment = MappedSegmentStore.listSegments(this.directory).get(0);
+		corrupt(segment, second + 8);
+
+		Assertions.assertThrows(IOException.class, this::reopen, "mid-segment damage should fail the open");
+
+		corrupt(segment, second + 8);
+		Assertions.assertEquals(List.of("first", "second", "third"), reopen(), "the records after the damage were destroyed");
+	}
+
+	@Test
+	void zeroedLengthBeforeTail_Fails() throws IOException {
+		final long second;
+
+		try (var store = MappedSegmentStore.open(this.directory, SEGMENT_BYTES, false, (address, payload) -> {
+		})) {
+			store.append(bytes("first"));
+			second = store.append(bytes("second"));
+			store.append(bytes("third"));
+		}
+
+		final var segment = MappedSegmentStore.listSegments(this.directory).get(0);
+		putLength(segment, second, 0);
+
+		Assertions.assertThrows(IOException.class, this::reopen, "a zeroed length followed by records should fail the open");
+
+		putLength(segment, second, "second".length());
+		Assertions.assertEquals(List.of("first", "second", "third"), reopen(), "the records after the zeroed length were destroyed");
+	}
+
+	@Test
+	void zeroedLengthInEarlierSegment_Fails() throws IOException {
+		try (var store = MappedSegmentStore.open(this.directory, SEGMENT_BYTES, false, (address, payload) -> {
+		})) {
+			for (int i = 0; i < 20; i++) {
+				store.append(bytes("record " + i));
+			}
+		}
+
+		putLength(MappedSegmentStore.listSegments(this.directory).get(0), 0, 0);
+
+		Assertions.assertThrows(IOException.class, this::reopen, "the rest of the segment should not be skipped");
+	}
+
+	@Test
+	void emptyRecord_Rejected() throws IOException {
+		try (var store = MappedSegmentStore.open(this.directory, SEGMENT_BYTES, false, (address, payload) -> {
+		})) {
+			Assertions.assertThrows(IllegalArgumentException.class, () -> store.append(ByteBuffer.allocate(0)));
+			store.append(bytes("first"));
+		}
+
+		Assertions.assertEquals(List.of("first"), reopen(), "the rejected record was written");
+	}
+
+	@Test
+	void damagedSegment_Fails() throws IOException {
+		try (var store = MappedSegmentStore.open(this.directory, SEGMENT_BYTES, false, (address, payload) -> {
+		})) {
+			for (int i = 0; i < 20; i++) {
+				store.append(bytes("record " + i));
+			}
+		}
+
+		corrupt(MappedSegmentStore.listSegments(this.directory).get(0), 8);
+
+		Assertions.assertThrows(IOException.class, this::reopen);
+	}
+
+	@Test
+	void closed() throws IOException {
+		final var store = MappedSegmentStore.open(this.directory, SEGMENT_BYTES, false, (address, payload) -> {
+		});
+		final var address = store.append(bytes("first"));
+		store.close();
+
+		Assertions.assertThrows(IllegalStateException.class, () -> store.read(address));
+		Assertions.assertThrows(IllegalStateException.class, () -> store.append(bytes("second")));
+	}
+
+	private static void corrupt(final Path segment, final long offset) throws IOException {
+		try (var file = new RandomAccessFile(segment.toFile(), "rw")) {
+			file.seek(offset);
+			final var value = file.read();
+			file.seek(offset);
+			file.write(value ^ 0xFF);
+		}
+	}
+
+	private static void putLength(final Path segment, final long address, final int length) throws IOException {
+		try (var file = new RandomAccessFile(segment.toFile(), "rw")) {
+			file.seek(address);
+			file.writeInt(length);
+		}
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.mapped;
+
+import java.nio.file.Path;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleSnapshot;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleEvent;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleState;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStructGeneratedCodec;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.Examples;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceContractTests;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceException;
+
+/**
+ * @author Daniel R. Pedersen
+ */
+class MappedTemporalPersistenceTests extends TemporalPersistenceContractTests {
+
+	@TempDir
+	Path directory;
+
+	private final UUID id = UUID.randomUUID();
+
+	private MappedTemporalPersistence<UUID, ExampleState, ExampleEvent, ExampleStruct, ExampleSnapshot> open() throws TemporalPersistenceException {
+		final var config = MappedConfig.builder().directory(this.directory).segmentBytes(4096).build();
+		return new MappedTemporalPersistence<>("example", ExampleSnapshot::new, ExampleStructGeneratedCodec.INSTANCE, config);
+	}
+
+	@Override
+	protected MappedTemporalPersistence<UUID, ExampleState, ExampleEvent, ExampleStruct, ExampleSnapshot> create() throws TemporalPersistenceException {
+		return open();
+	}
+
+	@Test
+	void reads_DecodeLazily() throws TemporalPersistenceException {
+		final Stream<ExampleSnapshot> unread;
+
+		try (var persistence = open()) {
+			persistence.createNew(Examples.struct(this.id, 1), Examples.DAY_1);
+			persistence.appendVersion(Examples.struct(this.id, 2), Examples.DAY_2);
+
+			Assertions.assertNotSame(persistence.getByIdLast(this.id).orElseThrow().struct, persistence.getByIdLast(this.id).orElseThrow().struct,
+					"each read should decode its own struct");
+
+			unread = persistence.streamAllVersions(this.id);
+		}
+
+		Assertions.assertThrows(IllegalStateException.class, () -> unread.findFirst(), "snapshots should only be decoded when reached");
+	}
+
+	@Test
+	void writeLargerThanASegment_Fails() throws TemporalPersistenceException {
+		final var large = Examples.struct(this.id, 1);
+		large.setStringList(Collections.nCopies(4096, "x"));
+
+		try (var persistence = open()) {
+			Assertions.assertThrows(TemporalPersistenceException.class, () -> persistence.createNew(large, Examples.DAY_1), "the write should not fit");
+			Assertions.assertTrue(persistence.getByIdCurrent(this.id).isEmpty(), "nothing should be stored");
+
+			persistence.createNew(Examples.struct(this.id, 1), Examples.DAY_1);
+			Assertions.assertThrows(TemporalPersistenceException.class, () -> persistence.appendVersion(large, Examples.DAY_2), "the write should not fit");
+			Assertions.assertEquals(1, persistence.getAllVersions(this.id).size(), "nothing should be appended");
+		}
+
+		try (var persistence = open()) {
+			Assertions.assertEquals(1, persistence.getAllVersions(this.id).size(), "the store should reopen after a rejected write");
+		}
+	}
+
+	@Test
+	void reopen() throws TemporalPersistenceException {
+		final List<ExampleSnapshot> written;
+		final var other = UUID.randomUUID();
+
+		try (var persistence = open()) {
+			persistence.createNew(Examples.struct(this.id, 1), Examples.DAY_1, "created");
+			persistence.createNew(Examples.struct(other, 1), Examples.DAY_1);
+			for (int i = 2; i < 40; i++) {
+				persistence.appendVersion(Examples.struct(this.id, i), Examples.DAY_1.plus(i, ChronoUnit.HOURS));
+			}
+			persistence.correctStructAllVersions(this.id, "$.intValue", 5, "fix");
+			written = persistence.getAllVersionsAndRevisions(this.id);
+		}
+
+		Assertions.assertTrue(written.size() > 40, "expected revisions");
+
+		try (var persistence = open()) {
+			Assertions.assertEquals(written, persistence.getAllVersionsAndRevisions(this.id), "recovered history differs");
+			Assertions.assertEquals(1, persistence.getAllVersions(other).size(), "other identifier lost");
+			persistence.appendVersion(Examples.struct(this.id, 40), Examples.DAY_3);
+		}
+
+		try (var persistence = open()) {
+			Assertions.assertEquals(40, persistence.getByIdLast(this.id).orElseThrow().context.version, "append after reopen was lost");
+		}
+	}
+
+	@Test
+	void indexesRecoveredSnapshots() throws TemporalPersistenceException {
+		final var other = UUID.randomUUID();
+
+		try (var persistence = open()) {
+			persistence.createNew(Examples.struct(this.id, 1), Examples.DAY_1);
+			persistence.createNew(Examples.struct(other, 1), Examples.DAY_1);
+			persistence.appendVersion(ExampleStruct.builder().id(other).intValue(2).state(ExampleState.Closed).event(ExampleEvent.Close).build(), Examples.DAY_2);
+		}
+
+		try (var persistence = open()) {
+			persistence.indexStates(ExampleState.class);
+			persistence.indexEvents(ExampleEvent.class);
+
+			Assertions.assertEquals(Set.of(this.id), persistence.getIdsInState(ExampleState.Working), "wrong working identifiers");
+			Assertions.assertEquals(Set.of(this.id, other), persistence.getIdsInState(ExampleState.Working, Examples.DAY_1), "wrong states on day 1");
+			Assertions.assertEquals(2, persistence.getByEvent(ExampleEvent.Create, null, null).size(), "creates should be indexed");
+
+			persistence.correctStructByVersion(this.id, 1, "$.state", ExampleState.Closed, "fix");
+			Assertions.assertEquals(2, persistence.countInState(ExampleState.Closed), "correction should be indexed");
+		}
+	}
+}
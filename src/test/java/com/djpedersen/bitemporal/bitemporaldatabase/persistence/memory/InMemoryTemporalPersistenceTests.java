@@ -0,0 +1,491 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.memory;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.ContextHandle;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleSnapshot;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleEvent;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleState;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleSubStruct;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.Examples;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.SnapshotAlreadyExistsException;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.SnapshotNotFoundException;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceContractTests;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceException;
+import com.djpedersen.bitemporal.bitemporaldatabase.propsetter.AccessorStrategy;
+
+/**
+ * @author Daniel R. Pedersen
+ */
+class InMemoryTemporalPersistenceTests extends TemporalPersistenceContractTests {
+
+	private InMemoryTemporalPersistence<UUID, ExampleState, ExampleEvent, ExampleStruct, ExampleSnapshot> persistence;
+	private UUID id;
+
+	@BeforeEach
+	void setUp() {
+		this.persistence = new InMemoryTemporalPersistence<>("example", ExampleSnapshot::new, ExampleStruct::new);
+		this.id = UUID.randomUUID();
+	}
+
+	@Override
+	protected InMemoryTemporalPersistence<UUID, ExampleState, ExampleEvent, ExampleStruct, ExampleSnapshot> create() {
+		return new InMemoryTemporalPersistence<>("example", ExampleSnapshot::new, ExampleStruct::new);
+	}
+
+	private ExampleStruct struct(final int intValue) {
+		return ExampleStruct.builder().id(this.id).intValue(intValue).state(ExampleState.Working).event(ExampleEvent.Create).build();
+	}
+
+	@Test
+	void createNew() throws TemporalPersistenceException {
+		final var snapshot = this.persistence.createNew(struct(1), Examples.DAY_1, "created");
+
+		Assertions.assertEquals(1, snapshot.context.version, "version is wrong");
+		Assertions.assertEquals(0, snapshot.context.revision, "revision is wrong");
+		Assertions.assertEquals(Examples.DAY_1, snapshot.context.effectiveFrom, "effectiveFrom is wrong");
+		Assertions.assertEquals("created", snapshot.context.comment, "comment is wrong");
+		Assertions.assertEquals(snapshot, this.persistence.getByIdLast(this.id).orElseThrow(), "snapshot was not stored");
+	}
+
+	@Test
+	void createNew_Twice() throws TemporalPersistenceException {
+		this.persistence.createNew(struct(1), Examples.DAY_1);
+
+		Assertions.assertThrows(SnapshotAlreadyExistsException.class, () -> this.persistence.createNew(struct(2), Examples.DAY_2));
+	}
+
+	@Test
+	void appendVersion() throws TemporalPersistenceException {
+		this.persistence.createNew(struct(1), Examples.DAY_1);
+		final var snapshot = this.persistence.appendVersion(struct(2), Examples.DAY_2, "appended");
+
+		Assertions.assertEquals(2, snapshot.context.version, "version is wrong");
+		Assertions.assertEquals(0, snapshot.context.revision, "revision is wrong");
+		Assertions.assertEquals(Examples.DAY_2, snapshot.context.effectiveFrom, "effectiveFrom is wrong");
+		Assertions.assertEquals(2, this.persistence.getByIdLast(this.id).orElseThrow().struct.getIntValue(), "wrong last version");
+	}
+
+	@Test
+	void written_StructIsCopied() throws TemporalPersistenceException {
+		final var created = struct(1);
+		final var appended = struct(2);
+		this.persistence.createNew(created, Examples.DAY_1);
+		this.persistence.appendVersion(appended, Examples.DAY_2);
+
+		created.setIntValue(10);
+		appended.setIntValue(20);
+
+		Assertions.assertEquals(1, this.persistence.getByIdAndVersion(this.id, 1).orElseThrow().struct.getIntValue(), "created struct was not copied");
+		Assertions.assertEquals(2, this.persistence.getByIdAndVersion(this.id, 2).orElseThrow().struct.getIntValue(), "appended struct was not copied");
+	}
+
+	@Test
+	void appendVersion_Missing() {
+		Assertions.assertThrows(SnapshotNotFoundException.class, () -> this.persistence.appendVersion(struct(1), Examples.DAY_1));
+	}
+
+	@Test
+	void appendVersion_BeforeLastVersion() throws TemporalPersistenceException {
+		this.persistence.createNew(struct(1), Examples.DAY_2);
+
+		Assertions.assertThrows(TemporalPersistenceException.class, () -> this.persistence.appendVersion(struct(2), Examples.DAY_1));
+	}
+
+	@Test
+	void getByIdEffective() throws TemporalPersistenceException {
+		this.persistence.createNew(struct(1), Examples.DAY_1);
+		this.persistence.appendVersion(struct(2), Examples.DAY_2);
+		this.persistence.appendVersion(struct(3), Examples.DAY_4);
+
+		Assertions.assertTrue(this.persistence.getByIdEffective(this.id, Examples.DAY_1.minusNanos(1)).isEmpty(), "nothing is effective yet");
+		Assertions.assertEquals(1, this.persistence.getByIdEffective(this.id, Examples.DAY_1).orElseThrow().context.version, "wrong version");
+		Assertions.assertEquals(2, this.persistence.getByIdEffective(this.id, Examples.DAY_3).orElseThrow().context.version, "wrong version");
+		Assertions.assertEquals(3, this.persistence.getByIdEffective(this.id, Examples.DAY_4).orElseThrow().context.version, "wrong version");
+		Assertions.assertTrue(this.persistence.getByIdEffective(UUID.randomUUID(), Examples.DAY_4).isEmpty(), "unknown id");
+	}
+
+	@Test
+	void getByIdCurrent() throws TemporalPersistenceException, InterruptedException {
+		this.persistence.createNew(struct(1), Examples.DAY_1);
+		Assertions.assertEquals(1, this.persistence.getByIdCurrent(this.id).orElseThrow().struct.getIntValue(), "wrong version");
+
+		this.persistence.appendVersion(struct(2), Examples.DAY_2);
+		Assertions.assertEquals(2, this.persistence.getByIdCurrent(this.id).orElseThrow().struct.getIntValue(), "append not seen");
+
+		this.persistence.correctStructByVersion(this.id, 2, "$.intValue", 22, "fix");
+		Assertions.assertEquals(22, this.persistence.getByIdCurrent(this.id).orElseThrow().struct.getIntValue(), "correction not seen");
+
+		final var future = Instant.now().plusMillis(100);
+		this.persistence.appendVersion(struct(3), future);
+		Assertions.assertEquals(2, this.persistence.getByIdCurrent(this.id).orElseThrow().context.version, "v3 is not yet effective");
+
+		Thread.sleep(Math.max(1, Instant.now().until(future, ChronoUnit.MILLIS) + 10));
+		Assertions.assertEquals(3, this.persistence.getByIdCurrent(this.id).orElseThrow().context.version, "v3 should now be effective");
+
+		this.persistence.correctContextEffectiveOn(this.id, 3, Instant.MAX, "postponed");
+		Assertions.assertEquals(2, this.persistence.getByIdCurrent(this.id).orElseThrow().context.version, "re-order not seen");
+		Assertions.assertTrue(this.persistence.getByIdCurrent(UUID.randomUUID()).isEmpty(), "should not be found");
+	}
+
+	@Test
+	void correctStructByVersion() throws TemporalPersistenceException {
+		this.persistence.createNew(struct(1), Examples.DAY_1);
+		this.persistence.appendVersion(struct(2), Examples.DAY_2);
+
+		final var pair = this.persistence.correctStructByVersion(this.id, 1, "$.intValue", 11, "fix");
+
+		Assertions.assertEquals(1, pair.originalSnapshot.struct.getIntValue(), "original was altered");
+		Assertions.assertEquals(11, pair.correctedSnapshot.struct.getIntValue(), "correction not applied");
+		Assertions.assertEquals(1, pair.correctedSnapshot.context.revision, "revision is wrong");
+		Assertions.assertEquals("fix", pair.correctedSnapshot.context.comment, "comment is wrong");
+		Assertions.assertEquals(pair.correctedSnapshot, this.persistence.getByIdAndVersion(this.id, 1).orElseThrow(), "latest revision is wrong");
+		Assertions.assertEquals(pair.originalSnapshot, this.persistence.getByIdVersionAndRevision(this.id, 1, 0).orElseThrow(),
+				"original revision is wrong");
+		Assertions.assertEquals(2, this.persistence.getByIdAndVersion(this.id, 2).orElseThrow().struct.getIntValue(), "other version altered");
+	}
+
+	@Test
+	void correctStructByVersion_MissingPath() throws TemporalPersistenceException {
+		this.persistence.createNew(struct(1), Examples.DAY_1);
+
+		Assertions.assertNull(this.persistence.correctStructByVersion(this.id, 1, "$.subStruct.subIntValue", 11, "fix"), "nothing to correct");
+		Assertions.assertEquals(1, this.persistence.getAllVersionsAndRevisions(this.id).size(), "no revision should be made");
+	}
+
+	@Test
+	void correctStructByVersion_Identifier() throws TemporalPersistenceException {
+		this.persistence.createNew(struct(1), Examples.DAY_1);
+
+		Assertions.assertThrows(TemporalPersistenceException.class,
+				() -> this.persistence.correctStructByVersion(this.id, 1, "$.id", UUID.randomUUID(), "fix"));
+	}
+
+	@Test
+	void correctStructAllVersions() throws TemporalPersistenceException {
+		this.persistence.createNew(struct(1), Examples.DAY_1);
+		this.persistence.appendVersion(struct(2), Examples.DAY_2);
+
+		final var pairs = this.persistence.correctStructAllVersions(this.id, "$.state", ExampleState.Closed, "fix");
+
+		Assertions.assertEquals(2, pairs.size(), "wrong number of corrections");
+		for (final var version : this.persistence.getAllVersions(this.id)) {
+			Assertions.assertEquals(ExampleState.Closed, version.struct.getState(), "correction not applied");
+			Assertions.assertEquals(1, version.context.revision, "revision is wrong");
+		}
+	}
+
+	@Test
+	void correctStructAllVersions_Parallel() throws TemporalPersistenceException {
+		final var pool = new ForkJoinPool(4);
+		try {
+			this.persistence.setParallelCorrections(pool, 8);
+			this.persistence.createNew(struct(0), Examples.DAY_1);
+			for (int i = 1; i < 500; i++) {
+				this.persistence.appendVersion(struct(i), Examples.DAY_1.plusSeconds(i));
+			}
+
+			final var pairs = this.persistence.correctStructAllVersions(this.id, "$.state", ExampleState.Closed, "fix");
+
+			Assertions.assertEquals(500, pairs.size(), "wrong number of corrections");
+			for (int i = 0; i < pairs.size(); i++) {
+				final var pair = pairs.get(i);
+				Assertions.assertEquals(i + 1, pair.correctedSnapshot.context.version, "pairs should be in version order");
+				Assertions.assertEquals(i, pair.correctedSnapshot.struct.getIntValue(), "struct of the wrong version");
+				Assertions.assertEquals(ExampleState.Working, pair.originalSnapshot.struct.getState(), "original was altered");
+				Assertions.assertEquals(ExampleState.Closed, pair.correctedSnapshot.struct.getState(), "correction not applied");
+			}
+			Assertions.assertEquals(pairs.get(499).correctedSnapshot, this.persistence.getByIdLast(this.id).orElseThrow(), "correction not published");
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void correctStructAllVersions_ParallelFailurePublishesNothing() throws TemporalPersistenceException {
+		this.persistence.setParallelCorrections(ForkJoinPool.commonPool(), 2);
+		this.persistence.createNew(struct(0), Examples.DAY_1);
+		for (int i = 1; i < 50; i++) {
+			this.persistence.appendVersion(struct(i), Examples.DAY_1.plusSeconds(i));
+		}
+
+		Assertions.assertThrows(TemporalPersistenceException.class,
+				() -> this.persistence.correctStructAllVersions(this.id, "$.intValue", "not an int", "fix"));
+		Assertions.assertEquals(50, this.persistence.getAllVersionsAndRevisions(this.id).size(), "nothing should have been published");
+		Assertions.assertThrows(IllegalArgumentException.class, () -> this.persistence.setParallelCorrections(ForkJoinPool.commonPool(), 1));
+	}
+
+	@Test
+	void correctStructByVersion_MultiplePaths() throws TemporalPersistenceException {
+		this.persistence.createNew(struct(1), Examples.DAY_1);
+
+		final var corrections = new LinkedHashMap<String, Object>();
+		corrections.put("$.intValue", 11);
+		corrections.put("$.state", ExampleState.Closed);
+		corrections.put("$.subStruct.subIntValue", 5);
+
+		final var pair = this.persistence.correctStructByVersion(this.id, 1, corrections, "fix");
+
+		Assertions.assertEquals(11, pair.correctedSnapshot.struct.getIntValue(), "correction not applied");
+		Assertions.assertEquals(ExampleState.Closed, pair.correctedSnapshot.struct.getState(), "correction not applied");
+		Assertions.assertEquals(1, pair.correctedSnapshot.context.revision, "a single revision should be made");
+		Assertions.assertEquals(2, this.persistence.getAllVersionsAndRevisions(this.id).size(), "a single revision should be made");
+	}
+
+	@Test
+	void correctStructByVersion_MultiplePathsMissing() throws TemporalPersistenceException {
+		this.persistence.createNew(struct(1), Examples.DAY_1);
+
+		final var corrections = Map.<String, Object>of("$.subStruct.subIntValue", 5, "$.noSuchValue", 6);
+
+		Assertions.assertNull(this.persistence.correctStructByVersion(this.id, 1, corrections, "fix"), "nothing to correct");
+		Assertions.assertEquals(1, this.persistence.getAllVersionsAndRevisions(this.id).size(), "no revision should be made");
+	}
+
+	@Test
+	void correctStructAllVersions_MultiplePaths() throws TemporalPersistenceException {
+		this.persistence.createNew(struct(1), Examples.DAY_1);
+		this.persistence.appendVersion(struct(2), Examples.DAY_2);
+
+		final var pairs = this.persistence.correctStructAllVersions(this.id, Map.of("$.intValue", 7, "$.state", ExampleState.Closed), "fix");
+
+		Assertions.assertEquals(2, pairs.size(), "wrong number of corrections");
+		for (final var version : this.persistence.getAllVersions(this.id)) {
+			Assertions.assertEquals(7, version.struct.getIntValue(), "correction not applied");
+			Assertions.assertEquals(ExampleState.Closed, version.struct.getState(), "correction not applied");
+			Assertions.assertEquals(1, version.context.revision, "a single revision should be made");
+		}
+	}
+
+	@Test
+	void correctContextEffectiveOn_NoReorder() throws TemporalPersistenceException {
+		this.persistence.createNew(struct(1), Examples.DAY_1);
+		this.persistence.appendVersion(struct(2), Examples.DAY_3);
+
+		final var pairs = this.persistence.correctContextEffectiveOn(this.id, 2, Examples.DAY_2, "fix");
+
+		Assertions.assertEquals(1, pairs.size(), "wrong number of corrections");
+		Assertions.assertEquals(Examples.DAY_2, this.persistence.getByIdAndVersion(this.id, 2).orElseThrow().context.effectiveFrom, "effective not corrected");
+	}
+
+	@Test
+	void correctContextEffectiveOn_Reorder() throws TemporalPersistenceException {
+		this.persistence.createNew(struct(1), Examples.DAY_1);
+		this.persistence.appendVersion(struct(2), Examples.DAY_2);
+		this.persistence.appendVersion(struct(3), Examples.DAY_3);
+
+		final var pairs = this.persistence.correctContextEffectiveOn(this.id, 3, Examples.DAY_1.minusSeconds(1), "fix");
+
+		Assertions.assertEquals(3, pairs.size(), "every version is re-versioned");
+
+		final var versions = this.persistence.getAllVersions(this.id);
+		Assertions.assertEquals(3, versions.size(), "wrong number of versions");
+		Assertions.assertEquals(2, versions.get(0).struct.getIntValue(), "v3 is wrong");
+		Assertions.assertEquals(1, versions.get(1).struct.getIntValue(), "v2 is wrong");
+		Assertions.assertEquals(3, versions.get(2).struct.getIntValue(), "v1 is wrong");
+		Assertions.assertEquals(Examples.DAY_1.minusSeconds(1), versions.get(2).context.effectiveFrom, "v1 effective is wrong");
+	}
+
+	@Test
+	void getAllVersionsAndRevisions() throws TemporalPersistenceException {
+		this.persistence.createNew(struct(1), Examples.DAY_1);
+		this.persistence.appendVersion(struct(2), Examples.DAY_2);
+		this.persistence.appendVersion(struct(3), Examples.DAY_3);
+		this.persistence.correctStructByVersion(this.id, 2, "$.intValue", 22, "fix");
+
+		final var all = this.persistence.getAllVersionsAndRevisions(this.id);
+		Assertions.assertEquals(4, all.size(), "wrong number of snapshots");
+		Assertions.assertEquals(new ContextHandle<>(this.id, 3, 0), all.get(0).contextHandle, "wrong order");
+		Assertions.assertEquals(new ContextHandle<>(this.id, 2, 1), all.get(1).contextHandle, "wrong order");
+		Assertions.assertEquals(new ContextHandle<>(this.id, 2, 0), all.get(2).contextHandle, "wrong order");
+		Assertions.assertEquals(new ContextHandle<>(this.id, 1, 0), all.get(3).contextHandle, "wrong order");
+
+		Assertions.assertEquals(2, this.persistence.getAllVersionsAndRevisions(this.id, 2, 3).size(), "wrong version range");
+		Assertions.assertEquals(3, this.persistence.getAllVersionsAndRevisions(this.id, Examples.DAY_2, null).size(), "wrong effective range");
+		Assertions.assertEquals(2, this.persistence.getAllVersions(this.id, Examples.DAY_1, Examples.DAY_3).size(), "wrong effective range");
+		Assertions.assertEquals(22, this.persistence.getAllVersions(this.id, 2, 3).get(0).struct.getIntValue(), "latest revision expected");
+	}
+
+	@Test
+	void getByContextHandle() throws TemporalPersistenceException {
+		this.persistence.createNew(struct(1), Examples.DAY_1);
+		this.persistence.correctStructByVersion(this.id, 1, "$.intValue", 11, "fix");
+
+		Assertions.assertEquals(1, this.persistence.getByContextHandle(new ContextHandle<>(this.id, 1, 0)).orElseThrow().struct.getIntValue(),
+				"wrong revision");
+		Assertions.assertEquals(11, this.persistence.getByContextHandle(new ContextHandle<>(this.id, 1, 1)).orElseThrow().struct.getIntValue(),
+				"wrong revision");
+		Assertions.assertTrue(this.persistence.getByContextHandle(new ContextHandle<>(this.id, 1, 2)).isEmpty(), "no such revision");
+	}
+
+	@Test
+	void getByContextHandles() throws TemporalPersistenceException {
+		final var other = UUID.randomUUID();
+		this.persistence.createNew(struct(1), Examples.DAY_1);
+		this.persistence.correctStructByVersion(this.id, 1, "$.intValue", 11, "fix");
+		this.persistence.createNew(ExampleStruct.builder().id(other).intValue(5).state(ExampleState.Working).event(ExampleEvent.Create).build(), Examples.DAY_1);
+
+		final var exact = new ContextHandle<>(this.id, 1, 0);
+		final var identity = new ContextHandle<>(other, 1, 0).createIndentityContextHandle();
+		final var versioned = new ContextHandle<>(this.id, 1, 0).createVersionedContextHandle();
+		final var missing = new ContextHandle<>(UUID.randomUUID(), 1, 0);
+
+		final var found = this.persistence.getByContextHandles(List.of(exact, identity, missing, versioned, exact));
+		Assertions.assertEquals(List.of(exact, identity, versioned), List.copyOf(found.keySet()), "wrong handles found or wrong order");
+		Assertions.assertEquals(1, found.get(exact).struct.getIntValue(), "wrong revision");
+		Assertions.assertEquals(5, found.get(identity).struct.getIntValue(), "wrong current snapshot");
+		Assertions.assertEquals(11, found.get(versioned).struct.getIntValue(), "latest revision expected");
+	}
+
+	@Test
+	void getByIdsEffective() throws TemporalPersistenceException {
+		final var other = UUID.randomUUID();
+		this.persistence.createNew(struct(1), Examples.DAY_1);
+		this.persistence.appendVersion(struct(2), Examples.DAY_3);
+		this.persistence.createNew(ExampleStruct.builder().id(other).intValue(5).state(ExampleState.Working).event(ExampleEvent.Create).build(), Examples.DAY_3);
+
+		final var found = this.persistence.getByIdsEffective(List.of(other, this.id, UUID.randomUUID(), this.id), Examples.DAY_2);
+		Assertions.assertEquals(List.of(this.id), List.copyOf(found.keySet()), "only the effective ids expected");
+		Assertions.assertEquals(1, found.get(this.id).struct.getIntValue(), "wrong effective version");
+		Assertions.assertEquals(List.of(other, this.id), List.copyOf(this.persistence.getByIdsEffective(List.of(other, this.id), Examples.DAY_4).keySet()),
+				"wrong order");
+	}
+
+	@Test
+	void scanEffective() throws TemporalPersistenceException {
+		final var ids = new ArrayList<UUID>();
+		for (int i = 0; i < 50; i++) {
+			final var id = UUID.randomUUID();
+			ids.add(id);
+			this.persistence.createNew(ExampleStruct.builder().id(id).intValue(i).state(ExampleState.Working).event(ExampleEvent.Create).build(),
+					i % 2 == 0 ? Examples.DAY_1 : Examples.DAY_3);
+		}
+
+		Assertions.assertEquals(50, this.persistence.streamIdentifiers().count(), "wrong number of identifiers");
+		Assertions.assertEquals(25, this.persistence.scanEffective(Examples.DAY_2).count(), "only the even structs are effective on day 2");
+		Assertions.assertEquals(50, this.persistence.scanEffective(Examples.DAY_4).parallel().count(), "all structs are effective on day 4");
+
+		final var partitioned = new ArrayList<UUID>();
+		for (int partition = 0; partition < 4; partition++) {
+			this.persistence.scanEffective(Examples.DAY_4, partition, 4).forEach(snapshot -> partitioned.add(snapshot.contextHandle.identifier));
+		}
+		Assertions.assertEquals(Set.copyOf(ids), Set.copyOf(partitioned), "partitions should cover every identifier");
+		Assertions.assertEquals(50, partitioned.size(), "partitions should not overlap");
+
+		Assertions.assertEquals(List.of(ids.get(3)), this.persistence.scanEffective(Examples.DAY_4, ids.get(3)::equals).map(s -> s.contextHandle.identifier).toList(),
+				"filter not applied");
+		Assertions.assertThrows(IllegalArgumentException.class, () -> this.persistence.scanEffective(Examples.DAY_4, 4, 4));
+	}
+
+	@Test
+	void indexStates() throws TemporalPersistenceException {
+		final var other = UUID.randomUUID();
+		this.persistence.createNew(struct(1), Examples.DAY_1);
+		this.persistence.createNew(ExampleStruct.builder().id(other).intValue(5).state(ExampleState.Closed).event(ExampleEvent.Create).build(), Examples.DAY_1);
+
+		Assertions.assertThrows(IllegalStateException.class, () -> this.persistence.countInState(ExampleState.Closed), "not indexed yet");
+		this.persistence.indexStates(ExampleState.class);
+
+		Assertions.assertEquals(Set.of(other), this.persistence.getIdsInState(ExampleState.Closed), "existing snapshots should be indexed");
+		Assertions.assertEquals(1, this.persistence.countInState(ExampleState.Working), "existing snapshots should be indexed");
+
+		this.persistence.appendVersion(ExampleStruct.builder().id(this.id).intValue(2).state(ExampleState.Closed).event(ExampleEvent.Create).build(), Examples.DAY_3);
+		Assertions.assertEquals(2, this.persistence.countInState(ExampleState.Closed), "append should be indexed");
+
+		this.persistence.correctStructByVersion(other, 1, "$.state", ExampleState.Working, "fix");
+		Assertions.assertEquals(Set.of(other), this.persistence.getIdsInState(ExampleState.Working), "correction should be indexed");
+		Assertions.assertEquals(Set.of(this.id, other), this.persistence.getIdsInState(ExampleState.Working, Examples.DAY_2), "wrong states on day 2");
+	}
+
+	@Test
+	void indexEvents() throws TemporalPersistenceException {
+		final var other = UUID.randomUUID();
+		this.persistence.createNew(struct(1), Examples.DAY_1);
+		this.persistence.createNew(ExampleStruct.builder().id(other).intValue(5).state(ExampleState.Working).event(ExampleEvent.Create).build(), Examples.DAY_2);
+
+		Assertions.assertThrows(IllegalStateException.class, () -> this.persistence.getByEvent(ExampleEvent.Close, null, null), "not indexed yet");
+		this.persistence.indexEvents(ExampleEvent.class);
+
+		Assertions.assertEquals(2, this.persistence.getByEvent(ExampleEvent.Create, Examples.DAY_1, Examples.DAY_3).size(), "existing snapshots should be indexed");
+
+		final var closed = this.persistence.appendVersion(
+				ExampleStruct.builder().id(other).intValue(6).state(ExampleState.Closed).event(ExampleEvent.Close).build(), Examples.DAY_3);
+		Assertions.assertEquals(List.of(closed), this.persistence.getByEvent(ExampleEvent.Close, Examples.DAY_3, Examples.DAY_4), "append should be indexed");
+
+		final var moved = this.persistence.correctContextEffectiveOn(other, 2, Examples.DAY_4, "late");
+		Assertions.assertEquals(List.of(moved.get(0).correctedSnapshot), this.persistence.getByEvent(ExampleEvent.Close, Examples.DAY_4, null),
+				"correction should be indexed");
+		Assertions.assertTrue(this.persistence.getByEvent(ExampleEvent.Close, Examples.DAY_3, Examples.DAY_4).isEmpty(), "correction should be indexed");
+	}
+
+	@Test
+	void getByIdEffectiveAsOf() throws TemporalPersistenceException, InterruptedException {
+		this.persistence.createNew(struct(1), Examples.DAY_1);
+		this.persistence.appendVersion(struct(2), Examples.DAY_3);
+		Thread.sleep(2);
+		final var beforeCorrection = Instant.now();
+		Thread.sleep(2);
+		this.persistence.correctContextEffectiveOn(this.id, 2, Examples.DAY_2, "fix");
+		this.persistence.correctStructByVersion(this.id, 2, "$.intValue", 22, "fix");
+
+		Assertions.assertEquals(1, this.persistence.getByIdEffectiveAsOf(this.id, Examples.DAY_2, beforeCorrection).orElseThrow().struct.getIntValue(),
+				"v2 was not yet believed effective on day 2");
+		Assertions.assertEquals(2, this.persistence.getByIdEffectiveAsOf(this.id, Examples.DAY_3, beforeCorrection).orElseThrow().struct.getIntValue(),
+				"correction was not yet believed");
+		Assertions.assertEquals(22, this.persistence.getByIdEffectiveAsOf(this.id, Examples.DAY_2, Instant.now()).orElseThrow().struct.getIntValue(),
+				"correction should be believed");
+		Assertions.assertTrue(this.persistence.getByIdEffectiveAsOf(this.id, Examples.DAY_2, Examples.DAY_1).isEmpty(), "nothing recorded yet");
+
+		final var versions = this.persistence.getAllVersionsAsOf(this.id, beforeCorrection);
+		Assertions.assertEquals(2, versions.size(), "wrong number of versions");
+		Assertions.assertEquals(0, versions.get(0).context.revision, "correction was not yet believed");
+		Assertions.assertEquals(2, this.persistence.getAllVersionsAsOf(this.id, Instant.now()).get(0).context.revision, "correction should be believed");
+	}
+
+	@Test
+	void correctStructByVersion_CopyOnWrite() throws TemporalPersistenceException {
+		final var copyOnWrite = new InMemoryTemporalPersistence<UUID, ExampleState, ExampleEvent, ExampleStruct, ExampleSnapshot>("example",
+				ExampleSnapshot::new, AccessorStrategy.VAR_HANDLE);
+		final var struct = struct(1);
+		struct.setSubStruct(new ExampleSubStruct(2));
+		struct.setStringList(List.of("a"));
+		copyOnWrite.createNew(struct, Examples.DAY_1);
+
+		final var pair = copyOnWrite.correctStructByVersion(this.id, 1, Map.of("$.intValue", 11, "$.subStruct.subIntValue", 12), "fix");
+		Assertions.assertEquals(1, pair.originalSnapshot.struct.getIntValue(), "original was altered");
+		Assertions.assertEquals(2, pair.originalSnapshot.struct.getSubStruct().getSubIntValue(), "original was altered");
+		Assertions.assertEquals(11, pair.correctedSnapshot.struct.getIntValue(), "intValue not corrected");
+		Assertions.assertEquals(12, pair.correctedSnapshot.struct.getSubStruct().getSubIntValue(), "subIntValue not corrected");
+		Assertions.assertSame(pair.originalSnapshot.struct.getStringList(), pair.correctedSnapshot.struct.getStringList(),
+				"untouched fields should be shared");
+		Assertions.assertNull(copyOnWrite.correctStructByVersion(this.id, 1, "$.missing", 1, "fix"), "missing path should not correct");
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.upcast;
+
+import java.util.UUID;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalContext;
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalSnapshot;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleEvent;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleState;
+
+import lombok.NonNull;
+
+/**
+ * @author Daniel R. Pedersen
+ */
+public class EditionedSnapshot extends TemporalSnapshot<UUID, ExampleState, ExampleEvent, EditionedStruct> {
+
+	public EditionedSnapshot(@NonNull final TemporalContext temporalContext, @NonNull final EditionedStruct struct) {
+		super(temporalContext, struct);
+	}
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.upcast;
+
+import java.util.UUID;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.TemporalStructureInterface;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleEvent;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleState;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Edition 1 holds a whole name, edition 2 splits it into first and last names, edition 3 adds the active flag
+ * 
+ * @author Daniel R. Pedersen
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EditionedStruct implements TemporalStructureInterface<UUID, ExampleState, ExampleEvent> {
+
+	private UUID id;
+	private int edition;
+
+	private String name;
+
+	private String firstName;
+	private String lastName;
+
+	private boolean active;
+
+	public static EditionedStruct firstEdition(final UUID id, final String name) {
+		return new EditionedStruct(id, 1, name, null, null, false);
+	}
+
+	@Override
+	public UUID getIdentifier() {
+		return this.id;
+	}
+
+	@Override
+	public ExampleState getState() {
+		return ExampleState.Working;
+	}
+
+	@Override
+	public ExampleEvent getEvent() {
+		return ExampleEvent.Create;
+	}
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.upcast;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleEvent;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleState;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.Examples;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceException;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.memory.InMemoryTemporalPersistence;
+import com.djpedersen.bitemporal.bitemporaldatabase.propsetter.AccessorStrategy;
+
+/**
+ * @author Daniel R. Pedersen
+ */
+class UpcastMigrationJobTests {
+
+	private InMemoryTemporalPersistence<UUID, ExampleState, ExampleEvent, EditionedStruct, EditionedSnapshot> persistence;
+
+	@BeforeEach
+	void setUp() {
+		this.persistence = new InMemoryTemporalPersistence<>("editioned", EditionedSnapshot::new, AccessorStrategy.VAR_HANDLE);
+	}
+
+	@Test
+	void run() throws TemporalPersistenceException {
+		final var first = UUID.randomUUID();
+		final var second = UUID.randomUUID();
+		this.persistence.createNew(EditionedStruct.firstEdition(first, "Ada Lovelace"), Examples.DAY_1);
+		this.persistence.appendVersion(new EditionedStruct(first, 3, null, "Ada", "King", true), Examples.DAY_2);
+		this.persistence.createNew(EditionedStruct.firstEdition(second, "Alan Turing"), Examples.DAY_1);
+		this.persistence.appendVersion(EditionedStruct.firstEdition(second, "Alan M Turing"), Examples.DAY_2);
+
+		final var job = new UpcastMigrationJob<>(this.persistence, UpcasterRegistryTests.registry(), "edition 3");
+		Assertions.assertEquals(3, job.run(this.persistence.streamIdentifiers().parallel()), "only the old editions should be migrated");
+
+		Assertions.assertEquals(new EditionedStruct(second, 3, null, "Alan", "M Turing", true),
+				this.persistence.getByIdAndVersion(second, 2).orElseThrow().struct, "wrong migration");
+		Assertions.assertEquals(1, this.persistence.getByIdVersionAndRevision(second, 2, 0).orElseThrow().struct.getEdition(),
+				"the old edition should remain as the previous revision");
+		Assertions.assertEquals(0, this.persistence.getByIdVersionAndRevision(first, 2, 0).orElseThrow().context.revision,
+				"current editions should not be revised");
+		Assertions.assertEquals(0, job.run(this.persistence.streamIdentifiers()), "nothing left to migrate");
+	}
+}
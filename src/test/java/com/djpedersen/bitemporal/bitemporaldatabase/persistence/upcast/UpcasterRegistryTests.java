@@ -0,0 +1,65 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.upcast;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceException;
+
+/**
+ * @author Daniel R. Pedersen
+ */
+class UpcasterRegistryTests {
+
+	static UpcasterRegistry<EditionedStruct> registry() {
+		return new UpcasterRegistry<EditionedStruct>(3).register(1, struct -> {
+			final var names = struct.getName().split(" ", 2);
+			return new EditionedStruct(struct.getId(), 2, null, names[0], names[1], false);
+		}).register(2, struct -> new EditionedStruct(struct.getId(), 3, null, struct.getFirstName(), struct.getLastName(), true));
+	}
+
+	@Test
+	void upcast() throws TemporalPersistenceException {
+		final var original = EditionedStruct.firstEdition(UUID.randomUUID(), "Ada Lovelace");
+		final var upcast = registry().upcast(original);
+
+		Assertions.assertEquals(new EditionedStruct(original.getId(), 3, null, "Ada", "Lovelace", true), upcast, "wrong migration");
+		Assertions.assertEquals(1, original.getEdition(), "original was altered");
+		Assertions.assertSame(upcast, registry().upcast(upcast), "current edition should not be migrated");
+		Assertions.assertTrue(registry().isCurrent(upcast), "should be current");
+		Assertions.assertFalse(registry().isCurrent(original), "should not be current");
+	}
+
+	@Test
+	void upcast_Failures() {
+		final var original = EditionedStruct.firstEdition(UUID.randomUUID(), "Ada Lovelace");
+
+		Assertions.assertThrows(TemporalPersistenceException.class, () -> new UpcasterRegistry<EditionedStruct>(2).upcast(original),
+				"no upcaster from edition 1");
+		Assertions.assertThrows(TemporalPersistenceException.class,
+				() -> new UpcasterRegistry<EditionedStruct>(2).register(1, struct -> struct).upcast(original), "edition not raised");
+	}
+
+	@Test
+	void register_Validation() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new UpcasterRegistry<EditionedStruct>(0));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new UpcasterRegistry<EditionedStruct>(2).register(2, struct -> struct));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> registry().register(1, struct -> struct));
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.upcast;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleEvent;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleState;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.Examples;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceException;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.memory.InMemoryTemporalPersistence;
+import com.djpedersen.bitemporal.bitemporaldatabase.propsetter.AccessorStrategy;
+
+/**
+ * @author Daniel R. Pedersen
+ */
+class UpcastingTemporalPersistenceTests {
+
+	private InMemoryTemporalPersistence<UUID, ExampleState, ExampleEvent, EditionedStruct, EditionedSnapshot> stored;
+	private AtomicInteger migrations;
+	private UpcasterRegistry<EditionedStruct> upcasters;
+	private UUID id;
+
+	@BeforeEach
+	void setUp() {
+		this.stored = new InMemoryTemporalPersistence<>("editioned", EditionedSnapshot::new, AccessorStrategy.VAR_HANDLE);
+		this.migrations = new AtomicInteger();
+		final var registry = UpcasterRegistryTests.registry();
+		this.upcasters = new UpcasterRegistry<EditionedStruct>(3).register(1, struct -> {
+			this.migrations.incrementAndGet();
+			return registry.upcast(struct);
+		});
+		this.id = UUID.randomUUID();
+	}
+
+	@Test
+	void readsAreMigrated() throws TemporalPersistenceException {
+		final var persistence = new UpcastingTemporalPersistence<>(this.stored, EditionedSnapshot::new, this.upcasters);
+		this.stored.createNew(EditionedStruct.firstEdition(this.id, "Ada Lovelace"), Examples.DAY_1);
+
+		final var read = persistence.getByIdAndVersion(this.id, 1).orElseThrow();
+		Assertions.assertEquals(3, read.struct.getEdition(), "should be migrated");
+		Assertions.assertEquals("Lovelace", read.struct.getLastName(), "should be migrated");
+		Assertions.assertEquals(1, this.stored.getByIdAndVersion(this.id, 1).orElseThrow().struct.getEdition(), "stored snapshot was altered");
+
+		Assertions.assertSame(read, persistence.getByIdCurrent(this.id).orElseThrow(), "migration should be cached");
+		Assertions.assertSame(read, persistence.streamAllVersions(this.id).findFirst().orElseThrow(), "migration should be cached");
+		Assertions.assertEquals(1, this.migrations.get(), "should only migrate once");
+		Assertions.assertEquals(1, persistence.cachedCount(), "wrong cache size");
+	}
+
+	@Test
+	void currentEditionIsNotMigrated() throws TemporalPersistenceException {
+		final var persistence = new UpcastingTemporalPersistence<>(this.stored, EditionedSnapshot::new, this.upcasters);
+		final var created = persistence.createNew(new EditionedStruct(this.id, 3, null, "Ada", "Lovelace", true), Examples.DAY_1);
+
+		Assertions.assertSame(created, persistence.getByIdCurrent(this.id).orElseThrow(), "current edition should be returned as stored");
+		Assertions.assertEquals(0, this.migrations.get(), "nothing to migrate");
+		Assertions.assertEquals(0, persistence.cachedCount(), "nothing to cache");
+	}
+
+	@Test
+	void cacheIsBounded() throws TemporalPersistenceException {
+		final var persistence = new UpcastingTemporalPersistence<>(this.stored, EditionedSnapshot::new, this.upcasters, 2);
+		this.stored.createNew(EditionedStruct.firstEdition(this.id, "Ada Lovelace"), Examples.DAY_1);
+		for (int i = 2; i <= 5; i++) {
+			this.stored.appendVersion(EditionedStruct.firstEdition(this.id, "Ada Lovelace" + i), Examples.DAY_1.plusSeconds(i));
+		}
+
+		Assertions.assertEquals(5, persistence.getAllVersions(this.id).size(), "wrong number of versions");
+		Assertions.assertEquals(2, persistence.cachedCount(), "cache should be bounded");
+
+		final var uncached = new UpcastingTemporalPersistence<>(this.stored, EditionedSnapshot::new, this.upcasters, 0);
+		uncached.getByIdLast(this.id);
+		uncached.getByIdLast(this.id);
+		Assertions.assertEquals(7, this.migrations.get(), "without a cache every read migrates");
+	}
+
+	@Test
+	void hotMigrationsSurviveScans() throws TemporalPersistenceException {
+		final var persistence = new UpcastingTemporalPersistence<>(this.stored, EditionedSnapshot::new, this.upcasters, 10);
+		this.stored.createNew(EditionedStruct.firstEdition(this.id, "Ada Lovelace"), Examples.DAY_1);
+		for (int i = 2; i <= 50; i++) {
+			this.stored.appendVersion(EditionedStruct.firstEdition(this.id, "Ada Lovelace" + i), Examples.DAY_1.plusSeconds(i));
+		}
+
+		final var hot = persistence.getByIdAndVersion(this.id, 1).orElseThrow();
+		for (int i = 0; i < 5; i++) {
+			persistence.getByIdAndVersion(this.id, 1);
+		}
+
+		persistence.getAllVersions(this.id);
+		Assertions.assertTrue(persistence.cachedCount() <= 10, "cache should be bounded");
+		Assertions.assertSame(hot, persistence.getByIdAndVersion(this.id, 1).orElseThrow(), "the hot migration should stay cached");
+	}
+}
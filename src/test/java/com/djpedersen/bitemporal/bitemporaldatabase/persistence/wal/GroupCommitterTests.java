@@ -0,0 +1,96 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.wal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Daniel R. Pedersen
+ */
+class GroupCommitterTests {
+
+	@Test
+	void singleWriter() throws IOException {
+		final var syncs = new AtomicInteger();
+		final var committer = new GroupCommitter(syncs::incrementAndGet, 0, 1);
+
+		committer.awaitDurable(committer.register());
+		committer.awaitDurable(committer.register());
+
+		Assertions.assertEquals(2, syncs.get(), "each lone write should sync");
+	}
+
+	@Test
+	void concurrentWriters_ShareSyncs() throws Exception {
+		final int writers = 16;
+		final var syncs = new AtomicInteger();
+		final var committer = new GroupCommitter(syncs::incrementAndGet, TimeUnit.SECONDS.toNanos(10), writers);
+		final var ready = new CountDownLatch(writers);
+		final var executor = Executors.newFixedThreadPool(writers);
+
+		try {
+			final var futures = new ArrayList<Future<?>>();
+
+			for (int i = 0; i < writers; i++) {
+				futures.add(executor.submit(() -> {
+					ready.countDown();
+					ready.await();
+					committer.awaitDurable(committer.register());
+					return null;
+				}));
+			}
+
+			for (final var future : futures) {
+				future.get(5, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Assertions.assertEquals(1, syncs.get(), "the record threshold should end the window with one sync for every writer");
+	}
+
+	@Test
+	void markDurable() throws IOException {
+		final var syncs = new AtomicInteger();
+		final var committer = new GroupCommitter(syncs::incrementAndGet, 0, 1);
+
+		final var ticket = committer.register();
+		committer.markDurable();
+		committer.awaitDurable(ticket);
+
+		Assertions.assertEquals(0, syncs.get(), "durable records should not sync again");
+	}
+
+	@Test
+	void failedSync() {
+		final var committer = new GroupCommitter(() -> {
+			throw new IOException("disk gone");
+		}, 0, 1);
+
+		Assertions.assertThrows(IOException.class, () -> committer.awaitDurable(committer.register()));
+		Assertions.assertThrows(IOException.class, () -> committer.awaitDurable(committer.register()), "later waits should fail too");
+	}
+}
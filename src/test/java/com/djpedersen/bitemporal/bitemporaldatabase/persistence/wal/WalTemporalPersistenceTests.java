@@ -0,0 +1,254 @@
+/*
+ * Copyright 2023 Daniel R. Pedersen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.djpedersen.bitemporal.bitemporaldatabase.persistence.wal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleSnapshot;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleEvent;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct.ExampleState;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStructGeneratedCodec;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.Examples;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.SnapshotAlreadyExistsException;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceContractTests;
+import com.djpedersen.bitemporal.bitemporaldatabase.persistence.TemporalPersistenceException;
+
+/**
+ * @author Daniel R. Pedersen
+ */
+class WalTemporalPersistenceTests extends TemporalPersistenceContractTests {
+
+	@TempDir
+	Path directory;
+
+	private final UUID id = UUID.randomUUID();
+
+	private WalTemporalPersistence<UUID, ExampleState, ExampleEvent, ExampleStruct, ExampleSnapshot> open(final long segmentBytes)
+			throws TemporalPersistenceException {
+		final var config = WalConfig.builder().directory(this.directory).segmentBytes(segmentBytes).build();
+		return new WalTemporalPersistence<>("example", ExampleSnapshot::new, ExampleStruct::new, ExampleStructGeneratedCodec.INSTANCE, config);
+	}
+
+	private WalTemporalPersistence<UUID, ExampleState, ExampleEvent, ExampleStruct, ExampleSnapshot> open() throws TemporalPersistenceException {
+		return open(WalConfig.builder().directory(this.directory).build().segmentBytes);
+	}
+
+	@Override
+	protected WalTemporalPersistence<UUID, ExampleState, ExampleEvent, ExampleStruct, ExampleSnapshot> create() throws TemporalPersistenceException {
+		return open();
+	}
+
+	private List<Path> segments() throws IOException {
+		return WriteAheadLog.listSegments(this.directory);
+	}
+
+	@Test
+	void reopen() throws TemporalPersistenceException {
+		final List<ExampleSnapshot> written;
+
+		try (var persistence = open()) {
+			persistence.createNew(Examples.struct(this.id, 1), Examples.DAY_1, "created");
+			persistence.appendVersion(Examples.struct(this.id, 2), Examples.DAY_2);
+			persistence.appendVersion(Examples.struct(this.id, 3), Examples.DAY_3);
+			persistence.correctStructAllVersions(this.id, Map.of("$.intValue", 7, "$.subStruct.subIntValue", 8), "fix");
+			persistence.correctContextEffectiveOn(this.id, 1, Examples.DAY_2.plusSeconds(1), "moved");
+			written = persistence.getAllVersionsAndRevisions(this.id);
+		}
+
+		try (var persistence = open()) {
+			Assertions.assertEquals(written, persistence.getAllVersionsAndRevisions(this.id), "replayed history differs");
+			Assertions.assertEquals(written.get(0).context.recordedOn, persistence.getByIdLast(this.id).orElseThrow().context.recordedOn,
+					"recordedOn was not preserved");
+			final var struct = persistence.getByIdEffective(this.id, Examples.DAY_3).orElseThrow().struct;
+			Assertions.assertNull(struct.getSubStructList(), "null list was not preserved");
+			Assertions.assertArrayEquals(new String[] { "c" }, struct.getStringArray(), "array was not preserved");
+		}
+	}
+
+	@Test
+	void reopen_ContinuesWriting() throws TemporalPersistenceException {
+		try (var persistence = open()) {
+			persistence.createNew(Examples.struct(this.id, 1), Examples.DAY_1);
+		}
+
+		try (var persistence = open()) {
+			Assertions.assertThrows(SnapshotAlreadyExistsException.class, () -> persistence.createNew(Examples.struct(this.id, 1), Examples.DAY_1));
+			persistence.appendVersion(Examples.struct(this.id, 2), Examples.DAY_2);
+		}
+
+		try (var persistence = open()) {
+			Assertions.assertEquals(2, persistence.getByIdLast(this.id).orElseThrow().context.version, "append after reopen was lost");
+		}
+	}
+
+	@Test
+	void segments_Roll() throws TemporalPersistenceException, IOException {
+		final var ids = new UUID[20];
+
+		try (var persistence = open(256)) {
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = UUID.randomUUID();
+				persistence.createNew(Examples.struct(ids[i], i), Examples.DAY_1);
+			}
+		}
+
+		Assertions.assertTrue(segments().size() > 1, "log did not roll");
+
+		try (var persistence = open(256)) {
+			for (int i = 0; i < ids.length; i++) {
+				Assertions.assertEquals(i, persistence.getByIdCurrent(ids[i]).orElseThrow().struct.getIntValue(), "wrong struct for " + i);
+			}
+		}
+	}
+
+	@Test
+	void tornTail_Truncated() throws TemporalPersistenceException, IOException {
+		try (var persistence = open()) {
+			persistence.createNew(Examples.struct(this.id, 1), Examples.DAY_1);
+		}
+
+		final var last = segments().get(segments().size() - 1);
+		final var size = Files.size(last);
+		Files.write(last, new byte[] { 0, 0, 0, 40, 1, 2 }, StandardOpenOption.APPEND);
+
+		try (var persistence = open()) {
+			Assertions.assertEquals(size, Files.size(last), "torn record was not truncated");
+			Assertions.assertTrue(persistence.getByIdCurrent(this.id).isPresent(), "complete record was lost");
+			persistence.appendVersion(Examples.struct(this.id, 2), Examples.DAY_2);
+		}
+
+		try (var persistence = open()) {
+			Assertions.assertEquals(2, persistence.getByIdLast(this.id).orElseThrow().context.version, "append after truncation was lost");
+		}
+	}
+
+	@Test
+	void damagedRecordBeforeTail_Fails() throws TemporalPersistenceException, IOException {
+		try (var persistence = open()) {
+			persistence.createNew(Examples.struct(this.id, 1), Examples.DAY_1);
+			persistence.appendVersion(Examples.struct(this.id, 2), Examples.DAY_2);
+			persistence.appendVersion(Examples.struct(this.id, 3), Examples.DAY_3);
+		}
+
+		final var last = segments().get(segments().size() - 1);
+		final var bytes = Files.readAllBytes(last);
+		bytes[bytes.length / 2] ^= 0xFF;
+		Files.write(last, bytes);
+
+		Assertions.assertThrows(TemporalPersistenceException.class, this::open, "mid-log damage should fail the replay");
+		Assertions.assertEquals(bytes.length, Files.size(last), "the intact records after the damage were truncated");
+	}
+
+	@Test
+	void damagedLengthBeforeTail_Fails() throws TemporalPersistenceException, IOException {
+		try (var persistence = open()) {
+			persistence.createNew(Examples.struct(this.id, 1), Examples.DAY_1);
+			persistence.appendVersion(Examples.struct(this.id, 2), Examples.DAY_2);
+			persistence.appendVersion(Examples.struct(this.id, 3), Examples.DAY_3);
+		}
+
+		final var last = segments().get(segments().size() - 1);
+		final var bytes = Files.readAllBytes(last);
+		final var record = ByteBuffer.wrap(bytes);
+		final var second = Integer.BYTES * 3 + record.getInt(0);
+		record.putInt(second, record.getInt(second) | 0x00FF0000);
+		Files.write(last, bytes);
+
+		Assertions.assertThrows(TemporalPersistenceException.class, this::open, "a damaged length should fail the replay");
+		Assertions.assertEquals(bytes.length, Files.size(last), "the intact records after the damaged length were truncated");
+	}
+
+	@Test
+	void damagedSegment_Fails()throws TemporalPersistenceException, IOException {
+		try (var persistence = open(256)) {
+			for (int i = 0; i < 10; i++) {
+				persistence.createNew(Examples.struct(UUID.randomUUID(), i), Examples.DAY_1);
+			}
+		}
+
+		final var first = segments().get(0);
+		final var bytes = Files.readAllBytes(first);
+		bytes[bytes.length - 1] ^= 0xFF;
+		Files.write(first, bytes);
+
+		Assertions.assertThrows(TemporalPersistenceException.class, this::open);
+	}
+
+	@Test
+	void closed_RefusesWrites() throws TemporalPersistenceException {
+		final var persistence = open();
+		persistence.createNew(Examples.struct(this.id, 1), Examples.DAY_1);
+		persistence.close();
+
+		Assertions.assertThrows(TemporalPersistenceException.class, () -> persistence.appendVersion(Examples.struct(this.id, 2), Examples.DAY_2));
+		Assertions.assertEquals(1, persistence.getAllVersions(this.id).size(), "refused write was published");
+		Assertions.assertTrue(persistence.getByIdCurrent(this.id).isPresent(), "reads fail after close");
+
+		final var other = UUID.randomUUID();
+		Assertions.assertThrows(TemporalPersistenceException.class, () -> persistence.createNew(Examples.struct(other, 1), Examples.DAY_1));
+		Assertions.assertTrue(persistence.getAllVersions(other).isEmpty(), "refused create was published");
+	}
+
+	@Test
+	void groupCommit_ConcurrentWriters() throws Exception {
+		final var config = WalConfig.builder().directory(this.directory).groupCommitWindow(Duration.ofMillis(2)).groupCommitRecords(8).build();
+		final var ids = new ArrayList<UUID>();
+		final var tasks = new ArrayList<Callable<Void>>();
+
+		try (var persistence = new WalTemporalPersistence<>("example", ExampleSnapshot::new, ExampleStruct::new, ExampleStructGeneratedCodec.INSTANCE, config)) {
+			for (int i = 0; i < 64; i++) {
+				final var id = UUID.randomUUID();
+				ids.add(id);
+				tasks.add(() -> {
+					persistence.createNew(Examples.struct(id, 1), Examples.DAY_1);
+					persistence.appendVersion(Examples.struct(id, 2), Examples.DAY_2);
+					return null;
+				});
+			}
+
+			final var executor = Executors.newFixedThreadPool(8);
+			try {
+				for (final var future : executor.invokeAll(tasks)) {
+					future.get();
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+
+		try (var persistence = open()) {
+			for (final var id : ids) {
+				Assertions.assertEquals(2, persistence.getByIdLast(id).orElseThrow().struct.getIntValue(), "write was lost for " + id);
+			}
+		}
+	}
+}
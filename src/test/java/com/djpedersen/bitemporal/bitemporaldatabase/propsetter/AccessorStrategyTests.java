@@ -0,0 +1,77 @@
+package com.djpedersen.bitemporal.bitemporaldatabase.propsetter;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleSubStruct;
+
+class AccessorStrategyTests {
+
+	static class FinalHolder {
+		private final int finalValue = 1;
+
+		int getFinalValue() {
+			return this.finalValue;
+		}
+	}
+
+	@Test
+	void getAndSet() throws ReflectiveOperationException {
+		final var field = ExampleStruct.class.getDeclaredField("intValue");
+		field.setAccessible(true);
+
+		for (final var strategy : AccessorStrategy.values()) {
+			final var accessor = strategy.accessorFor(field);
+			final var struct = ExampleStruct.builder().intValue(1).build();
+
+			Assertions.assertEquals(1, accessor.get(struct), strategy + " read the wrong value");
+			accessor.set(struct, 2);
+			Assertions.assertEquals(2, struct.getIntValue(), strategy + " set the wrong value");
+		}
+	}
+
+	@Test
+	void set_Invalid() throws ReflectiveOperationException {
+		final var intField = ExampleStruct.class.getDeclaredField("intValue");
+		intField.setAccessible(true);
+		final var idField = ExampleStruct.class.getDeclaredField("id");
+		idField.setAccessible(true);
+
+		for (final var strategy : AccessorStrategy.values()) {
+			final var struct = new ExampleStruct();
+
+			Assertions.assertThrows(IllegalArgumentException.class, () -> strategy.accessorFor(intField).set(struct, null), strategy + " null primitive");
+			Assertions.assertThrows(IllegalArgumentException.class, () -> strategy.accessorFor(idField).set(struct, "not a UUID"), strategy + " wrong type");
+			Assertions.assertThrows(IllegalArgumentException.class, () -> strategy.accessorFor(idField).set(new ExampleSubStruct(), UUID.randomUUID()),
+					strategy + " wrong target");
+		}
+	}
+
+	@Test
+	void set_FinalField() throws ReflectiveOperationException {
+		final var field = FinalHolder.class.getDeclaredField("finalValue");
+		field.setAccessible(true);
+
+		for (final var strategy : AccessorStrategy.values()) {
+			final var holder = new FinalHolder();
+
+			strategy.accessorFor(field).set(holder, 2);
+			Assertions.assertEquals(2, strategy.accessorFor(field).get(holder), strategy + " set the wrong value");
+		}
+	}
+
+	@Test
+	void compiledPath() throws IllegalAccessException {
+		for (final var strategy : AccessorStrategy.values()) {
+			final var path = CompiledPropertyPath.of(ExampleStruct.class, "$.subStruct.subIntValue", strategy);
+			final var struct = ExampleStruct.builder().subStruct(new ExampleSubStruct(1)).build();
+
+			Assertions.assertSame(strategy, path.getStrategy(), "wrong strategy");
+			Assertions.assertTrue(path.set(struct, 2), strategy + " value should have been set");
+			Assertions.assertEquals(2, struct.getSubStruct().getSubIntValue(), strategy + " set the wrong value");
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package com.djpedersen.bitemporal.bitemporaldatabase.propsetter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleSubStruct;
+
+class CompiledPropertyPathTests {
+
+	@Test
+	void of_IsCached() {
+		final var first = CompiledPropertyPath.of(ExampleStruct.class, "$.subStruct.subIntValue");
+		final var second = CompiledPropertyPath.of(ExampleStruct.class, "$.subStruct.subIntValue");
+
+		Assertions.assertSame(first, second, "path should be compiled once per class");
+		Assertions.assertEquals("$.subStruct.subIntValue", first.getAttributePath(), "wrong path");
+	}
+
+	@Test
+	void of_CacheIsBounded() throws IllegalAccessException {
+		final var first = CompiledPropertyPath.of(ArrayHolder.class, "$.values[0]");
+
+		for (int i = 1; i < CompiledPropertyPath.MAX_CACHED_PATHS + 100; i++) {
+			CompiledPropertyPath.of(ArrayHolder.class, "$.values[" + i + "]");
+		}
+
+		final var beyond = "$.values[" + (CompiledPropertyPath.MAX_CACHED_PATHS + 50) + "]";
+		Assertions.assertSame(first, CompiledPropertyPath.of(ArrayHolder.class, "$.values[0]"), "cached paths should be kept");
+		Assertions.assertNotSame(CompiledPropertyPath.of(ArrayHolder.class, beyond), CompiledPropertyPath.of(ArrayHolder.class, beyond),
+				"paths beyond the bound should not be cached");
+
+		final var holder = new ArrayHolder();
+		Assertions.assertTrue(CompiledPropertyPath.of(ArrayHolder.class, beyond).set(holder, 7), "uncached paths should still apply");
+		Assertions.assertEquals(7, holder.values[CompiledPropertyPath.MAX_CACHED_PATHS + 50], "the wrong value was set");
+	}
+
+	@Test
+	void compile_Malformed() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> CompiledPropertyPath.compile("intValue"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> CompiledPropertyPath.compile("$.stringList[a]"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> CompiledPropertyPath.compile("$.stringList[1"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> CompiledPropertyPath.compile("$.stringList[-1]"));
+	}
+
+	@Test
+	void set_ManyObjects() throws IllegalAccessException {
+		final var path = CompiledPropertyPath.of(ExampleStruct.class, "$.subStruct.subIntValue");
+
+		for (int i = 0; i < 10; i++) {
+			final var objectToFix = ExampleStruct.builder().subStruct(ExampleSubStruct.builder().subIntValue(i).build()).build();
+
+			Assertions.assertTrue(path.set(objectToFix, i * 10), "value should have been set");
+			Assertions.assertEquals(i * 10, objectToFix.getSubStruct().getSubIntValue(), "the wrong value was set");
+		}
+	}
+
+	@Test
+	void set_MissingAttribute() throws IllegalAccessException {
+		final var objectToFix = ExampleStruct.builder().intValue(1).build();
+		final var original = new ExampleStruct(objectToFix);
+
+		Assertions.assertFalse(CompiledPropertyPath.of(ExampleStruct.class, "$.noSuchValue").set(objectToFix, 2), "value should NOT have been set");
+		Assertions.assertFalse(CompiledPropertyPath.of(ExampleStruct.class, "$.noSuch.subIntValue").set(objectToFix, 2), "value should NOT have been set");
+		Assertions.assertEquals(original, objectToFix, "object should not have been changed");
+	}
+
+	@Test
+	void set_IndexOutOfRange() throws IllegalAccessException {
+		final var list = new ArrayList<ExampleSubStruct>(List.of(new ExampleSubStruct(1)));
+		final var objectToFix = ExampleStruct.builder().subStructList(list).stringArray(new String[] { "a" }).build();
+
+		Assertions.assertFalse(CompiledPropertyPath.of(ExampleStruct.class, "$.subStructList[1].subIntValue").set(objectToFix, 2),
+				"value should NOT have been set");
+		Assertions.assertFalse(CompiledPropertyPath.of(ExampleStruct.class, "$.stringArray[1]").set(objectToFix, "b"), "value should NOT have been set");
+		Assertions.assertEquals(1, list.get(0).getSubIntValue(), "object should not have been changed");
+	}
+
+	@Test
+	void set_ListElement() throws IllegalAccessException {
+		final var list = new ArrayList<ExampleSubStruct>(List.of(new ExampleSubStruct(1), new ExampleSubStruct(2)));
+		final var objectToFix = ExampleStruct.builder().subStructList(list).build();
+
+		final var replacement = new ExampleSubStruct(3);
+		Assertions.assertTrue(CompiledPropertyPath.of(ExampleStruct.class, "$.subStructList[1]").set(objectToFix, replacement),
+				"value should have been set");
+		Assertions.assertSame(replacement, objectToFix.getSubStructList().get(1), "the wrong value was set");
+	}
+
+	@Test
+	void set_ThroughSet() throws IllegalAccessException {
+		final var holder = new SetHolder();
+		holder.subStructs.add(new ExampleSubStruct(1));
+		holder.subStructs.add(new ExampleSubStruct(2));
+
+		Assertions.assertTrue(CompiledPropertyPath.of(SetHolder.class, "$.subStructs[1].subIntValue").set(holder, 22), "value should have been set");
+		Assertions.assertEquals(22, holder.subStructs.stream().skip(1).findFirst().orElseThrow().getSubIntValue(), "the wrong value was set");
+		Assertions.assertFalse(CompiledPropertyPath.of(SetHolder.class, "$.subStructs[0]").set(holder, new ExampleSubStruct(3)),
+				"set elements cannot be replaced");
+	}
+
+	static class ArrayHolder {
+		final int[] values = new int[CompiledPropertyPath.MAX_CACHED_PATHS * 2];
+	}
+
+	static class SetHolder {
+		final LinkedHashSet<ExampleSubStruct> subStructs = new LinkedHashSet<>();
+	}
+}
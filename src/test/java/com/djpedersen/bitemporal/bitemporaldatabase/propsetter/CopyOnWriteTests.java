@@ -0,0 +1,151 @@
+package com.djpedersen.bitemporal.bitemporaldatabase.propsetter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct;
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleSubStruct;
+
+class CopyOnWriteTests {
+
+	private static ExampleStruct struct() {
+		return ExampleStruct.builder().id(UUID.randomUUID()).intValue(1).stringList(new ArrayList<>(List.of("a", "b")))
+				.stringArray(new String[] { "c", "d" }).subStructList(new ArrayList<>(List.of(new ExampleSubStruct(1), new ExampleSubStruct(2))))
+				.subStruct(new ExampleSubStruct(3)).build();
+	}
+
+	@Test
+	void set_CopiesOnlyThePath() throws IllegalAccessException {
+		final var original = struct();
+		final var copy = new CopyOnWrite(original, AccessorStrategy.VAR_HANDLE);
+
+		Assertions.assertTrue(CompiledPropertyPath.of(ExampleStruct.class, "$.subStructList[1].subIntValue").set(copy, 22),
+				"value should have been set");
+
+		final var corrected = (ExampleStruct) copy.result();
+		Assertions.assertNotSame(original, corrected, "the root should be copied");
+		Assertions.assertEquals(2, original.getSubStructList().get(1).getSubIntValue(), "the original was altered");
+		Assertions.assertEquals(22, corrected.getSubStructList().get(1).getSubIntValue(), "the copy was not corrected");
+		Assertions.assertNotSame(original.getSubStructList(), corrected.getSubStructList(), "the list on the path should be copied");
+		Assertions.assertSame(original.getSubStructList().get(0), corrected.getSubStructList().get(0), "untouched elements should be shared");
+		Assertions.assertSame(original.getStringList(), corrected.getStringList(), "untouched fields should be shared");
+		Assertions.assertSame(original.getSubStruct(), corrected.getSubStruct(), "untouched fields should be shared");
+	}
+
+	@Test
+	void set_SeveralPathsCopyEachObjectOnce() throws IllegalAccessException {
+		final var original = struct();
+		final var copy = new CopyOnWrite(original, AccessorStrategy.REFLECTION);
+
+		CompiledPropertyPath.of(ExampleStruct.class, "$.stringArray[0]").set(copy, "x");
+		final var afterFirst = (ExampleStruct) copy.result();
+		final var firstArray = afterFirst.getStringArray();
+		CompiledPropertyPath.of(ExampleStruct.class, "$.stringArray[1]").set(copy, "y");
+		CompiledPropertyPath.of(ExampleStruct.class, "$.intValue").set(copy, 5);
+
+		final var corrected = (ExampleStruct) copy.result();
+		Assertions.assertSame(afterFirst, corrected, "the root should only be copied once");
+		Assertions.assertSame(firstArray, corrected.getStringArray(), "the array should only be copied once");
+		Assertions.assertArrayEquals(new String[] { "x", "y" }, corrected.getStringArray(), "both elements should be set");
+		Assertions.assertArrayEquals(new String[] { "c", "d" }, original.getStringArray(), "the original was altered");
+		Assertions.assertEquals(5, corrected.getIntValue(), "intValue not set");
+		Assertions.assertEquals(1, original.getIntValue(), "the original was altered");
+	}
+
+	@Test
+	void set_MissingPathCopiesNothing() throws IllegalAccessException {
+		final var original = struct();
+		original.setSubStruct(null);
+		final var copy = new CopyOnWrite(original, AccessorStrategy.VAR_HANDLE);
+
+		Assertions.assertFalse(CompiledPropertyPath.of(ExampleStruct.class, "$.noSuchValue").set(copy, 2), "value should NOT have been set");
+		Assertions.assertFalse(CompiledPropertyPath.of(ExampleStruct.class, "$.subStruct.subIntValue").set(copy, 2), "value should NOT have been set");
+		Assertions.assertFalse(CompiledPropertyPath.of(ExampleStruct.class, "$.stringArray[2]").set(copy, "e"), "value should NOT have been set");
+		Assertions.assertFalse(copy.isCopied(), "nothing should have been copied");
+		Assertions.assertSame(original, copy.result(), "the result should be the original");
+	}
+
+	@Test
+	void set_ThroughSet() throws IllegalAccessException {
+		final var holder = new CompiledPropertyPathTests.SetHolder();
+		holder.subStructs.add(new ExampleSubStruct(1));
+		holder.subStructs.add(new ExampleSubStruct(2));
+		holder.subStructs.add(new ExampleSubStruct(3));
+		final var copy = new CopyOnWrite(holder, AccessorStrategy.REFLECTION);
+
+		Assertions.assertTrue(CompiledPropertyPath.of(CompiledPropertyPathTests.SetHolder.class, "$.subStructs[1].subIntValue").set(copy, 22),
+				"value should have been set");
+
+		final var corrected = (CompiledPropertyPathTests.SetHolder) copy.result();
+		Assertions.assertEquals(List.of(new ExampleSubStruct(1), new ExampleSubStruct(22), new ExampleSubStruct(3)), new ArrayList<>(corrected.subStructs),
+				"the order should be kept");
+		Assertions.assertEquals(List.of(new ExampleSubStruct(1), new ExampleSubStruct(2), new ExampleSubStruct(3)), new ArrayList<>(holder.subStructs),
+				"the original was altered");
+		Assertions.assertTrue(corrected.subStructs instanceof LinkedHashSet, "sets are copied as LinkedHashSets");
+		Assertions.assertTrue(corrected.subStructs.contains(new ExampleSubStruct(22)), "the corrected element should be found by its new hash");
+		Assertions.assertFalse(corrected.subStructs.contains(new ExampleSubStruct(2)), "the original element should not be found");
+		Assertions.assertTrue(corrected.subStructs.remove(new ExampleSubStruct(22)), "the corrected element should be removable");
+	}
+
+	@Test
+	void set_KeepsCollectionClasses() throws IllegalAccessException {
+		final var holder = new ConcreteCollections();
+		holder.values.addAll(List.of("a", "b"));
+		holder.sorted.addAll(List.of(new ExampleSubStruct(1), new ExampleSubStruct(2)));
+		holder.fixed = List.of("c", "d", "e");
+		holder.fixedSet = Set.of(new ExampleSubStruct(4));
+		final var copy = new CopyOnWrite(holder, AccessorStrategy.VAR_HANDLE);
+
+		Assertions.assertTrue(CompiledPropertyPath.of(ConcreteCollections.class, "$.values[1]").set(copy, "x"), "value should have been set");
+		Assertions.assertTrue(CompiledPropertyPath.of(ConcreteCollections.class, "$.sorted[0].subIntValue").set(copy, 3),
+				"value should have been set");
+		Assertions.assertTrue(CompiledPropertyPath.of(ConcreteCollections.class, "$.fixed[0]").set(copy, "y"), "value should have been set");
+		Assertions.assertTrue(CompiledPropertyPath.of(ConcreteCollections.class, "$.fixed[2]").set(copy, null), "value should have been set");
+		Assertions.assertTrue(CompiledPropertyPath.of(ConcreteCollections.class, "$.fixedSet[0].subIntValue").set(copy, 5),
+				"value should have been set");
+
+		final var corrected = (ConcreteCollections) copy.result();
+		Assertions.assertEquals(List.of("a", "x"), corrected.values, "LinkedList not corrected");
+		Assertions.assertEquals(List.of(new ExampleSubStruct(2), new ExampleSubStruct(3)), new ArrayList<>(corrected.sorted),
+				"TreeSet should keep its comparator");
+		Assertions.assertEquals(Arrays.asList("y", "d", null), corrected.fixed, "immutable List not corrected");
+		Assertions.assertThrows(UnsupportedOperationException.class, () -> corrected.fixed.add("z"), "an unmodifiable List should stay unmodifiable");
+		Assertions.assertEquals(Set.of(new ExampleSubStruct(5)), corrected.fixedSet, "immutable Set not corrected");
+		Assertions.assertThrows(UnsupportedOperationException.class, () -> corrected.fixedSet.clear(), "an unmodifiable Set should stay unmodifiable");
+		Assertions.assertEquals(List.of("c", "d", "e"), holder.fixed, "the original was altered");
+		Assertions.assertEquals(List.of("a", "b"), holder.values, "the original was altered");
+		Assertions.assertEquals(List.of(new ExampleSubStruct(1), new ExampleSubStruct(2)), new ArrayList<>(holder.sorted), "the original was altered");
+	}
+
+	static class ConcreteCollections {
+		LinkedList<String> values = new LinkedList<>();
+		TreeSet<ExampleSubStruct> sorted = new TreeSet<>(Comparator.comparingInt(ExampleSubStruct::getSubIntValue));
+		List<String> fixed;
+		Set<ExampleSubStruct> fixedSet;
+	}
+
+	@Test
+	void set_WithoutNoArgumentConstructor() {
+		final var copy = new CopyOnWrite(new Immutable(1), AccessorStrategy.REFLECTION);
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> CompiledPropertyPath.of(Immutable.class, "$.value").set(copy, 2));
+	}
+
+	static class Immutable {
+		int value;
+
+		Immutable(final int value) {
+			this.value = value;
+		}
+	}
+}
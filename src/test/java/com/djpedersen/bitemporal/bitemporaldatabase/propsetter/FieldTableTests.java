@@ -0,0 +1,45 @@
+package com.djpedersen.bitemporal.bitemporaldatabase.propsetter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct;
+
+class FieldTableTests {
+
+	static class Base {
+		static int staticValue;
+		private int baseValue;
+		private String shadowed;
+	}
+
+	static class Derived extends Base {
+		private int shadowed;
+		private int derivedValue;
+	}
+
+	@Test
+	void of_IsCached() {
+		Assertions.assertSame(FieldTable.of(ExampleStruct.class), FieldTable.of(ExampleStruct.class), "table should be built once per class");
+	}
+
+	@Test
+	void get_Inherited() {
+		final var table = FieldTable.of(Derived.class);
+
+		Assertions.assertEquals(Derived.class, table.get("derivedValue").getDeclaringClass(), "wrong field");
+		Assertions.assertEquals(Base.class, table.get("baseValue").getDeclaringClass(), "inherited field should be found");
+		Assertions.assertEquals(Derived.class, table.get("shadowed").getDeclaringClass(), "subclass field should hide superclass field");
+		Assertions.assertNull(table.get("staticValue"), "static fields are not part of the table");
+		Assertions.assertNull(table.get("noSuchValue"), "no such field");
+		Assertions.assertEquals(4, table.fields().size(), "wrong number of fields");
+	}
+
+	@Test
+	void compiledPath_InheritedField() throws IllegalAccessException {
+		final var derived = new Derived();
+
+		Assertions.assertTrue(CompiledPropertyPath.of(Derived.class, "$.baseValue").set(derived, 3), "value should have been set");
+		Assertions.assertEquals(3, ((Base) derived).baseValue, "the wrong value was set");
+	}
+}
@@ -5,7 +5,6 @@ import java.util.ArrayList;
 import java.util.UUID;
 
 import org.junit.jupiter.api.Assertions;
-import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 import com.djpedersen.bitemporal.bitemporaldatabase.example.ExampleStruct;
@@ -108,8 +107,6 @@ class PropertySetterTests {
 		Assertions.assertEquals(newValue, objectToFix.getSubStruct().getSubIntValue(), "the wrong value was set");
 	}
 
-	// TODO: PropertySetter setArrayField_Simple
-	@Disabled("not fully implemented")
 	@Test
 	void setArrayField_Simple() throws IllegalArgumentException, IllegalAccessException, NoSuchMethodException, SecurityException, InvocationTargetException {
 		final var initialValue = "this is a test";
@@ -127,8 +124,6 @@ class PropertySetterTests {
 		Assertions.assertEquals(newValue, objectToFix.getStringArray()[0], "the wrong value was set");
 	}
 
-	// TODO: PropertySetter setListField_Simple
-	@Disabled("not fully implemented")
 	@Test
 	void setListField_Simple() throws IllegalArgumentException, IllegalAccessException, NoSuchMethodException, SecurityException, InvocationTargetException {
 		final var initialValue = "this is a test";